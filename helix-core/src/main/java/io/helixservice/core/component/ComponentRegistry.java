@@ -24,7 +24,7 @@ public interface ComponentRegistry {
     /**
      * Returns the full map of registered components by type name.
      * <br>
-     * Do not modify the map, it is only for finding components.
+     * The map is an immutable snapshot, it is only for finding components.
      *
      * @return The registered components map.
      */
@@ -75,4 +75,17 @@ public interface ComponentRegistry {
      * @return The found component, or the default component if no component was found.
      */
     <T extends Component> T findComponentByType(String componentType, T defaultValue);
+
+    /**
+     * Finds a single registered component by its Java type.
+     * Components whose class is exactly the given type are preferred over
+     * subclasses and implementations. Among equal matches, the last (most recently)
+     * registered component will be returned.
+     *
+     * @param type Class or interface of the component to find
+     * @param <T>  Resulting class of the component expected
+     *
+     * @return The found component, or null if no component was found.
+     */
+    <T> T findComponentByClass(Class<T> type);
 }
@@ -0,0 +1,182 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+package io.helixservice.core.component;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Multimap;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Component registry which indexes components by type name and by Java class hierarchy.
+ * <p>
+ * Registration is expected to happen mostly during startup. Reads are served from an
+ * immutable snapshot, which is rebuilt lazily after the registry changes.
+ * Once built, a snapshot is shared by all readers without copying or locking.
+ */
+public class IndexedComponentRegistry implements ComponentRegistry {
+    private final ListMultimap<String, Component> components = ArrayListMultimap.create();
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Multimap<String, Component> getComponentMap() {
+        return snapshot().byTypeName;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized ComponentRegistry register(Component... components) {
+        for (Component component : components) {
+            this.components.put(component.getComponentType(), component);
+            register(component.getContainedComponents());
+        }
+
+        snapshot = null;
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized ComponentRegistry registerAllFrom(ComponentRegistry registry) {
+        components.putAll(registry.getComponentMap());
+        snapshot = null;
+        return this;
+    }
+
+    /**
+     * Remove all registered components
+     */
+    public synchronized void clear() {
+        components.clear();
+        snapshot = null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<Component> findAllComponents() {
+        return snapshot().byTypeName.values();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T extends Component> Collection<T> findComponentByType(String componentType) {
+        @SuppressWarnings("unchecked")
+        Collection<T> result = (Collection<T>) snapshot().byTypeName.get(componentType);
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T extends Component> T findComponentByType(String componentType, T defaultValue) {
+        //noinspection unchecked
+        return Iterables.getLast((Collection<T>) snapshot().byTypeName.get(componentType), defaultValue);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> T findComponentByClass(Class<T> type) {
+        Snapshot current = snapshot();
+
+        Collection<Component> found = current.byExactClass.get(type);
+        if (found.isEmpty()) {
+            found = current.byClassHierarchy.get(type);
+        }
+
+        return type.cast(Iterables.getLast(found, null));
+    }
+
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    snapshot = Snapshot.of(components);
+                }
+                current = snapshot;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Immutable view of the registered components, with lookup indexes
+     */
+    private static final class Snapshot {
+        private static final Snapshot EMPTY = of(ArrayListMultimap.create());
+
+        private final ImmutableListMultimap<String, Component> byTypeName;
+        private final ImmutableListMultimap<Class<?>, Component> byExactClass;
+        private final ImmutableListMultimap<Class<?>, Component> byClassHierarchy;
+
+        private Snapshot(ImmutableListMultimap<String, Component> byTypeName,
+                ImmutableListMultimap<Class<?>, Component> byExactClass,
+                ImmutableListMultimap<Class<?>, Component> byClassHierarchy) {
+            this.byTypeName = byTypeName;
+            this.byExactClass = byExactClass;
+            this.byClassHierarchy = byClassHierarchy;
+        }
+
+        private static Snapshot of(ListMultimap<String, Component> components) {
+            ImmutableListMultimap.Builder<Class<?>, Component> byExactClass = ImmutableListMultimap.builder();
+            ImmutableListMultimap.Builder<Class<?>, Component> byClassHierarchy = ImmutableListMultimap.builder();
+            Map<Class<?>, Set<Class<?>>> hierarchyCache = new HashMap<>();
+
+            for (Component component : components.values()) {
+                Class<?> componentClass = component.getClass();
+                byExactClass.put(componentClass, component);
+
+                for (Class<?> assignableType : hierarchyCache.computeIfAbsent(componentClass, Snapshot::typeHierarchy)) {
+                    byClassHierarchy.put(assignableType, component);
+                }
+            }
+
+            return new Snapshot(ImmutableListMultimap.copyOf(components), byExactClass.build(), byClassHierarchy.build());
+        }
+
+        private static Set<Class<?>> typeHierarchy(Class<?> type) {
+            Set<Class<?>> hierarchy = new LinkedHashSet<>();
+            addTypeHierarchy(type, hierarchy);
+            return hierarchy;
+        }
+
+        private static void addTypeHierarchy(Class<?> type, Set<Class<?>> hierarchy) {
+            if (type != null && hierarchy.add(type)) {
+                addTypeHierarchy(type.getSuperclass(), hierarchy);
+                for (Class<?> interfaceType : type.getInterfaces()) {
+                    addTypeHierarchy(interfaceType, hierarchy);
+                }
+            }
+        }
+    }
+}
@@ -45,6 +45,13 @@ public interface Container extends ComponentRegistry {
      */
     List<Feature> getFeatures();
 
+    /**
+     * Get the container-wide count of in-flight requests
+     *
+     * @return The in-flight request tracker, which is drained when the container stops
+     */
+    InFlightRequests getInFlightRequests();
+
     /**
      * Start the Helix Server, asynchronously
      * <p>
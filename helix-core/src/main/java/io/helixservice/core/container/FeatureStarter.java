@@ -0,0 +1,127 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+package io.helixservice.core.container;
+
+import io.helixservice.core.feature.Feature;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Starts features on a bounded thread pool, honoring their dependencies.
+ * <p>
+ * A feature is started only after every feature it depends on has started.
+ * Independent features start concurrently, so the order of features without
+ * constructor dependencies between them is not guaranteed. Features that
+ * return true from shouldStartAfterOtherFeatures start after every other feature.
+ */
+class FeatureStarter {
+    private final Container container;
+    private final Map<Feature, Set<Feature>> featureDependencies;
+    private final int threads;
+
+    /**
+     * @param container Container passed to each feature's start method
+     * @param featureDependencies Map of feature to the features it depends upon
+     * @param threads Maximum number of features to start concurrently
+     */
+    FeatureStarter(Container container, Map<Feature, Set<Feature>> featureDependencies, int threads) {
+        this.container = container;
+        this.featureDependencies = featureDependencies;
+        this.threads = threads;
+    }
+
+    /**
+     * Start the features, blocking until all have started
+     *
+     * @param features Features to start, in registration order
+     * @return Start time in milliseconds for each feature, in registration order
+     * @throws RuntimeException The first failure thrown by a feature's start method
+     */
+    Map<Feature, Long> startFeatures(List<Feature> features) {
+        Map<Feature, Long> startTimes = new ConcurrentHashMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads), new FeatureStarterThreadFactory());
+
+        try {
+            Map<Feature, CompletableFuture<Void>> started = new LinkedHashMap<>();
+            for (Feature feature : features) {
+                if (!feature.shouldStartAfterOtherFeatures()) {
+                    started.put(feature, startAfter(feature, dependenciesOf(feature, started), startTimes, executor));
+                }
+            }
+
+            // Such as an HTTP server, which must not accept requests while other features are starting
+            CompletableFuture<?>[] others = started.values().toArray(new CompletableFuture<?>[started.size()]);
+            for (Feature feature : features) {
+                if (feature.shouldStartAfterOtherFeatures()) {
+                    CompletableFuture<Void> dependencies = CompletableFuture.allOf(
+                            CompletableFuture.allOf(others), dependenciesOf(feature, started));
+                    started.put(feature, startAfter(feature, dependencies, startTimes, executor));
+                }
+            }
+
+            CompletableFuture.allOf(started.values().toArray(new CompletableFuture<?>[started.size()])).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            } else if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        } finally {
+            executor.shutdown();
+        }
+
+        Map<Feature, Long> result = new LinkedHashMap<>();
+        for (Feature feature : features) {
+            result.put(feature, startTimes.get(feature));
+        }
+        return result;
+    }
+
+    private CompletableFuture<Void> dependenciesOf(Feature feature, Map<Feature, CompletableFuture<Void>> started) {
+        CompletableFuture<?>[] dependencies = featureDependencies.getOrDefault(feature, Collections.emptySet())
+                .stream()
+                .filter(started::containsKey)
+                .map(started::get)
+                .toArray(CompletableFuture<?>[]::new);
+        return CompletableFuture.allOf(dependencies);
+    }
+
+    private CompletableFuture<Void> startAfter(Feature feature, CompletableFuture<Void> dependencies,
+            Map<Feature, Long> startTimes, ExecutorService executor) {
+        return dependencies.thenRunAsync(() -> {
+            long start = System.currentTimeMillis();
+            feature.start(container);
+            startTimes.put(feature, System.currentTimeMillis() - start);
+        }, executor);
+    }
+
+    private static class FeatureStarterThreadFactory implements ThreadFactory {
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            return new Thread(runnable, "helix-feature-start-" + threadNumber.incrementAndGet());
+        }
+    }
+}
@@ -13,11 +13,10 @@
 
 package io.helixservice.core.container;
 
-import com.google.common.collect.ArrayListMultimap;
-import com.google.common.collect.Iterables;
 import com.google.common.collect.Multimap;
 import io.helixservice.core.component.Component;
 import io.helixservice.core.component.ComponentRegistry;
+import io.helixservice.core.component.IndexedComponentRegistry;
 import io.helixservice.core.feature.Feature;
 import io.helixservice.core.feature.FeatureBuilder;
 import io.vertx.core.Vertx;
@@ -30,7 +29,9 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -42,14 +43,17 @@ import java.util.stream.Collectors;
 public class Helix implements Container {
     private static final Logger LOG = LoggerFactory.getLogger(Helix.class);
     private static final long HELIX_START_TIMEOUT_MILLIS = 60 * 2 * 1000;
+    private static final long DRAIN_PROGRESS_INTERVAL_MILLIS = 1000;
 
     // Container Related
-    private Multimap<String, Component> componentsMap = ArrayListMultimap.create();
+    private final IndexedComponentRegistry componentRegistry = new IndexedComponentRegistry();
     private ContainerState containerState = ContainerState.STOPPED;
+    private final InFlightRequests inFlightRequests = new InFlightRequests();
 
     // Features Installed
     private List<Class<?>> featureClasses;
     private List<Feature> features;
+    private Map<Feature, Set<Feature>> featureDependencies;
     private boolean bootstrapFeaturesStarted = false;
 
     private Vertx vertx;
@@ -118,6 +122,14 @@ public class Helix implements Container {
         return features;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public InFlightRequests getInFlightRequests() {
+        return inFlightRequests;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -135,6 +147,7 @@ public class Helix implements Container {
             LOG.info("Building Features");
             FeatureBuilder featureBuilder = new FeatureBuilder(this);
             features = featureBuilder.buildAndRegisterFeatures(featureClasses);
+            featureDependencies = featureBuilder.getFeatureDependencies();
 
             startFeatures(bootstrapFeaturesStarted ? Collections.emptyList() : getBootstrapFeatures());
             bootstrapFeaturesStarted = true;
@@ -142,6 +155,11 @@ public class Helix implements Container {
             // Initialize Vertx
             String numWorkers = System.getProperty("vertx.server.workers", "50");
             VertxOptions options = new VertxOptions().setWorkerPoolSize(Integer.parseInt(numWorkers));
+            for (VertxOptionsCustomizer customizer : this.<VertxOptionsCustomizer>findComponentByType(VertxOptionsCustomizer.TYPE_NAME)) {
+                customizer.customize(options);
+            }
+            LOG.info("Creating Vert.x with eventLoopPoolSize=" + options.getEventLoopPoolSize()
+                    + " workerPoolSize=" + options.getWorkerPoolSize());
             vertx = Vertx.vertx(options);
 
             startFeatures(getCoreFeatures());
@@ -155,11 +173,19 @@ public class Helix implements Container {
     }
 
     private void startFeatures(List<Feature> features) {
-        features.stream().forEach(feature ->
-        {
-            feature.start(Helix.this);
+        int threads = Integer.parseInt(System.getProperty("helix.startup.threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+
+        FeatureStarter featureStarter = new FeatureStarter(this, featureDependencies, threads);
+        Map<Feature, Long> startTimes = featureStarter.startFeatures(features);
+
+        for (Feature feature : features) {
             feature.logFeatureDetails(LOG);
-        });
+        }
+
+        for (Map.Entry<Feature, Long> startTime : startTimes.entrySet()) {
+            LOG.info("Started feature=" + startTime.getKey().getFeatureName() + " in " + startTime.getValue() + " ms");
+        }
     }
 
     /**
@@ -207,11 +233,7 @@ public class Helix implements Container {
             }
 
             if (!immediate) {
-                try {
-                    Thread.sleep(15000);
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                }
+                drainInFlightRequests();
             }
 
             LOG.info("Stopping Helix");
@@ -221,10 +243,11 @@ public class Helix implements Container {
                     feature.stop(Helix.this);
                 }
 
-                componentsMap.clear();
+                componentRegistry.clear();
                 vertx = null;
                 containerState = ContainerState.STOPPED;
                 features = null;
+                featureDependencies = null;
 
                 LOG.info("Stopped Helix");
             });
@@ -234,12 +257,32 @@ public class Helix implements Container {
         return thread;
     }
 
+    private void drainInFlightRequests() {
+        long maxDrainMillis = Long.parseLong(System.getProperty("helix.stop.maxDrainMillis", "15000"));
+        long start = System.currentTimeMillis();
+
+        try {
+            boolean drained = inFlightRequests.awaitDrained(maxDrainMillis, DRAIN_PROGRESS_INTERVAL_MILLIS,
+                    remaining -> LOG.info("Draining in-flight requests remaining=" + remaining
+                            + " elapsedMs=" + (System.currentTimeMillis() - start)));
+
+            if (drained) {
+                LOG.info("Drained in-flight requests in " + (System.currentTimeMillis() - start) + " ms");
+            } else {
+                LOG.warn("Timed out draining in-flight requests after " + maxDrainMillis
+                        + " ms, remaining=" + inFlightRequests.get());
+            }
+        } catch (InterruptedException e) {
+            LOG.error("Draining in-flight requests was interrupted", e);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public Multimap<String, Component> getComponentMap() {
-        return ArrayListMultimap.create(componentsMap);
+        return componentRegistry.getComponentMap();
     }
 
     /**
@@ -247,11 +290,7 @@ public class Helix implements Container {
      */
     @Override
     public ComponentRegistry register(Component... components) {
-        for (Component component : components) {
-            componentsMap.put(component.getComponentType(), component);
-            register(component.getContainedComponents());
-        }
-
+        componentRegistry.register(components);
         return this;
     }
 
@@ -260,7 +299,7 @@ public class Helix implements Container {
      */
     @Override
     public ComponentRegistry registerAllFrom(ComponentRegistry registry) {
-        componentsMap.putAll(registry.getComponentMap());
+        componentRegistry.registerAllFrom(registry);
         return this;
     }
 
@@ -269,7 +308,7 @@ public class Helix implements Container {
      */
     @Override
     public Collection<Component> findAllComponents() {
-        return Collections.unmodifiableCollection(componentsMap.values());
+        return componentRegistry.findAllComponents();
     }
 
     /**
@@ -277,14 +316,7 @@ public class Helix implements Container {
      */
     @Override
     public <T extends Component> Collection<T> findComponentByType(String componentType) {
-        @SuppressWarnings("unchecked")
-        Collection<T> result = (Collection<T>) componentsMap.get(componentType);
-
-        if (result == null) {
-            result = Collections.emptyList();
-        }
-
-        return result;
+        return componentRegistry.findComponentByType(componentType);
     }
 
     /**
@@ -292,7 +324,14 @@ public class Helix implements Container {
      */
     @Override
     public <T extends Component> T findComponentByType(String componentType, T defaultValue) {
-        //noinspection unchecked
-        return Iterables.getFirst((Collection<T>) componentsMap.get(componentType), defaultValue);
+        return componentRegistry.findComponentByType(componentType, defaultValue);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> T findComponentByClass(Class<T> type) {
+        return componentRegistry.findComponentByClass(type);
     }
 }
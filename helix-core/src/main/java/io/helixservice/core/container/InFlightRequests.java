@@ -0,0 +1,80 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+package io.helixservice.core.container;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+
+/**
+ * Container-wide count of requests currently in flight.
+ * <p>
+ * Incoming HTTP requests and outgoing REST client calls are counted,
+ * allowing the container to drain them before shutting down Vert.x.
+ */
+public class InFlightRequests {
+    private static final long POLL_INTERVAL_MILLIS = 50;
+
+    private final AtomicLong inFlight = new AtomicLong();
+
+    /**
+     * Mark the start of a request
+     */
+    public void begin() {
+        inFlight.incrementAndGet();
+    }
+
+    /**
+     * Mark the end of a request previously started with begin()
+     */
+    public void end() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * @return The number of requests currently in flight
+     */
+    public long get() {
+        return inFlight.get();
+    }
+
+    /**
+     * Wait until there are no requests in flight, or the maximum wait time has elapsed.
+     *
+     * @param maxWaitMillis Maximum time to wait, in milliseconds
+     * @param progressIntervalMillis How often the progress listener is called while waiting
+     * @param progressListener Called with the current in-flight count during the wait
+     * @return True if all in-flight requests completed, false if the wait timed out
+     * @throws InterruptedException If the waiting thread is interrupted
+     */
+    public boolean awaitDrained(long maxWaitMillis, long progressIntervalMillis, LongConsumer progressListener)
+            throws InterruptedException {
+        long start = System.currentTimeMillis();
+        long nextProgress = start + progressIntervalMillis;
+
+        long remaining;
+        while ((remaining = inFlight.get()) > 0) {
+            long now = System.currentTimeMillis();
+            if (now - start >= maxWaitMillis) {
+                return false;
+            }
+
+            if (now >= nextProgress) {
+                progressListener.accept(remaining);
+                nextProgress = now + progressIntervalMillis;
+            }
+
+            Thread.sleep(POLL_INTERVAL_MILLIS);
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+package io.helixservice.core.container;
+
+import io.helixservice.core.component.Component;
+import io.vertx.core.VertxOptions;
+
+/**
+ * Component which may adjust the VertxOptions before the Helix container creates Vert.x.
+ * <p>
+ * Customizers are applied after the bootstrap features have started, so configuration
+ * is already available when they are called.
+ */
+@FunctionalInterface
+public interface VertxOptionsCustomizer extends Component {
+    String TYPE_NAME = "VertxOptionsCustomizer";
+
+    /**
+     * Modify the options that will be used to create Vert.x
+     *
+     * @param vertxOptions Options pre-populated with the container defaults
+     */
+    void customize(VertxOptions vertxOptions);
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    default String getComponentType() {
+        return TYPE_NAME;
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+package io.helixservice.core.execution;
+
+import co.paralleluniverse.fibers.Fiber;
+import co.paralleluniverse.fibers.SuspendExecution;
+import co.paralleluniverse.fibers.Suspendable;
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import io.vertx.ext.sync.Sync;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * Waits for an asynchronous Vert.x event, independent of the execution engine in use.
+ * <p>
+ * When called from a Quasar fiber, the fiber is suspended using Vert.x Sync.
+ * Otherwise the calling thread is blocked, which is never allowed on an event loop thread.
+ */
+public final class Await {
+    private Await() {
+    }
+
+    /**
+     * Receive a single event from a handler
+     *
+     * @param consumer Consumer which is passed the handler that will receive the event
+     * @param <T> Type of event
+     * @return The event received
+     * @throws SuspendExecution For Vert.x Sync
+     * @throws IllegalStateException If called on an event loop thread outside of a fiber
+     */
+    @Suspendable
+    public static <T> T awaitEvent(Consumer<Handler<T>> consumer) throws SuspendExecution {
+        if (Fiber.currentFiber() != null) {
+            return Sync.awaitEvent(consumer);
+        }
+
+        if (Context.isOnEventLoopThread()) {
+            throw new IllegalStateException("Cannot block waiting for an event on an event loop thread");
+        }
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        consumer.accept(result::complete);
+
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for an event", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Unexpected failure waiting for an event", e.getCause());
+        }
+    }
+}
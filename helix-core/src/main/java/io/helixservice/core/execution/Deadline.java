@@ -0,0 +1,118 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+package io.helixservice.core.execution;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Point in time by which a request must be complete.
+ * <p>
+ * Deadlines are measured with System.nanoTime, so they are only meaningful inside
+ * this JVM. Between services a deadline travels as the remaining budget in
+ * milliseconds, in the {@link #TIMEOUT_HEADER} header.
+ * <p>
+ * The deadline of the request being handled is available from {@link #current()}.
+ * It is fiber-local when running on a fiber, and thread-local otherwise.
+ */
+public final class Deadline {
+    /**
+     * Header carrying the remaining request budget, in milliseconds
+     */
+    public static final String TIMEOUT_HEADER = "X-Request-Timeout-Ms";
+
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+    private final long expiresAtNanos;
+
+    private Deadline(long expiresAtNanos) {
+        this.expiresAtNanos = expiresAtNanos;
+    }
+
+    /**
+     * Create a deadline relative to now
+     *
+     * @param timeoutMillis Time budget in milliseconds, zero or less is already expired
+     * @return The new deadline
+     */
+    public static Deadline afterMillis(long timeoutMillis) {
+        return new Deadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis));
+    }
+
+    /**
+     * Parse the remaining budget sent in a {@link #TIMEOUT_HEADER} header
+     *
+     * @param headerValue Header value, may be null
+     * @return The deadline, or null if the header is missing or not a number
+     */
+    public static Deadline fromHeader(String headerValue) {
+        if (headerValue == null) {
+            return null;
+        }
+
+        try {
+            return afterMillis(Long.parseLong(headerValue.trim()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return Deadline of the request being handled, or null if there is none
+     */
+    public static Deadline current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Set the deadline of the request being handled
+     *
+     * @param deadline The deadline, or null to clear it
+     * @return The deadline that was current before this call, to be restored afterwards
+     */
+    public static Deadline setCurrent(Deadline deadline) {
+        Deadline previous = CURRENT.get();
+        if (deadline == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(deadline);
+        }
+        return previous;
+    }
+
+    /**
+     * @param other Another deadline, may be null
+     * @return The earlier of the two deadlines
+     */
+    public Deadline min(Deadline other) {
+        return other == null || expiresAtNanos - other.expiresAtNanos <= 0 ? this : other;
+    }
+
+    /**
+     * @return True if the deadline has passed
+     */
+    public boolean isExpired() {
+        return expiresAtNanos - System.nanoTime() <= 0;
+    }
+
+    /**
+     * @return Milliseconds until the deadline, rounded up, or zero if it has passed
+     */
+    public long remainingMillis() {
+        long remainingNanos = expiresAtNanos - System.nanoTime();
+        return remainingNanos <= 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(remainingNanos + 999_999);
+    }
+
+    @Override
+    public String toString() {
+        return "Deadline{remainingMillis=" + remainingMillis() + "}";
+    }
+}
@@ -0,0 +1,27 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+package io.helixservice.core.execution;
+
+/**
+ * Thrown instead of starting work for a request whose deadline has already passed
+ */
+public class DeadlineExceededException extends RuntimeException {
+
+    /**
+     * Constructor
+     *
+     * @param message Description of the work that was not started
+     */
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+package io.helixservice.core.execution;
+
+import io.helixservice.core.component.Component;
+import io.vertx.core.Handler;
+import io.vertx.core.http.HttpServerRequest;
+
+/**
+ * Execution Engine decides where request handling code runs.
+ * <p>
+ * Handlers wrapped by the engine may block using {@link Await#awaitEvent},
+ * which suspends a Quasar fiber or blocks a request thread depending on the engine in use.
+ * Filters and controllers run unchanged under any engine.
+ */
+public interface ExecutionEngine extends Component {
+    String TYPE_NAME = "ExecutionEngine";
+
+    /**
+     * Wrap a handler so it runs within this execution engine
+     *
+     * @param handler Handler to wrap
+     * @param <T> Type of event handled
+     * @return The wrapped handler
+     */
+    <T> Handler<T> handler(Handler<T> handler);
+
+    /**
+     * Wrap the top-level HTTP server request handler so it runs within this execution engine
+     *
+     * @param handler HTTP server request handler to wrap
+     * @return The wrapped handler
+     */
+    default Handler<HttpServerRequest> requestHandler(Handler<HttpServerRequest> handler) {
+        return handler(handler);
+    }
+
+    /**
+     * Record how long handlers wait to be scheduled, for engines which can measure it
+     *
+     * @param executionMetrics Metrics to record to
+     */
+    default void setExecutionMetrics(ExecutionMetrics executionMetrics) {
+    }
+
+    /**
+     * Release any resources held by this engine
+     */
+    default void close() {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    default String getComponentType() {
+        return TYPE_NAME;
+    }
+}
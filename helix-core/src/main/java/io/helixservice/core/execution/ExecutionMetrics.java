@@ -0,0 +1,110 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.core.execution;
+
+import io.helixservice.core.component.Component;
+import io.helixservice.core.container.Container;
+import io.helixservice.core.feature.Feature;
+
+import java.lang.reflect.Method;
+
+/**
+ * Component which records where request handling waits: for a fiber to be scheduled,
+ * or for a Vert.x worker thread to run blocking code.
+ * <p>
+ * Register one with any feature, for example the MetricsFeature. Without one, nothing
+ * is recorded. Implementations must be thread-safe, and each method is a no-op by default.
+ */
+public interface ExecutionMetrics extends Component {
+    String TYPE_NAME = "ExecutionMetrics";
+
+    /**
+     * Metrics which record nothing, used when no ExecutionMetrics component is registered
+     */
+    ExecutionMetrics NONE = new ExecutionMetrics() {
+    };
+
+    /**
+     * Find the ExecutionMetrics registered with any of the container's features
+     *
+     * @param container Helix container
+     * @return The registered ExecutionMetrics, or NONE
+     */
+    static ExecutionMetrics find(Container container) {
+        for (Feature feature : container.getFeatures()) {
+            ExecutionMetrics executionMetrics = feature.findComponentByType(TYPE_NAME, null);
+            if (executionMetrics != null) {
+                return executionMetrics;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Record a fiber starting to run a handler
+     *
+     * @param scheduleNanos Time from dispatching the handler to the fiber running it
+     */
+    default void fiberStarted(long scheduleNanos) {
+    }
+
+    /**
+     * Record a fiber finishing its handler
+     */
+    default void fiberEnded() {
+    }
+
+    /**
+     * Record a BlockingWorker call being queued with executeBlocking
+     */
+    default void workerQueued() {
+    }
+
+    /**
+     * Record a worker thread starting to run queued blocking code
+     *
+     * @param waitNanos Time the code waited in the queue for a worker thread
+     */
+    default void workerStarted(long waitNanos) {
+    }
+
+    /**
+     * Record a worker thread finishing blocking code
+     */
+    default void workerEnded() {
+    }
+
+    /**
+     * Record the overhead of running a BlockingWorker method on a worker thread
+     *
+     * @param dispatchNanos Time from calling the method to getting its result back, less the time the method ran
+     */
+    default void blockingWorkerDispatched(long dispatchNanos) {
+    }
+
+    /**
+     * Record a BlockingWorker method that was not run, because the current request's deadline had passed
+     *
+     * @param method The BlockingWorker method
+     */
+    default void recordDeadlineExceeded(Method method) {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    default String getComponentType() {
+        return TYPE_NAME;
+    }
+}
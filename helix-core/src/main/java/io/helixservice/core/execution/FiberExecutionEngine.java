@@ -0,0 +1,81 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+package io.helixservice.core.execution;
+
+import co.paralleluniverse.fibers.Suspendable;
+import io.vertx.core.Handler;
+
+import static io.vertx.ext.sync.Sync.fiberHandler;
+
+/**
+ * Runs handlers on Quasar fibers scheduled on the Vert.x event loop.
+ * <p>
+ * This is the default engine, and requires the Quasar java agent.
+ * The time from dispatching a handler until its fiber runs, and the
+ * number of fibers running handlers, are recorded to the ExecutionMetrics.
+ */
+public class FiberExecutionEngine implements ExecutionEngine {
+    public static final String NAME = "fiber";
+
+    private volatile ExecutionMetrics executionMetrics = ExecutionMetrics.NONE;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> Handler<T> handler(Handler<T> handler) {
+        Handler<Dispatch<T>> fiber = fiberHandler(new Handler<Dispatch<T>>() {
+            @Override
+            @Suspendable
+            public void handle(Dispatch<T> dispatch) {
+                ExecutionMetrics metrics = executionMetrics;
+                metrics.fiberStarted(System.nanoTime() - dispatch.dispatchedNanos);
+                try {
+                    handler.handle(dispatch.event);
+                } finally {
+                    metrics.fiberEnded();
+                }
+            }
+        });
+
+        return event -> fiber.handle(new Dispatch<>(event, System.nanoTime()));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setExecutionMetrics(ExecutionMetrics executionMetrics) {
+        this.executionMetrics = executionMetrics;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getComponentDescription() {
+        return NAME;
+    }
+
+    /**
+     * An event, and when it was handed to the fiber scheduler
+     */
+    private static class Dispatch<T> {
+        private final T event;
+        private final long dispatchedNanos;
+
+        Dispatch(T event, long dispatchedNanos) {
+            this.event = event;
+            this.dispatchedNanos = dispatchedNanos;
+        }
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+package io.helixservice.core.execution;
+
+import io.vertx.core.Handler;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.ext.web.RoutingContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs handlers on a bounded pool of request threads, which are allowed to block.
+ * <p>
+ * Awaiting an event blocks the request thread rather than suspending a fiber,
+ * so the Quasar java agent is not needed for request handling.
+ * <p>
+ * At most queueSize handlers wait for a request thread. Requests arriving when the queue
+ * is full are rejected with HTTP 503 and Retry-After, rather than queued until they time out.
+ * <p>
+ * The pool is shut down on close, and started again by the next handler dispatched,
+ * so the engine may be reused when its feature is restarted.
+ */
+public class ThreadExecutionEngine implements ExecutionEngine {
+    private static final Logger LOG = LoggerFactory.getLogger(ThreadExecutionEngine.class);
+    private static final String THREAD_NAME_PREFIX = "helix-request-thread-";
+    private static final int OVERLOADED_STATUS_CODE = 503;
+    private static final String RETRY_AFTER_SECONDS = "1";
+    public static final String NAME = "thread";
+
+    // Set on request threads for their lifetime, and holds whether the current request's pause is retained
+    private static final ThreadLocal<RequestThreadState> REQUEST_THREAD_STATE = new ThreadLocal<>();
+
+    private final int threads;
+    private final int queueSize;
+    private ThreadPoolExecutor executor;
+
+    /**
+     * @param threads Number of request threads
+     * @param queueSize Number of handlers which may wait for a request thread
+     */
+    public ThreadExecutionEngine(int threads, int queueSize) {
+        this.threads = threads;
+        this.queueSize = queueSize;
+    }
+
+    /**
+     * @return True if the current thread is a request thread owned by a ThreadExecutionEngine
+     */
+    public static boolean onEngineThread() {
+        return REQUEST_THREAD_STATE.get() != null;
+    }
+
+    /**
+     * Keep the request being dispatched on this request thread paused once its handler returns.
+     * <p>
+     * Called by a handler which resumes the request itself, such as one reading the body with backpressure.
+     * Does nothing when not on a request thread.
+     */
+    public static void retainPause() {
+        RequestThreadState state = REQUEST_THREAD_STATE.get();
+        if (state != null) {
+            state.pauseRetained = true;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> Handler<T> handler(Handler<T> handler) {
+        return event -> {
+            if (onEngineThread()) {
+                handler.handle(event);
+            } else {
+                try {
+                    executor().execute(() -> handle(handler, event));
+                } catch (RejectedExecutionException e) {
+                    reject(event, e);
+                }
+            }
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The request is paused until the handler has been dispatched, so no request body data
+     * is lost while switching threads. It is resumed once the handler returns, unless the
+     * handler called {@link #retainPause()}.
+     */
+    @Override
+    public Handler<HttpServerRequest> requestHandler(Handler<HttpServerRequest> handler) {
+        return request -> {
+            request.pause();
+            try {
+                executor().execute(() -> handleRequest(handler, request));
+            } catch (RejectedExecutionException e) {
+                reject(request, e);
+            }
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void close() {
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getComponentDescription() {
+        return NAME + " threads=" + threads + " queueSize=" + queueSize;
+    }
+
+    private synchronized ThreadPoolExecutor executor() {
+        if (executor == null) {
+            executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueSize), new RequestThreadFactory(), new ThreadPoolExecutor.AbortPolicy());
+        }
+        return executor;
+    }
+
+    private void handleRequest(Handler<HttpServerRequest> handler, HttpServerRequest request) {
+        RequestThreadState state = REQUEST_THREAD_STATE.get();
+        state.pauseRetained = false;
+        try {
+            handle(handler, request);
+        } finally {
+            if (!state.pauseRetained) {
+                request.resume();
+            }
+            state.pauseRetained = false;
+        }
+    }
+
+    private <T> void handle(Handler<T> handler, T event) {
+        try {
+            handler.handle(event);
+        } catch (Throwable t) {
+            LOG.error("Unhandled exception on request thread", t);
+        }
+    }
+
+    private void reject(Object event, RejectedExecutionException e) {
+        HttpServerRequest request = null;
+        if (event instanceof HttpServerRequest) {
+            request = (HttpServerRequest) event;
+        } else if (event instanceof RoutingContext) {
+            request = ((RoutingContext) event).request();
+        }
+
+        if (request == null) {
+            throw e;
+        }
+
+        HttpServerResponse response = request.response();
+        response.setStatusCode(OVERLOADED_STATUS_CODE)
+                .putHeader("Retry-After", RETRY_AFTER_SECONDS)
+                .end();
+        request.resume();
+    }
+
+    private static class RequestThreadState {
+        private boolean pauseRetained;
+    }
+
+    private static class RequestThreadFactory implements ThreadFactory {
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(() -> {
+                REQUEST_THREAD_STATE.set(new RequestThreadState());
+                runnable.run();
+            }, THREAD_NAME_PREFIX + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -13,11 +13,10 @@
 
 package io.helixservice.core.feature;
 
-import com.google.common.collect.ArrayListMultimap;
-import com.google.common.collect.Iterables;
 import com.google.common.collect.Multimap;
 import io.helixservice.core.component.Component;
 import io.helixservice.core.component.ComponentRegistry;
+import io.helixservice.core.component.IndexedComponentRegistry;
 import io.helixservice.core.container.Container;
 import org.slf4j.Logger;
 
@@ -33,7 +32,7 @@ import java.util.List;
  * as it provides common functionality and default implementations.
  */
 public abstract class AbstractFeature implements Feature {
-    private Multimap<String, Component> componentsMap = ArrayListMultimap.create();
+    private final IndexedComponentRegistry componentRegistry = new IndexedComponentRegistry();
     private String featureName;
 
     /**
@@ -66,17 +65,13 @@ public abstract class AbstractFeature implements Feature {
      * @param components Components to register
      */
     public Feature register(Component... components) {
-        for (Component component : components) {
-            componentsMap.put(component.getComponentType(), component);
-            register(component.getContainedComponents());
-        }
-
+        componentRegistry.register(components);
         return this;
     }
 
     @Override
     public ComponentRegistry registerAllFrom(ComponentRegistry registry) {
-        componentsMap.putAll(registry.getComponentMap());
+        componentRegistry.registerAllFrom(registry);
         return this;
     }
 
@@ -96,7 +91,7 @@ public abstract class AbstractFeature implements Feature {
      * @return The map of components, where key is the component type name.
      */
     public Multimap<String, Component> getComponentMap() {
-        return ArrayListMultimap.create(componentsMap);
+        return componentRegistry.getComponentMap();
     }
 
     /**
@@ -104,7 +99,7 @@ public abstract class AbstractFeature implements Feature {
      */
     @Override
     public Collection<Component> findAllComponents() {
-        return componentsMap.values();
+        return componentRegistry.findAllComponents();
     }
 
     /**
@@ -112,14 +107,7 @@ public abstract class AbstractFeature implements Feature {
      */
     @Override
     public <T extends Component> Collection<T> findComponentByType(String componentType) {
-        @SuppressWarnings("unchecked")
-        Collection<T> result = (Collection<T>) componentsMap.get(componentType);
-
-        if (result == null) {
-            result = Collections.emptyList();
-        }
-
-        return result;
+        return componentRegistry.findComponentByType(componentType);
     }
 
     /**
@@ -127,8 +115,15 @@ public abstract class AbstractFeature implements Feature {
      */
     @Override
     public <T extends Component> T findComponentByType(String componentType, T defaultValue) {
-        //noinspection unchecked
-        return Iterables.getLast((Collection<T>) componentsMap.get(componentType), defaultValue);
+        return componentRegistry.findComponentByType(componentType, defaultValue);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> T findComponentByClass(Class<T> type) {
+        return componentRegistry.findComponentByClass(type);
     }
 
     /**
@@ -149,6 +144,7 @@ public abstract class AbstractFeature implements Feature {
     private void logComponents(Logger logger) {
         List<String> componentDescriptions = new ArrayList<>();
 
+        Multimap<String, Component> componentsMap = componentRegistry.getComponentMap();
         for (String registrableTypeName : componentsMap.keySet()) {
             for (Component component : componentsMap.get(registrableTypeName)) {
                 String componentDescription = component.getComponentDescription();
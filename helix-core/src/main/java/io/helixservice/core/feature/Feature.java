@@ -60,6 +60,17 @@ public interface Feature extends ComponentRegistry, Component {
         return false;
     }
 
+    /**
+     * Features that accept requests, such as an HTTP server, start only after every
+     * other feature of their phase has started. Otherwise a request could reach
+     * a feature that has not started yet. The default value is false.
+     *
+     * @return true If this feature must start after the other features of its phase
+     */
+    default boolean shouldStartAfterOtherFeatures() {
+        return false;
+    }
+
     /**
      * Logs the feature configuration to the provided logger.
      * Primarily used on server startup to expose the Helix Server configuration
@@ -71,9 +82,11 @@ public interface Feature extends ComponentRegistry, Component {
     /**
      * Called by Helix Server when the server is starting.
      * <p>
-     * The order features will be called is the same order they initially
-     * registered with Helix.  At the time this method is called, Vert.x
-     * will be initialized enabling the feature to create any Vert.x related
+     * A feature is started after the features it takes as constructor parameters.
+     * Features that do not depend on each other may start concurrently, in any
+     * order; registration order is not guaranteed. Features that return true from
+     * shouldStartAfterOtherFeatures start last. At the time this method is called,
+     * Vert.x will be initialized enabling the feature to create any Vert.x related
      * resources.
      * <p>
      * Features should create and register any singleton components
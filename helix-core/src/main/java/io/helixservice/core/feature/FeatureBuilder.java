@@ -19,15 +19,25 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
  * Instantiates and resolves dependencies for a feature.
  * Dependencies are resolved by referencing components registered in the ComponentRegistry.
+ * <p>
+ * The features owning each resolved component are recorded, so the container
+ * can determine which features must be started before a dependent feature.
  */
 public class FeatureBuilder {
     private final ComponentRegistry parentRegistry;
+    private final Map<Component, Feature> componentOwners = new IdentityHashMap<>();
+    private final Map<Feature, Set<Feature>> featureDependencies = new LinkedHashMap<>();
 
     public FeatureBuilder(ComponentRegistry parentRegistry) {
         this.parentRegistry = parentRegistry;
@@ -45,8 +55,21 @@ public class FeatureBuilder {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Get the features each built feature depends on, based on the components
+     * resolved for its constructor parameters.
+     *
+     * @return Map of feature to the set of features it depends upon
+     */
+    public Map<Feature, Set<Feature>> getFeatureDependencies() {
+        return Collections.unmodifiableMap(featureDependencies);
+    }
+
     private Feature registerFeatureAllComponents(Feature feature) {
         parentRegistry.registerAllFrom(feature);
+        for (Component component : feature.findAllComponents()) {
+            componentOwners.putIfAbsent(component, feature);
+        }
         return feature;
     }
 
@@ -62,7 +85,10 @@ public class FeatureBuilder {
 
     private Feature instantiateFeature(Constructor<Feature> constructor) {
         try {
-            return constructor.newInstance(resolveComponentDependencies(constructor.getParameterTypes()));
+            Object[] dependencies = resolveComponentDependencies(constructor.getParameterTypes());
+            Feature feature = constructor.newInstance(dependencies);
+            featureDependencies.put(feature, findOwningFeatures(dependencies));
+            return feature;
         } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
             throw new FeatureBuilderException("Error creating featureClass=" + constructor.getDeclaringClass().getName() + ".", e);
         }
@@ -76,24 +102,20 @@ public class FeatureBuilder {
                 .toArray(new Object[0]);
     }
 
-    private Component findComponentByType(Class<?> type) {
-        Component result = null;
+    private Set<Feature> findOwningFeatures(Object[] dependencies) {
+        Set<Feature> owningFeatures = new LinkedHashSet<>();
 
-        for (Component component : parentRegistry.getComponentMap().values()) {
-            if (component.getClass().equals(type)) {
-                result = component;
+        for (Object dependency : dependencies) {
+            Feature owner = componentOwners.get(dependency);
+            if (owner != null) {
+                owningFeatures.add(owner);
             }
         }
 
-        if (result == null) {
-            for (Component component : parentRegistry.getComponentMap().values()) {
-                if (type.isAssignableFrom(component.getClass())) {
-                    result = component;
-                }
-            }
-        }
-
-        return result;
+        return owningFeatures;
     }
 
+    private Object findComponentByType(Class<?> type) {
+        return parentRegistry.findComponentByClass(type);
+    }
 }
@@ -0,0 +1,52 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+package io.helixservice.core.util;
+
+import io.vertx.core.buffer.Buffer;
+
+import java.io.OutputStream;
+
+/**
+ * OutputStream which appends directly to a Vert.x Buffer
+ * <p>
+ * Lets serializers write straight into the Buffer that will be sent,
+ * without building an intermediate String or byte array.
+ */
+public class BufferOutputStream extends OutputStream {
+    private final Buffer buffer;
+
+    /**
+     * Create output stream
+     *
+     * @param buffer Buffer to append to
+     */
+    public BufferOutputStream(Buffer buffer) {
+        this.buffer = buffer;
+    }
+
+    @Override
+    public void write(int b) {
+        buffer.appendByte((byte) b);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) {
+        buffer.appendBytes(bytes, offset, length);
+    }
+
+    /**
+     * @return The buffer being written to
+     */
+    public Buffer getBuffer() {
+        return buffer;
+    }
+}
@@ -0,0 +1,428 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+package io.helixservice.core.util;
+
+import com.google.common.collect.LinkedHashMultiset;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Multiset;
+import io.vertx.core.MultiMap;
+
+import java.util.AbstractCollection;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Guava Multimap view over a Vert.x MultiMap.
+ * <p>
+ * Nothing is copied when the view is created. Lookups and changes go straight
+ * to the underlying MultiMap, so they are case-insensitive whenever it is.
+ * Collections returned by get, keySet, values, entries and asMap are live views,
+ * and changes made through them write through to the MultiMap. Only keys is a snapshot.
+ */
+class VertxMultiMapView implements Multimap<String, String> {
+    private final MultiMap multiMap;
+
+    VertxMultiMapView(MultiMap multiMap) {
+        this.multiMap = multiMap;
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Map.Entry<String, String> ignored : multiMap) {
+            size++;
+        }
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return multiMap.isEmpty();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof String && multiMap.contains((String) key);
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        for (Map.Entry<String, String> entry : multiMap) {
+            if (entry.getValue().equals(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean containsEntry(Object key, Object value) {
+        return containsKey(key) && multiMap.getAll((String) key).contains(value);
+    }
+
+    @Override
+    public boolean put(String key, String value) {
+        multiMap.add(key, value);
+        return true;
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        if (!containsKey(key)) {
+            return false;
+        }
+
+        List<String> values = new ArrayList<>(multiMap.getAll((String) key));
+        boolean removed = values.remove(value);
+        if (removed) {
+            multiMap.set((String) key, values);
+        }
+        return removed;
+    }
+
+    @Override
+    public boolean putAll(String key, Iterable<? extends String> values) {
+        boolean changed = false;
+        for (String value : values) {
+            changed |= put(key, value);
+        }
+        return changed;
+    }
+
+    @Override
+    public boolean putAll(Multimap<? extends String, ? extends String> multimap) {
+        boolean changed = false;
+        for (Map.Entry<? extends String, ? extends String> entry : multimap.entries()) {
+            changed |= put(entry.getKey(), entry.getValue());
+        }
+        return changed;
+    }
+
+    @Override
+    public Collection<String> replaceValues(String key, Iterable<? extends String> values) {
+        List<String> previous = multiMap.getAll(key);
+        multiMap.remove(key);
+        putAll(key, values);
+        return previous;
+    }
+
+    @Override
+    public Collection<String> removeAll(Object key) {
+        if (!containsKey(key)) {
+            return Collections.emptyList();
+        }
+
+        List<String> previous = multiMap.getAll((String) key);
+        multiMap.remove((String) key);
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        multiMap.clear();
+    }
+
+    @Override
+    public Collection<String> get(String key) {
+        return new ValuesForKey(key);
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return new AbstractSet<String>() {
+            @Override
+            public Iterator<String> iterator() {
+                return new WriteThroughIterator<>(multiMap.names(), multiMap::remove);
+            }
+
+            @Override
+            public int size() {
+                return multiMap.names().size();
+            }
+
+            @Override
+            public boolean contains(Object key) {
+                return containsKey(key);
+            }
+
+            @Override
+            public boolean remove(Object key) {
+                return !VertxMultiMapView.this.removeAll(key).isEmpty();
+            }
+
+            @Override
+            public void clear() {
+                multiMap.clear();
+            }
+        };
+    }
+
+    @Override
+    public Multiset<String> keys() {
+        Multiset<String> keys = LinkedHashMultiset.create();
+        for (Map.Entry<String, String> entry : multiMap) {
+            keys.add(entry.getKey());
+        }
+        return keys;
+    }
+
+    @Override
+    public Collection<String> values() {
+        return new AbstractCollection<String>() {
+            @Override
+            public Iterator<String> iterator() {
+                Iterator<Map.Entry<String, String>> entries = entries().iterator();
+                return new Iterator<String>() {
+                    @Override
+                    public boolean hasNext() {
+                        return entries.hasNext();
+                    }
+
+                    @Override
+                    public String next() {
+                        return entries.next().getValue();
+                    }
+
+                    @Override
+                    public void remove() {
+                        entries.remove();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return VertxMultiMapView.this.size();
+            }
+
+            @Override
+            public boolean contains(Object value) {
+                return containsValue(value);
+            }
+
+            @Override
+            public void clear() {
+                multiMap.clear();
+            }
+        };
+    }
+
+    @Override
+    public Collection<Map.Entry<String, String>> entries() {
+        return new AbstractCollection<Map.Entry<String, String>>() {
+            @Override
+            public Iterator<Map.Entry<String, String>> iterator() {
+                return new WriteThroughIterator<>(multiMap.entries(),
+                        entry -> VertxMultiMapView.this.remove(entry.getKey(), entry.getValue()));
+            }
+
+            @Override
+            public int size() {
+                return VertxMultiMapView.this.size();
+            }
+
+            @Override
+            public boolean contains(Object entry) {
+                return entry instanceof Map.Entry
+                        && containsEntry(((Map.Entry<?, ?>) entry).getKey(), ((Map.Entry<?, ?>) entry).getValue());
+            }
+
+            @Override
+            public boolean remove(Object entry) {
+                return entry instanceof Map.Entry
+                        && VertxMultiMapView.this.remove(((Map.Entry<?, ?>) entry).getKey(), ((Map.Entry<?, ?>) entry).getValue());
+            }
+
+            @Override
+            public void clear() {
+                multiMap.clear();
+            }
+        };
+    }
+
+    @Override
+    public Map<String, Collection<String>> asMap() {
+        return new AbstractMap<String, Collection<String>>() {
+            @Override
+            public Set<Entry<String, Collection<String>>> entrySet() {
+                return new AbstractSet<Entry<String, Collection<String>>>() {
+                    @Override
+                    public Iterator<Entry<String, Collection<String>>> iterator() {
+                        Iterator<String> names = VertxMultiMapView.this.keySet().iterator();
+                        return new Iterator<Entry<String, Collection<String>>>() {
+                            @Override
+                            public boolean hasNext() {
+                                return names.hasNext();
+                            }
+
+                            @Override
+                            public Entry<String, Collection<String>> next() {
+                                String name = names.next();
+                                return new SimpleImmutableEntry<>(name, get(name));
+                            }
+
+                            @Override
+                            public void remove() {
+                                names.remove();
+                            }
+                        };
+                    }
+
+                    @Override
+                    public int size() {
+                        return multiMap.names().size();
+                    }
+                };
+            }
+
+            @Override
+            public boolean containsKey(Object key) {
+                return VertxMultiMapView.this.containsKey(key);
+            }
+
+            @Override
+            public Collection<String> get(Object key) {
+                return VertxMultiMapView.this.containsKey(key) ? VertxMultiMapView.this.get((String) key) : null;
+            }
+
+            @Override
+            public Collection<String> remove(Object key) {
+                Collection<String> previous = VertxMultiMapView.this.removeAll(key);
+                return previous.isEmpty() ? null : previous;
+            }
+
+            @Override
+            public void clear() {
+                multiMap.clear();
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other == this || (other instanceof Multimap && asMap().equals(((Multimap<?, ?>) other).asMap()));
+    }
+
+    @Override
+    public int hashCode() {
+        return asMap().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return asMap().toString();
+    }
+
+    /**
+     * Live list of the values for one key, reading from and writing to the MultiMap
+     */
+    private class ValuesForKey extends AbstractList<String> {
+        private final String key;
+
+        ValuesForKey(String key) {
+            this.key = key;
+        }
+
+        @Override
+        public String get(int index) {
+            return multiMap.getAll(key).get(index);
+        }
+
+        @Override
+        public int size() {
+            return multiMap.getAll(key).size();
+        }
+
+        @Override
+        public boolean add(String value) {
+            multiMap.add(key, value);
+            modCount++;
+            return true;
+        }
+
+        @Override
+        public void add(int index, String value) {
+            List<String> values = new ArrayList<>(multiMap.getAll(key));
+            values.add(index, value);
+            multiMap.set(key, values);
+            modCount++;
+        }
+
+        @Override
+        public String set(int index, String value) {
+            List<String> values = new ArrayList<>(multiMap.getAll(key));
+            String previous = values.set(index, value);
+            multiMap.set(key, values);
+            return previous;
+        }
+
+        @Override
+        public String remove(int index) {
+            List<String> values = new ArrayList<>(multiMap.getAll(key));
+            String previous = values.remove(index);
+            multiMap.set(key, values);
+            modCount++;
+            return previous;
+        }
+
+        @Override
+        public void clear() {
+            multiMap.remove(key);
+            modCount++;
+        }
+    }
+
+    /**
+     * Iterates over a snapshot, removing each element from the MultiMap when asked to
+     */
+    private static class WriteThroughIterator<T> implements Iterator<T> {
+        private final Iterator<T> snapshot;
+        private final Consumer<T> remover;
+        private T last;
+        private boolean canRemove;
+
+        WriteThroughIterator(Collection<T> elements, Consumer<T> remover) {
+            this.snapshot = new ArrayList<>(elements).iterator();
+            this.remover = remover;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return snapshot.hasNext();
+        }
+
+        @Override
+        public T next() {
+            last = snapshot.next();
+            canRemove = true;
+            return last;
+        }
+
+        @Override
+        public void remove() {
+            if (!canRemove) {
+                throw new IllegalStateException("next() has not been called since the last remove()");
+            }
+            remover.accept(last);
+            canRemove = false;
+        }
+    }
+}
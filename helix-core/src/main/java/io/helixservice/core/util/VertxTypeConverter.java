@@ -38,6 +38,17 @@ public interface VertxTypeConverter {
         return result;
     }
 
+    /**
+     * Live Guava view of a Vert.x MultiMap, without copying it.
+     * Changes made through the view are written to the MultiMap.
+     *
+     * @param multiMap Vert.x multimap
+     * @return Guava Multimap backed by the Vert.x MultiMap
+     */
+    static Multimap<String, String> asGuavaMultimap(MultiMap multiMap) {
+        return new VertxMultiMapView(multiMap);
+    }
+
     /**
      * Guava MultiMap to Vert.x  Multimap.
      * Primarily used for request and response headers.
@@ -48,7 +59,7 @@ public interface VertxTypeConverter {
     static MultiMap toVertxMultiMap(Multimap<String, String> multimap) {
         MultiMap result = MultiMap.caseInsensitiveMultiMap();
 
-        for (String key : multimap.keys()) {
+        for (String key : multimap.keySet()) {
             result.set(key, multimap.get(key));
         }
 
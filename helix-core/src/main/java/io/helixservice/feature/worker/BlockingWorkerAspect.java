@@ -16,6 +16,10 @@ package io.helixservice.feature.worker;
 import co.paralleluniverse.fibers.SuspendExecution;
 import co.paralleluniverse.fibers.Suspendable;
 import io.helixservice.core.container.Container;
+import io.helixservice.core.execution.Deadline;
+import io.helixservice.core.execution.DeadlineExceededException;
+import io.helixservice.core.execution.ExecutionMetrics;
+import io.helixservice.core.execution.ThreadExecutionEngine;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
@@ -26,12 +30,13 @@ import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Before;
 import org.aspectj.lang.annotation.DeclarePrecedence;
+import org.aspectj.lang.reflect.MethodSignature;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.function.Consumer;
 
-import static io.vertx.ext.sync.Sync.awaitEvent;
+import static io.helixservice.core.execution.Await.awaitEvent;
 
 /**
  * AspectJ aspect for implementing Blocking Workers feature
@@ -44,6 +49,7 @@ public class BlockingWorkerAspect {
     private static final String VERT_X_WORKER_THREAD = "vert.x-worker-thread";
 
     private Vertx vertx;
+    private ExecutionMetrics executionMetrics = ExecutionMetrics.NONE;
 
     public BlockingWorkerAspect() {
     }
@@ -55,23 +61,35 @@ public class BlockingWorkerAspect {
      */
     @Before(value = "execution(public void io.helixservice.feature.worker.BlockingWorkerFeature.start(io.helixservice.core.container.Container)) "
             + "&& args(container)")
-    public void beforeStartupFeature(Container container) { this.vertx = container.getVertx().get(); }
+    public void beforeStartupFeature(Container container) {
+        this.vertx = container.getVertx().get();
+        this.executionMetrics = ExecutionMetrics.find(container);
+    }
 
     /**
      * Adds code around all methods annotated with @BlockingWorker.
      * If the current thread is not a already worker thread, then
      * the method body is run on a worker thread.
+     * <p>
+     * Request threads of the ThreadExecutionEngine may already block,
+     * so the method body is run directly on those threads.
+     * <p>
+     * If the current request's deadline has passed, the method body is not run
+     * and DeadlineExceededException is thrown. The deadline is checked again on the
+     * worker thread, in case it passed while waiting for a free worker.
      */
     @Suspendable
     @Around(value = "(execution(public * *(..)) && @annotation(blockingWorker)) || "
             + "(execution(public * *(..)) && within(@io.helixservice.feature.worker.BlockingWorker *) && @annotation(blockingWorker))")
     public Object around(ProceedingJoinPoint pjp, BlockingWorker blockingWorker) throws Throwable, SuspendExecution {
         Object result;
+        Deadline deadline = Deadline.current();
+        checkDeadline(pjp, deadline);
 
-        if (onWorkerThread()) {
+        if (onWorkerThread() || ThreadExecutionEngine.onEngineThread()) {
             result = pjp.proceed();
         } else {
-            result = invokeOnWorkerThread(pjp);
+            result = invokeOnWorkerThread(pjp, deadline);
         }
 
         return result;
@@ -83,19 +101,28 @@ public class BlockingWorkerAspect {
     }
 
     @Suspendable
-    private Object invokeOnWorkerThread(ProceedingJoinPoint pjp) throws Throwable, SuspendExecution {
+    private Object invokeOnWorkerThread(ProceedingJoinPoint pjp, Deadline deadline) throws Throwable, SuspendExecution {
+        ExecutionMetrics metrics = executionMetrics;
+        long queuedNanos = System.nanoTime();
+        long[] runNanos = new long[1];
+
         AsyncResult<Object> ret =
                 awaitEvent(new Consumer<Handler<AsyncResult<Object>>>() {
                     @Override
                     @Suspendable
                     public void accept(Handler<AsyncResult<Object>> awaitHandler) {
                         // Vert.x executeBlocking will run our handler on a Worker Thread
+                        metrics.workerQueued();
                         vertx.executeBlocking(new Handler<Future<Object>>() {
                             @Override
                             @Suspendable
                             public void handle(Future<Object> future) {
+                                long startedNanos = System.nanoTime();
+                                metrics.workerStarted(startedNanos - queuedNanos);
+                                Deadline previousDeadline = Deadline.setCurrent(deadline);
                                 try {
                                     assertRunningOnVertxWorkerThread(pjp);
+                                    checkDeadline(pjp, deadline);
 
                                     if (LOG.isInfoEnabled()) {
                                         LOG.info("Started Blocking Worker on " + Thread.currentThread().getName());
@@ -110,6 +137,9 @@ public class BlockingWorkerAspect {
                                     // If there was an exception, pass it back on the completable future
                                     future.fail(t);
                                 } finally {
+                                    Deadline.setCurrent(previousDeadline);
+                                    runNanos[0] = System.nanoTime() - startedNanos;
+                                    metrics.workerEnded();
                                     if (LOG.isInfoEnabled()) {
                                         LOG.info("Completed Blocking Worker on " + Thread.currentThread().getName());
                                     }
@@ -119,6 +149,9 @@ public class BlockingWorkerAspect {
                     }
                 });
 
+        // Completing the future publishes runNanos to this thread
+        metrics.blockingWorkerDispatched(System.nanoTime() - queuedNanos - runNanos[0]);
+
         if (ret.failed()) {
             throw ret.cause();
         }
@@ -126,6 +159,17 @@ public class BlockingWorkerAspect {
         return ret.result();
     }
 
+    private void checkDeadline(ProceedingJoinPoint pjp, Deadline deadline) {
+        if (deadline != null && deadline.isExpired()) {
+            Signature signature = pjp.getSignature();
+            if (signature instanceof MethodSignature) {
+                executionMetrics.recordDeadlineExceeded(((MethodSignature) signature).getMethod());
+            }
+            throw new DeadlineExceededException("Deadline passed before starting Blocking Worker "
+                    + signature.getDeclaringTypeName() + "::" + signature.getName());
+        }
+    }
+
     private void assertRunningOnVertxWorkerThread(ProceedingJoinPoint pjp) {
         if (!onWorkerThread()) {
             /**
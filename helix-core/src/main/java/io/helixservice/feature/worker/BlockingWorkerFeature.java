@@ -33,6 +33,11 @@ import io.vertx.core.Vertx;
  * The RequestContext will be propagated to the Blocking Worker thread, this ensures that
  * any security, transaction, and logging related data are copied automatically.
  *
+ * <h2>Request Deadlines</h2>
+ * A Blocking Worker is not started once the current request's Deadline has passed.
+ * DeadlineExceededException is thrown instead, which is recorded through
+ * the registered ExecutionMetrics.
+ *
  * <h2>Nested BlockingWorkers</h2>
  * It's okay to have one method annotated with @BlockingWorker call another method
  * that is also annotated with @BlockingWorker.  If the thread is already a
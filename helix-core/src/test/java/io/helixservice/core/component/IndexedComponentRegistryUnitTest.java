@@ -0,0 +1,99 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.core.component;
+
+import com.google.common.collect.Multimap;
+import org.junit.Test;
+
+import java.util.Collection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class IndexedComponentRegistryUnitTest {
+
+    @Test
+    public void testFindByTypeName() {
+        IndexedComponentRegistry subject = new IndexedComponentRegistry();
+        TestComponent first = new TestComponent();
+        TestComponent second = new TestComponent();
+        subject.register(first, second);
+
+        Collection<TestComponent> found = subject.findComponentByType(TestComponent.TYPE_NAME);
+        assertEquals(2, found.size());
+        assertSame(second, subject.findComponentByType(TestComponent.TYPE_NAME, null));
+        assertTrue(subject.findComponentByType("Missing").isEmpty());
+    }
+
+    @Test
+    public void testFindByClassPrefersExactClass() {
+        IndexedComponentRegistry subject = new IndexedComponentRegistry();
+        TestComponent base = new TestComponent();
+        SubTestComponent sub = new SubTestComponent();
+        subject.register(base, sub);
+
+        assertSame(base, subject.findComponentByClass(TestComponent.class));
+        assertSame(sub, subject.findComponentByClass(SubTestComponent.class));
+        assertSame(sub, subject.findComponentByClass(Component.class));
+        assertNull(subject.findComponentByClass(String.class));
+    }
+
+    @Test
+    public void testSnapshotIsUnchangedByLaterRegistration() {
+        IndexedComponentRegistry subject = new IndexedComponentRegistry();
+        subject.register(new TestComponent());
+        Multimap<String, Component> snapshot = subject.getComponentMap();
+
+        subject.register(new TestComponent());
+
+        assertEquals(1, snapshot.size());
+        assertEquals(2, subject.getComponentMap().size());
+    }
+
+    @Test
+    public void testRegisterContainedComponentsAndClear() {
+        IndexedComponentRegistry subject = new IndexedComponentRegistry();
+        TestComponent contained = new TestComponent();
+        subject.register(new Component() {
+            @Override
+            public String getComponentType() {
+                return "Container";
+            }
+
+            @Override
+            public Component[] getContainedComponents() {
+                return new Component[] { contained };
+            }
+        });
+
+        assertSame(contained, subject.findComponentByClass(TestComponent.class));
+        assertEquals(2, subject.findAllComponents().size());
+
+        subject.clear();
+        assertTrue(subject.findAllComponents().isEmpty());
+    }
+
+    private static class TestComponent implements Component {
+        static final String TYPE_NAME = "Test";
+
+        @Override
+        public String getComponentType() {
+            return TYPE_NAME;
+        }
+    }
+
+    private static class SubTestComponent extends TestComponent {
+    }
+}
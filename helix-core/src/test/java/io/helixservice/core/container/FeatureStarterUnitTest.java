@@ -0,0 +1,163 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.core.container;
+
+import io.helixservice.core.feature.AbstractFeature;
+import io.helixservice.core.feature.Feature;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+public class FeatureStarterUnitTest {
+    private final Container container = mock(Container.class);
+
+    @Test
+    public void testDependentFeatureStartsAfterDependency() {
+        List<String> startOrder = Collections.synchronizedList(new ArrayList<>());
+        Feature config = new RecordingFeature("config", startOrder, 100);
+        Feature rest = new RecordingFeature("rest", startOrder, 0);
+
+        Map<Feature, Set<Feature>> dependencies = new HashMap<>();
+        dependencies.put(rest, new HashSet<>(Collections.singletonList(config)));
+
+        FeatureStarter subject = new FeatureStarter(container, dependencies, 4);
+        Map<Feature, Long> startTimes = subject.startFeatures(Arrays.asList(config, rest));
+
+        assertEquals(Arrays.asList("config", "rest"), startOrder);
+        assertEquals(Arrays.asList(config, rest), new ArrayList<>(startTimes.keySet()));
+        assertTrue(startTimes.get(config) >= 100);
+    }
+
+    @Test
+    public void testIndependentFeaturesStartConcurrently() {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        Feature first = new LatchFeature(bothStarted);
+        Feature second = new LatchFeature(bothStarted);
+
+        FeatureStarter subject = new FeatureStarter(container, Collections.emptyMap(), 2);
+        subject.startFeatures(Arrays.asList(first, second));
+
+        assertEquals(0, bothStarted.getCount());
+    }
+
+    @Test
+    public void testIndependentFeaturesAreNotStartedInRegistrationOrder() {
+        List<String> startOrder = Collections.synchronizedList(new ArrayList<>());
+        Feature slow = new RecordingFeature("slow", startOrder, 100);
+        Feature fast = new RecordingFeature("fast", startOrder, 0);
+
+        FeatureStarter subject = new FeatureStarter(container, Collections.emptyMap(), 2);
+        subject.startFeatures(Arrays.asList(slow, fast));
+
+        // Neither takes the other as a constructor parameter, so nothing orders them
+        assertEquals(Arrays.asList("fast", "slow"), startOrder);
+    }
+
+    @Test
+    public void testServingFeatureStartsAfterOtherFeatures() {
+        List<String> startOrder = Collections.synchronizedList(new ArrayList<>());
+        Feature rest = new ServingFeature("rest", startOrder);
+        Feature worker = new RecordingFeature("worker", startOrder, 100);
+        Feature metrics = new RecordingFeature("metrics", startOrder, 50);
+
+        FeatureStarter subject = new FeatureStarter(container, Collections.emptyMap(), 4);
+        Map<Feature, Long> startTimes = subject.startFeatures(Arrays.asList(rest, worker, metrics));
+
+        assertEquals(Arrays.asList("metrics", "worker", "rest"), startOrder);
+        assertEquals(Arrays.asList(rest, worker, metrics), new ArrayList<>(startTimes.keySet()));
+    }
+
+    @Test
+    public void testStartFailureIsRethrown() {
+        Feature failing = new AbstractFeature() {
+            @Override
+            public void start(Container container) {
+                throw new IllegalStateException("Unable to start");
+            }
+        };
+
+        FeatureStarter subject = new FeatureStarter(container, Collections.emptyMap(), 2);
+        try {
+            subject.startFeatures(Collections.singletonList(failing));
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException e) {
+            assertEquals("Unable to start", e.getMessage());
+        }
+    }
+
+    private static class RecordingFeature extends AbstractFeature {
+        private final List<String> startOrder;
+        private final long startDelayMillis;
+
+        RecordingFeature(String featureName, List<String> startOrder, long startDelayMillis) {
+            super(featureName);
+            this.startOrder = startOrder;
+            this.startDelayMillis = startDelayMillis;
+        }
+
+        @Override
+        public void start(Container container) {
+            try {
+                Thread.sleep(startDelayMillis);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            startOrder.add(getFeatureName());
+        }
+    }
+
+    private static class ServingFeature extends RecordingFeature {
+        ServingFeature(String featureName, List<String> startOrder) {
+            super(featureName, startOrder, 0);
+        }
+
+        @Override
+        public boolean shouldStartAfterOtherFeatures() {
+            return true;
+        }
+    }
+
+    private static class LatchFeature extends AbstractFeature {
+        private final CountDownLatch bothStarted;
+
+        LatchFeature(CountDownLatch bothStarted) {
+            this.bothStarted = bothStarted;
+        }
+
+        @Override
+        public void start(Container container) {
+            bothStarted.countDown();
+            try {
+                if (!bothStarted.await(5, TimeUnit.SECONDS)) {
+                    throw new IllegalStateException("Features were not started concurrently");
+                }
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+}
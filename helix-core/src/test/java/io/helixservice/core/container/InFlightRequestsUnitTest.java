@@ -0,0 +1,76 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.core.container;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class InFlightRequestsUnitTest {
+
+    @Test
+    public void testBeginAndEnd() {
+        InFlightRequests subject = new InFlightRequests();
+
+        subject.begin();
+        subject.begin();
+        assertEquals(2, subject.get());
+
+        subject.end();
+        assertEquals(1, subject.get());
+    }
+
+    @Test
+    public void testAwaitDrainedReturnsImmediatelyWhenIdle() throws InterruptedException {
+        InFlightRequests subject = new InFlightRequests();
+
+        long start = System.currentTimeMillis();
+        assertTrue(subject.awaitDrained(10000, 1000, remaining -> { }));
+        assertTrue(System.currentTimeMillis() - start < 1000);
+    }
+
+    @Test
+    public void testAwaitDrainedWaitsForRequestsToEnd() throws InterruptedException {
+        InFlightRequests subject = new InFlightRequests();
+        subject.begin();
+
+        new Thread(() -> {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            subject.end();
+        }).start();
+
+        assertTrue(subject.awaitDrained(10000, 1000, remaining -> { }));
+        assertEquals(0, subject.get());
+    }
+
+    @Test
+    public void testAwaitDrainedTimesOutAndReportsProgress() throws InterruptedException {
+        InFlightRequests subject = new InFlightRequests();
+        subject.begin();
+
+        List<Long> progress = new ArrayList<>();
+        assertFalse(subject.awaitDrained(300, 100, progress::add));
+
+        assertFalse(progress.isEmpty());
+        assertEquals(Long.valueOf(1), progress.get(0));
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.core.execution;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class DeadlineUnitTest {
+
+    @After
+    public void clearCurrent() {
+        Deadline.setCurrent(null);
+    }
+
+    @Test
+    public void testRemainingMillis() {
+        Deadline subject = Deadline.afterMillis(10_000);
+
+        assertFalse(subject.isExpired());
+        assertTrue(subject.remainingMillis() > 9_000);
+        assertTrue(subject.remainingMillis() <= 10_000);
+    }
+
+    @Test
+    public void testExpiredDeadline() {
+        Deadline subject = Deadline.afterMillis(0);
+
+        assertTrue(subject.isExpired());
+        assertEquals(0, subject.remainingMillis());
+        assertTrue(Deadline.afterMillis(-50).isExpired());
+    }
+
+    @Test
+    public void testFromHeader() {
+        assertNull(Deadline.fromHeader(null));
+        assertNull(Deadline.fromHeader("soon"));
+        assertTrue(Deadline.fromHeader("0").isExpired());
+        assertTrue(Deadline.fromHeader(" 5000 ").remainingMillis() > 4_000);
+    }
+
+    @Test
+    public void testMinPicksEarlierDeadline() {
+        Deadline early = Deadline.afterMillis(100);
+        Deadline late = Deadline.afterMillis(10_000);
+
+        assertSame(early, early.min(late));
+        assertSame(early, late.min(early));
+        assertSame(late, late.min(null));
+    }
+
+    @Test
+    public void testSetCurrentReturnsPrevious() {
+        Deadline first = Deadline.afterMillis(100);
+        Deadline second = Deadline.afterMillis(200);
+
+        assertNull(Deadline.setCurrent(first));
+        assertSame(first, Deadline.setCurrent(second));
+        assertSame(second, Deadline.current());
+
+        Deadline.setCurrent(first);
+        assertSame(first, Deadline.current());
+        Deadline.setCurrent(null);
+        assertNull(Deadline.current());
+    }
+}
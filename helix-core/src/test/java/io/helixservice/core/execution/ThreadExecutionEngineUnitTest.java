@@ -0,0 +1,166 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.core.execution;
+
+import io.vertx.core.Handler;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ThreadExecutionEngineUnitTest {
+    private ThreadExecutionEngine subject = new ThreadExecutionEngine(2, 1);
+
+    @After
+    public void tearDown() {
+        subject.close();
+    }
+
+    @Test
+    public void testHandlerRunsOnEngineThread() throws Exception {
+        CompletableFuture<String> threadName = new CompletableFuture<>();
+
+        assertFalse(ThreadExecutionEngine.onEngineThread());
+        subject.handler((Handler<String>) event -> threadName.complete(Thread.currentThread().getName())).handle("event");
+
+        assertTrue(threadName.get(5, TimeUnit.SECONDS).startsWith("helix-request-thread-"));
+    }
+
+    @Test
+    public void testNestedHandlerRunsInline() throws Exception {
+        CompletableFuture<Boolean> sameThread = new CompletableFuture<>();
+
+        subject.handler((Handler<String>) outer -> {
+            Thread outerThread = Thread.currentThread();
+            subject.handler((Handler<String>) inner -> sameThread.complete(outerThread == Thread.currentThread())).handle(outer);
+        }).handle("event");
+
+        assertTrue(sameThread.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testAwaitEventBlocksRequestThread() throws Exception {
+        CompletableFuture<String> result = new CompletableFuture<>();
+
+        subject.handler((Handler<String>) event -> {
+            try {
+                String received = Await.awaitEvent(handler -> new Thread(() -> handler.handle("response")).start());
+                result.complete(received);
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        }).handle("event");
+
+        assertEquals("response", result.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testThreadNamedLikeRequestThreadIsNotEngineThread() throws Exception {
+        CompletableFuture<Boolean> onEngineThread = new CompletableFuture<>();
+
+        Thread thread = new Thread(() -> onEngineThread.complete(ThreadExecutionEngine.onEngineThread()),
+                "helix-request-thread-impostor");
+        thread.start();
+
+        assertFalse(onEngineThread.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testRequestRejectedWhenQueueFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Handler<HttpServerRequest> blocked = subject.requestHandler(request -> awaitQuietly(release));
+
+        // Two request threads busy, and one request queued
+        blocked.handle(mockRequest());
+        blocked.handle(mockRequest());
+        blocked.handle(mockRequest());
+
+        HttpServerRequest rejected = mockRequest();
+        blocked.handle(rejected);
+
+        verify(rejected.response()).setStatusCode(503);
+        verify(rejected.response()).end();
+        verify(rejected).resume();
+        release.countDown();
+    }
+
+    @Test
+    public void testRequestResumedAfterHandler() throws Exception {
+        HttpServerRequest request = mockRequest();
+
+        subject.requestHandler(r -> { }).handle(request);
+
+        verify(request).pause();
+        verify(request, timeout(5000)).resume();
+    }
+
+    @Test
+    public void testRetainedPauseNotResumed() throws Exception {
+        ThreadExecutionEngine singleThread = new ThreadExecutionEngine(1, 1);
+        HttpServerRequest request = mockRequest();
+        HttpServerRequest next = mockRequest();
+
+        try {
+            singleThread.requestHandler(r -> ThreadExecutionEngine.retainPause()).handle(request);
+            singleThread.requestHandler(r -> { }).handle(next);
+
+            // The next request runs on the same thread, so the first has finished once it is resumed
+            verify(next, timeout(5000)).resume();
+            verify(request, never()).resume();
+        } finally {
+            singleThread.close();
+        }
+    }
+
+    @Test
+    public void testHandlerRunsAfterClose() throws Exception {
+        subject.close();
+        CompletableFuture<Boolean> ran = new CompletableFuture<>();
+
+        subject.handler((Handler<String>) event -> ran.complete(true)).handle("event");
+
+        assertTrue(ran.get(5, TimeUnit.SECONDS));
+    }
+
+    private static HttpServerRequest mockRequest() {
+        HttpServerRequest request = mock(HttpServerRequest.class);
+        HttpServerResponse response = mock(HttpServerResponse.class);
+        when(request.response()).thenReturn(response);
+        when(response.setStatusCode(anyInt())).thenReturn(response);
+        when(response.putHeader(anyString(), anyString())).thenReturn(response);
+        return request;
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
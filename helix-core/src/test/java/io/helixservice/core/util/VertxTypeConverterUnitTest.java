@@ -18,7 +18,13 @@ import com.google.common.collect.Multimap;
 import io.vertx.core.MultiMap;
 import org.junit.Test;
 
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 public class VertxTypeConverterUnitTest {
 
@@ -55,4 +61,54 @@ public class VertxTypeConverterUnitTest {
         assertEquals(multimap.get("a").iterator().next(), "c", "c");
         assertEquals(multimap.get("c").iterator().next(), "z");
     }
+
+    @Test
+    public void testAsGuavaMultimapIsLiveView() {
+        MultiMap multiMap = MultiMap.caseInsensitiveMultiMap();
+        multiMap.add("Content-Type", "application/json");
+
+        Multimap<String, String> view = VertxTypeConverter.asGuavaMultimap(multiMap);
+        assertTrue(view.containsKey("content-type"));
+        assertEquals("application/json", view.get("CONTENT-TYPE").iterator().next());
+
+        view.put("Accept", "a");
+        view.put("accept", "b");
+        assertEquals(3, view.size());
+        assertEquals(2, multiMap.getAll("Accept").size());
+
+        assertTrue(view.remove("Accept", "a"));
+        assertEquals("b", multiMap.get("Accept"));
+
+        view.removeAll("Content-Type");
+        assertFalse(multiMap.contains("Content-Type"));
+        assertEquals(1, view.size());
+    }
+
+    @Test
+    public void testAsGuavaMultimapCollectionsWriteThrough() {
+        MultiMap multiMap = MultiMap.caseInsensitiveMultiMap();
+        multiMap.add("a", "1");
+        multiMap.add("a", "2");
+        multiMap.add("b", "3");
+
+        Multimap<String, String> view = VertxTypeConverter.asGuavaMultimap(multiMap);
+        Collection<String> values = view.get("A");
+        multiMap.add("a", "4");
+        assertEquals(3, values.size());
+
+        values.clear();
+        assertFalse(multiMap.contains("a"));
+
+        view.asMap().get("b").add("5");
+        assertEquals(2, multiMap.getAll("b").size());
+
+        Iterator<Map.Entry<String, String>> entries = view.entries().iterator();
+        entries.next();
+        entries.remove();
+        assertEquals("5", multiMap.get("b"));
+
+        view.values().remove("5");
+        assertTrue(multiMap.isEmpty());
+        assertTrue(view.asMap().isEmpty());
+    }
 }
@@ -0,0 +1,81 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.worker;
+
+import io.helixservice.core.execution.Deadline;
+import io.helixservice.core.execution.DeadlineExceededException;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.Signature;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class BlockingWorkerAspectUnitTest {
+    private final BlockingWorkerAspect subject = new BlockingWorkerAspect();
+    private final ProceedingJoinPoint pjp = mock(ProceedingJoinPoint.class);
+    private final BlockingWorker blockingWorker = mock(BlockingWorker.class);
+    private String originalThreadName;
+
+    @Before
+    public void setup() {
+        Signature signature = mock(Signature.class);
+        when(signature.getDeclaringType()).thenReturn(BlockingWorkerAspectUnitTest.class);
+        when(signature.getDeclaringTypeName()).thenReturn(BlockingWorkerAspectUnitTest.class.getName());
+        when(signature.getName()).thenReturn("work");
+        when(pjp.getSignature()).thenReturn(signature);
+
+        // Pretend to already be a worker, so the method body runs on this thread
+        originalThreadName = Thread.currentThread().getName();
+        Thread.currentThread().setName("vert.x-worker-thread-0");
+    }
+
+    @After
+    public void cleanup() {
+        Thread.currentThread().setName(originalThreadName);
+        Deadline.setCurrent(null);
+    }
+
+    @Test
+    public void testProceedsBeforeDeadline() throws Throwable {
+        when(pjp.proceed()).thenReturn("done");
+        Deadline.setCurrent(Deadline.afterMillis(10_000));
+
+        assertEquals("done", subject.around(pjp, blockingWorker));
+    }
+
+    @Test
+    public void testProceedsWithoutDeadline() throws Throwable {
+        when(pjp.proceed()).thenReturn("done");
+
+        assertEquals("done", subject.around(pjp, blockingWorker));
+    }
+
+    @Test
+    public void testRefusesWorkAfterDeadline() throws Throwable {
+        Deadline.setCurrent(Deadline.afterMillis(0));
+
+        try {
+            subject.around(pjp, blockingWorker);
+            fail("Expected DeadlineExceededException");
+        } catch (DeadlineExceededException e) {
+            verify(pjp, never()).proceed();
+        }
+    }
+}
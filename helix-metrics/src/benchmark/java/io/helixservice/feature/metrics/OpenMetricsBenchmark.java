@@ -0,0 +1,95 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.metrics;
+
+import com.codahale.metrics.ConsoleReporter;
+import com.codahale.metrics.MetricRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to scrape a registry of 10,000 endpoint metrics, in milliseconds.
+ * <p>
+ * consoleReporter does what "GET /metrics" does: build a ConsoleReporter and format the registry
+ * into a byte array. openMetrics writes the same registry in the OpenMetrics text format,
+ * as "GET /metrics/prometheus" does.
+ * <p>
+ * Build with {@code mvn -Pbenchmark clean test-compile}, then run the main method from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OpenMetricsBenchmark {
+    private static final int ENDPOINTS = 1000;
+
+    private MetricRegistry metricRegistry;
+    private OpenMetricsWriter openMetricsWriter;
+
+    @Setup
+    public void setup() {
+        metricRegistry = new MetricRegistry();
+        LatencyRecorders latencyRecorders = new LatencyRecorders(metricRegistry);
+
+        // Four counters and six latency gauges per endpoint, like a service which is mostly idle
+        for (int i = 0; i < ENDPOINTS; i++) {
+            DropwizardEndpointMetrics endpointMetrics =
+                    new DropwizardEndpointMetrics(metricRegistry, latencyRecorders, "GET", "/orders/" + i);
+            endpointMetrics.recordRequest(i * 1000L, true, i);
+            endpointMetrics.recordStatus(200);
+            metricRegistry.remove("controller.endpoint.duration.GET./orders/" + i);
+            metricRegistry.remove("controller.endpoint.response.size.GET./orders/" + i);
+        }
+        latencyRecorders.roll();
+        openMetricsWriter = new OpenMetricsWriter(metricRegistry);
+    }
+
+    @Benchmark
+    public byte[] consoleReporter() {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        PrintStream printStream = new PrintStream(byteArrayOutputStream);
+        ConsoleReporter.forRegistry(metricRegistry).outputTo(printStream).build().report();
+        return byteArrayOutputStream.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] openMetrics() {
+        return openMetricsWriter.write(Collections.emptyList());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(OpenMetricsBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.metrics;
+
+import com.codahale.metrics.MetricRegistry;
+import io.helixservice.feature.restservice.controller.metrics.RequestMetricsPublisher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request cost of recording endpoint metrics, in nanoseconds and (with the GC profiler) bytes allocated.
+ * <p>
+ * eventBusStrings repeats what publishing through the event bus did for each request: build five
+ * "name=value" strings, then in the MetricsFeature consumers split each one, parse the value and
+ * look the metric up by name. The event bus hop itself is left out, so this is a lower bound.
+ * endpointHandles records the same metrics through handles resolved once per endpoint.
+ * <p>
+ * Build with {@code mvn -Pbenchmark clean test-compile}, then run the main method from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestMetricsBenchmark {
+    private static final String PATH = "/orders/:orderId";
+
+    private MetricRegistry metricRegistry;
+    private DropwizardEndpointMetrics endpointMetrics;
+    private long responseSize;
+
+    @Setup
+    public void setup() {
+        metricRegistry = new MetricRegistry();
+        endpointMetrics = new DropwizardEndpointMetrics(metricRegistry, new LatencyRecorders(metricRegistry), "GET", PATH);
+    }
+
+    @Benchmark
+    public void eventBusStrings() {
+        long duration = 3;
+        boolean success = true;
+        String metricName = "GET" + "." + PATH;
+
+        consume("metrics.timer", "controller.endpoint.duration." + metricName + "=" + duration);
+        consume("metrics.counter", "controller.endpoint.total.count." + metricName + "=1");
+        consume("metrics.counter", "controller.endpoint.success.count." + metricName + "=" + (success ? "1" : "0"));
+        consume("metrics.counter", "controller.endpoint.failure.count." + metricName + "=" + (success ? "0" : "1"));
+        consume("metrics.histogram", "controller.endpoint.response.size." + metricName + "=" + nextResponseSize());
+    }
+
+    @Benchmark
+    public void endpointHandles() {
+        RequestMetricsPublisher publisher = new RequestMetricsPublisher(endpointMetrics);
+        publisher.setHttpMethod("GET");
+        publisher.setResponseSize(nextResponseSize());
+        publisher.setSuccess(true);
+        publisher.publish();
+    }
+
+    // As the MetricsFeature event bus consumers do
+    private void consume(String address, String body) {
+        String[] bodySplit = body.split("=");
+        switch (address) {
+            case "metrics.timer":
+                metricRegistry.timer(bodySplit[0]).update(Long.valueOf(bodySplit[1]), TimeUnit.MILLISECONDS);
+                break;
+            case "metrics.counter":
+                metricRegistry.counter(bodySplit[0]).inc(Long.valueOf(bodySplit[1]));
+                break;
+            default:
+                metricRegistry.histogram(bodySplit[0]).update(Long.valueOf(bodySplit[1]));
+        }
+    }
+
+    private long nextResponseSize() {
+        responseSize = (responseSize + 1) & 4095;
+        return responseSize;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RequestMetricsBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.metrics;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import io.helixservice.feature.restservice.controller.metrics.EndpointMetrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request metric handles for one endpoint and HTTP method, backed by a MetricRegistry.
+ * <p>
+ * Metrics have the same names as those published on the event bus, so existing
+ * reports are unchanged. Metrics which only some endpoints use, such as cache
+ * and compression metrics, are registered the first time they are recorded.
+ * The registry returns the same metric to threads which race to register it,
+ * and the last field of each group is written last, so checking it is enough.
+ * <p>
+ * Request and filter latencies are also recorded into LatencyRecorders, whose
+ * percentiles include every request, rather than a decaying sample of them.
+ */
+class DropwizardEndpointMetrics implements EndpointMetrics {
+    private final MetricRegistry metricRegistry;
+    private final LatencyRecorders latencyRecorders;
+    private final String metricName;
+
+    private final Timer duration;
+    private final LatencyRecorder latency;
+    private final Counter totalCount;
+    private final Counter successCount;
+    private final Counter failureCount;
+    private final Histogram responseSize;
+
+    private volatile LatencyRecorder filterLatency;
+    private final Counter[] statusCounts = new Counter[5];
+    private volatile Counter compressionBytesSaved;
+    private volatile Counter compressionNanos;
+    private volatile Histogram concurrencyLimit;
+    private volatile Histogram concurrencyInFlight;
+    private volatile Counter deadlineExceededCount;
+    private volatile Counter rejectedCount;
+    private volatile Counter throttledCount;
+    private volatile Counter cacheHitCount;
+    private volatile Counter cacheMissCount;
+    private volatile Counter cacheEvictionCount;
+    private volatile Histogram marshallingEventLoopNanos;
+    private volatile Counter marshallingOffloadedCount;
+
+    DropwizardEndpointMetrics(MetricRegistry metricRegistry, LatencyRecorders latencyRecorders,
+            String httpMethod, String path) {
+        this.metricRegistry = metricRegistry;
+        this.latencyRecorders = latencyRecorders;
+        this.metricName = httpMethod + "." + path;
+
+        this.duration = metricRegistry.timer("controller.endpoint.duration." + metricName);
+        this.latency = latencyRecorders.recorder("controller.endpoint.latency", metricName);
+        this.totalCount = metricRegistry.counter("controller.endpoint.total.count." + metricName);
+        this.successCount = metricRegistry.counter("controller.endpoint.success.count." + metricName);
+        this.failureCount = metricRegistry.counter("controller.endpoint.failure.count." + metricName);
+        this.responseSize = metricRegistry.histogram("controller.endpoint.response.size." + metricName);
+    }
+
+    @Override
+    public void recordRequest(long durationNanos, boolean success, long size) {
+        duration.update(durationNanos, TimeUnit.NANOSECONDS);
+        latency.record(durationNanos);
+        totalCount.inc();
+        (success ? successCount : failureCount).inc();
+        responseSize.update(size);
+    }
+
+    @Override
+    public void recordStatus(int statusCode) {
+        int statusClass = statusCode / 100;
+        if (statusClass < 1 || statusClass > statusCounts.length) {
+            return;
+        }
+
+        // A thread which misses another's write registers the same counter again, and gets it back
+        Counter statusCount = statusCounts[statusClass - 1];
+        if (statusCount == null) {
+            statusCount = metricRegistry.counter("controller.endpoint.status." + statusClass + "xx.count." + metricName);
+            statusCounts[statusClass - 1] = statusCount;
+        }
+        statusCount.inc();
+    }
+
+    @Override
+    public void recordFilters(long filterNanos) {
+        if (filterLatency == null) {
+            filterLatency = latencyRecorders.recorder("controller.endpoint.filter.latency", metricName);
+        }
+        filterLatency.record(filterNanos);
+    }
+
+    @Override
+    public void recordCompression(long bytesSaved, long nanos) {
+        if (compressionNanos == null) {
+            compressionBytesSaved = metricRegistry.counter("controller.endpoint.compression.bytesSaved." + metricName);
+            compressionNanos = metricRegistry.counter("controller.endpoint.compression.nanos." + metricName);
+        }
+        compressionBytesSaved.inc(bytesSaved);
+        compressionNanos.inc(nanos);
+    }
+
+    @Override
+    public void recordConcurrency(int limit, int inFlight) {
+        if (concurrencyInFlight == null) {
+            concurrencyLimit = metricRegistry.histogram("controller.endpoint.concurrency.limit." + metricName);
+            concurrencyInFlight = metricRegistry.histogram("controller.endpoint.concurrency.inflight." + metricName);
+        }
+        concurrencyLimit.update(limit);
+        concurrencyInFlight.update(inFlight);
+    }
+
+    @Override
+    public void recordDeadlineExceeded() {
+        if (deadlineExceededCount == null) {
+            deadlineExceededCount = metricRegistry.counter("controller.endpoint.deadline.exceeded.count." + metricName);
+        }
+        deadlineExceededCount.inc();
+    }
+
+    @Override
+    public void recordRejected() {
+        if (rejectedCount == null) {
+            rejectedCount = metricRegistry.counter("controller.endpoint.concurrency.rejected.count." + metricName);
+        }
+        rejectedCount.inc();
+    }
+
+    @Override
+    public void recordThrottled() {
+        if (throttledCount == null) {
+            throttledCount = metricRegistry.counter("controller.endpoint.ratelimit.throttled.count." + metricName);
+        }
+        throttledCount.inc();
+    }
+
+    @Override
+    public void recordCache(boolean hit, long evictions) {
+        if (cacheEvictionCount == null) {
+            cacheHitCount = metricRegistry.counter("controller.endpoint.cache.hit.count." + metricName);
+            cacheMissCount = metricRegistry.counter("controller.endpoint.cache.miss.count." + metricName);
+            cacheEvictionCount = metricRegistry.counter("controller.endpoint.cache.eviction.count." + metricName);
+        }
+        (hit ? cacheHitCount : cacheMissCount).inc();
+        cacheEvictionCount.inc(evictions);
+    }
+
+    @Override
+    public void recordMarshalling(long eventLoopNanos, int offloaded) {
+        if (eventLoopNanos >= 0) {
+            if (marshallingEventLoopNanos == null) {
+                marshallingEventLoopNanos = metricRegistry.histogram("controller.endpoint.marshalling.eventloop.nanos." + metricName);
+            }
+            marshallingEventLoopNanos.update(eventLoopNanos);
+        }
+        if (offloaded > 0) {
+            if (marshallingOffloadedCount == null) {
+                marshallingOffloadedCount = metricRegistry.counter("controller.endpoint.marshalling.offloaded.count." + metricName);
+            }
+            marshallingOffloadedCount.inc(offloaded);
+        }
+    }
+}
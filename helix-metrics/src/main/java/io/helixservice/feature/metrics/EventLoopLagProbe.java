@@ -0,0 +1,136 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.metrics;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import io.vertx.core.Vertx;
+import io.vertx.core.impl.VertxInternal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long each Vert.x event loop takes to run a task once it is queued.
+ * <p>
+ * A probe thread periodically queues a task directly on each event loop of the Vert.x event loop
+ * group. The time until the task runs is recorded as <b>vertx.latency.eventloop.lag</b>, named after
+ * the event loop thread. While an event loop has not yet run its last probe, no new probe is queued,
+ * and the gauge <b>vertx.eventloop.blocked.nanos</b> shows how long it has been waiting, so a blocked
+ * event loop shows up before it recovers.
+ */
+class EventLoopLagProbe {
+    private final MetricRegistry metricRegistry;
+    private final LatencyRecorders latencyRecorders;
+    private final List<Probe> probes = new ArrayList<>();
+    private ScheduledExecutorService scheduler;
+
+    EventLoopLagProbe(MetricRegistry metricRegistry, LatencyRecorders latencyRecorders) {
+        this.metricRegistry = metricRegistry;
+        this.latencyRecorders = latencyRecorders;
+    }
+
+    /**
+     * Start probing every event loop of a Vert.x instance
+     *
+     * @param vertx Vert.x instance
+     * @param intervalMillis Time between probes of each event loop
+     */
+    void start(Vertx vertx, long intervalMillis) {
+        start(((VertxInternal) vertx).getEventLoopGroup(), intervalMillis);
+    }
+
+    /**
+     * Start probing
+     *
+     * @param eventLoops Event loops to probe, one probe each
+     * @param intervalMillis Time between probes of each event loop
+     */
+    void start(Iterable<? extends Executor> eventLoops, long intervalMillis) {
+        probes.clear();
+        for (Executor eventLoop : eventLoops) {
+            probes.add(new Probe(eventLoop));
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "helix-eventloop-probe");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::probe, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Queue a probe on each event loop that has run its last one
+     */
+    void probe() {
+        for (Probe probe : probes) {
+            probe.queue();
+        }
+    }
+
+    private class Probe {
+        private final Executor eventLoop;
+        private volatile long queuedNanos = 0;
+        private volatile LatencyRecorder lag;
+
+        Probe(Executor eventLoop) {
+            this.eventLoop = eventLoop;
+        }
+
+        void queue() {
+            if (queuedNanos != 0) {
+                // The event loop has not run the last probe yet
+                return;
+            }
+
+            long queued = System.nanoTime();
+            queuedNanos = queued;
+            try {
+                eventLoop.execute(() -> {
+                    long lagNanos = System.nanoTime() - queued;
+                    if (lag == null) {
+                        lag = register(Thread.currentThread().getName());
+                    }
+                    lag.record(lagNanos);
+                    queuedNanos = 0;
+                });
+            } catch (RejectedExecutionException e) {
+                // The event loop is shutting down. Thrown on, it would cancel every later probe
+                queuedNanos = 0;
+            }
+        }
+
+        private LatencyRecorder register(String threadName) {
+            // Replaces the gauge of an earlier start, which read the probe that is now gone
+            metricRegistry.remove("vertx.eventloop.blocked.nanos." + threadName);
+            metricRegistry.register("vertx.eventloop.blocked.nanos." + threadName, (Gauge<Long>) () -> {
+                long queued = queuedNanos;
+                return queued == 0 ? 0L : System.nanoTime() - queued;
+            });
+            return latencyRecorders.recorder("vertx.latency", "eventloop.lag." + threadName);
+        }
+    }
+}
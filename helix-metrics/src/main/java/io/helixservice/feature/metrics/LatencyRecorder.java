@@ -0,0 +1,73 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.metrics;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Records latencies in nanoseconds into an HdrHistogram, in fixed windows.
+ * <p>
+ * Recording is wait-free, so any number of threads can record at once. At the end of
+ * each window, roll() swaps the histogram being recorded into for an empty one, and
+ * takes the percentiles of the finished window, and of all windows so far. Unlike
+ * a decaying reservoir, every recorded value counts towards the percentiles.
+ */
+public class LatencyRecorder {
+    // Values are accurate to 0.1%, from 1 nanosecond up to the histogram's auto-resized range
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final Recorder recorder = new Recorder(SIGNIFICANT_DIGITS);
+    private final Histogram cumulative = new Histogram(SIGNIFICANT_DIGITS);
+    private final long createdMillis = System.currentTimeMillis();
+    private Histogram interval;
+
+    private volatile LatencySnapshot intervalSnapshot = LatencySnapshot.EMPTY;
+    private volatile LatencySnapshot cumulativeSnapshot = LatencySnapshot.EMPTY;
+
+    /**
+     * Record a latency
+     *
+     * @param nanos Latency in nanoseconds
+     */
+    public void record(long nanos) {
+        recorder.recordValue(Math.max(0, nanos));
+    }
+
+    /**
+     * End the current window, and take the percentiles of the window just ended
+     */
+    synchronized void roll() {
+        // The histogram of the previous window is reused for the next one
+        interval = recorder.getIntervalHistogram(interval);
+        cumulative.add(interval);
+
+        long endMillis = interval.getEndTimeStamp();
+        intervalSnapshot = LatencySnapshot.of(interval, interval.getStartTimeStamp(), endMillis);
+        cumulativeSnapshot = LatencySnapshot.of(cumulative, createdMillis, endMillis);
+    }
+
+    /**
+     * @return Percentiles of the last complete window
+     */
+    public LatencySnapshot getIntervalSnapshot() {
+        return intervalSnapshot;
+    }
+
+    /**
+     * @return Percentiles of all complete windows, since this recorder was created
+     */
+    public LatencySnapshot getCumulativeSnapshot() {
+        return cumulativeSnapshot;
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.metrics;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.ToLongFunction;
+
+/**
+ * Named LatencyRecorders, whose windows are rolled together.
+ * <p>
+ * Each recorder's last window is also registered with the MetricRegistry, as the gauges
+ * <b>prefix.p50.name</b>, <b>prefix.p90.name</b>, <b>prefix.p99.name</b>, <b>prefix.p999.name</b>,
+ * <b>prefix.max.name</b> (in nanoseconds) and <b>prefix.count.name</b>.
+ */
+public class LatencyRecorders {
+    private final MetricRegistry metricRegistry;
+    private final ConcurrentMap<String, LatencyRecorder> recorders = new ConcurrentHashMap<>();
+
+    public LatencyRecorders(MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+    }
+
+    /**
+     * Get the recorder with a name, creating it and registering its gauges on first use
+     *
+     * @param prefix Metric name prefix, for example "controller.endpoint.latency"
+     * @param name Metric name, for example "GET./hello"
+     * @return The recorder
+     */
+    public LatencyRecorder recorder(String prefix, String name) {
+        return recorders.computeIfAbsent(prefix + "." + name, key -> {
+            LatencyRecorder recorder = new LatencyRecorder();
+            registerGauge(prefix + ".p50." + name, recorder, LatencySnapshot::getP50Nanos);
+            registerGauge(prefix + ".p90." + name, recorder, LatencySnapshot::getP90Nanos);
+            registerGauge(prefix + ".p99." + name, recorder, LatencySnapshot::getP99Nanos);
+            registerGauge(prefix + ".p999." + name, recorder, LatencySnapshot::getP999Nanos);
+            registerGauge(prefix + ".max." + name, recorder, LatencySnapshot::getMaxNanos);
+            registerGauge(prefix + ".count." + name, recorder, LatencySnapshot::getCount);
+            return recorder;
+        });
+    }
+
+    private void registerGauge(String gaugeName, LatencyRecorder recorder, ToLongFunction<LatencySnapshot> value) {
+        metricRegistry.register(gaugeName, (Gauge<Long>) () -> value.applyAsLong(recorder.getIntervalSnapshot()));
+    }
+
+    /**
+     * End the current window of every recorder
+     */
+    public void roll() {
+        for (LatencyRecorder recorder : recorders.values()) {
+            recorder.roll();
+        }
+    }
+
+    /**
+     * Get the last window and the cumulative percentiles of every recorder
+     *
+     * @return Map of recorder name to a map with "interval" and "cumulative" snapshots, sorted by name
+     */
+    public Map<String, Map<String, LatencySnapshot>> snapshots() {
+        Map<String, Map<String, LatencySnapshot>> snapshots = new TreeMap<>();
+        recorders.forEach((name, recorder) -> {
+            Map<String, LatencySnapshot> windows = new LinkedHashMap<>();
+            windows.put("interval", recorder.getIntervalSnapshot());
+            windows.put("cumulative", recorder.getCumulativeSnapshot());
+            snapshots.put(name, windows);
+        });
+        return snapshots;
+    }
+}
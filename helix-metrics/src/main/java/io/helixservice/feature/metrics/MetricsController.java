@@ -23,16 +23,23 @@ import io.helixservice.feature.restservice.controller.annotation.Endpoint;
 
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
+import java.util.Map;
 
 /**
  * Supports HTTP request for metrics snapshot
  */
 @Controller
 public class MetricsController {
+    private static final String PREFIX_PARAM = "prefix";
+    private static final String CONTENT_TYPE = "Content-Type";
     private MetricRegistry metricRegistry;
+    private LatencyRecorders latencyRecorders;
+    private OpenMetricsWriter openMetricsWriter;
 
-    public MetricsController(MetricRegistry metricRegistry) {
+    public MetricsController(MetricRegistry metricRegistry, LatencyRecorders latencyRecorders) {
         this.metricRegistry = metricRegistry;
+        this.latencyRecorders = latencyRecorders;
+        this.openMetricsWriter = new OpenMetricsWriter(metricRegistry);
     }
 
     @Endpoint(value = "/metrics", methods = HttpMethod.GET)
@@ -45,4 +52,22 @@ public class MetricsController {
 
         return Response.successResponse(byteArrayOutputStream.toString());
     }
+
+    /**
+     * Metrics in the OpenMetrics text format, for Prometheus to scrape.
+     * Pass one or more "prefix" parameters to only include metrics whose names start with them.
+     */
+    @Endpoint(value = "/metrics/prometheus", methods = HttpMethod.GET)
+    public Response<byte[]> getPrometheusMetrics(Request request) {
+        byte[] body = openMetricsWriter.write(request.getParams().get(PREFIX_PARAM));
+        return Response.successResponse(body).addHeader(CONTENT_TYPE, OpenMetricsWriter.CONTENT_TYPE);
+    }
+
+    /**
+     * Latency percentiles in nanoseconds, for the last window and since startup
+     */
+    @Endpoint(value = "/metrics/latency", methods = HttpMethod.GET)
+    public Response<Map<String, Map<String, LatencySnapshot>>> getLatencyMetrics(Request request) {
+        return Response.successResponse(latencyRecorders.snapshots());
+    }
 }
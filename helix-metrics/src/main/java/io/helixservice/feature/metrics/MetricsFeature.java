@@ -13,24 +13,57 @@
 
 package io.helixservice.feature.metrics;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.jvm.GarbageCollectorMetricSet;
 import com.codahale.metrics.jvm.MemoryUsageGaugeSet;
 import com.codahale.metrics.jvm.ThreadStatesGaugeSet;
 import io.helixservice.core.feature.AbstractFeature;
 import io.helixservice.core.container.Container;
+import io.helixservice.core.container.VertxOptionsCustomizer;
+import io.helixservice.feature.accesslog.AccessLogMetrics;
+import io.helixservice.feature.accesslog.AccessLogMetricsFactory;
+import io.helixservice.feature.restclient.RestClientMetrics;
+import io.helixservice.feature.restclient.RestClientMetricsFactory;
 import io.helixservice.feature.restservice.controller.component.Controller;
+import io.helixservice.feature.restservice.controller.metrics.EndpointMetricsFactory;
 import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
 import io.vertx.core.eventbus.EventBus;
 import io.vertx.core.eventbus.Message;
 
 import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
 
 /**
  * Provides Metrics Collection based on codahale metrics library.
  * <p>
- * Registers Thread, GC, and Memory usage metrics by default.
- * In addition, accepts metrics reported via the Vert.x event bus.
+ * Registers Thread, GC, and Memory usage metrics by default,
+ * along with the container's in-flight request count (helix.requests.inflight),
+ * which shows drain progress while the container is stopping.
+ * <p>
+ * REST endpoint request metrics are recorded directly into the MetricRegistry, through
+ * metric handles resolved once per endpoint and HTTP method when endpoints are registered.
+ * <p>
+ * Endpoint, filter and REST client latencies are recorded in nanoseconds into HdrHistograms,
+ * in windows of 10 seconds by default. The p50, p90, p99, p99.9 and max of each latency's
+ * last window are registered as gauges, for example <b>controller.endpoint.latency.p99.GET./hello</b>
+ * and <b>restclient.latency.p99.default</b>. The last window and the cumulative percentiles
+ * of every latency are reported by "GET /metrics/latency".
+ * <p>
+ * To tell a blocked event loop from a backed up fiber scheduler or a saturated worker pool,
+ * each event loop is probed every 100ms for scheduling lag (<b>vertx.latency.eventloop.lag</b>),
+ * and fiber counts, BlockingWorker queue depth, wait time and dispatch latency
+ * are recorded. See VertxExecutionMetrics and EventLoopLagProbe for the metric names.
+ * <p>
+ * The access log's queue depth and its written and dropped entry counts are recorded
+ * as <b>accesslog.queue.depth</b>, <b>accesslog.written.count</b> and <b>accesslog.dropped.count</b>.
+ * REST client requests and BlockingWorker calls not made because the request's deadline had passed
+ * are counted as <b>restclient.deadline.exceeded.count.&lt;client&gt;</b> and
+ * <b>blockingworker.deadline.exceeded.count.&lt;class&gt;.&lt;method&gt;</b>.
+ * <p>
+ * In addition, accepts metrics reported via the Vert.x event bus, for other publishers.
  * <h2>Vert.x Event Bus Consumers (Local Consumer only):</h2>
  * <pre>
  * Address: "metrics.histogram"  Body: "metricKey=metricValue"
@@ -39,30 +72,131 @@ import java.util.concurrent.TimeUnit;
  * </pre>
  * <h2>Metrics Publishing</h2>
  * Metric publishing can be configured by getting the MetricRegistry
- * and adding the desired publisher.  Currently, the only publishing
- * mechanism is through a HTTP request "GET /metrics".
+ * and adding the desired publisher.  Metrics are published through the HTTP requests
+ * "GET /metrics", as human-readable text, and "GET /metrics/prometheus", in the OpenMetrics
+ * text format with method, path and status class labels. Add "prefix" parameters to the latter
+ * to only scrape metrics whose names start with them.
  */
 public class MetricsFeature extends AbstractFeature {
     private static final String SEPARATOR_REGEX = "=";
+    private static final long DEFAULT_LATENCY_WINDOW_MILLIS = 10_000;
+    private static final long EVENT_LOOP_PROBE_INTERVAL_MILLIS = 100;
     private MetricRegistry metricRegistry;
+    private LatencyRecorders latencyRecorders;
+    private long latencyWindowMillis;
+    private long latencyWindowTimerId = -1;
+    private EventLoopLagProbe eventLoopLagProbe;
+    private VertxOptions vertxOptions;
+    private Container container;
 
     public MetricsFeature() {
+        this(DEFAULT_LATENCY_WINDOW_MILLIS);
+    }
+
+    /**
+     * Create the metrics feature
+     *
+     * @param latencyWindowMillis Length of each latency window, in milliseconds
+     */
+    public MetricsFeature(long latencyWindowMillis) {
+        this.latencyWindowMillis = latencyWindowMillis;
         metricRegistry = new MetricRegistry();
+        latencyRecorders = new LatencyRecorders(metricRegistry);
         metricRegistry.registerAll(new ThreadStatesGaugeSet());
         metricRegistry.registerAll(new GarbageCollectorMetricSet());
         metricRegistry.registerAll(new MemoryUsageGaugeSet());
+        metricRegistry.register("helix.requests.inflight",
+                (Gauge<Long>) () -> container == null ? 0L : container.getInFlightRequests().get());
 
-        MetricsController metricsController = new MetricsController(metricRegistry);
+        MetricsController metricsController = new MetricsController(metricRegistry, latencyRecorders);
         register(Controller.fromAnnotationsOn(metricsController));
+        register((EndpointMetricsFactory) (httpMethod, path)
+                -> new DropwizardEndpointMetrics(metricRegistry, latencyRecorders, httpMethod, path));
+        register((RestClientMetricsFactory) this::restClientMetrics);
+        register((AccessLogMetricsFactory) this::accessLogMetrics);
+
+        VertxExecutionMetrics executionMetrics = new VertxExecutionMetrics(metricRegistry, latencyRecorders,
+                () -> vertxOptions == null ? 0 : vertxOptions.getWorkerPoolSize());
+        metricRegistry.registerAll(executionMetrics);
+        register(executionMetrics);
+        eventLoopLagProbe = new EventLoopLagProbe(metricRegistry, latencyRecorders);
+
+        // Kept to read the pool sizes once every customizer has run and Vert.x is created
+        register((VertxOptionsCustomizer) options -> vertxOptions = options);
     }
 
     public MetricRegistry metricRegistry() {
         return metricRegistry;
     }
 
+    public LatencyRecorders latencyRecorders() {
+        return latencyRecorders;
+    }
+
     @Override
     public void start(Container container) {
-        addEventBusConsumers(container.getVertx().get());
+        this.container = container;
+        Vertx vertx = container.getVertx().get();
+        addEventBusConsumers(vertx);
+
+        // Rolling copies every recorder's histogram, so it is kept off the event loop
+        latencyWindowTimerId = vertx.setPeriodic(latencyWindowMillis,
+                id -> vertx.executeBlocking(future -> {
+                    latencyRecorders.roll();
+                    future.complete();
+                }, false, null));
+
+        eventLoopLagProbe.start(vertx, EVENT_LOOP_PROBE_INTERVAL_MILLIS);
+    }
+
+    @Override
+    public void stop(Container container) {
+        eventLoopLagProbe.stop();
+        if (latencyWindowTimerId != -1) {
+            container.getVertx().get().cancelTimer(latencyWindowTimerId);
+            latencyWindowTimerId = -1;
+        }
+    }
+
+    private RestClientMetrics restClientMetrics(String httpClientName) {
+        LatencyRecorder latency = latencyRecorders.recorder("restclient.latency", httpClientName);
+        Counter failureCount = metricRegistry.counter("restclient.failure.count." + httpClientName);
+        Counter deadlineExceededCount = metricRegistry.counter("restclient.deadline.exceeded.count." + httpClientName);
+
+        return new RestClientMetrics() {
+            @Override
+            public void recordRequest(long durationNanos, int statusCode) {
+                latency.record(durationNanos);
+                if (statusCode < 200 || statusCode > 299) {
+                    failureCount.inc();
+                }
+            }
+
+            @Override
+            public void recordDeadlineExceeded() {
+                deadlineExceededCount.inc();
+            }
+        };
+    }
+
+    private AccessLogMetrics accessLogMetrics(IntSupplier queueDepth) {
+        // Replaced rather than added again, when the access log feature is restarted
+        metricRegistry.remove("accesslog.queue.depth");
+        metricRegistry.register("accesslog.queue.depth", (Gauge<Integer>) queueDepth::getAsInt);
+        Counter writtenCount = metricRegistry.counter("accesslog.written.count");
+        Counter droppedCount = metricRegistry.counter("accesslog.dropped.count");
+
+        return new AccessLogMetrics() {
+            @Override
+            public void recordWritten(int count) {
+                writtenCount.inc(count);
+            }
+
+            @Override
+            public void recordDropped() {
+                droppedCount.inc();
+            }
+        };
     }
 
     private void addEventBusConsumers(Vertx vertx) {
@@ -0,0 +1,356 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.metrics;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricFilter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Writes the metrics of a MetricRegistry in the OpenMetrics text format.
+ * <p>
+ * Endpoint metrics, named like <b>controller.endpoint.total.count.GET./hello</b>, are written as
+ * one family per metric, with method and path labels. A status class segment, as in
+ * <b>controller.endpoint.status.2xx.count.GET./hello</b>, becomes a status label. Other metrics
+ * are written without labels. Dots and other characters not allowed in names become underscores.
+ * Metric names that come out the same, such as <b>a.b</b> and <b>a_b</b>, are told apart by
+ * a numbered suffix on the family of the later one, so a family never has two types or duplicate series.
+ * <p>
+ * Counters and meters are written as counters, gauges with a numeric value as gauges,
+ * and histograms and timers as summaries. Timer quantiles are in seconds.
+ * <p>
+ * The family and labels of each metric name are worked out once. Each thread writes into
+ * its own text buffer, which is kept for the next scrape.
+ */
+public class OpenMetricsWriter {
+    public static final String CONTENT_TYPE = "application/openmetrics-text; version=1.0.0; charset=utf-8";
+    private static final Logger LOG = LoggerFactory.getLogger(OpenMetricsWriter.class);
+
+    private static final Pattern ENDPOINT_NAME =
+            Pattern.compile("^(.+)\\.(GET|HEAD|POST|PUT|DELETE|PATCH|OPTIONS|TRACE|CONNECT|OTHER)\\.(/.*)$", Pattern.DOTALL);
+    private static final Pattern STATUS_CLASS = Pattern.compile("\\.([1-5]xx)(?=\\.|$)");
+    private static final String[] COUNTER_SUFFIXES = {"", "_total"};
+    private static final String[] GAUGE_SUFFIXES = {""};
+    private static final String[] SUMMARY_SUFFIXES = {"", "_count", "_sum"};
+    private static final double[] QUANTILES = {0.5, 0.75, 0.95, 0.98, 0.99, 0.999};
+    private static final String[] QUANTILE_LABELS = {"0.5", "0.75", "0.95", "0.98", "0.99", "0.999"};
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_RETAINED_BUFFER_SIZE = 4 * 1024 * 1024;
+
+    private final MetricRegistry metricRegistry;
+    private final ConcurrentMap<String, Series> seriesByName = new ConcurrentHashMap<>();
+    // Sample name to the family and type that writes it, and family and labels to the metric name written with them
+    private final Map<String, String> sampleNameOwners = new HashMap<>();
+    private final Map<String, String> seriesOwners = new HashMap<>();
+    private final ThreadLocal<StringBuilder> buffers = ThreadLocal.withInitial(() -> new StringBuilder(INITIAL_BUFFER_SIZE));
+
+    public OpenMetricsWriter(MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+    }
+
+    /**
+     * Write the registry's metrics
+     *
+     * @param prefixes Only write metrics whose names start with one of these, or all metrics if empty
+     * @return The metrics as UTF-8 text, ending with "# EOF"
+     */
+    public byte[] write(Collection<String> prefixes) {
+        MetricFilter filter = prefixes == null || prefixes.isEmpty()
+                ? MetricFilter.ALL : (name, metric) -> startsWithAny(name, prefixes);
+
+        StringBuilder out = buffers.get();
+        out.setLength(0);
+
+        writeFamilies(out, "counter", COUNTER_SUFFIXES, metricRegistry.getCounters(filter), this::writeCounter);
+        writeFamilies(out, "counter", COUNTER_SUFFIXES, metricRegistry.getMeters(filter), this::writeMeter);
+        writeFamilies(out, "gauge", GAUGE_SUFFIXES, metricRegistry.getGauges(filter), this::writeGauge);
+        writeFamilies(out, "summary", SUMMARY_SUFFIXES, metricRegistry.getHistograms(filter), this::writeHistogram);
+        writeFamilies(out, "summary", SUMMARY_SUFFIXES, metricRegistry.getTimers(filter), this::writeTimer);
+        out.append("# EOF\n");
+
+        byte[] bytes = encode(out);
+        if (out.capacity() > MAX_RETAINED_BUFFER_SIZE) {
+            // An unusually large scrape, so do not hold on to its buffer
+            buffers.remove();
+        }
+        return bytes;
+    }
+
+    @FunctionalInterface
+    private interface SampleWriter<T extends Metric> {
+        void write(StringBuilder out, Series series, T metric);
+    }
+
+    // Metrics of one family may not be contiguous in name order, so they are grouped first
+    private <T extends Metric> void writeFamilies(StringBuilder out, String type, String[] sampleSuffixes,
+            SortedMap<String, T> metrics, SampleWriter<T> sampleWriter) {
+        List<Sample<T>> samples = new ArrayList<>(metrics.size());
+        for (Map.Entry<String, T> entry : metrics.entrySet()) {
+            Series series = seriesByName.get(entry.getKey());
+            if (series == null || !series.type.equals(type)) {
+                series = claimSeries(entry.getKey(), type, sampleSuffixes);
+                seriesByName.put(entry.getKey(), series);
+            }
+            samples.add(new Sample<>(series, entry.getValue()));
+        }
+        // Stable, so each family's samples stay in name order
+        samples.sort(Comparator.comparing(sample -> sample.series.family));
+
+        String family = null;
+        for (Sample<T> sample : samples) {
+            if (!sample.series.family.equals(family)) {
+                family = sample.series.family;
+                out.append("# TYPE ").append(family).append(' ').append(type).append('\n');
+            }
+            sampleWriter.write(out, sample.series, sample.metric);
+        }
+    }
+
+    /**
+     * Work out the family and labels of a metric name, numbering the family when its sample names
+     * are written by a family of another type, or its labels are already written by another metric.
+     */
+    private synchronized Series claimSeries(String metricName, String type, String[] sampleSuffixes) {
+        Series parsed = Series.parse(metricName, type);
+        for (int n = 1; ; n++) {
+            String family = n == 1 ? parsed.family : parsed.family + '_' + n;
+            String owner = family + ' ' + type;
+            if (!sampleNamesFree(family, owner, sampleSuffixes)) {
+                continue;
+            }
+
+            String seriesOwner = seriesOwners.putIfAbsent(family + '{' + parsed.labels, metricName);
+            if (seriesOwner == null || seriesOwner.equals(metricName)) {
+                for (String suffix : sampleSuffixes) {
+                    sampleNameOwners.put(family + suffix, owner);
+                }
+                return new Series(family, parsed.labels, type);
+            }
+        }
+    }
+
+    private boolean sampleNamesFree(String family, String owner, String[] sampleSuffixes) {
+        for (String suffix : sampleSuffixes) {
+            String existing = sampleNameOwners.get(family + suffix);
+            if (existing != null && !existing.equals(owner)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void writeCounter(StringBuilder out, Series series, Counter counter) {
+        writeSample(out, series, "_total", null);
+        out.append(counter.getCount()).append('\n');
+    }
+
+    private void writeMeter(StringBuilder out, Series series, Meter meter) {
+        writeSample(out, series, "_total", null);
+        out.append(meter.getCount()).append('\n');
+    }
+
+    private void writeGauge(StringBuilder out, Series series, Gauge<?> gauge) {
+        Object value;
+        try {
+            value = gauge.getValue();
+        } catch (RuntimeException e) {
+            LOG.debug("Unable to read gauge " + series.family, e);
+            return;
+        }
+
+        if (value instanceof Number) {
+            writeSample(out, series, "", null);
+            appendValue(out, ((Number) value).doubleValue());
+        } else if (value instanceof Boolean) {
+            writeSample(out, series, "", null);
+            out.append((Boolean) value ? '1' : '0');
+        } else {
+            // Gauges of other types, such as the set of deadlocked threads, have no numeric value
+            return;
+        }
+        out.append('\n');
+    }
+
+    private void writeHistogram(StringBuilder out, Series series, Histogram histogram) {
+        writeSummary(out, series, histogram.getSnapshot(), histogram.getCount(), 1.0);
+    }
+
+    private void writeTimer(StringBuilder out, Series series, Timer timer) {
+        writeSummary(out, series, timer.getSnapshot(), timer.getCount(), 1.0 / NANOS_PER_SECOND);
+    }
+
+    private void writeSummary(StringBuilder out, Series series, Snapshot snapshot, long count, double scale) {
+        for (int i = 0; i < QUANTILES.length; i++) {
+            writeSample(out, series, "", QUANTILE_LABELS[i]);
+            appendValue(out, snapshot.getValue(QUANTILES[i]) * scale);
+            out.append('\n');
+        }
+        writeSample(out, series, "_count", null);
+        out.append(count).append('\n');
+    }
+
+    private void writeSample(StringBuilder out, Series series, String suffix, String quantile) {
+        out.append(series.family).append(suffix);
+        if (series.labels.isEmpty() && quantile == null) {
+            out.append(' ');
+            return;
+        }
+
+        out.append('{').append(series.labels);
+        if (quantile != null) {
+            if (!series.labels.isEmpty()) {
+                out.append(',');
+            }
+            out.append("quantile=\"").append(quantile).append('"');
+        }
+        out.append("} ");
+    }
+
+    private static void appendValue(StringBuilder out, double value) {
+        if (Double.isNaN(value)) {
+            out.append("NaN");
+        } else if (Double.isInfinite(value)) {
+            out.append(value > 0 ? "+Inf" : "-Inf");
+        } else if (value == (long) value) {
+            out.append((long) value);
+        } else {
+            out.append(value);
+        }
+    }
+
+    private static boolean startsWithAny(String name, Collection<String> prefixes) {
+        for (String prefix : prefixes) {
+            if (name.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Metric names and paths are almost always ASCII, which is copied straight into the result
+    private static byte[] encode(StringBuilder out) {
+        int length = out.length();
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            char c = out.charAt(i);
+            if (c >= 0x80) {
+                return out.toString().getBytes(StandardCharsets.UTF_8);
+            }
+            bytes[i] = (byte) c;
+        }
+        return bytes;
+    }
+
+    private static class Sample<T extends Metric> {
+        private final Series series;
+        private final T metric;
+
+        Sample(Series series, T metric) {
+            this.series = series;
+            this.metric = metric;
+        }
+    }
+
+    /**
+     * Family name and labels of one metric name
+     */
+    private static class Series {
+        private final String family;
+        private final String labels;
+        private final String type;
+
+        private Series(String family, String labels, String type) {
+            this.family = family;
+            this.labels = labels;
+            this.type = type;
+        }
+
+        static Series parse(String metricName, String type) {
+            String name = metricName;
+            StringBuilder labels = new StringBuilder();
+
+            Matcher endpoint = ENDPOINT_NAME.matcher(name);
+            if (endpoint.matches()) {
+                name = endpoint.group(1);
+                appendLabel(labels, "method", endpoint.group(2));
+                appendLabel(labels, "path", endpoint.group(3));
+            }
+
+            Matcher status = STATUS_CLASS.matcher(name);
+            if (status.find()) {
+                appendLabel(labels, "status", status.group(1));
+                name = name.substring(0, status.start()) + name.substring(status.end());
+            }
+
+            return new Series(sanitize(name), labels.toString(), type);
+        }
+
+        private static void appendLabel(StringBuilder labels, String labelName, String value) {
+            if (labels.length() > 0) {
+                labels.append(',');
+            }
+            labels.append(labelName).append("=\"");
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '\\' || c == '"') {
+                    labels.append('\\').append(c);
+                } else if (c == '\n') {
+                    labels.append("\\n");
+                } else {
+                    labels.append(c);
+                }
+            }
+            labels.append('"');
+        }
+
+        private static String sanitize(String name) {
+            StringBuilder family = new StringBuilder(name.length() + 1);
+            if (name.isEmpty() || Character.isDigit(name.charAt(0))) {
+                family.append('_');
+            }
+            for (int i = 0; i < name.length(); i++) {
+                char c = name.charAt(i);
+                boolean allowed = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                        || c == '_' || c == ':';
+                family.append(allowed ? c : '_');
+            }
+
+            // Counter samples get a _total suffix, so it must not already be on the family name
+            String result = family.toString();
+            return result.endsWith("_total") ? result.substring(0, result.length() - "_total".length()) : result;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.metrics;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.MetricSet;
+import io.helixservice.core.execution.ExecutionMetrics;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Fiber scheduler and worker pool metrics.
+ * <p>
+ * Only BlockingWorker calls are counted against the worker pool. Other executeBlocking calls,
+ * such as those Vert.x makes itself, use worker threads without being seen here.
+ * <p>
+ * Gauges:
+ * <pre>
+ * vertx.fibers.active                 Fibers running or suspended in a request handler
+ * vertx.fibers.started.count          Fibers started since startup
+ * vertx.blockingworker.queue.depth    BlockingWorker calls waiting for a worker thread
+ * vertx.blockingworker.active         Worker threads running BlockingWorker calls
+ * vertx.blockingworker.utilization    Active BlockingWorker calls as a fraction of the worker pool
+ * vertx.worker.poolSize               Size of the worker pool (vertx.server.workers)
+ * </pre>
+ * Latencies, recorded into LatencyRecorders with the prefix <b>vertx.latency</b>:
+ * <pre>
+ * fiber.schedule               Time from dispatching a handler until its fiber runs
+ * blockingworker.wait          Time a BlockingWorker call waited for a worker thread
+ * blockingworker.dispatch      BlockingWorker call time, less the time the method ran
+ * </pre>
+ * BlockingWorker calls not run because the request's deadline had passed are counted as
+ * <b>blockingworker.deadline.exceeded.count.&lt;class&gt;.&lt;method&gt;</b>.
+ */
+class VertxExecutionMetrics implements ExecutionMetrics, MetricSet {
+    private final MetricRegistry metricRegistry;
+    private final IntSupplier workerPoolSize;
+
+    private final AtomicLong fibersActive = new AtomicLong();
+    private final LongAdder fibersStarted = new LongAdder();
+    private final AtomicLong workerQueueDepth = new AtomicLong();
+    private final AtomicLong workersActive = new AtomicLong();
+
+    private final LatencyRecorder fiberScheduleLatency;
+    private final LatencyRecorder workerWaitLatency;
+    private final LatencyRecorder blockingWorkerDispatchLatency;
+    private final ConcurrentMap<Method, Counter> deadlineExceededCounts = new ConcurrentHashMap<>();
+
+    /**
+     * @param metricRegistry Registry for the deadline counters, which are created as BlockingWorker methods exceed them
+     * @param latencyRecorders Recorders for the latencies
+     * @param workerPoolSize Supplies the size of the Vert.x worker pool, once Vert.x is created
+     */
+    VertxExecutionMetrics(MetricRegistry metricRegistry, LatencyRecorders latencyRecorders, IntSupplier workerPoolSize) {
+        this.metricRegistry = metricRegistry;
+        this.workerPoolSize = workerPoolSize;
+        this.fiberScheduleLatency = latencyRecorders.recorder("vertx.latency", "fiber.schedule");
+        this.workerWaitLatency = latencyRecorders.recorder("vertx.latency", "blockingworker.wait");
+        this.blockingWorkerDispatchLatency = latencyRecorders.recorder("vertx.latency", "blockingworker.dispatch");
+    }
+
+    @Override
+    public void fiberStarted(long scheduleNanos) {
+        fibersActive.incrementAndGet();
+        fibersStarted.increment();
+        fiberScheduleLatency.record(scheduleNanos);
+    }
+
+    @Override
+    public void fiberEnded() {
+        fibersActive.decrementAndGet();
+    }
+
+    @Override
+    public void workerQueued() {
+        workerQueueDepth.incrementAndGet();
+    }
+
+    @Override
+    public void workerStarted(long waitNanos) {
+        workerQueueDepth.decrementAndGet();
+        workersActive.incrementAndGet();
+        workerWaitLatency.record(waitNanos);
+    }
+
+    @Override
+    public void workerEnded() {
+        workersActive.decrementAndGet();
+    }
+
+    @Override
+    public void blockingWorkerDispatched(long dispatchNanos) {
+        blockingWorkerDispatchLatency.record(dispatchNanos);
+    }
+
+    @Override
+    public void recordDeadlineExceeded(Method method) {
+        deadlineExceededCounts.computeIfAbsent(method, m -> metricRegistry.counter("blockingworker.deadline.exceeded.count."
+                + m.getDeclaringClass().getSimpleName() + "." + m.getName())).inc();
+    }
+
+    @Override
+    public Map<String, Metric> getMetrics() {
+        Map<String, Metric> metrics = new HashMap<>();
+        metrics.put("vertx.fibers.active", (Gauge<Long>) fibersActive::get);
+        metrics.put("vertx.fibers.started.count", (Gauge<Long>) fibersStarted::sum);
+        metrics.put("vertx.blockingworker.queue.depth", (Gauge<Long>) workerQueueDepth::get);
+        metrics.put("vertx.blockingworker.active", (Gauge<Long>) workersActive::get);
+        metrics.put("vertx.worker.poolSize", (Gauge<Integer>) workerPoolSize::getAsInt);
+        metrics.put("vertx.blockingworker.utilization", (Gauge<Double>) () -> {
+            int poolSize = workerPoolSize.getAsInt();
+            return poolSize <= 0 ? 0.0 : (double) workersActive.get() / poolSize;
+        });
+        return metrics;
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.metrics;
+
+import com.codahale.metrics.MetricRegistry;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EventLoopLagProbeUnitTest {
+    private static final long NEVER = TimeUnit.HOURS.toMillis(1);
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private final LatencyRecorders latencyRecorders = new LatencyRecorders(metricRegistry);
+    private final EventLoopLagProbe subject = new EventLoopLagProbe(metricRegistry, latencyRecorders);
+    private final List<ExecutorService> eventLoops = new ArrayList<>();
+
+    @After
+    public void teardown() {
+        subject.stop();
+        eventLoops.forEach(ExecutorService::shutdownNow);
+    }
+
+    @Test
+    public void testEachEventLoopIsProbed() throws Exception {
+        subject.start(Arrays.asList(eventLoop("loop-0"), eventLoop("loop-1")), NEVER);
+
+        subject.probe();
+        drain();
+        latencyRecorders.roll();
+
+        assertEquals(1L, gauge("vertx.latency.count.eventloop.lag.loop-0"));
+        assertEquals(1L, gauge("vertx.latency.count.eventloop.lag.loop-1"));
+        assertEquals(0L, gauge("vertx.eventloop.blocked.nanos.loop-0"));
+        assertEquals(0L, gauge("vertx.eventloop.blocked.nanos.loop-1"));
+    }
+
+    @Test
+    public void testBlockedEventLoopIsNotQueuedAgain() throws Exception {
+        AtomicInteger queued = new AtomicInteger();
+        ExecutorService eventLoop = eventLoop("loop-0");
+        subject.start(Arrays.asList((Executor) task -> {
+            queued.incrementAndGet();
+            eventLoop.execute(task);
+        }), NEVER);
+        subject.probe();
+        drain();
+
+        CountDownLatch blocked = new CountDownLatch(1);
+        eventLoop.execute(() -> {
+            try {
+                blocked.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        subject.probe();
+        subject.probe();
+        subject.probe();
+        Thread.sleep(5);
+
+        assertEquals(2, queued.get());
+        assertTrue(gauge("vertx.eventloop.blocked.nanos.loop-0") >= TimeUnit.MILLISECONDS.toNanos(5));
+
+        blocked.countDown();
+        drain();
+        assertEquals(0L, gauge("vertx.eventloop.blocked.nanos.loop-0"));
+        subject.probe();
+        assertEquals(3, queued.get());
+    }
+
+    @Test
+    public void testRejectedProbeIsRetried() {
+        AtomicInteger queued = new AtomicInteger();
+        subject.start(Arrays.asList((Executor) task -> {
+            queued.incrementAndGet();
+            throw new RejectedExecutionException("Shutting down");
+        }), NEVER);
+
+        subject.probe();
+        subject.probe();
+
+        assertEquals(2, queued.get());
+    }
+
+    @Test
+    public void testEveryVertxEventLoopIsProbed() throws Exception {
+        Vertx vertx = Vertx.vertx(new VertxOptions().setEventLoopPoolSize(3));
+        try {
+            subject.start(vertx, NEVER);
+            subject.probe();
+
+            Set<String> probed = new TreeSet<>();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (probed.size() < 3 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+                probed.clear();
+                for (String name : metricRegistry.getGauges().keySet()) {
+                    if (name.startsWith("vertx.eventloop.blocked.nanos.")) {
+                        probed.add(name);
+                    }
+                }
+            }
+
+            assertEquals(new TreeSet<>(Arrays.asList(
+                    "vertx.eventloop.blocked.nanos.vert.x-eventloop-thread-0",
+                    "vertx.eventloop.blocked.nanos.vert.x-eventloop-thread-1",
+                    "vertx.eventloop.blocked.nanos.vert.x-eventloop-thread-2")), probed);
+        } finally {
+            CountDownLatch closed = new CountDownLatch(1);
+            vertx.close(result -> closed.countDown());
+            closed.await(10, TimeUnit.SECONDS);
+        }
+    }
+
+    private ExecutorService eventLoop(String threadName) {
+        ExecutorService eventLoop = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, threadName));
+        eventLoops.add(eventLoop);
+        return eventLoop;
+    }
+
+    // Each event loop runs tasks in order, so the probes have run once a later task has
+    private void drain() throws Exception {
+        for (ExecutorService eventLoop : eventLoops) {
+            eventLoop.submit(() -> { }).get(10, TimeUnit.SECONDS);
+        }
+    }
+
+    private long gauge(String name) {
+        return ((Number) metricRegistry.getGauges().get(name).getValue()).longValue();
+    }
+}
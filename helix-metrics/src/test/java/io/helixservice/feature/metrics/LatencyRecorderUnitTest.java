@@ -0,0 +1,88 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.metrics;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyRecorderUnitTest {
+
+    @Test
+    public void testSnapshotsAreEmptyUntilRolled() {
+        LatencyRecorder subject = new LatencyRecorder();
+        subject.record(1000);
+
+        assertSame(LatencySnapshot.EMPTY, subject.getIntervalSnapshot());
+        assertSame(LatencySnapshot.EMPTY, subject.getCumulativeSnapshot());
+    }
+
+    @Test
+    public void testRollStartsANewInterval() {
+        LatencyRecorder subject = new LatencyRecorder();
+        for (int i = 1; i <= 100; i++) {
+            subject.record(TimeUnit.MILLISECONDS.toNanos(i));
+        }
+        subject.roll();
+
+        LatencySnapshot first = subject.getIntervalSnapshot();
+        assertEquals(100, first.getCount());
+        assertNear(TimeUnit.MILLISECONDS.toNanos(100), first.getMaxNanos());
+
+        subject.record(TimeUnit.MILLISECONDS.toNanos(5));
+        subject.roll();
+
+        LatencySnapshot second = subject.getIntervalSnapshot();
+        assertEquals(1, second.getCount());
+        assertNear(TimeUnit.MILLISECONDS.toNanos(5), second.getP50Nanos());
+        assertNear(TimeUnit.MILLISECONDS.toNanos(5), second.getMaxNanos());
+        assertTrue(second.getStartMillis() >= first.getStartMillis());
+    }
+
+    @Test
+    public void testCumulativeMergesEveryInterval() {
+        LatencyRecorder subject = new LatencyRecorder();
+        subject.record(TimeUnit.MILLISECONDS.toNanos(1));
+        subject.roll();
+        subject.record(TimeUnit.MILLISECONDS.toNanos(50));
+        subject.record(TimeUnit.MILLISECONDS.toNanos(50));
+        subject.roll();
+        subject.roll();
+
+        LatencySnapshot cumulative = subject.getCumulativeSnapshot();
+        assertEquals(0, subject.getIntervalSnapshot().getCount());
+        assertEquals(3, cumulative.getCount());
+        assertNear(TimeUnit.MILLISECONDS.toNanos(50), cumulative.getP50Nanos());
+        assertNear(TimeUnit.MILLISECONDS.toNanos(50), cumulative.getMaxNanos());
+        assertTrue(cumulative.getStartMillis() <= cumulative.getEndMillis());
+    }
+
+    @Test
+    public void testNegativeLatencyIsRecordedAsZero() {
+        LatencyRecorder subject = new LatencyRecorder();
+        subject.record(-5);
+        subject.roll();
+
+        assertEquals(1, subject.getIntervalSnapshot().getCount());
+        assertEquals(0, subject.getIntervalSnapshot().getMaxNanos());
+    }
+
+    static void assertNear(long expected, long actual) {
+        // Three significant digits keep values within 0.1%
+        assertTrue("expected " + expected + " but was " + actual, Math.abs(expected - actual) <= expected / 1000 + 1);
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.metrics;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static io.helixservice.feature.metrics.LatencyRecorderUnitTest.assertNear;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class LatencyRecordersUnitTest {
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private final LatencyRecorders subject = new LatencyRecorders(metricRegistry);
+
+    @Test
+    public void testRecorderIsCreatedOnce() {
+        LatencyRecorder recorder = subject.recorder("controller.endpoint.latency", "GET./hello");
+
+        assertSame(recorder, subject.recorder("controller.endpoint.latency", "GET./hello"));
+        assertEquals(6, metricRegistry.getGauges().size());
+    }
+
+    @Test
+    public void testGaugesReportLastInterval() {
+        LatencyRecorder recorder = subject.recorder("controller.endpoint.latency", "GET./hello");
+        recorder.record(2_000_000);
+        recorder.record(4_000_000);
+        assertEquals(0L, gauge("controller.endpoint.latency.count.GET./hello"));
+
+        subject.roll();
+
+        assertEquals(2L, gauge("controller.endpoint.latency.count.GET./hello"));
+        assertNear(2_000_000, gauge("controller.endpoint.latency.p50.GET./hello"));
+        assertNear(4_000_000, gauge("controller.endpoint.latency.p99.GET./hello"));
+        assertNear(4_000_000, gauge("controller.endpoint.latency.max.GET./hello"));
+
+        subject.roll();
+
+        assertEquals(0L, gauge("controller.endpoint.latency.count.GET./hello"));
+    }
+
+    @Test
+    public void testSnapshotsAreSortedByName() {
+        subject.recorder("restclient.latency", "default").record(1_000);
+        subject.recorder("controller.endpoint.latency", "GET./hello").record(3_000);
+        subject.roll();
+
+        Map<String, Map<String, LatencySnapshot>> snapshots = subject.snapshots();
+
+        assertEquals(Arrays.asList("controller.endpoint.latency.GET./hello", "restclient.latency.default"),
+                Arrays.asList(snapshots.keySet().toArray()));
+        Map<String, LatencySnapshot> windows = snapshots.get("restclient.latency.default");
+        assertEquals(Arrays.asList("interval", "cumulative"), Arrays.asList(windows.keySet().toArray()));
+        assertEquals(1, windows.get("interval").getCount());
+        assertEquals(1, windows.get("cumulative").getCount());
+    }
+
+    private long gauge(String name) {
+        Gauge<?> gauge = metricRegistry.getGauges().get(name);
+        return (Long) gauge.getValue();
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.metrics;
+
+import org.HdrHistogram.Histogram;
+import org.junit.Test;
+
+import static io.helixservice.feature.metrics.LatencyRecorderUnitTest.assertNear;
+import static org.junit.Assert.assertEquals;
+
+public class LatencySnapshotUnitTest {
+
+    @Test
+    public void testPercentiles() {
+        Histogram histogram = new Histogram(3);
+        for (int i = 1; i <= 1000; i++) {
+            histogram.recordValue(i * 1000L);
+        }
+
+        LatencySnapshot subject = LatencySnapshot.of(histogram, 10, 20);
+
+        assertEquals(10, subject.getStartMillis());
+        assertEquals(20, subject.getEndMillis());
+        assertEquals(1000, subject.getCount());
+        assertNear(500_000, subject.getP50Nanos());
+        assertNear(900_000, subject.getP90Nanos());
+        assertNear(990_000, subject.getP99Nanos());
+        assertNear(999_000, subject.getP999Nanos());
+        assertNear(1_000_000, subject.getMaxNanos());
+    }
+
+    @Test
+    public void testEmptyHistogram() {
+        LatencySnapshot subject = LatencySnapshot.of(new Histogram(3), 0, 0);
+
+        assertEquals(0, subject.getCount());
+        assertEquals(0, subject.getP99Nanos());
+        assertEquals(0, subject.getMaxNanos());
+    }
+}
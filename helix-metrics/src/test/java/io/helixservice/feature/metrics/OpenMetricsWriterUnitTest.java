@@ -0,0 +1,235 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.metrics;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class OpenMetricsWriterUnitTest {
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private final OpenMetricsWriter subject = new OpenMetricsWriter(metricRegistry);
+
+    @Test
+    public void testEmptyRegistryWritesOnlyEof() {
+        assertEquals("# EOF\n", write());
+    }
+
+    @Test
+    public void testEndsWithEof() {
+        metricRegistry.counter("requests").inc();
+        metricRegistry.register("up", (Gauge<Boolean>) () -> true);
+
+        String text = write();
+
+        assertTrue(text.endsWith("\n# EOF\n"));
+        assertEquals(text.indexOf("# EOF"), text.lastIndexOf("# EOF"));
+    }
+
+    @Test
+    public void testCounterHasTotalSuffix() {
+        metricRegistry.counter("jvm.gc.count").inc(3);
+        metricRegistry.counter("requests_total").inc(2);
+
+        assertEquals("# TYPE jvm_gc_count counter\n"
+                + "jvm_gc_count_total 3\n"
+                + "# TYPE requests counter\n"
+                + "requests_total 2\n"
+                + "# EOF\n", write());
+    }
+
+    @Test
+    public void testEndpointMetricsBecomeLabels() {
+        metricRegistry.counter("controller.endpoint.status.2xx.count.GET./hello").inc(5);
+        metricRegistry.counter("controller.endpoint.status.5xx.count.GET./hello").inc();
+        metricRegistry.counter("controller.endpoint.total.count.POST./orders/new").inc(2);
+
+        assertEquals("# TYPE controller_endpoint_status_count counter\n"
+                + "controller_endpoint_status_count_total{method=\"GET\",path=\"/hello\",status=\"2xx\"} 5\n"
+                + "controller_endpoint_status_count_total{method=\"GET\",path=\"/hello\",status=\"5xx\"} 1\n"
+                + "# TYPE controller_endpoint_total_count counter\n"
+                + "controller_endpoint_total_count_total{method=\"POST\",path=\"/orders/new\"} 2\n"
+                + "# EOF\n", write());
+    }
+
+    @Test
+    public void testNamesAndLabelValuesAreEscaped() {
+        metricRegistry.counter("9lives.cache-hits").inc();
+        metricRegistry.counter("controller.endpoint.total.count.GET./say/\"hi\"\\there\nnow").inc();
+
+        String text = write();
+
+        assertTrue(text.contains("_9lives_cache_hits_total 1\n"));
+        assertTrue(text.contains("controller_endpoint_total_count_total"
+                + "{method=\"GET\",path=\"/say/\\\"hi\\\"\\\\there\\nnow\"} 1\n"));
+    }
+
+    @Test
+    public void testNonAsciiIsWrittenAsUtf8() {
+        metricRegistry.counter("controller.endpoint.total.count.GET./caf\u00e9").inc();
+
+        String text = new String(subject.write(null), StandardCharsets.UTF_8);
+
+        assertTrue(text.contains("path=\"/caf\u00e9\"} 1\n"));
+    }
+
+    @Test
+    public void testCollidingNamesAreNumbered() {
+        metricRegistry.counter("a.b").inc(1);
+        metricRegistry.counter("a_b").inc(2);
+        metricRegistry.counter("a-b").inc(3);
+
+        assertEquals("# TYPE a_b counter\n"
+                + "a_b_total 3\n"
+                + "# TYPE a_b_2 counter\n"
+                + "a_b_2_total 1\n"
+                + "# TYPE a_b_3 counter\n"
+                + "a_b_3_total 2\n"
+                + "# EOF\n", write());
+    }
+
+    @Test
+    public void testCollidingNamesKeepTheirFamilyBetweenScrapes() {
+        metricRegistry.counter("a_b").inc(2);
+        String first = write();
+        metricRegistry.counter("a.b").inc(1);
+
+        String second = write();
+
+        assertTrue(first.contains("a_b_total 2\n"));
+        assertTrue(second.contains("a_b_total 2\n"));
+        assertTrue(second.contains("a_b_2_total 1\n"));
+    }
+
+    @Test
+    public void testFamilyNameIsNotSharedAcrossTypes() {
+        metricRegistry.counter("queue.depth").inc();
+        metricRegistry.register("queue.depth.gauge", (Gauge<Integer>) () -> 7);
+        metricRegistry.register("queue_depth", (Gauge<Integer>) () -> 4);
+
+        String text = write();
+
+        assertTrue(text.contains("# TYPE queue_depth counter\nqueue_depth_total 1\n"));
+        assertTrue(text.contains("# TYPE queue_depth_2 gauge\nqueue_depth_2 4\n"));
+        assertFalse(text.contains("# TYPE queue_depth gauge"));
+    }
+
+    @Test
+    public void testGaugeDoesNotShadowSummaryCount() {
+        metricRegistry.histogram("sizes").update(10);
+        metricRegistry.register("sizes.count", (Gauge<Integer>) () -> 1);
+
+        String text = write();
+
+        assertTrue(text.contains("# TYPE sizes_count gauge\nsizes_count 1\n"));
+        assertTrue(text.contains("# TYPE sizes_2 summary\n"));
+        assertTrue(text.contains("sizes_2_count 1\n"));
+    }
+
+    @Test
+    public void testEndpointSeriesCollisionsAreNumbered() {
+        metricRegistry.counter("controller.endpoint.total.count.GET./hello").inc(1);
+        metricRegistry.counter("controller.endpoint.total_count.GET./hello").inc(2);
+        metricRegistry.counter("controller.endpoint.total.count.GET./bye").inc(3);
+
+        String text = write();
+
+        assertTrue(text.contains("controller_endpoint_total_count_total{method=\"GET\",path=\"/hello\"} 1\n"));
+        assertTrue(text.contains("controller_endpoint_total_count_total{method=\"GET\",path=\"/bye\"} 3\n"));
+        assertTrue(text.contains("controller_endpoint_total_count_2_total{method=\"GET\",path=\"/hello\"} 2\n"));
+    }
+
+    @Test
+    public void testGauges() {
+        metricRegistry.register("ratio", (Gauge<Double>) () -> 0.25);
+        metricRegistry.register("up", (Gauge<Boolean>) () -> false);
+        metricRegistry.register("empty", (Gauge<Double>) () -> Double.NaN);
+        metricRegistry.register("threads.deadlocks", (Gauge<Object>) Collections::emptySet);
+        metricRegistry.register("failing", (Gauge<Integer>) () -> {
+            throw new IllegalStateException("closed");
+        });
+
+        assertEquals("# TYPE empty gauge\n"
+                + "empty NaN\n"
+                + "# TYPE failing gauge\n"
+                + "# TYPE ratio gauge\n"
+                + "ratio 0.25\n"
+                + "# TYPE threads_deadlocks gauge\n"
+                + "# TYPE up gauge\n"
+                + "up 0\n"
+                + "# EOF\n", write());
+    }
+
+    @Test
+    public void testHistogramIsSummary() {
+        for (int i = 1; i <= 100; i++) {
+            metricRegistry.histogram("response.size").update(i);
+        }
+
+        String text = write();
+
+        assertTrue(text.startsWith("# TYPE response_size summary\n"
+                + "response_size{quantile=\"0.5\"} 50\n"
+                + "response_size{quantile=\"0.75\"} 75\n"
+                + "response_size{quantile=\"0.95\"} 95\n"
+                + "response_size{quantile=\"0.98\"} 98\n"
+                + "response_size{quantile=\"0.99\"} 99\n"
+                + "response_size{quantile=\"0.999\"} 100\n"
+                + "response_size_count 100\n"));
+    }
+
+    @Test
+    public void testTimerIsSummaryInSeconds() {
+        metricRegistry.timer("controller.endpoint.latency.GET./hello").update(250, TimeUnit.MILLISECONDS);
+
+        String text = write();
+
+        assertTrue(text.contains("# TYPE controller_endpoint_latency summary\n"));
+        assertTrue(text.contains("controller_endpoint_latency{method=\"GET\",path=\"/hello\",quantile=\"0.5\"} 0.25\n"));
+        assertTrue(text.contains("controller_endpoint_latency_count{method=\"GET\",path=\"/hello\"} 1\n"));
+    }
+
+    @Test
+    public void testMeterIsCounter() {
+        metricRegistry.meter("events").mark(4);
+
+        assertEquals("# TYPE events counter\nevents_total 4\n# EOF\n", write());
+    }
+
+    @Test
+    public void testPrefixesLimitTheScrape() {
+        metricRegistry.counter("jvm.gc.count").inc();
+        metricRegistry.counter("controller.endpoint.total.count.GET./hello").inc();
+        metricRegistry.counter("restclient.errors").inc();
+
+        String text = new String(subject.write(Arrays.asList("jvm.", "restclient.")), StandardCharsets.UTF_8);
+
+        assertTrue(text.contains("jvm_gc_count_total 1\n"));
+        assertTrue(text.contains("restclient_errors_total 1\n"));
+        assertFalse(text.contains("controller_endpoint"));
+        assertTrue(text.endsWith("# EOF\n"));
+    }
+
+    private String write() {
+        return new String(subject.write(Collections.emptyList()), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.metrics;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static io.helixservice.feature.metrics.LatencyRecorderUnitTest.assertNear;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class VertxExecutionMetricsUnitTest {
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private final LatencyRecorders latencyRecorders = new LatencyRecorders(metricRegistry);
+    private int workerPoolSize = 4;
+    private final VertxExecutionMetrics subject = new VertxExecutionMetrics(metricRegistry, latencyRecorders, () -> workerPoolSize);
+
+    @Test
+    public void testGaugeNames() {
+        Map<String, ?> metrics = subject.getMetrics();
+
+        assertTrue(metrics.containsKey("vertx.fibers.active"));
+        assertTrue(metrics.containsKey("vertx.fibers.started.count"));
+        assertTrue(metrics.containsKey("vertx.blockingworker.queue.depth"));
+        assertTrue(metrics.containsKey("vertx.blockingworker.active"));
+        assertTrue(metrics.containsKey("vertx.blockingworker.utilization"));
+        assertTrue(metrics.containsKey("vertx.worker.poolSize"));
+        assertFalse(metrics.containsKey("vertx.worker.queue.depth"));
+        assertEquals(6, metrics.size());
+    }
+
+    @Test
+    public void testFibers() {
+        metricRegistry.registerAll(subject);
+
+        subject.fiberStarted(TimeUnit.MICROSECONDS.toNanos(50));
+        subject.fiberStarted(TimeUnit.MICROSECONDS.toNanos(50));
+        subject.fiberEnded();
+
+        assertEquals(1L, gauge("vertx.fibers.active"));
+        assertEquals(2L, gauge("vertx.fibers.started.count"));
+        latencyRecorders.roll();
+        assertEquals(2L, gauge("vertx.latency.count.fiber.schedule"));
+        assertNear(TimeUnit.MICROSECONDS.toNanos(50), gauge("vertx.latency.p50.fiber.schedule"));
+    }
+
+    @Test
+    public void testBlockingWorkers() {
+        metricRegistry.registerAll(subject);
+
+        subject.workerQueued();
+        subject.workerQueued();
+        subject.workerQueued();
+        subject.workerStarted(TimeUnit.MILLISECONDS.toNanos(3));
+
+        assertEquals(2L, gauge("vertx.blockingworker.queue.depth"));
+        assertEquals(1L, gauge("vertx.blockingworker.active"));
+        assertEquals(0.25, (Double) metricRegistry.getGauges().get("vertx.blockingworker.utilization").getValue(), 0.0);
+
+        subject.workerEnded();
+        assertEquals(0L, gauge("vertx.blockingworker.active"));
+
+        latencyRecorders.roll();
+        assertEquals(1L, gauge("vertx.latency.count.blockingworker.wait"));
+        assertNear(TimeUnit.MILLISECONDS.toNanos(3), gauge("vertx.latency.max.blockingworker.wait"));
+    }
+
+    @Test
+    public void testUtilizationBeforeVertxIsCreated() {
+        metricRegistry.registerAll(subject);
+        workerPoolSize = 0;
+
+        subject.workerQueued();
+        subject.workerStarted(0);
+
+        assertEquals(0L, gauge("vertx.worker.poolSize"));
+        assertEquals(0.0, (Double) metricRegistry.getGauges().get("vertx.blockingworker.utilization").getValue(), 0.0);
+    }
+
+    @Test
+    public void testBlockingWorkerDispatch() {
+        metricRegistry.registerAll(subject);
+
+        subject.blockingWorkerDispatched(TimeUnit.MICROSECONDS.toNanos(200));
+        latencyRecorders.roll();
+
+        assertEquals(1L, gauge("vertx.latency.count.blockingworker.dispatch"));
+        assertNear(TimeUnit.MICROSECONDS.toNanos(200), gauge("vertx.latency.p99.blockingworker.dispatch"));
+    }
+
+    @Test
+    public void testDeadlineExceededIsCountedPerMethod() throws Exception {
+        Method getMetrics = VertxExecutionMetrics.class.getMethod("getMetrics");
+
+        subject.recordDeadlineExceeded(getMetrics);
+        subject.recordDeadlineExceeded(getMetrics);
+
+        assertEquals(2, metricRegistry.counter("blockingworker.deadline.exceeded.count.VertxExecutionMetrics.getMetrics").getCount());
+    }
+
+    private long gauge(String name) {
+        return ((Number) metricRegistry.getGauges().get(name).getValue()).longValue();
+    }
+}
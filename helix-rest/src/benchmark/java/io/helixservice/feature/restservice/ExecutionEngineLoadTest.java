@@ -0,0 +1,60 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.restservice;
+
+import io.helixservice.core.execution.ExecutionEngine;
+import io.helixservice.core.execution.FiberExecutionEngine;
+import io.helixservice.core.execution.ThreadExecutionEngine;
+import io.vertx.core.VertxOptions;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Load-test scenario comparing the fiber and thread execution engines through the same RestServiceVerticle.
+ * <p>
+ * Each engine serves an endpoint that responds at once, where the cost of the engine itself dominates,
+ * and one that waits on a timer as if for a downstream call, where fibers suspend and request threads block.
+ * Throughput and p99 latency are reported for each.
+ * <p>
+ * Build with {@code mvn -Pbenchmark clean test-compile}, then run the main method from the test classpath,
+ * with the Quasar javaagent for the fiber engine. The engines to run may be passed as arguments,
+ * so the thread engine can also be run without the agent and its instrumentation.
+ */
+public class ExecutionEngineLoadTest {
+    private static final int CONNECTIONS = 256;
+    private static final long WAIT_MILLIS = 5;
+    private static final long WARMUP_SECONDS = 5;
+    private static final long DURATION_SECONDS = 10;
+
+    public static void main(String[] args) throws Exception {
+        List<String> engines = args.length > 0 ? Arrays.asList(args)
+                : Arrays.asList(FiberExecutionEngine.NAME, ThreadExecutionEngine.NAME);
+
+        for (long waitMillis : new long[] { 0, WAIT_MILLIS }) {
+            if (engines.contains(FiberExecutionEngine.NAME)) {
+                run(FiberExecutionEngine.NAME, FiberExecutionEngine::new, waitMillis);
+            }
+            if (engines.contains(ThreadExecutionEngine.NAME)) {
+                run(ThreadExecutionEngine.NAME, () -> new ThreadExecutionEngine(200, 1000), waitMillis);
+            }
+        }
+    }
+
+    private static void run(String name, Supplier<ExecutionEngine> executionEngine, long waitMillis) throws Exception {
+        RestServiceLoad load = new RestServiceLoad(VertxOptions.DEFAULT_EVENT_LOOP_POOL_SIZE, 1,
+                executionEngine.get(), waitMillis);
+        load.drive(CONNECTIONS, WARMUP_SECONDS, DURATION_SECONDS).print(name + " wait=" + waitMillis + "ms");
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.restservice;
+
+import co.paralleluniverse.fibers.SuspendExecution;
+import co.paralleluniverse.fibers.Suspendable;
+import io.helixservice.core.container.Container;
+import io.helixservice.core.container.ContainerState;
+import io.helixservice.core.container.InFlightRequests;
+import io.helixservice.core.execution.Await;
+import io.helixservice.core.execution.ExecutionEngine;
+import io.helixservice.core.feature.AbstractFeature;
+import io.helixservice.core.feature.Feature;
+import io.helixservice.feature.configuration.provider.ConfigProvider;
+import io.helixservice.feature.configuration.provider.Property;
+import io.helixservice.feature.restservice.controller.HttpMethod;
+import io.helixservice.feature.restservice.controller.MarshallingExecutor;
+import io.helixservice.feature.restservice.controller.Request;
+import io.helixservice.feature.restservice.controller.Response;
+import io.helixservice.feature.restservice.controller.component.Endpoint;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.ext.web.Router;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * In-process HTTP load against RestServiceVerticle, shared by the load-test scenarios.
+ * <p>
+ * The server has a single endpoint, which optionally waits on a timer to stand in for a downstream call.
+ * Load comes from a fixed number of keep-alive connections, each sending its next request as soon as
+ * the last one completes, so throughput is limited by the server rather than by an arrival rate.
+ */
+class RestServiceLoad {
+    private static final int PORT = 8089;
+    private static final String PORT_PROPERTY = "vertx.server.port";
+    private static final String PATH = "/load";
+    private static final int CLIENT_EVENT_LOOPS = 4;
+    private static final long RETRY_MILLIS = 10;
+
+    private final Vertx vertx;
+    private final ExecutionEngine executionEngine;
+    private final MarshallingExecutor marshallingExecutor = new MarshallingExecutor(-1, 1, 1);
+
+    /**
+     * Start a server, deploying RestServiceVerticle instances on their own Vert.x
+     *
+     * @param eventLoops Number of server event loops
+     * @param instances Number of RestServiceVerticle instances
+     * @param executionEngine Engine that runs the routes, filters and endpoint
+     * @param waitMillis Time the endpoint waits before responding, or 0 to respond at once
+     */
+    RestServiceLoad(int eventLoops, int instances, ExecutionEngine executionEngine, long waitMillis) throws Exception {
+        this.vertx = Vertx.vertx(new VertxOptions().setEventLoopPoolSize(eventLoops));
+        this.executionEngine = executionEngine;
+
+        Feature feature = new AbstractFeature("LoadFeature") { };
+        feature.register(Endpoint.forPath(PATH, HttpMethod.GET,
+                LoadController.class.getMethod("handle", Request.class), new LoadController(vertx, waitMillis)));
+
+        Container container = mock(Container.class);
+        when(container.getVertx()).thenReturn(Optional.of(vertx));
+        when(container.getFeatures()).thenReturn(Collections.singletonList(feature));
+        when(container.getContainerState()).thenReturn(ContainerState.STARTED);
+        when(container.getInFlightRequests()).thenReturn(new InFlightRequests());
+
+        ConfigProvider configProvider = mock(ConfigProvider.class);
+        when(configProvider.propertyByName(anyString(), anyString())).thenAnswer(invocation -> {
+            String name = (String) invocation.getArguments()[0];
+            String value = PORT_PROPERTY.equals(name) ? String.valueOf(PORT) : (String) invocation.getArguments()[1];
+            return new Property(name, value, value);
+        });
+
+        CountDownLatch deployed = new CountDownLatch(instances);
+        for (int i = 0; i < instances; i++) {
+            vertx.deployVerticle(new RestServiceVerticle(configProvider, container, Router.router(vertx),
+                    executionEngine, marshallingExecutor), result -> deployed.countDown());
+        }
+        deployed.await();
+    }
+
+    /**
+     * Drive load against the server, then stop it
+     *
+     * @param connections Number of concurrent connections
+     * @param warmupSeconds Time before latencies are recorded
+     * @param durationSeconds Time latencies are recorded for
+     * @return Throughput and latencies of the requests sent after warmup
+     */
+    Result drive(int connections, long warmupSeconds, long durationSeconds) throws InterruptedException {
+        Vertx clientVertx = Vertx.vertx(new VertxOptions().setEventLoopPoolSize(CLIENT_EVENT_LOOPS));
+        long measureFrom = System.nanoTime() + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(durationSeconds);
+
+        // Each client runs on its own context, so its list of latencies is only touched by one thread
+        List<List<Long>> latencies = new ArrayList<>();
+        AtomicLong errors = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(connections);
+        for (int i = 0; i < CLIENT_EVENT_LOOPS; i++) {
+            int clientConnections = connections / CLIENT_EVENT_LOOPS + (i < connections % CLIENT_EVENT_LOOPS ? 1 : 0);
+            HttpClient client = clientVertx.createHttpClient(new HttpClientOptions()
+                    .setKeepAlive(true)
+                    .setMaxPoolSize(Math.max(1, clientConnections)));
+            List<Long> clientLatencies = new ArrayList<>();
+            latencies.add(clientLatencies);
+
+            for (int c = 0; c < clientConnections; c++) {
+                clientVertx.runOnContext(v -> send(clientVertx, client, measureFrom, end, clientLatencies, errors, done));
+            }
+        }
+
+        done.await();
+        close(clientVertx);
+        executionEngine.close();
+        marshallingExecutor.close();
+        close(vertx);
+
+        List<Long> all = new ArrayList<>();
+        latencies.forEach(all::addAll);
+        return new Result(all, errors.get(), durationSeconds);
+    }
+
+    private static void send(Vertx clientVertx, HttpClient client, long measureFrom, long end,
+            List<Long> latencies, AtomicLong errors, CountDownLatch done) {
+        long start = System.nanoTime();
+        if (start >= end) {
+            done.countDown();
+            return;
+        }
+
+        client.get(PORT, "localhost", PATH, response -> response.bodyHandler(body -> {
+            if (start >= measureFrom) {
+                if (response.statusCode() == 200) {
+                    latencies.add(System.nanoTime() - start);
+                } else {
+                    errors.incrementAndGet();
+                }
+            }
+            send(clientVertx, client, measureFrom, end, latencies, errors, done);
+        })).exceptionHandler(e -> {
+            // Connections are refused until every instance is listening
+            if (start >= measureFrom) {
+                errors.incrementAndGet();
+            }
+            clientVertx.setTimer(RETRY_MILLIS, id -> send(clientVertx, client, measureFrom, end, latencies, errors, done));
+        }).end();
+    }
+
+    private static void close(Vertx vertx) throws InterruptedException {
+        CountDownLatch closed = new CountDownLatch(1);
+        vertx.close(result -> closed.countDown());
+        closed.await();
+    }
+
+    /**
+     * Throughput and latency percentiles of a load-test run
+     */
+    static class Result {
+        private final List<Long> latencies;
+        private final long errors;
+        private final long durationSeconds;
+
+        Result(List<Long> latencies, long errors, long durationSeconds) {
+            this.latencies = latencies;
+            this.errors = errors;
+            this.durationSeconds = durationSeconds;
+            Collections.sort(latencies);
+        }
+
+        double throughput() {
+            return (double) latencies.size() / durationSeconds;
+        }
+
+        void print(String name) {
+            System.out.printf("%-24s throughput=%.0f/s p50=%.2fms p99=%.2fms errors=%d%n",
+                    name, throughput(), percentileMillis(0.50), percentileMillis(0.99), errors);
+        }
+
+        private double percentileMillis(double percentile) {
+            if (latencies.isEmpty()) {
+                return 0;
+            }
+            return latencies.get((int) (latencies.size() * percentile)) / 1_000_000.0;
+        }
+    }
+
+    /**
+     * Endpoint which waits, as if for a downstream call, then responds
+     */
+    public static class LoadController {
+        private final Vertx vertx;
+        private final long waitMillis;
+
+        LoadController(Vertx vertx, long waitMillis) {
+            this.vertx = vertx;
+            this.waitMillis = waitMillis;
+        }
+
+        @Suspendable
+        public Response<String> handle(Request<String> request) throws SuspendExecution {
+            if (waitMillis > 0) {
+                Await.<Long>awaitEvent(h -> vertx.setTimer(waitMillis, h));
+            }
+            return Response.successResponse("ok");
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.restservice;
+
+import io.vertx.core.http.HttpMethod;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Cost of finding the endpoint and filters for a request, with 20 filters.
+ * <p>
+ * routeList matches routes one at a time in registration order, as Vert.x does: every filter
+ * regex, then each endpoint path until one matches. routeTrie is a single RouteTrie lookup,
+ * since each endpoint's filter chain is computed at startup. Requests are spread evenly
+ * over the endpoints, one in five of which has a path parameter.
+ * <p>
+ * Build with {@code mvn -Pbenchmark clean test-compile}, then run the main method from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RouteTrieBenchmark {
+    private static final int FILTERS = 20;
+
+    @Param({"50", "500"})
+    private int endpoints;
+
+    private final List<Pattern> filterPatterns = new ArrayList<>();
+    private final List<Object> endpointRoutes = new ArrayList<>();
+    private RouteTrie<Integer> routeTrie;
+    private String[] requestPaths;
+    private int next;
+
+    @Setup
+    public void setup() {
+        filterPatterns.add(Pattern.compile(".*"));
+        for (int i = 1; i < FILTERS; i++) {
+            filterPatterns.add(Pattern.compile("/service" + i + "/.*"));
+        }
+
+        routeTrie = new RouteTrie<>();
+        requestPaths = new String[endpoints];
+        for (int i = 0; i < endpoints; i++) {
+            String service = "/service" + (i % FILTERS);
+            if (i % 5 == 0) {
+                String path = service + "/resource" + i + "/:id";
+                endpointRoutes.add(Pattern.compile(service + "/resource" + i + "/([^/]+)"));
+                routeTrie.add(HttpMethod.GET, path, i);
+                requestPaths[i] = service + "/resource" + i + "/12345";
+            } else {
+                String path = service + "/resource" + i;
+                endpointRoutes.add(path);
+                routeTrie.add(HttpMethod.GET, path, i);
+                requestPaths[i] = path;
+            }
+        }
+    }
+
+    @Benchmark
+    public int routeList() {
+        String path = nextPath();
+
+        int matchedFilters = 0;
+        for (Pattern filterPattern : filterPatterns) {
+            if (filterPattern.matcher(path).matches()) {
+                matchedFilters++;
+            }
+        }
+
+        for (int i = 0; i < endpointRoutes.size(); i++) {
+            Object route = endpointRoutes.get(i);
+            boolean matches = route instanceof Pattern ? ((Pattern) route).matcher(path).matches() : route.equals(path);
+            if (matches) {
+                return i + matchedFilters;
+            }
+        }
+        return -1;
+    }
+
+    @Benchmark
+    public int routeTrie() {
+        return routeTrie.find(HttpMethod.GET, nextPath()).getTarget();
+    }
+
+    private String nextPath() {
+        if (++next == requestPaths.length) {
+            next = 0;
+        }
+        return requestPaths[next];
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RouteTrieBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
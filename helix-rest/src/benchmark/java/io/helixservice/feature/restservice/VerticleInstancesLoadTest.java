@@ -0,0 +1,48 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.restservice;
+
+import io.helixservice.core.execution.FiberExecutionEngine;
+
+/**
+ * Load-test scenario for throughput scaling with the number of RestServiceVerticle instances.
+ * <p>
+ * Each run deploys one instance per event loop, as RestServiceFeature does by default, doubling
+ * the count up to the number of cores. The endpoint responds at once, so request handling is
+ * bound to the event loops, and throughput should grow near-linearly until the cores are used.
+ * The load generator shares the machine, so the last step is expected to fall short.
+ * <p>
+ * Build with {@code mvn -Pbenchmark clean test-compile}, then run the main method from the test classpath,
+ * with the Quasar javaagent for the fiber engine.
+ */
+public class VerticleInstancesLoadTest {
+    private static final int CONNECTIONS = 256;
+    private static final long WARMUP_SECONDS = 5;
+    private static final long DURATION_SECONDS = 10;
+
+    public static void main(String[] args) throws Exception {
+        int cores = Runtime.getRuntime().availableProcessors();
+        double baseline = 0;
+
+        // Discarded, so the JIT has compiled the request path before the single instance baseline
+        new RestServiceLoad(1, 1, new FiberExecutionEngine(), 0).drive(CONNECTIONS, WARMUP_SECONDS, DURATION_SECONDS);
+
+        for (int instances = 1; instances <= Math.max(2, cores); instances *= 2) {
+            RestServiceLoad load = new RestServiceLoad(instances, instances, new FiberExecutionEngine(), 0);
+            RestServiceLoad.Result result = load.drive(CONNECTIONS, WARMUP_SECONDS, DURATION_SECONDS);
+
+            baseline = baseline == 0 ? result.throughput() : baseline;
+            result.print(String.format("instances=%d speedup=%.2fx", instances, result.throughput() / baseline));
+        }
+    }
+}
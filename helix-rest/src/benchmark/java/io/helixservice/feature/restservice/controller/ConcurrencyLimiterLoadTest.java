@@ -0,0 +1,89 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.restservice.controller;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Load-test scenario for the ConcurrencyLimiter, offering twice the capacity of a simulated endpoint.
+ * <p>
+ * The endpoint has a fixed number of request threads and a fixed service time, with an
+ * unbounded queue in front, much like requests waiting on the fiber scheduler or worker pool.
+ * Without a limit the queue grows for as long as the overload lasts, and so does p99 latency.
+ * With the limiter, excess requests are rejected and p99 of the admitted requests stays bounded.
+ * <p>
+ * Build with {@code mvn -Pbenchmark clean test-compile}, then run the main method from the test classpath.
+ */
+public class ConcurrencyLimiterLoadTest {
+    private static final int THREADS = 8;
+    private static final long SERVICE_TIME_MILLIS = 5;
+    private static final double LOAD_FACTOR = 2.0;
+    private static final long DURATION_SECONDS = 10;
+
+    public static void main(String[] args) throws InterruptedException {
+        run("unlimited", null);
+        run("adaptive limit", new ConcurrencyLimiter(20, 1, 1000));
+    }
+
+    private static void run(String name, ConcurrencyLimiter limiter) throws InterruptedException {
+        ExecutorService endpoint = Executors.newFixedThreadPool(THREADS);
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        AtomicLong rejected = new AtomicLong();
+
+        double capacityPerSecond = THREADS * 1000.0 / SERVICE_TIME_MILLIS;
+        long arrivalIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / (capacityPerSecond * LOAD_FACTOR));
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(DURATION_SECONDS);
+
+        for (long next = System.nanoTime(); next < end; next += arrivalIntervalNanos) {
+            LockSupport.parkNanos(next - System.nanoTime());
+
+            long arrival = System.nanoTime();
+            if (limiter != null && !limiter.tryAcquire()) {
+                rejected.incrementAndGet();
+                continue;
+            }
+
+            endpoint.execute(() -> {
+                try {
+                    Thread.sleep(SERVICE_TIME_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+
+                long latency = System.nanoTime() - arrival;
+                latencies.add(latency);
+                if (limiter != null) {
+                    limiter.release(latency, false);
+                }
+            });
+        }
+
+        endpoint.shutdown();
+        endpoint.awaitTermination(1, TimeUnit.HOURS);
+
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        long p50 = TimeUnit.NANOSECONDS.toMillis(sorted.get(sorted.size() / 2));
+        long p99 = TimeUnit.NANOSECONDS.toMillis(sorted.get((int) (sorted.size() * 0.99)));
+
+        System.out.printf("%-16s admitted=%d rejected=%d p50=%dms p99=%dms limit=%s%n",
+                name, sorted.size(), rejected.get(), p50, p99, limiter == null ? "-" : limiter.getLimit());
+    }
+}
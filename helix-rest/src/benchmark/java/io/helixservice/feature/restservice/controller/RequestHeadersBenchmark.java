@@ -0,0 +1,93 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+package io.helixservice.feature.restservice.controller;
+
+import com.google.common.collect.Multimap;
+import io.helixservice.core.util.VertxTypeConverter;
+import io.vertx.core.MultiMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request header handling cost: copying Vert.x headers into Guava multimaps
+ * against wrapping them in Request and Response views.
+ * <p>
+ * Runs with the GC profiler, so allocations per operation are reported as gc.alloc.rate.norm.
+ * Build with {@code mvn -Pbenchmark clean test-compile}, then run the main method from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestHeadersBenchmark {
+    private MultiMap requestHeaders;
+    private MultiMap params;
+    private MultiMap responseHeaders;
+
+    @Setup
+    public void setup() {
+        requestHeaders = MultiMap.caseInsensitiveMultiMap()
+                .add("Host", "localhost:8080")
+                .add("Accept", "application/json")
+                .add("Accept-Encoding", "gzip, deflate")
+                .add("User-Agent", "benchmark")
+                .add("Content-Type", "application/json")
+                .add("X-Correlation-Id", "6f1c1f62-5b8e-4b57-9f43-1f0c7d1e2a11");
+        params = MultiMap.caseInsensitiveMultiMap().add("api_key", "abc123");
+        responseHeaders = MultiMap.caseInsensitiveMultiMap();
+    }
+
+    @Benchmark
+    public Object copyingRequest() {
+        Multimap<String, String> params = VertxTypeConverter.toGuavaMultimap(this.params);
+        Multimap<String, String> headers = VertxTypeConverter.toGuavaMultimap(requestHeaders);
+        Request<String> request = new Request<>("GET", "/benchmark", params, headers, null, "127.0.0.1", "HTTP_1_1");
+        return request.getHeader("content-type", null);
+    }
+
+    @Benchmark
+    public Object viewRequest() {
+        Request<String> request = new Request<>("GET", "/benchmark", params, requestHeaders, null, "127.0.0.1", "HTTP_1_1");
+        return request.getHeader("content-type", null);
+    }
+
+    @Benchmark
+    public Object responseWithoutHeaders() {
+        responseHeaders.clear();
+        Response<String> response = Response.successResponse("ok");
+        response.copyHeadersTo(responseHeaders);
+        return response;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RequestHeadersBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.restservice.controller.component;
+
+import com.google.common.collect.HashMultimap;
+import io.helixservice.feature.restservice.controller.EndpointHandler;
+import io.helixservice.feature.restservice.controller.HttpMethod;
+import io.helixservice.feature.restservice.controller.Request;
+import io.helixservice.feature.restservice.controller.Response;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reflective endpoint invocation against the bound endpoint invoker.
+ * <p>
+ * Build with {@code mvn -Pbenchmark clean test-compile}, then run the main method from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EndpointInvocationBenchmark {
+    private BenchmarkController controller;
+    private Method method;
+    private EndpointHandler invoker;
+    private EndpointHandler lambda;
+    private Request<String> request;
+
+    @Setup
+    public void setup() throws NoSuchMethodException {
+        controller = new BenchmarkController();
+        method = BenchmarkController.class.getMethod("handle", Request.class);
+        invoker = Endpoint.forPath("/benchmark", HttpMethod.GET, method, controller).getInvoker();
+        lambda = controller::handle;
+        request = new Request<>("GET", "/benchmark", HashMultimap.create(), HashMultimap.create(), "body", "127.0.0.1", "HTTP_1_1");
+    }
+
+    @Benchmark
+    public Object reflective() throws Exception {
+        return method.invoke(controller, request);
+    }
+
+    @Benchmark
+    public Object boundInvoker() throws Throwable {
+        return invoker.handle(request);
+    }
+
+    @Benchmark
+    public Object lambdaEndpointHandler() throws Throwable {
+        return lambda.handle(request);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(EndpointInvocationBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    public static class BenchmarkController {
+        private final Response<String> response = Response.successResponse("ok");
+
+        public Response<String> handle(Request<String> request) {
+            return response;
+        }
+    }
+}
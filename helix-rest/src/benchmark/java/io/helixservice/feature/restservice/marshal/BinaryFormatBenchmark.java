@@ -0,0 +1,143 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.restservice.marshal;
+
+import com.google.protobuf.DescriptorProtos.DescriptorProto;
+import com.google.protobuf.DescriptorProtos.FieldDescriptorProto;
+import io.helixservice.core.util.BufferOutputStream;
+import io.netty.buffer.ByteBufInputStream;
+import io.vertx.core.buffer.Buffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the CPU cost and body size of JSON against the binary formats of NegotiatingMarshaller,
+ * for a message of 200 records, each with a name, number and type name.
+ * <p>
+ * Each format writes and reads the same records, through the content type negotiation used
+ * by VertxRequestHandler. Body sizes are printed during setup. The Jackson data formats
+ * and Protobuf are test dependencies, so every format is measured.
+ * <p>
+ * Build with {@code mvn -Pbenchmark clean test-compile}, then run the main method from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BinaryFormatBenchmark {
+    private static final int RECORDS = 200;
+
+    @Param({"json", "smile", "cbor", "msgpack", "protobuf"})
+    private String format;
+
+    private NegotiatingMarshaller marshaller;
+    private List<String> contentType;
+    private Object payload;
+    private Class<?> payloadType;
+    private Buffer body;
+
+    @Setup
+    public void setup() {
+        marshaller = NegotiatingMarshaller.withAvailableCodecs();
+        contentType = Collections.singletonList(contentTypeFor(format));
+        if (!NegotiatingMarshaller.JSON.equals(contentType.get(0)) && !marshaller.getContentTypes().contains(contentType.get(0))) {
+            throw new IllegalStateException("No codec on the classpath for " + contentType.get(0));
+        }
+
+        if (NegotiatingMarshaller.PROTOBUF.equals(contentType.get(0))) {
+            DescriptorProto.Builder builder = DescriptorProto.newBuilder().setName("records");
+            for (int i = 0; i < RECORDS; i++) {
+                builder.addField(FieldDescriptorProto.newBuilder()
+                        .setName(String.format("record-%06d", i)).setNumber(i).setTypeName("helix.Record"));
+            }
+            payload = builder.build();
+            payloadType = DescriptorProto.class;
+        } else {
+            Records records = new Records();
+            for (int i = 0; i < RECORDS; i++) {
+                records.fields.add(new Record(String.format("record-%06d", i), i, "helix.Record"));
+            }
+            payload = records;
+            payloadType = Records.class;
+        }
+
+        body = marshal();
+        System.out.println(format + " body size: " + body.length() + " bytes");
+    }
+
+    @Benchmark
+    public Buffer marshal() {
+        Buffer buffer = Buffer.buffer(16384);
+        marshaller.marshal(payload, new BufferOutputStream(buffer), contentType);
+        return buffer;
+    }
+
+    @Benchmark
+    public Object unmarshal() {
+        return marshaller.unmarshal(payloadType, new ByteBufInputStream(body.getByteBuf()), contentType);
+    }
+
+    private static String contentTypeFor(String format) {
+        switch (format) {
+            case "smile": return NegotiatingMarshaller.SMILE;
+            case "cbor": return NegotiatingMarshaller.CBOR;
+            case "msgpack": return NegotiatingMarshaller.MSGPACK;
+            case "protobuf": return NegotiatingMarshaller.PROTOBUF;
+            default: return NegotiatingMarshaller.JSON;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(BinaryFormatBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+    public static class Records {
+        public List<Record> fields = new ArrayList<>();
+    }
+
+    public static class Record {
+        public String name;
+        public int number;
+        public String typeName;
+
+        public Record() {
+        }
+
+        public Record(String name, int number, String typeName) {
+            this.name = name;
+            this.number = number;
+            this.typeName = typeName;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+package io.helixservice.feature.restservice.marshal;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares per-call ObjectMapper type resolution against the cached readers and writers in JacksonMarshaller,
+ * using a small order DTO.
+ * <p>
+ * Run with -Dhelix.jackson.afterburner=true and jackson-module-afterburner on the classpath
+ * to include bytecode-generated (de)serializers in the cached results.
+ * Build with {@code mvn -Pbenchmark clean test-compile}, then run the main method from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JacksonMarshallerBenchmark {
+    private ObjectMapper objectMapper;
+    private JacksonMarshaller marshaller;
+    private Order order;
+    private byte[] orderJson;
+
+    @Setup
+    public void setup() throws Exception {
+        objectMapper = new ObjectMapper();
+        objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        marshaller = new JacksonMarshaller();
+        marshaller.prepare(Order.class, Order.class);
+
+        order = new Order();
+        order.id = 1234567L;
+        order.customer = "Customer Name";
+        order.currency = "USD";
+        for (int i = 0; i < 5; i++) {
+            order.lines.add(new OrderLine("SKU-" + i, i + 1, 9.99 * (i + 1)));
+        }
+        orderJson = objectMapper.writeValueAsBytes(order);
+    }
+
+    @Benchmark
+    public byte[] objectMapperWrite() throws Exception {
+        return objectMapper.writeValueAsString(order).getBytes();
+    }
+
+    @Benchmark
+    public byte[] cachedWriterWrite() {
+        return marshaller.marshal(order).getBody();
+    }
+
+    @Benchmark
+    public Object objectMapperRead() throws Exception {
+        return objectMapper.readValue(orderJson, Order.class);
+    }
+
+    @Benchmark
+    public Object cachedReaderRead() {
+        return marshaller.unmarshal(Order.class, new Message(orderJson, "application/json"));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JacksonMarshallerBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    public static class Order {
+        public long id;
+        public String customer;
+        public String currency;
+        public List<OrderLine> lines = new ArrayList<>();
+    }
+
+    public static class OrderLine {
+        public String sku;
+        public int quantity;
+        public double price;
+
+        public OrderLine() {
+        }
+
+        OrderLine(String sku, int quantity, double price) {
+            this.sku = sku;
+            this.quantity = quantity;
+            this.price = price;
+        }
+    }
+}
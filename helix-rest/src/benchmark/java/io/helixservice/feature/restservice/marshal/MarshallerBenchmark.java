@@ -0,0 +1,110 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+package io.helixservice.feature.restservice.marshal;
+
+import io.helixservice.core.util.BufferOutputStream;
+import io.netty.buffer.ByteBufInputStream;
+import io.vertx.core.buffer.Buffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares marshalling through byte arrays against streaming into and out of Vert.x Buffers,
+ * for 1KB, 100KB and 5MB JSON payloads.
+ * <p>
+ * Build with {@code mvn -Pbenchmark clean test-compile}, then run the main method from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MarshallerBenchmark {
+    private static final List<String> JSON = Collections.singletonList("application/json");
+
+    @Param({"1024", "102400", "5242880"})
+    private int payloadSize;
+
+    private JacksonMarshaller marshaller;
+    private List<Item> payload;
+    private Buffer requestBody;
+
+    @Setup
+    public void setup() {
+        marshaller = new JacksonMarshaller();
+
+        int itemSize = marshaller.marshal(new Item(0, "item-00000000")).getBody().length + 1;
+        payload = new ArrayList<>();
+        for (int i = 0; i < Math.max(1, payloadSize / itemSize); i++) {
+            payload.add(new Item(i, String.format("item-%08d", i)));
+        }
+        requestBody = Buffer.buffer(marshaller.marshal(payload).getBody());
+    }
+
+    @Benchmark
+    public Buffer marshalToBytes() {
+        return Buffer.buffer(marshaller.marshal(payload).getBody());
+    }
+
+    @Benchmark
+    public Buffer marshalToBuffer() {
+        Buffer buffer = Buffer.buffer(payloadSize);
+        marshaller.marshal(payload, new BufferOutputStream(buffer));
+        return buffer;
+    }
+
+    @Benchmark
+    public Object unmarshalFromBytes() {
+        return marshaller.unmarshal(List.class, new Message(requestBody.getBytes(), JSON));
+    }
+
+    @Benchmark
+    public Object unmarshalFromBuffer() {
+        return marshaller.unmarshal(List.class, new ByteBufInputStream(requestBody.getByteBuf()), JSON);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(MarshallerBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+
+    public static class Item {
+        public int id;
+        public String name;
+
+        public Item(int id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+    }
+}
@@ -13,12 +13,19 @@
 
 package io.helixservice.feature.accesslog;
 
+import io.helixservice.core.container.Container;
 import io.helixservice.core.feature.AbstractFeature;
+import io.helixservice.core.feature.Feature;
+import io.helixservice.feature.configuration.ConfigProperty;
 import io.helixservice.feature.configuration.provider.ConfigProvider;
 import io.helixservice.feature.restservice.filter.component.FilterComponent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Locale;
+
 /**
  * Access Logging Feature logs details about each HTTP request
  * <p>
@@ -26,23 +33,84 @@ import org.slf4j.LoggerFactory;
  * <ul>
  *     <li>access-log.loggerName: Name of logger category to use</li>
  *     <li>access-log.formatter: Class name of a AccessLogFormatter</li>
+ *     <li>access-log.file: File to write the access log to, instead of the logger (default none)</li>
+ *     <li>access-log.queueSize: Entries queued for the file writer thread (default 8192)</li>
+ *     <li>access-log.overflow: "drop" to drop and count entries when the queue is full (default), or "block"</li>
+ *     <li>access-log.file.maxBytes: Size at which the file is rotated, or 0 to never rotate (default 100MB)</li>
+ *     <li>access-log.file.maxFiles: Number of rotated files to keep (default 5)</li>
  * </ul>
+ * When a file is configured, entries are formatted and written by a separate thread,
+ * see AsyncAccessLogSink for the metrics it records when an AccessLogMetricsFactory is registered.
  */
 public class AccessLogFeature extends AbstractFeature {
+    private final AccessLogSink accessLogSink;
+
     public AccessLogFeature(ConfigProvider configProvider) {
         String loggerName = configProvider.propertyByName("access-log.loggerName").getValue();
         String accessLogFormatterClassName = configProvider.propertyByName("access-log.formatter").getValue();
+        String fileName = new ConfigProperty(configProvider, "access-log.file", "").getValue();
 
+        AccessLogFormatter accessLogFormatter;
         try {
-            AccessLogFormatter accessLogFormatter = (AccessLogFormatter)
-                    Class.forName(accessLogFormatterClassName).newInstance();
+            accessLogFormatter = (AccessLogFormatter) Class.forName(accessLogFormatterClassName).newInstance();
             accessLogFormatter.setConfigProvider(configProvider);
-
-            Logger logger = LoggerFactory.getLogger(loggerName);
-            AccessLogFilter accessLogFilter = new AccessLogFilter(logger, accessLogFormatter);
-            register(FilterComponent.filterAllPaths(accessLogFilter));
         } catch (Throwable t) {
             throw new IllegalArgumentException("Unable to create AccessLogFormatter className=" + accessLogFormatterClassName, t);
         }
+
+        if (fileName.isEmpty()) {
+            Logger logger = LoggerFactory.getLogger(loggerName);
+            accessLogSink = new LoggerAccessLogSink(logger, accessLogFormatter);
+        } else {
+            accessLogSink = createAsyncSink(configProvider, fileName, accessLogFormatter);
+        }
+
+        register(FilterComponent.filterAllPaths(new AccessLogFilter(accessLogSink)));
+    }
+
+    @Override
+    public void start(Container container) {
+        if (accessLogSink instanceof AsyncAccessLogSink) {
+            AsyncAccessLogSink asyncAccessLogSink = (AsyncAccessLogSink) accessLogSink;
+            asyncAccessLogSink.setMetricsFactory(findMetricsFactory(container));
+            asyncAccessLogSink.start();
+        }
+    }
+
+    @Override
+    public void stop(Container container) {
+        accessLogSink.close();
+    }
+
+    private static AccessLogMetricsFactory findMetricsFactory(Container container) {
+        for (Feature feature : container.getFeatures()) {
+            AccessLogMetricsFactory factory = feature.findComponentByType(AccessLogMetricsFactory.TYPE_NAME, null);
+            if (factory != null) {
+                return factory;
+            }
+        }
+        return null;
+    }
+
+    private static AccessLogSink createAsyncSink(ConfigProvider configProvider, String fileName,
+            AccessLogFormatter accessLogFormatter) {
+        int queueSize = new ConfigProperty(configProvider, "access-log.queueSize", "8192").asInt();
+        String overflow = new ConfigProperty(configProvider, "access-log.overflow", "drop").getValue();
+        long maxBytes = new ConfigProperty(configProvider, "access-log.file.maxBytes", "104857600").asLong();
+        int maxFiles = new ConfigProperty(configProvider, "access-log.file.maxFiles", "5").asInt();
+
+        AsyncAccessLogSink.OverflowPolicy overflowPolicy;
+        try {
+            overflowPolicy = AsyncAccessLogSink.OverflowPolicy.valueOf(overflow.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown access-log.overflow=" + overflow + ", expected drop or block", e);
+        }
+
+        try {
+            AccessLogFileWriter writer = new AccessLogFileWriter(Paths.get(fileName), maxBytes, maxFiles);
+            return new AsyncAccessLogSink(writer, accessLogFormatter, queueSize, overflowPolicy);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Unable to open access log file=" + fileName, e);
+        }
     }
 }
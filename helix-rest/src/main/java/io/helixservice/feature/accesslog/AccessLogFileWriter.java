@@ -0,0 +1,182 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.accesslog;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends lines to a file through a FileChannel, rotating the file when it grows too large.
+ * <p>
+ * Lines are encoded as UTF-8 into a reused buffer, which is written to the channel when it
+ * fills or on flush. A file is only rotated between lines: <b>access.log</b> is renamed to
+ * <b>access.log.1</b>, <b>access.log.1</b> to <b>access.log.2</b>, and so on, and the oldest
+ * is deleted. If a rename fails, the file is reopened and appended to, and rotation is
+ * tried again once another maxBytes have been written.
+ * <p>
+ * Not thread safe; intended to be used by a single writer thread.
+ */
+class AccessLogFileWriter {
+    private static final Logger LOG = LoggerFactory.getLogger(AccessLogFileWriter.class);
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path file;
+    private final long maxBytes;
+    private final int maxFiles;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+    private FileChannel channel;
+    private long size;
+    private long rotateAtBytes;
+
+    /**
+     * @param file File to append to, created if it does not exist
+     * @param maxBytes Size at which the file is rotated, or zero to never rotate
+     * @param maxFiles Number of rotated files to keep
+     * @throws IOException If the file cannot be opened
+     */
+    AccessLogFileWriter(Path file, long maxBytes, int maxFiles) throws IOException {
+        this.file = file;
+        this.maxBytes = maxBytes;
+        this.maxFiles = maxFiles;
+        this.rotateAtBytes = maxBytes;
+        open();
+    }
+
+    /**
+     * Append a line, which is not written to the file until the buffer fills or is flushed
+     *
+     * @param line Line to append, without a line separator
+     * @throws IOException If writing or rotating the file fails
+     */
+    void write(CharSequence line) throws IOException {
+        if (maxBytes > 0 && size + buffer.position() >= rotateAtBytes) {
+            flush();
+            rotate();
+        }
+
+        CharBuffer chars = CharBuffer.wrap(line);
+        encoder.reset();
+        while (true) {
+            CoderResult result = encoder.encode(chars, buffer, true);
+            if (result.isOverflow()) {
+                drain();
+            } else if (result.isError()) {
+                result.throwException();
+            } else {
+                break;
+            }
+        }
+        while (encoder.flush(buffer).isOverflow()) {
+            drain();
+        }
+
+        if (!buffer.hasRemaining()) {
+            drain();
+        }
+        buffer.put((byte) '\n');
+    }
+
+    /**
+     * Write buffered lines to the file
+     *
+     * @throws IOException If writing fails
+     */
+    void flush() throws IOException {
+        if (buffer.position() > 0) {
+            drain();
+        }
+    }
+
+    /**
+     * Flush buffered lines and close the file
+     *
+     * @throws IOException If writing or closing fails
+     */
+    void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * @return Size of the current file, including buffered lines
+     */
+    long size() {
+        return size + buffer.position();
+    }
+
+    private void drain() throws IOException {
+        if (!channel.isOpen()) {
+            // Reopening the file failed after the last rotation, so try again
+            open();
+        }
+
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            size += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void open() throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        size = channel.size();
+    }
+
+    private void rotate() throws IOException {
+        channel.close();
+
+        try {
+            if (maxFiles > 0) {
+                Files.deleteIfExists(rotatedFile(maxFiles));
+                for (int i = maxFiles - 1; i >= 1; i--) {
+                    Path rotated = rotatedFile(i);
+                    if (Files.exists(rotated)) {
+                        Files.move(rotated, rotatedFile(i + 1), StandardCopyOption.REPLACE_EXISTING);
+                    }
+                }
+                Files.move(file, rotatedFile(1), StandardCopyOption.REPLACE_EXISTING);
+            } else {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            LOG.error("Unable to rotate access log file=" + file + ", appending to it instead", e);
+        } finally {
+            open();
+            rotateAtBytes = size + maxBytes;
+        }
+    }
+
+    private Path rotatedFile(int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+}
@@ -27,18 +27,25 @@ public class AccessLogFilter implements Filter {
     private static final String X_RESPONSE_TIME = "x-response-time";
     private static final String START_TIMESTAMP_VAR = "startTimestamp";
 
-    private final Logger logger;
-    private final AccessLogFormatter accessLogFormatter;
+    private final AccessLogSink accessLogSink;
 
     /**
-     * Create AccessLogFilter
+     * Create AccessLogFilter, logging each request on the request thread
      *
      * @param logger Logger to send the access log to
      * @param accessLogFormatter Formatter for generating the string to be logged
      */
     public AccessLogFilter(Logger logger, AccessLogFormatter accessLogFormatter) {
-        this.logger = checkNotNull(logger);
-        this.accessLogFormatter = checkNotNull(accessLogFormatter);
+        this(new LoggerAccessLogSink(logger, accessLogFormatter));
+    }
+
+    /**
+     * Create AccessLogFilter
+     *
+     * @param accessLogSink Sink to hand each request's entry to
+     */
+    public AccessLogFilter(AccessLogSink accessLogSink) {
+        this.accessLogSink = checkNotNull(accessLogSink);
     }
 
     @Override
@@ -51,8 +58,7 @@ public class AccessLogFilter implements Filter {
         long startTimestamp = lookupStartTimeVariable(filterContext);
         long responseTimeMillis = System.currentTimeMillis() - startTimestamp;
 
-        String message = accessLogFormatter.format(filterContext, responseTimeMillis);
-        logMessage(filterContext, message);
+        accessLogSink.append(filterContext, responseTimeMillis);
 
         filterContext.getResponse().addHeader(X_RESPONSE_TIME, String.valueOf(responseTimeMillis));
     }
@@ -71,16 +77,4 @@ public class AccessLogFilter implements Filter {
         }
         return startTime;
     }
-
-    private void logMessage(FilterContext filterContext, String message) {
-        int status = filterContext.getResponse() == null ? 500 : filterContext.getResponse().getHttpStatusCode();
-
-        if (status >= 500 || status >= 404) {
-            logger.error(message);
-        } else if (status >= 300) {
-            logger.warn(message);
-        } else {
-            logger.info(message);
-        }
-    }
 }
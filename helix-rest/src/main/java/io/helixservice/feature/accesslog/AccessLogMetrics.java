@@ -0,0 +1,47 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.accesslog;
+
+/**
+ * Metric handles for the entries written by the AsyncAccessLogSink
+ * <p>
+ * Implementations must be thread-safe.
+ *
+ * @see AccessLogMetricsFactory
+ */
+public interface AccessLogMetrics {
+    /**
+     * Handles which record nothing, used when no AccessLogMetricsFactory is registered
+     */
+    AccessLogMetrics NONE = new AccessLogMetrics() {
+        @Override
+        public void recordWritten(int count) {
+        }
+
+        @Override
+        public void recordDropped() {
+        }
+    };
+
+    /**
+     * Record entries written to the file
+     *
+     * @param count Number of entries written
+     */
+    void recordWritten(int count);
+
+    /**
+     * Record an entry dropped because the queue was full
+     */
+    void recordDropped();
+}
@@ -0,0 +1,44 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.accesslog;
+
+import io.helixservice.core.component.Component;
+
+import java.util.function.IntSupplier;
+
+/**
+ * Component which creates the metric handles for the access log
+ * <p>
+ * Register a factory with any feature, for example the MetricsFeature, to record
+ * access log metrics. Without one, the access log is not measured.
+ */
+@FunctionalInterface
+public interface AccessLogMetricsFactory extends Component {
+    String TYPE_NAME = "AccessLogMetricsFactory";
+
+    /**
+     * Create the metric handles for an access log sink
+     *
+     * @param queueDepth Number of entries waiting to be written, read whenever the metric is reported
+     * @return Metric handles for the sink's entries
+     */
+    AccessLogMetrics forSink(IntSupplier queueDepth);
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    default String getComponentType() {
+        return TYPE_NAME;
+    }
+}
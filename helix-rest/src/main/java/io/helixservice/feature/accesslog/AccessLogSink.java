@@ -0,0 +1,36 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.accesslog;
+
+import co.paralleluniverse.fibers.SuspendExecution;
+import io.helixservice.feature.restservice.filter.FilterContext;
+
+/**
+ * Destination for access log entries, called by the AccessLogFilter once a request is handled
+ */
+public interface AccessLogSink {
+    /**
+     * Log a handled request
+     *
+     * @param filterContext Context of the request, which the sink must copy from if it formats the entry later
+     * @param elapsedTimeMillis Elapsed time in milliseconds of the request
+     * @throws SuspendExecution For Vert.x Sync, when the sink waits for room
+     */
+    void append(FilterContext filterContext, long elapsedTimeMillis) throws SuspendExecution;
+
+    /**
+     * Write any entries still held, and release the sink's resources
+     */
+    default void close() {
+    }
+}
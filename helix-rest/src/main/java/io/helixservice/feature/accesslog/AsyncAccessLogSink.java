@@ -0,0 +1,276 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.accesslog;
+
+import co.paralleluniverse.fibers.SuspendExecution;
+import co.paralleluniverse.strands.Strand;
+import io.helixservice.core.util.VertxTypeConverter;
+import io.helixservice.feature.restservice.controller.Request;
+import io.helixservice.feature.restservice.controller.Response;
+import io.helixservice.feature.restservice.filter.FilterContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Hands access log entries to a writer thread, which formats them and writes them to a file in batches.
+ * <p>
+ * Entries are queued in a bounded lock-free ring buffer. Each entry holds a copy of the request's
+ * method, URI, params, headers and response status and headers, taken on the request thread, so
+ * the writer thread never reads a live FilterContext. Bodies are not copied, and only filter
+ * variables which are strings, numbers or booleans are. When the queue is full, the
+ * OverflowPolicy decides whether the entry is dropped and counted, or the caller waits for room.
+ * <p>
+ * When an AccessLogMetricsFactory is registered, these metrics are recorded:
+ * <ul>
+ *     <li>accesslog.queue.depth: Gauge of the number of queued entries</li>
+ *     <li>accesslog.dropped.count: Entries dropped because the queue was full</li>
+ *     <li>accesslog.written.count: Entries written to the file</li>
+ * </ul>
+ */
+public class AsyncAccessLogSink implements AccessLogSink {
+    private static final Logger LOG = LoggerFactory.getLogger(AsyncAccessLogSink.class);
+
+    private static final int BATCH_SIZE = 256;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long BLOCKED_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    private static final long CLOSE_TIMEOUT_MILLIS = 10_000;
+
+    /**
+     * What to do with an entry when the queue is full
+     */
+    public enum OverflowPolicy {
+        /** Drop the entry and count it, so requests are never delayed by the access log */
+        DROP,
+        /**
+         * Wait for room in the queue. A fiber is suspended while it waits, but under
+         * the thread execution engine the request thread itself is stalled.
+         */
+        BLOCK
+    }
+
+    private final AccessLogFileWriter writer;
+    private final AccessLogFormatter accessLogFormatter;
+    private final OverflowPolicy overflowPolicy;
+    private final BoundedRingBuffer<Entry> queue;
+    private final LongAdder dropped = new LongAdder();
+    private final StringBuilder line = new StringBuilder(512);
+
+    private volatile AccessLogMetrics metrics = AccessLogMetrics.NONE;
+    private volatile boolean closed;
+    private volatile long written;
+    private Thread writerThread;
+
+    /**
+     * @param writer File writer, used only by the writer thread
+     * @param accessLogFormatter Formatter for generating the string to be logged
+     * @param queueSize Maximum number of queued entries, rounded up to a power of two
+     * @param overflowPolicy What to do with an entry when the queue is full
+     */
+    AsyncAccessLogSink(AccessLogFileWriter writer, AccessLogFormatter accessLogFormatter,
+            int queueSize, OverflowPolicy overflowPolicy) {
+        this.writer = checkNotNull(writer);
+        this.accessLogFormatter = checkNotNull(accessLogFormatter);
+        this.overflowPolicy = checkNotNull(overflowPolicy);
+        this.queue = new BoundedRingBuffer<>(queueSize);
+    }
+
+    /**
+     * Start the writer thread
+     */
+    public synchronized void start() {
+        if (writerThread == null && !closed) {
+            writerThread = new Thread(this::run, "helix-access-log-writer");
+            writerThread.setDaemon(true);
+            writerThread.start();
+        }
+    }
+
+    /**
+     * @param metricsFactory Factory for the sink's metric handles, or null to not record metrics
+     */
+    public void setMetricsFactory(AccessLogMetricsFactory metricsFactory) {
+        this.metrics = metricsFactory == null ? AccessLogMetrics.NONE : metricsFactory.forSink(queue::size);
+    }
+
+    @Override
+    public void append(FilterContext filterContext, long elapsedTimeMillis) throws SuspendExecution {
+        Entry entry = new Entry(snapshot(filterContext), elapsedTimeMillis, System.currentTimeMillis());
+        if (queue.offer(entry)) {
+            return;
+        }
+
+        if (overflowPolicy == OverflowPolicy.BLOCK) {
+            while (!closed) {
+                // Suspends a fiber rather than parking the event loop thread it runs on
+                Strand.parkNanos(BLOCKED_PARK_NANOS);
+                if (queue.offer(entry)) {
+                    return;
+                }
+            }
+        }
+        dropped.increment();
+        metrics.recordDropped();
+    }
+
+    /**
+     * Stop accepting entries, write the queued entries and close the file
+     */
+    @Override
+    public void close() {
+        Thread thread;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            thread = writerThread;
+        }
+
+        if (thread != null) {
+            try {
+                thread.join(CLOSE_TIMEOUT_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        } else {
+            writeQueued();
+        }
+
+        try {
+            writer.close();
+        } catch (IOException e) {
+            LOG.error("Unable to close access log file", e);
+        }
+    }
+
+    /**
+     * @return Number of entries waiting to be written
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * @return Number of entries dropped because the queue was full
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return Number of entries written to the file
+     */
+    public long getWrittenCount() {
+        return written;
+    }
+
+    private void run() {
+        while (true) {
+            // Read before draining, so entries queued before close are always written
+            boolean stopping = closed;
+            int count = writeQueued();
+
+            if (count == 0) {
+                if (stopping) {
+                    break;
+                }
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    private int writeQueued() {
+        int total = 0;
+        int count;
+        do {
+            count = writeBatch();
+            total += count;
+        } while (count == BATCH_SIZE);
+        return total;
+    }
+
+    private int writeBatch() {
+        int count = 0;
+        int writtenCount = 0;
+        Entry entry;
+        while (count < BATCH_SIZE && (entry = queue.poll()) != null) {
+            count++;
+            try {
+                line.setLength(0);
+                DateTimeFormatter.ISO_INSTANT.formatTo(Instant.ofEpochMilli(entry.timestamp), line);
+                line.append(' ').append(accessLogFormatter.format(entry.filterContext, entry.elapsedTimeMillis));
+                writer.write(line);
+                writtenCount++;
+            } catch (IOException | RuntimeException e) {
+                LOG.error("Unable to write access log entry", e);
+            }
+        }
+
+        if (count > 0) {
+            try {
+                writer.flush();
+            } catch (IOException e) {
+                LOG.error("Unable to write access log entries", e);
+            }
+            written += writtenCount;
+            metrics.recordWritten(writtenCount);
+        }
+        return count;
+    }
+
+    /**
+     * Copy what a formatter may read from a request, so the writer thread does not share it
+     */
+    private static FilterContext snapshot(FilterContext filterContext) {
+        Request<?> request = filterContext.getRequest();
+        Request<byte[]> requestCopy = new Request<>(request.getMethod(), request.getRequestURI(),
+                request.getParams(), request.getHeaders(), null, request.getRemoteAddr(), request.getHttpVersion());
+
+        Response<byte[]> response = filterContext.getResponse();
+        Response<byte[]> responseCopy = response == null ? null
+                : Response.fromVertxHeaders(response.getHttpStatusCode(), VertxTypeConverter.toVertxMultiMap(response.getHeaders()));
+
+        Map<String, Object> variables = new HashMap<>();
+        for (Map.Entry<String, Object> variable : filterContext.getFilterVariables().entrySet()) {
+            Object value = variable.getValue();
+            if (value instanceof String || value instanceof Number || value instanceof Boolean) {
+                variables.put(variable.getKey(), value);
+            }
+        }
+
+        return new FilterContext(requestCopy, responseCopy, variables);
+    }
+
+    private static class Entry {
+        private final FilterContext filterContext;
+        private final long elapsedTimeMillis;
+        private final long timestamp;
+
+        Entry(FilterContext filterContext, long elapsedTimeMillis, long timestamp) {
+            this.filterContext = filterContext;
+            this.elapsedTimeMillis = elapsedTimeMillis;
+            this.timestamp = timestamp;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.accesslog;
+
+import io.helixservice.feature.restservice.filter.FilterContext;
+import org.slf4j.Logger;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Formats each access log entry and logs it to an SLF4J logger, on the calling thread.
+ * <p>
+ * 4xx and 5xx responses are logged at error level, 3xx at warn level, and others at info level.
+ */
+public class LoggerAccessLogSink implements AccessLogSink {
+    private final Logger logger;
+    private final AccessLogFormatter accessLogFormatter;
+
+    /**
+     * @param logger Logger to send the access log to
+     * @param accessLogFormatter Formatter for generating the string to be logged
+     */
+    public LoggerAccessLogSink(Logger logger, AccessLogFormatter accessLogFormatter) {
+        this.logger = checkNotNull(logger);
+        this.accessLogFormatter = checkNotNull(accessLogFormatter);
+    }
+
+    @Override
+    public void append(FilterContext filterContext, long elapsedTimeMillis) {
+        String message = accessLogFormatter.format(filterContext, elapsedTimeMillis);
+        int status = filterContext.getResponse() == null ? 500 : filterContext.getResponse().getHttpStatusCode();
+
+        if (status >= 500 || status >= 404) {
+            logger.error(message);
+        } else if (status >= 300) {
+            logger.warn(message);
+        } else {
+            logger.info(message);
+        }
+    }
+}
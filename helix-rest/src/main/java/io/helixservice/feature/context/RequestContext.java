@@ -13,6 +13,8 @@
 
 package io.helixservice.feature.context;
 
+import io.helixservice.core.execution.Deadline;
+
 import java.io.StringWriter;
 import java.util.Collections;
 import java.util.HashMap;
@@ -32,6 +34,7 @@ public class RequestContext {
 
     private Map<String, String> contextVarMap;
     private Set<String> loggedContextVars;
+    private Deadline deadline;
 
     private RequestContext() {
         loggedContextVars = new HashSet<>();
@@ -78,6 +81,25 @@ public class RequestContext {
         updateLoggedContextVar();
     }
 
+    /**
+     * Get the deadline of the request
+     *
+     * @return The request's deadline, or null if it has none
+     */
+    public Deadline getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * Set the deadline of the request.  The deadline is made current again
+     * whenever the context is propagated to a Vert.x handler.
+     *
+     * @param deadline The request's deadline, or null for none
+     */
+    public void setDeadline(Deadline deadline) {
+        this.deadline = deadline;
+    }
+
     /**
      * Gets the current request context as a Map
      *
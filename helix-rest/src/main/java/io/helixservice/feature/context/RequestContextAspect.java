@@ -15,6 +15,7 @@ package io.helixservice.feature.context;
 
 import co.paralleluniverse.fibers.SuspendExecution;
 import co.paralleluniverse.fibers.Suspendable;
+import io.helixservice.core.execution.Deadline;
 import io.vertx.core.Handler;
 import io.vertx.core.MultiMap;
 import io.vertx.core.http.impl.HttpClientRequestImpl;
@@ -129,6 +130,7 @@ public class RequestContextAspect {
         @Suspendable
         public void handle(Object e) {
             RequestContext.setContext(context);
+            Deadline previousDeadline = Deadline.setCurrent(context.getDeadline());
             try {
                 Method handle = handler.getClass().getMethod("handle", Object.class);
                 handle.setAccessible(true);
@@ -141,6 +143,8 @@ public class RequestContextAspect {
                 } else {
                     logUnthinkableException(t);
                 }
+            } finally {
+                Deadline.setCurrent(previousDeadline);
             }
         }
 
@@ -68,6 +68,11 @@ import java.util.function.Supplier;
  * logging of tracing values tedious.  This feature provides an automatic
  * way to specify which context variables should always be logged.
  *
+ * <h2>Request Deadlines</h2>
+ * The request's Deadline, taken from the X-Request-Timeout-Ms header or the
+ * endpoint's default, is kept in the RequestContext. It is made current
+ * again in every handler the context is propagated to.
+ *
  * <h2>AspectJ Configuration</h2>
  * <ul>
  * <li>AspectJ agent must be installed on the Java command line, for example: <pre>-javaagent:aspectjweaver-1.8.8.jar</pre></li>
@@ -14,6 +14,7 @@
 package io.helixservice.feature.context;
 
 import co.paralleluniverse.fibers.SuspendExecution;
+import io.helixservice.core.execution.Deadline;
 import io.helixservice.feature.restservice.controller.Request;
 import io.helixservice.feature.restservice.filter.Filter;
 import io.helixservice.feature.restservice.filter.FilterContext;
@@ -48,6 +49,7 @@ public class RequestContextFilter implements Filter {
         RequestContext newContext = RequestContext.createEmptyContext();
 
         setLoggedContextVars(newContext);
+        newContext.setDeadline(Deadline.current());
         captureHeaders(newContext, filterContext.getRequest());
         captureParams(newContext, filterContext.getRequest());
         feature.contextTransformer.accept(newContext);
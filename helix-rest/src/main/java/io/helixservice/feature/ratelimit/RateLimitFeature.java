@@ -0,0 +1,81 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.ratelimit;
+
+import io.helixservice.core.feature.AbstractFeature;
+import io.helixservice.feature.configuration.ConfigProperty;
+import io.helixservice.feature.configuration.provider.ConfigProvider;
+import io.helixservice.feature.restservice.filter.component.FilterComponent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rate Limiting Feature limits the request rate of each client, using the RateLimitFilter
+ * <p>
+ * Configuration Properties:
+ * <ul>
+ *     <li>rate-limit.key: "remote" for the remote address (default), "header:name" or "param:name"</li>
+ *     <li>rate-limit.permitsPerSecond: Sustained requests per second for each key (default 100)</li>
+ *     <li>rate-limit.burst: Requests allowed at once for an idle key (default 100)</li>
+ *     <li>rate-limit.pathRegex: Regular expression of paths to limit (default all paths)</li>
+ *     <li>rate-limit.idleEvictionSeconds: Time before an idle key's bucket is dropped (default 60)</li>
+ *     <li>rate-limit.maxBuckets: Buckets held before new keys fall back to the remote address (default 100000)</li>
+ * </ul>
+ * Changes to permitsPerSecond and burst are applied without a restart. Invalid changes
+ * are logged and the previous limits are kept.
+ * Throttled requests are counted per endpoint, by the "controller.endpoint.ratelimit.throttled.count" metric.
+ */
+public class RateLimitFeature extends AbstractFeature {
+    private static final Logger LOG = LoggerFactory.getLogger(RateLimitFeature.class);
+
+    private final RateLimitFilter rateLimitFilter;
+    private final ConfigProperty permitsPerSecond;
+    private final ConfigProperty burst;
+
+    public RateLimitFeature(ConfigProvider configProvider) {
+        String key = new ConfigProperty(configProvider, "rate-limit.key", RateLimitFilter.REMOTE_ADDRESS).getValue();
+        String pathRegex = new ConfigProperty(configProvider, "rate-limit.pathRegex", FilterComponent.ALL_PATHS).getValue();
+        long idleEvictionSeconds = new ConfigProperty(configProvider, "rate-limit.idleEvictionSeconds", "60").asLong();
+        int maxBuckets = new ConfigProperty(configProvider, "rate-limit.maxBuckets", "100000").asInt();
+
+        permitsPerSecond = new ConfigProperty(configProvider, "rate-limit.permitsPerSecond", "100");
+        burst = new ConfigProperty(configProvider, "rate-limit.burst", "100");
+
+        rateLimitFilter = new RateLimitFilter(key, Double.parseDouble(permitsPerSecond.getValue()), burst.asInt());
+        rateLimitFilter.setIdleEviction(idleEvictionSeconds, TimeUnit.SECONDS);
+        rateLimitFilter.setMaxBuckets(maxBuckets);
+
+        permitsPerSecond.setChangeListener(false, property -> reloadLimits());
+        burst.setChangeListener(false, property -> reloadLimits());
+
+        register(FilterComponent.filterByRegex(pathRegex, rateLimitFilter));
+    }
+
+    /**
+     * @return The filter applying the rate limits
+     */
+    public RateLimitFilter getRateLimitFilter() {
+        return rateLimitFilter;
+    }
+
+    private void reloadLimits() {
+        try {
+            rateLimitFilter.setLimits(Double.parseDouble(permitsPerSecond.getValue()), burst.asInt());
+        } catch (IllegalArgumentException e) {
+            LOG.error("Ignoring invalid rate limit change, permitsPerSecond=" + permitsPerSecond.getValue()
+                    + " burst=" + burst.getValue() + ": " + e.getMessage());
+        }
+    }
+}
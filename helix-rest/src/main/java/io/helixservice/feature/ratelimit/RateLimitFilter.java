@@ -0,0 +1,193 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.ratelimit;
+
+import co.paralleluniverse.fibers.SuspendExecution;
+import io.helixservice.feature.restservice.controller.Request;
+import io.helixservice.feature.restservice.controller.metrics.EndpointMetrics;
+import io.helixservice.feature.restservice.filter.Filter;
+import io.helixservice.feature.restservice.filter.FilterContext;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Filter which limits the request rate of each client, using a token bucket per key
+ * <p>
+ * The key is taken from a request header, a request parameter, or the remote address.
+ * Requests without the header or parameter are keyed by remote address instead, so
+ * that leaving it out does not avoid the limit. Each key is prefixed by its source,
+ * so a header value can never share a bucket with a remote address. Throttled requests
+ * receive HTTP 429, with a Retry-After header, and are counted by their endpoint's metrics.
+ * <p>
+ * Buckets are held in a ConcurrentHashMap, whose bins are locked independently, and
+ * each bucket is updated with a single compare-and-set. Buckets left idle long enough
+ * to refill are evicted, which is no different to the client than keeping them.
+ * Once the bucket count reaches its maximum, header and parameter values without a
+ * bucket are keyed by remote address, so made-up values cannot grow the map.
+ */
+public class RateLimitFilter implements Filter {
+    public static final String REMOTE_ADDRESS = "remote";
+    public static final String HEADER_PREFIX = "header:";
+    public static final String PARAM_PREFIX = "param:";
+
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final long EVICTION_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+    private static final String HEADER_KEY = "h:";
+    private static final String PARAM_KEY = "p:";
+    private static final String REMOTE_KEY = "r:";
+
+    private final String keyHeader;
+    private final String keyParam;
+    private final ConcurrentMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong nextEvictionNanos = new AtomicLong(System.nanoTime() + EVICTION_INTERVAL_NANOS);
+
+    private volatile Limits limits;
+    private volatile long idleNanos;
+    private volatile int maxBuckets = 100_000;
+
+    /**
+     * Create a rate limit filter
+     *
+     * @param key "remote" for the remote address, "header:name" for a request header, or "param:name" for a request parameter
+     * @param permitsPerSecond Sustained requests per second allowed for each key
+     * @param burst Requests allowed at once for a key which has been idle
+     */
+    public RateLimitFilter(String key, double permitsPerSecond, int burst) {
+        if (key.startsWith(HEADER_PREFIX)) {
+            keyHeader = key.substring(HEADER_PREFIX.length());
+            keyParam = null;
+        } else if (key.startsWith(PARAM_PREFIX)) {
+            keyHeader = null;
+            keyParam = key.substring(PARAM_PREFIX.length());
+        } else if (REMOTE_ADDRESS.equals(key)) {
+            keyHeader = null;
+            keyParam = null;
+        } else {
+            throw new IllegalArgumentException("Unknown rate limit key=" + key);
+        }
+
+        setLimits(permitsPerSecond, burst);
+        setIdleEviction(1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Change the limits, which apply to existing buckets immediately
+     *
+     * @param permitsPerSecond Sustained requests per second allowed for each key
+     * @param burst Requests allowed at once for a key which has been idle
+     */
+    public void setLimits(double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Invalid rate limit permitsPerSecond=" + permitsPerSecond + " burst=" + burst);
+        }
+        this.limits = new Limits(permitsPerSecond, burst);
+    }
+
+    /**
+     * @param idleTime Time a bucket must be full before it is evicted
+     * @param unit Unit of idleTime
+     */
+    public void setIdleEviction(long idleTime, TimeUnit unit) {
+        this.idleNanos = unit.toNanos(idleTime);
+    }
+
+    /**
+     * @param maxBuckets Bucket count above which header and parameter values without a bucket are keyed by remote address
+     */
+    public void setMaxBuckets(int maxBuckets) {
+        if (maxBuckets < 1) {
+            throw new IllegalArgumentException("Invalid rate limit maxBuckets=" + maxBuckets);
+        }
+        this.maxBuckets = maxBuckets;
+    }
+
+    /**
+     * @return Number of buckets currently held
+     */
+    public int getBucketCount() {
+        return buckets.size();
+    }
+
+    @Override
+    public void beforeHandleEndpoint(FilterContext filterContext) throws SuspendExecution {
+        long now = System.nanoTime();
+        Limits current = limits;
+
+        TokenBucket bucket = buckets.computeIfAbsent(keyFor(filterContext.getRequest()), key -> new TokenBucket(now));
+        if (!bucket.tryAcquire(now, current.intervalNanos, current.burstNanos)) {
+            long retryAfterNanos = bucket.nanosUntilAvailable(now, current.intervalNanos, current.burstNanos);
+            long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(retryAfterNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+
+            filterContext.getResponse().addHeader("Retry-After", String.valueOf(retryAfterSeconds));
+            filterContext.endWithResponse(TOO_MANY_REQUESTS, "Too Many Requests");
+
+            EndpointMetrics endpointMetrics = filterContext.getEndpointMetrics();
+            if (endpointMetrics != null) {
+                endpointMetrics.recordThrottled();
+            }
+        }
+
+        evictIdleBuckets(now);
+    }
+
+    @Override
+    public void afterHandleEndpoint(FilterContext filterContext) throws SuspendExecution {
+    }
+
+    @Override
+    public void afterResponseSent(FilterContext filterContext) throws SuspendExecution {
+    }
+
+    private String keyFor(Request<?> request) {
+        String key = null;
+        if (keyHeader != null) {
+            String value = request.getHeader(keyHeader, null);
+            key = value != null ? HEADER_KEY + value : null;
+        } else if (keyParam != null) {
+            String value = request.getParam(keyParam, null);
+            key = value != null ? PARAM_KEY + value : null;
+        }
+
+        if (key != null && buckets.size() >= maxBuckets && !buckets.containsKey(key)) {
+            key = null;
+        }
+
+        return key != null ? key : REMOTE_KEY + request.getRemoteAddr();
+    }
+
+    private void evictIdleBuckets(long now) {
+        long next = nextEvictionNanos.get();
+
+        // Only the request which claims the eviction slot sweeps the buckets
+        if (now - next >= 0 && nextEvictionNanos.compareAndSet(next, now + EVICTION_INTERVAL_NANOS)) {
+            long idleSince = now - idleNanos;
+            buckets.values().removeIf(bucket -> bucket.isIdleSince(idleSince));
+        }
+    }
+
+    /**
+     * Rate limits, as bucket intervals
+     */
+    private static final class Limits {
+        private final long intervalNanos;
+        private final long burstNanos;
+
+        Limits(double permitsPerSecond, int burst) {
+            this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+            this.burstNanos = intervalNanos * burst;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket for a single rate limit key
+ * <p>
+ * Rather than counting tokens, the bucket keeps the time at which it will next be
+ * empty (the generic cell rate algorithm). Each permit moves that time forward by one
+ * interval, and a permit is refused if it would move it further ahead than the burst allows.
+ * This needs a single compare-and-set per request, and no refill timer.
+ */
+class TokenBucket {
+    private final AtomicLong emptyAtNanos;
+
+    /**
+     * Create a full bucket
+     *
+     * @param nowNanos Current time, from System.nanoTime()
+     */
+    TokenBucket(long nowNanos) {
+        this.emptyAtNanos = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * Take a permit, if one is available
+     *
+     * @param nowNanos Current time, from System.nanoTime()
+     * @param intervalNanos Time for one permit to be refilled
+     * @param burstNanos Interval multiplied by the burst size
+     * @return True if a permit was taken
+     */
+    boolean tryAcquire(long nowNanos, long intervalNanos, long burstNanos) {
+        while (true) {
+            long emptyAt = emptyAtNanos.get();
+            long next = Math.max(emptyAt, nowNanos) + intervalNanos;
+            if (next - nowNanos > burstNanos) {
+                return false;
+            }
+            if (emptyAtNanos.compareAndSet(emptyAt, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @param nowNanos Current time, from System.nanoTime()
+     * @param intervalNanos Time for one permit to be refilled
+     * @param burstNanos Interval multiplied by the burst size
+     * @return Time until the next permit is available, or zero if one is available now
+     */
+    long nanosUntilAvailable(long nowNanos, long intervalNanos, long burstNanos) {
+        return Math.max(0, emptyAtNanos.get() + intervalNanos - burstNanos - nowNanos);
+    }
+
+    /**
+     * @param nowNanos Current time, from System.nanoTime()
+     * @return True if the bucket has been full since the given time, and can be dropped
+     */
+    boolean isIdleSince(long nowNanos) {
+        return emptyAtNanos.get() <= nowNanos;
+    }
+}
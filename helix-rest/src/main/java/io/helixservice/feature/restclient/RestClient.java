@@ -13,6 +13,7 @@
 
 package io.helixservice.feature.restclient;
 
+import io.helixservice.core.container.InFlightRequests;
 import io.helixservice.feature.restservice.marshal.Marshaller;
 import io.vertx.core.http.HttpClient;
 
@@ -31,13 +32,18 @@ import java.util.function.Supplier;
 public class RestClient {
     private Supplier<Marshaller> marshallerSupplier;
     private Supplier<HttpClient> httpClient;
+    private Supplier<InFlightRequests> inFlightRequests;
+    private Supplier<RestClientMetrics> clientMetrics;
 
     /**
      * Use RestClientFeature.restClient() to instantiate
      */
-    RestClient(Supplier<Marshaller> marshallerSupplier, Supplier<HttpClient> httpClient) {
+    RestClient(Supplier<Marshaller> marshallerSupplier, Supplier<HttpClient> httpClient,
+            Supplier<InFlightRequests> inFlightRequests, Supplier<RestClientMetrics> clientMetrics) {
         this.marshallerSupplier = marshallerSupplier;
         this.httpClient = httpClient;
+        this.inFlightRequests = inFlightRequests;
+        this.clientMetrics = clientMetrics;
     }
 
     /**
@@ -47,7 +53,7 @@ public class RestClient {
      * @return The un-executed request object
      */
     public RestRequest get(String uriPath) {
-        return new RestRequest(marshallerSupplier, httpClient, HttpMethod.GET, uriPath, Optional.empty());
+        return new RestRequest(marshallerSupplier, httpClient, inFlightRequests, clientMetrics, HttpMethod.GET, uriPath, Optional.empty());
     }
 
     /**
@@ -57,7 +63,7 @@ public class RestClient {
      * @return The un-executed request object
      */
     public RestRequest head(String uriPath) {
-        return new RestRequest(marshallerSupplier, httpClient, HttpMethod.HEAD, uriPath, Optional.empty());
+        return new RestRequest(marshallerSupplier, httpClient, inFlightRequests, clientMetrics, HttpMethod.HEAD, uriPath, Optional.empty());
     }
 
     /**
@@ -67,7 +73,7 @@ public class RestClient {
      * @return The un-executed request object
      */
     public RestRequest options(String uriPath) {
-        return new RestRequest(marshallerSupplier, httpClient, HttpMethod.OPTIONS, uriPath, Optional.empty());
+        return new RestRequest(marshallerSupplier, httpClient, inFlightRequests, clientMetrics, HttpMethod.OPTIONS, uriPath, Optional.empty());
     }
 
     /**
@@ -78,7 +84,7 @@ public class RestClient {
      * @return The un-executed request object
      */
     public RestRequest post(String uriPath, Object requestBody) {
-        return new RestRequest(marshallerSupplier, httpClient, HttpMethod.POST, uriPath, Optional.of(requestBody));
+        return new RestRequest(marshallerSupplier, httpClient, inFlightRequests, clientMetrics, HttpMethod.POST, uriPath, Optional.of(requestBody));
     }
 
     /**
@@ -89,7 +95,7 @@ public class RestClient {
      * @return The un-executed request object
      */
     public RestRequest put(String uriPath, Object requestBody) {
-        return new RestRequest(marshallerSupplier, httpClient, HttpMethod.PUT, uriPath, Optional.of(requestBody));
+        return new RestRequest(marshallerSupplier, httpClient, inFlightRequests, clientMetrics, HttpMethod.PUT, uriPath, Optional.of(requestBody));
     }
 
     /**
@@ -100,7 +106,7 @@ public class RestClient {
      * @return The un-executed request object
      */
     public RestRequest patch(String uriPath, Object requestBody) {
-        return new RestRequest(marshallerSupplier, httpClient, HttpMethod.PATCH, uriPath, Optional.of(requestBody));
+        return new RestRequest(marshallerSupplier, httpClient, inFlightRequests, clientMetrics, HttpMethod.PATCH, uriPath, Optional.of(requestBody));
     }
 
     /**
@@ -111,7 +117,7 @@ public class RestClient {
      * @return The un-executed request object
      */
     public RestRequest delete(String uriPath, Object requestBody) {
-        return new RestRequest(marshallerSupplier, httpClient, HttpMethod.DELETE, uriPath, Optional.of(requestBody));
+        return new RestRequest(marshallerSupplier, httpClient, inFlightRequests, clientMetrics, HttpMethod.DELETE, uriPath, Optional.of(requestBody));
     }
 
     /**
@@ -123,7 +129,7 @@ public class RestClient {
      * @return The un-executed request object
      */
     public RestRequest request(HttpMethod httpMethod, String uriPath, Object requestBody) {
-        return new RestRequest(marshallerSupplier, httpClient, httpMethod, uriPath, Optional.ofNullable(requestBody));
+        return new RestRequest(marshallerSupplier, httpClient, inFlightRequests, clientMetrics, httpMethod, uriPath, Optional.ofNullable(requestBody));
     }
 
 
@@ -135,6 +141,6 @@ public class RestClient {
      * @return The un-executed request object
      */
     public RestRequest request(HttpMethod httpMethod, String uriPath) {
-        return new RestRequest(marshallerSupplier, httpClient, httpMethod, uriPath, Optional.empty());
+        return new RestRequest(marshallerSupplier, httpClient, inFlightRequests, clientMetrics, httpMethod, uriPath, Optional.empty());
     }
 }
@@ -13,11 +13,17 @@
 
 package io.helixservice.feature.restclient;
 
+import io.helixservice.core.container.Container;
+import io.helixservice.core.container.InFlightRequests;
 import io.helixservice.core.feature.AbstractFeature;
+import io.helixservice.core.feature.Feature;
 import io.helixservice.feature.restservice.marshal.Marshaller;
 import io.helixservice.feature.vertx.VertxNativeFeature;
 import io.vertx.core.http.HttpClientOptions;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * Provides a simple API for calling REST endpoints.
  * <p>
@@ -31,11 +37,22 @@ import io.vertx.core.http.HttpClientOptions;
  * This feature uses the Marshaller registered with this Feature.
  * By Default, Jackson's ObjectMapper is used.  To register a different
  * Marshaller, call restClientFeature.register(customMarshaller).
+ * <p>
+ * Requests made while handling a request with a Deadline have their timeout
+ * capped to the remaining budget, and forward it in the X-Request-Timeout-Ms header.
+ * Once the deadline has passed, requests fail with DeadlineExceededException
+ * without being sent, which is recorded through the client's RestClientMetrics.
+ * <p>
+ * When a RestClientMetricsFactory is registered, for example by the MetricsFeature,
+ * the duration and status of each request are recorded per HTTP client name.
  *
  * @see <a href="http://unirest.io/java.html">unirest.io</a>
  */
 public class RestClientFeature extends AbstractFeature {
     private VertxNativeFeature vertxNativeFeature;
+    private InFlightRequests inFlightRequests = new InFlightRequests();
+    private RestClientMetricsFactory clientMetricsFactory;
+    private final Map<String, RestClientMetrics> clientMetrics = new ConcurrentHashMap<>();
 
     /**
      * Create this REST client feature, which uses Vert.x for its underlying HTTP implementation
@@ -46,6 +63,19 @@ public class RestClientFeature extends AbstractFeature {
         this.vertxNativeFeature = vertxNativeFeature;
     }
 
+    @Override
+    public void start(Container container) {
+        inFlightRequests = container.getInFlightRequests();
+
+        for (Feature feature : container.getFeatures()) {
+            RestClientMetricsFactory factory = feature.findComponentByType(RestClientMetricsFactory.TYPE_NAME, null);
+            if (factory != null) {
+                clientMetricsFactory = factory;
+                break;
+            }
+        }
+    }
+
     /**
      * Create a new REST client. The REST client here is not cached,
      * so only call this method once and reuse the returned REST client.
@@ -64,7 +94,8 @@ public class RestClientFeature extends AbstractFeature {
      * @return A new REST client, with the given name
      */
     public RestClient restClient(String httpClientName) {
-        return new RestClient(this::getMarshaller, vertxNativeFeature.httpClient(httpClientName));
+        return new RestClient(this::getMarshaller, vertxNativeFeature.httpClient(httpClientName),
+                this::getInFlightRequests, () -> getClientMetrics(httpClientName));
     }
 
     /**
@@ -76,7 +107,20 @@ public class RestClientFeature extends AbstractFeature {
      * @return A new REST client, with the given name
      */
     public RestClient restClient(String httpClientName, HttpClientOptions httpClientOptions) {
-        return new RestClient(this::getMarshaller, vertxNativeFeature.httpClient(httpClientName, httpClientOptions));
+        return new RestClient(this::getMarshaller, vertxNativeFeature.httpClient(httpClientName, httpClientOptions),
+                this::getInFlightRequests, () -> getClientMetrics(httpClientName));
+    }
+
+    private InFlightRequests getInFlightRequests() {
+        return inFlightRequests;
+    }
+
+    private RestClientMetrics getClientMetrics(String httpClientName) {
+        if (clientMetricsFactory == null) {
+            // Not started yet, or no metrics factory is registered
+            return RestClientMetrics.NONE;
+        }
+        return clientMetrics.computeIfAbsent(httpClientName, clientMetricsFactory::forClient);
     }
 
     private Marshaller getMarshaller() {
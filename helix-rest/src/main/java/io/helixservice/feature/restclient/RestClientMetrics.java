@@ -0,0 +1,42 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.restclient;
+
+/**
+ * Metric handles for the requests made by one named REST client
+ * <p>
+ * Implementations must be thread-safe.
+ *
+ * @see RestClientMetricsFactory
+ */
+@FunctionalInterface
+public interface RestClientMetrics {
+    /**
+     * Handles which record nothing, used when no RestClientMetricsFactory is registered
+     */
+    RestClientMetrics NONE = (durationNanos, statusCode) -> { };
+
+    /**
+     * Record a completed request
+     *
+     * @param durationNanos Time from sending the request to reading the whole response body, in nanoseconds
+     * @param statusCode HTTP status code of the response, or -1 if no response was received
+     */
+    void recordRequest(long durationNanos, int statusCode);
+
+    /**
+     * Record a request that was not sent, because the deadline of the request being handled had passed
+     */
+    default void recordDeadlineExceeded() {
+    }
+}
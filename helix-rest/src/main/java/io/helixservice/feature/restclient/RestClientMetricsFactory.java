@@ -0,0 +1,42 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.restclient;
+
+import io.helixservice.core.component.Component;
+
+/**
+ * Component which creates the metric handles for each REST client
+ * <p>
+ * Register a factory with any feature, for example the MetricsFeature, to record
+ * REST client metrics. Without one, REST client requests are not measured.
+ */
+@FunctionalInterface
+public interface RestClientMetricsFactory extends Component {
+    String TYPE_NAME = "RestClientMetricsFactory";
+
+    /**
+     * Create the metric handles for a REST client
+     *
+     * @param httpClientName Name of the HTTP client the REST client uses
+     * @return Metric handles for requests made with that HTTP client
+     */
+    RestClientMetrics forClient(String httpClientName);
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    default String getComponentType() {
+        return TYPE_NAME;
+    }
+}
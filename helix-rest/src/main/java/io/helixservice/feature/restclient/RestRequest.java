@@ -16,9 +16,12 @@ package io.helixservice.feature.restclient;
 import co.paralleluniverse.fibers.SuspendExecution;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
+import io.helixservice.core.container.InFlightRequests;
+import io.helixservice.core.execution.Deadline;
+import io.helixservice.core.execution.DeadlineExceededException;
+import io.helixservice.core.util.BufferOutputStream;
 import io.helixservice.core.util.VertxTypeConverter;
 import io.helixservice.feature.restservice.marshal.Marshaller;
-import io.helixservice.feature.restservice.marshal.Message;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.http.HttpClient;
 import io.vertx.core.http.HttpClientRequest;
@@ -33,7 +36,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.function.Supplier;
 
-import static io.vertx.ext.sync.Sync.awaitEvent;
+import static io.helixservice.core.execution.Await.awaitEvent;
 
 /**
  * Fluent interface for a pending REST request
@@ -41,6 +44,8 @@ import static io.vertx.ext.sync.Sync.awaitEvent;
 public class RestRequest {
     private final Supplier<Marshaller> marshallerSupplier;
     private final Supplier<HttpClient> httpClient;
+    private final Supplier<InFlightRequests> inFlightRequests;
+    private final Supplier<RestClientMetrics> clientMetrics;
     private final HttpMethod method;
     private final String urlPath;
     private final Optional<Object> requestBody;
@@ -49,6 +54,7 @@ public class RestRequest {
     private Map<String, String> pathVariables = new HashMap<>();
     private Map<String, String> parameters = new HashMap<>();
     private Long timeoutInMs;
+    private String bodyContentType;
     private boolean useDefaultHostAndPort = false;
 
 
@@ -56,9 +62,11 @@ public class RestRequest {
      * Use RestClient factory methods to create the initial RestRequest
      */
     RestRequest(Supplier<Marshaller> marshallerSupplier, Supplier<HttpClient> httpClient,
-            HttpMethod method, String urlPath, Optional<Object> requestBody) {
+            Supplier<InFlightRequests> inFlightRequests, Supplier<RestClientMetrics> clientMetrics, HttpMethod method, String urlPath, Optional<Object> requestBody) {
         this.marshallerSupplier = marshallerSupplier;
         this.httpClient = httpClient;
+        this.inFlightRequests = inFlightRequests;
+        this.clientMetrics = clientMetrics;
         this.method = method;
         this.urlPath = urlPath;
         this.requestBody = requestBody;
@@ -66,6 +74,7 @@ public class RestRequest {
 
     /**
      * Set a timeout for this request. Overrides the default HTTP timeout defined in VertxHTTPOptions.
+     * The timeout is reduced to the time remaining, if the current request has a Deadline.
      *
      * @param timeoutInMs Timeout in milliseconds
      */
@@ -121,6 +130,35 @@ public class RestRequest {
         return this;
     }
 
+    /**
+     * Ask the server for a response body in one of these content types, in order of preference.
+     * <p>
+     * Helix services with a NegotiatingMarshaller answer in a binary format such as
+     * application/x-jackson-smile when asked, and in JSON otherwise.
+     * The response is read according to its Content-Type, so the RestClientFeature
+     * should also have a NegotiatingMarshaller registered.
+     *
+     * @param contentTypes HTTP mime content types, for example NegotiatingMarshaller.SMILE
+     * @return This fluent interface
+     */
+    public RestRequest accept(String... contentTypes) {
+        this.headers.removeAll("Accept");
+        this.headers.put("Accept", String.join(", ", contentTypes));
+        return this;
+    }
+
+    /**
+     * Send the request body in this content type, if the registered Marshaller supports it.
+     * The Content-Type header sent always matches the encoding actually used.
+     *
+     * @param contentType HTTP mime content type, for example NegotiatingMarshaller.SMILE
+     * @return This fluent interface
+     */
+    public RestRequest contentType(String contentType) {
+        this.bodyContentType = contentType;
+        return this;
+    }
+
     /**
      * Replace REST path variable inside the provided URI.
      * <p>
@@ -207,8 +245,19 @@ public class RestRequest {
      * @param responseType Type we expect the response to be marshaled to
      * @return RestResponse fluent interface
      * @throws SuspendExecution For Vert.x Sync
+     * @throws DeadlineExceededException If the current request's deadline has passed, the request is not sent
      */
     public <T> RestResponse<T> asObject(Class<T> responseType) throws SuspendExecution {
+        Deadline deadline = Deadline.current();
+        if (deadline != null && deadline.isExpired()) {
+            clientMetrics.get().recordDeadlineExceeded();
+            throw new DeadlineExceededException("Deadline passed before sending " + method + " " + urlPath);
+        }
+
+        InFlightRequests inFlight = inFlightRequests.get();
+        inFlight.begin();
+        long start = System.nanoTime();
+        int statusCode = -1;
         try {
             // Apply Params & Url Vars
             String modifiedUrlPath = addParameters(replaceUrlVars(urlPath));
@@ -225,35 +274,45 @@ public class RestRequest {
                         modifiedUrlPath);
             }
 
-            // Set timeout, if requested
-            if (timeoutInMs != null) {
-                request.setTimeout(timeoutInMs);
+            // Set timeout, if requested, but never beyond the deadline
+            Long timeout = timeoutInMs;
+            if (deadline != null) {
+                long remainingMillis = Math.max(1, deadline.remainingMillis());
+                timeout = timeout == null ? remainingMillis : Math.min(timeout, remainingMillis);
+            }
+            if (timeout != null) {
+                request.setTimeout(timeout);
             }
 
             // With headers
             request.headers().addAll(VertxTypeConverter.toVertxMultiMap(headers));
 
+            // Forward the remaining budget, so the next service stops when we do
+            if (deadline != null && !request.headers().contains(Deadline.TIMEOUT_HEADER)) {
+                request.putHeader(Deadline.TIMEOUT_HEADER, Long.toString(timeout));
+            }
+
             // Write body if we need to
             Buffer body = Buffer.buffer();
             if (requestBody.isPresent()) {
-                request.setChunked(true);
-                Message message = marshallerSupplier.get().marshal(requestBody);
-
-                List<String> contentTypes = message.getContentTypes();
+                List<String> contentTypes = marshallerSupplier.get().marshal(requestBody.get(),
+                        new BufferOutputStream(body), bodyContentType);
                 if (contentTypes != null && contentTypes.size() > 0) {
                     request.putHeader("Content-Type", contentTypes);
                 }
-
-                body = body.appendBytes(message.getBody());
             }
 
             // Wait for response with Vert.x Sync
             HttpClientResponse httpClientResponse = getHttpClientResponse(request, body);
             Buffer bodyBuffer = getBuffer(httpClientResponse);
+            statusCode = httpClientResponse.statusCode();
 
             return new RestResponse<>(httpClientResponse, bodyBuffer, marshallerSupplier, responseType);
         } catch (URISyntaxException | UnsupportedEncodingException e) {
             throw new IllegalArgumentException("Unable to parse urlPath=" + urlPath, e);
+        } finally {
+            inFlight.end();
+            clientMetrics.get().recordRequest(System.nanoTime() - start, statusCode);
         }
     }
 
@@ -262,7 +321,7 @@ public class RestRequest {
     }
 
     private HttpClientResponse getHttpClientResponse(HttpClientRequest request, Buffer body) throws SuspendExecution {
-        return awaitEvent(h -> { request.handler(h); request.write(body); request.end(); });
+        return awaitEvent(h -> { request.handler(h); request.end(body); });
     }
 
     private String addParameters(String urlPath) throws URISyntaxException, UnsupportedEncodingException {
@@ -17,7 +17,7 @@ import com.google.common.collect.Multimap;
 import io.helixservice.feature.restservice.error.jsonapi.ErrorResponse;
 import io.helixservice.core.util.VertxTypeConverter;
 import io.helixservice.feature.restservice.marshal.Marshaller;
-import io.helixservice.feature.restservice.marshal.Message;
+import io.netty.buffer.ByteBufInputStream;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.http.HttpClientResponse;
 
@@ -95,8 +95,8 @@ public class RestResponse<T> {
         } else if (byte[].class.equals(successType)) {
             result = (T) getBodyAsBytes();
         } else {
-            Message message = new Message(body.getBytes(), response.getHeader("Content-Type"));
-            result = (T) marshallerSupplier.get().unmarshal(successType, message);
+            result = (T) marshallerSupplier.get().unmarshal(successType,
+                    new ByteBufInputStream(body.getByteBuf()), response.headers().getAll("Content-Type"));
         }
 
         return result;
@@ -133,8 +133,8 @@ public class RestResponse<T> {
         } else if (byte[].class.equals(clazz)) {
             result = (T) getBodyAsBytes();
         } else {
-            Message message = new Message(body.getBytes(), response.getHeader("Content-Type"));
-            result = (T) marshallerSupplier.get().unmarshal(clazz, message);
+            result = (T) marshallerSupplier.get().unmarshal(clazz,
+                    new ByteBufInputStream(body.getByteBuf()), response.headers().getAll("Content-Type"));
         }
 
         return result;
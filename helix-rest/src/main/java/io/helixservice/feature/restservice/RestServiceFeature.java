@@ -13,12 +13,27 @@
 
 package io.helixservice.feature.restservice;
 
+import io.helixservice.core.container.VertxOptionsCustomizer;
+import io.helixservice.core.execution.ExecutionEngine;
+import io.helixservice.core.execution.ExecutionMetrics;
+import io.helixservice.core.execution.FiberExecutionEngine;
+import io.helixservice.core.execution.ThreadExecutionEngine;
 import io.helixservice.core.feature.AbstractFeature;
+import io.helixservice.core.feature.Feature;
 import io.helixservice.core.container.Container;
+import io.helixservice.feature.configuration.ConfigProperty;
 import io.helixservice.feature.configuration.provider.ConfigProvider;
+import io.helixservice.feature.restservice.controller.ConcurrencyLimiter;
+import io.helixservice.feature.restservice.controller.MarshallingExecutor;
+import io.helixservice.feature.restservice.controller.component.Endpoint;
 import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
 import io.vertx.ext.web.Router;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.function.Supplier;
 
 /**
@@ -32,25 +47,147 @@ import java.util.function.Supplier;
  * <li>Filter support for intercepting REST requests</li>
  * <li>Error handling support, </li>
  * </ul>
+ * <p>
+ * One RestServiceVerticle instance is deployed per event loop by default, each with its own Router.
+ * Vert.x distributes incoming connections across the instances sharing the server port.
+ * The number of event loops and instances can be tuned using the configuration
+ * properties <b>vertx.server.eventLoops</b> and <b>vertx.server.instances</b>.
+ * <p>
+ * Request handling runs on Quasar fibers by default. Setting <b>vertx.server.executionEngine</b>
+ * to "thread" runs request handling on a pool of <b>vertx.server.executionThreads</b> blocking
+ * request threads instead, which does not require the Quasar java agent. At most
+ * <b>vertx.server.executionQueueSize</b> (default 1000) requests wait for a request thread,
+ * beyond that they are rejected with HTTP 503.
+ * <p>
+ * Request bodies larger than <b>vertx.server.maxBodyBytes</b> are rejected with HTTP 413.
+ * The limit is unset by default, and endpoints may set their own. Endpoints taking a
+ * RequestBodyStream or SpooledRequestBody read their body as it arrives; spooled bodies are
+ * written to <b>vertx.server.bodySpoolDirectory</b>, which defaults to java.io.tmpdir.
+ * <p>
+ * Responses of at least <b>vertx.server.compression.minSizeBytes</b> (default 1024) are compressed
+ * with gzip or deflate when the client accepts it, at <b>vertx.server.compression.level</b> (default 6).
+ * Set <b>vertx.server.compression.enabled</b> to false to turn this off, or set
+ * <b>vertx.server.compression.cacheMaxBytes</b> to cache the compressed form of identical responses.
+ * <p>
+ * Setting <b>vertx.server.concurrencyLimit.enabled</b> gives each endpoint an adaptive concurrency limit,
+ * starting at <b>vertx.server.concurrencyLimit.initial</b> and kept between <b>vertx.server.concurrencyLimit.min</b>
+ * and <b>vertx.server.concurrencyLimit.max</b>. Requests over the limit are rejected with HTTP 503 and Retry-After.
+ * <p>
+ * Request and response bodies of at least <b>vertx.server.marshalling.offloadThresholdBytes</b> (default 1048576)
+ * are marshalled on one of <b>vertx.server.marshalling.threads</b> (default 4) marshalling threads while the fiber
+ * suspends, so that they do not stall the event loop. At most <b>vertx.server.marshalling.queueSize</b> (default 100)
+ * bodies wait for a thread, beyond that they are marshalled on the event loop. Endpoints may set their own threshold,
+ * and -1 turns this off. The metric <b>controller.endpoint.marshalling.eventloop.nanos</b> records the time each
+ * request spent marshalling on the event loop.
  */
 public class RestServiceFeature extends AbstractFeature {
-    private Router router;
+    private List<Router> routers = new ArrayList<>();
     private ConfigProvider configProvider;
+    private ExecutionEngine executionEngine;
+    private MarshallingExecutor marshallingExecutor;
 
     public RestServiceFeature(ConfigProvider configProvider) {
         this.configProvider = configProvider;
+        this.executionEngine = createExecutionEngine();
+        this.marshallingExecutor = createMarshallingExecutor();
+
+        register(executionEngine);
+        register((VertxOptionsCustomizer) vertxOptions -> vertxOptions.setEventLoopPoolSize(eventLoops()));
+    }
+
+    @Override
+    public boolean shouldStartAfterOtherFeatures() {
+        return true;
     }
 
     @Override
     public void start(Container container) {
         Vertx vertx = container.getVertx().get();
-        router = Router.router(vertx);
+        configureConcurrencyLimits(container);
+        executionEngine.setExecutionMetrics(ExecutionMetrics.find(container));
+
+        int instances = new ConfigProperty(configProvider, "vertx.server.instances",
+                String.valueOf(eventLoops())).asInt();
+
+        List<Router> newRouters = new ArrayList<>(instances);
+        for (int i = 0; i < instances; i++) {
+            Router router = Router.router(vertx);
+            newRouters.add(router);
 
-        RestServiceVerticle restServiceVerticle = new RestServiceVerticle(configProvider, container, router);
-        vertx.deployVerticle(restServiceVerticle);
+            RestServiceVerticle restServiceVerticle = new RestServiceVerticle(configProvider, container, router,
+                    executionEngine, marshallingExecutor);
+            vertx.deployVerticle(restServiceVerticle);
+        }
+        routers = newRouters;
+    }
+
+    @Override
+    public void stop(Container container) {
+        executionEngine.close();
+        marshallingExecutor.close();
     }
 
+    /**
+     * @return Supplier of the Router used by the first RestServiceVerticle instance
+     */
     public Supplier<Router> getRouter() {
-        return () -> router;
+        return () -> routers.isEmpty() ? null : routers.get(0);
+    }
+
+    /**
+     * @return Supplier of the Routers, one for each deployed RestServiceVerticle instance
+     */
+    public Supplier<List<Router>> getRouters() {
+        return () -> Collections.unmodifiableList(routers);
+    }
+
+    private void configureConcurrencyLimits(Container container) {
+        if (!new ConfigProperty(configProvider, "vertx.server.concurrencyLimit.enabled", "false").isTrue()) {
+            return;
+        }
+
+        int initialLimit = new ConfigProperty(configProvider, "vertx.server.concurrencyLimit.initial", "20").asInt();
+        int minLimit = new ConfigProperty(configProvider, "vertx.server.concurrencyLimit.min", "1").asInt();
+        int maxLimit = new ConfigProperty(configProvider, "vertx.server.concurrencyLimit.max", "1000").asInt();
+
+        // Limiters are shared by all verticle instances, so they are created here rather than per instance
+        for (Feature feature : container.getFeatures()) {
+            Collection<Endpoint> endpoints = feature.findComponentByType(Endpoint.TYPE_NAME);
+            for (Endpoint endpoint : endpoints) {
+                if (endpoint.getConcurrencyLimiter() == null) {
+                    endpoint.setConcurrencyLimiter(new ConcurrencyLimiter(initialLimit, minLimit, maxLimit));
+                }
+            }
+        }
+    }
+
+    private ExecutionEngine createExecutionEngine() {
+        String engineName = new ConfigProperty(configProvider, "vertx.server.executionEngine",
+                FiberExecutionEngine.NAME).getValue();
+
+        if (ThreadExecutionEngine.NAME.equalsIgnoreCase(engineName)) {
+            int threads = new ConfigProperty(configProvider, "vertx.server.executionThreads", "200").asInt();
+            int queueSize = new ConfigProperty(configProvider, "vertx.server.executionQueueSize", "1000").asInt();
+            return new ThreadExecutionEngine(threads, queueSize);
+        } else if (FiberExecutionEngine.NAME.equalsIgnoreCase(engineName)) {
+            return new FiberExecutionEngine();
+        }
+
+        throw new IllegalArgumentException("Unknown vertx.server.executionEngine=" + engineName);
+    }
+
+    private MarshallingExecutor createMarshallingExecutor() {
+        long thresholdBytes = Long.parseLong(new ConfigProperty(configProvider,
+                "vertx.server.marshalling.offloadThresholdBytes", "1048576").getValue());
+        int threads = new ConfigProperty(configProvider, "vertx.server.marshalling.threads", "4").asInt();
+        int queueSize = new ConfigProperty(configProvider, "vertx.server.marshalling.queueSize", "100").asInt();
+
+        // Shared by all verticle instances, so the pool is bounded server-wide
+        return new MarshallingExecutor(thresholdBytes, threads, queueSize);
+    }
+
+    private int eventLoops() {
+        return new ConfigProperty(configProvider, "vertx.server.eventLoops",
+                String.valueOf(VertxOptions.DEFAULT_EVENT_LOOP_POOL_SIZE)).asInt();
     }
 }
@@ -16,16 +16,28 @@ package io.helixservice.feature.restservice;
 import io.helixservice.core.feature.Feature;
 import io.helixservice.core.container.Container;
 import io.helixservice.core.container.ContainerState;
+import io.helixservice.core.container.InFlightRequests;
+import io.helixservice.core.execution.Deadline;
+import io.helixservice.core.execution.ExecutionEngine;
+import io.helixservice.core.execution.ThreadExecutionEngine;
 import io.helixservice.feature.configuration.ConfigProperty;
 import io.helixservice.feature.configuration.provider.ConfigProvider;
+import io.helixservice.feature.restservice.controller.ConcurrencyLimiter;
 import io.helixservice.feature.restservice.controller.VertxRequestHandler;
 import io.helixservice.feature.restservice.controller.HttpMethod;
+import io.helixservice.feature.restservice.controller.MarshallingExecutor;
+import io.helixservice.feature.restservice.controller.ResponseCloseHandlers;
+import io.helixservice.feature.restservice.controller.ResponseCompressor;
 import io.helixservice.feature.restservice.controller.component.Endpoint;
+import io.helixservice.feature.restservice.controller.metrics.EndpointMetricsFactory;
 import io.helixservice.feature.restservice.error.ErrorHandlerFunction;
 import io.helixservice.feature.restservice.error.ErrorHandlerRegistry;
+import io.helixservice.feature.restservice.filter.FilterChain;
+import io.helixservice.feature.restservice.filter.FilterContext;
 import io.helixservice.feature.restservice.filter.FilterHandler;
 import io.helixservice.feature.restservice.filter.component.FilterComponent;
 import io.helixservice.feature.restservice.marshal.Marshaller;
+import co.paralleluniverse.fibers.Suspendable;
 import io.vertx.core.Handler;
 import io.vertx.core.http.HttpServer;
 import io.vertx.core.http.HttpServerOptions;
@@ -34,41 +46,64 @@ import io.vertx.ext.sync.SyncVerticle;
 import io.vertx.ext.web.Router;
 import io.vertx.ext.web.RoutingContext;
 import io.vertx.ext.web.handler.BodyHandler;
+import io.vertx.ext.web.impl.Utils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.file.Paths;
 import java.util.Collection;
-
-import static io.vertx.ext.sync.Sync.fiberHandler;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Primary Verticle for the Helix REST Service
+ * <p>
+ * Endpoints are compiled at startup into a RouteTrie, each with its own precomputed
+ * FilterChain, so a request is dispatched with one lookup. Filter routes are only
+ * evaluated by Vert.x for requests which match no endpoint.
  */
 @SuppressWarnings("unused")
 public class RestServiceVerticle extends SyncVerticle {
     private static final Logger LOG = LoggerFactory.getLogger(RestServiceVerticle.class);
     private static final int FINISHING_STATUS_CODE = 599;
+    private static final int REQUEST_TOO_LARGE_STATUS_CODE = 413;
+    private static final int OVERLOADED_STATUS_CODE = 503;
+    private static final int REQUEST_TIMEOUT_STATUS_CODE = 408;
+    private static final String RETRY_AFTER_SECONDS = "1";
+    private static final int BAD_REQUEST_STATUS_CODE = 400;
+    private static final String ENDPOINT_ROUTE = "RestServiceVerticle.endpointRoute";
 
     private ConfigProvider configProvider;
     private final Container container;
     private final Router router;
+    private final ExecutionEngine executionEngine;
+    private final MarshallingExecutor marshallingExecutor;
+    private long maxBodyBytes;
+    private String bodySpoolDirectory;
+    private ResponseCompressor responseCompressor;
+    private RouteTrie<EndpointRoute> endpointRoutes;
+    private EndpointMetricsFactory endpointMetricsFactory;
 
-    public RestServiceVerticle(ConfigProvider configProvider, Container container, Router router) {
+    public RestServiceVerticle(ConfigProvider configProvider, Container container, Router router,
+            ExecutionEngine executionEngine, MarshallingExecutor marshallingExecutor) {
         this.configProvider = configProvider;
         this.container = container;
         this.router = router;
+        this.executionEngine = executionEngine;
+        this.marshallingExecutor = marshallingExecutor;
     }
 
     @Override
     public void start() throws Exception {
         try {
-            ConfigProperty port = new ConfigProperty(configProvider, "vertx.server.port");
-
-            HttpServerOptions serverOptions = new HttpServerOptions().setPort(port.asInt());
-            HttpServer httpServer = vertx.createHttpServer(serverOptions);
+            HttpServer httpServer = vertx.createHttpServer(buildServerOptions());
+            configureBodyLimits();
+            configureCompression();
+            endpointRoutes = compileEndpointRoutes();
 
-            router.route().handler(fiberHandler(finisher(BodyHandler.create())));
-            configureFeatures();
+            // The finisher finds the endpoint and applies its policy, then the dispatcher runs its filter chain
+            router.route().handler(executionEngine.handler(finisher(new EndpointPolicy(false, maxBodyBytes, null))));
+            router.route().handler(executionEngine.handler(new EndpointDispatcher()));
+            configureFilters();
 
             httpServer.requestHandler(getHandler(router)).listen();
         } catch (Throwable t) {
@@ -77,56 +112,295 @@ public class RestServiceVerticle extends SyncVerticle {
         }
     }
 
-    private Handler<RoutingContext> finisher(BodyHandler bodyHandler) {
+    private HttpServerOptions buildServerOptions() {
+        ConfigProperty port = new ConfigProperty(configProvider, "vertx.server.port");
+        ConfigProperty acceptBacklog = new ConfigProperty(configProvider, "vertx.server.acceptBacklog",
+                String.valueOf(HttpServerOptions.DEFAULT_ACCEPT_BACKLOG));
+        ConfigProperty tcpNoDelay = new ConfigProperty(configProvider, "vertx.server.tcpNoDelay",
+                String.valueOf(HttpServerOptions.DEFAULT_TCP_NO_DELAY));
+        ConfigProperty idleTimeout = new ConfigProperty(configProvider, "vertx.server.idleTimeoutSeconds",
+                String.valueOf(HttpServerOptions.DEFAULT_IDLE_TIMEOUT));
+        ConfigProperty reuseAddress = new ConfigProperty(configProvider, "vertx.server.reuseAddress",
+                String.valueOf(HttpServerOptions.DEFAULT_REUSE_ADDRESS));
+
+        return new HttpServerOptions()
+                .setPort(port.asInt())
+                .setAcceptBacklog(acceptBacklog.asInt())
+                .setTcpNoDelay(tcpNoDelay.isTrue())
+                .setIdleTimeout(idleTimeout.asInt())
+                .setReuseAddress(reuseAddress.isTrue());
+    }
+
+    private void configureBodyLimits() {
+        ConfigProperty maxBodyBytesProperty = new ConfigProperty(configProvider, "vertx.server.maxBodyBytes", "-1");
+        ConfigProperty bodySpoolDirectoryProperty = new ConfigProperty(configProvider, "vertx.server.bodySpoolDirectory",
+                System.getProperty("java.io.tmpdir"));
+
+        maxBodyBytes = Long.parseLong(maxBodyBytesProperty.getValue());
+        bodySpoolDirectory = bodySpoolDirectoryProperty.getValue();
+    }
+
+    private void configureCompression() {
+        ConfigProperty enabled = new ConfigProperty(configProvider, "vertx.server.compression.enabled", "true");
+        ConfigProperty level = new ConfigProperty(configProvider, "vertx.server.compression.level", "6");
+        ConfigProperty minSizeBytes = new ConfigProperty(configProvider, "vertx.server.compression.minSizeBytes", "1024");
+        ConfigProperty cacheMaxBytes = new ConfigProperty(configProvider, "vertx.server.compression.cacheMaxBytes", "0");
+
+        if (enabled.isTrue()) {
+            responseCompressor = new ResponseCompressor(level.asInt(), minSizeBytes.asInt(),
+                    Long.parseLong(cacheMaxBytes.getValue()));
+        }
+    }
+
+    private Handler<RoutingContext> finisher(EndpointPolicy defaultPolicy) {
+        // The request was paused when it arrived, so no body data is read until the policy is known
         return routingContext -> {
+            // Each branch below resumes or closes the request, or leaves the endpoint to resume it as it reads
+            ThreadExecutionEngine.retainPause();
+
+            HttpServerRequest request = routingContext.request();
+            EndpointPolicy policy = defaultPolicy;
+            EndpointRoute route = null;
+            boolean validPath = true;
+
+            try {
+                RouteTrie.Match<EndpointRoute> match = endpointRoutes.find(request.method(),
+                        Utils.normalisePath(request.path(), false));
+                if (match != null) {
+                    request.params().addAll(match.getParams());
+                    route = match.getTarget();
+                    routingContext.put(ENDPOINT_ROUTE, route);
+                    routingContext.put(FilterContext.ENDPOINT_METRICS, route.endpointHandler.getEndpointMetrics(request.method()));
+                    policy = route.policy;
+                    // Filters run within the request's budget, and see its deadline
+                    routingContext.put(VertxRequestHandler.DEADLINE,
+                            VertxRequestHandler.deadlineFor(policy.endpoint, request));
+                }
+            } catch (IllegalArgumentException e) {
+                // A path parameter which is not correctly URL encoded
+                validPath = false;
+            }
+
             if (container.getContainerState() == ContainerState.FINISHING) {
                 routingContext.response().setStatusCode(FINISHING_STATUS_CODE).end();
+                request.resume();
+            } else if (!validPath) {
+                routingContext.response().setStatusCode(BAD_REQUEST_STATUS_CODE).end();
+                request.resume();
+            } else if (policy.isDeclaredTooLarge(request)) {
+                // Reject before reading any of the body, and close since the body is left unread
+                routingContext.response()
+                        .setStatusCode(REQUEST_TOO_LARGE_STATUS_CODE)
+                        .putHeader("Connection", "close")
+                        .end();
+                routingContext.response().close();
+            } else if (policy.concurrencyLimiter != null && !policy.concurrencyLimiter.tryAcquire()) {
+                // Shed load now, rather than queue a request that would only time out
+                route.endpointHandler.getEndpointMetrics(request.method()).recordRejected();
+                routingContext.response()
+                        .setStatusCode(OVERLOADED_STATUS_CODE)
+                        .putHeader("Retry-After", RETRY_AFTER_SECONDS)
+                        .end();
+                request.resume();
+            } else if (policy.streaming) {
+                // The endpoint reads the body itself, resuming the request as it goes
+                trackInFlight(routingContext, policy.concurrencyLimiter);
+                routingContext.next();
             } else {
-                bodyHandler.handle(routingContext);
+                trackInFlight(routingContext, policy.concurrencyLimiter);
+                policy.bodyHandler.handle(routingContext);
+                request.resume();
+            }
+        };
+    }
+
+    private void trackInFlight(RoutingContext routingContext, ConcurrencyLimiter concurrencyLimiter) {
+        InFlightRequests inFlightRequests = container.getInFlightRequests();
+        inFlightRequests.begin();
+        long start = System.nanoTime();
+
+        // Either the response completes, or the connection closes first
+        AtomicBoolean completed = new AtomicBoolean();
+        Handler<Void> bodyEndHandler = event -> {
+            if (completed.compareAndSet(false, true)) {
+                inFlightRequests.end();
+                if (concurrencyLimiter != null) {
+                    concurrencyLimiter.release(System.nanoTime() - start, isDropped(routingContext));
+                }
+            }
+        };
+        Handler<Void> closeHandler = event -> {
+            if (completed.compareAndSet(false, true)) {
+                inFlightRequests.end();
+                if (concurrencyLimiter != null) {
+                    // The client gave up before the response, which is a sign of overload
+                    concurrencyLimiter.release(System.nanoTime() - start, true);
+                }
             }
         };
+        routingContext.addBodyEndHandler(bodyEndHandler);
+        ResponseCloseHandlers.add(routingContext, closeHandler);
     }
 
-    private void configureFeatures() {
+    /**
+     * A request is dropped, a sign of overload, if it failed with 503 or 504, timed out,
+     * or its response was cut short
+     */
+    private static boolean isDropped(RoutingContext routingContext) {
+        int statusCode = routingContext.response().getStatusCode();
+        Deadline deadline = routingContext.get(VertxRequestHandler.DEADLINE);
+
+        return statusCode >= OVERLOADED_STATUS_CODE
+                || statusCode == REQUEST_TIMEOUT_STATUS_CODE
+                || Boolean.TRUE.equals(routingContext.get(VertxRequestHandler.RESPONSE_ABORTED))
+                || (deadline != null && deadline.isExpired());
+    }
+
+    private RouteTrie<EndpointRoute> compileEndpointRoutes() {
+        RouteTrie<EndpointRoute> routes = new RouteTrie<>();
+        FilterChain filterChain = new FilterChain();
+        endpointMetricsFactory = findEndpointMetricsFactory();
+
+        // As Vert.x routes were, each feature's filters apply to its own endpoints and those of later features
         for (Feature feature : container.getFeatures()) {
-            configureFilters(feature);
-            configureEndpoints(feature);
+            Collection<FilterComponent> filters = feature.findComponentByType(FilterComponent.TYPE_NAME);
+            for (FilterComponent filter : filters) {
+                filterChain.add(filter);
+            }
+
+            Collection<Endpoint> endpoints = feature.findComponentByType(Endpoint.TYPE_NAME);
+            for (Endpoint endpoint : endpoints) {
+                long endpointMaxBodyBytes = endpoint.getMaxBodyBytes() >= 0 ? endpoint.getMaxBodyBytes() : maxBodyBytes;
+                VertxRequestHandler endpointHandler = createEndpointHandler(feature, endpoint, endpointMaxBodyBytes);
+                EndpointRoute route = new EndpointRoute(
+                        new EndpointPolicy(endpoint.isStreamingBody(), endpointMaxBodyBytes, endpoint),
+                        filterChain.forEndpoint(endpoint.getPath(), endpointHandler), endpointHandler);
+
+                for (HttpMethod supportedMethod : endpoint.getHttpMethods()) {
+                    routes.add(toVertxHttpMethod(supportedMethod), endpoint.getPath(), route);
+                }
+            }
         }
-    }
 
-    public Handler<HttpServerRequest> getHandler(Router router) {
-        return fiberHandler(router::accept);
+        LOG.info("Compiled " + routes.size() + " endpoint routes with " + filterChain.size() + " filters");
+        return routes;
     }
 
-    private void configureFilters(Feature feature) {
-        Iterable<FilterComponent> filters = feature.findComponentByType(FilterComponent.TYPE_NAME);
-        for (FilterComponent filter : filters) {
-            router.routeWithRegex(filter.getPathRegex()).handler(fiberHandler(new FilterHandler(filter.getFilter())));
+    private EndpointMetricsFactory findEndpointMetricsFactory() {
+        for (Feature feature : container.getFeatures()) {
+            EndpointMetricsFactory factory = feature.findComponentByType(EndpointMetricsFactory.TYPE_NAME, null);
+            if (factory != null) {
+                return factory;
+            }
         }
+
+        // Request metrics are published to the event bus instead
+        return null;
     }
 
-    private void configureEndpoints(Feature feature) {
-        Collection<Endpoint> endpoints = feature.findComponentByType(Endpoint.TYPE_NAME);
+    public Handler<HttpServerRequest> getHandler(Router router) {
+        Handler<HttpServerRequest> engineHandler = executionEngine.requestHandler(router::accept);
 
-        for (Endpoint endpoint : endpoints) {
-            registerEndpoint(feature, endpoint);
+        // Hold the body until the finisher knows how the endpoint wants it read
+        return request -> {
+            request.pause();
+            engineHandler.handle(request);
+        };
+    }
+
+    private void configureFilters() {
+        // Only requests which matched no endpoint reach these routes, such as those answered with a 404
+        for (Feature feature : container.getFeatures()) {
+            Iterable<FilterComponent> filters = feature.findComponentByType(FilterComponent.TYPE_NAME);
+            for (FilterComponent filter : filters) {
+                router.routeWithRegex(filter.getPathRegex()).handler(executionEngine.handler(new FilterHandler(filter.getFilter())));
+            }
         }
     }
 
-    private void registerEndpoint(Feature feature, Endpoint endpoint) {
+    private VertxRequestHandler createEndpointHandler(Feature feature, Endpoint endpoint, long endpointMaxBodyBytes) {
         Marshaller marshaller = feature.findComponentByType(Marshaller.TYPE_NAME, Marshaller.DEFAULT);
+        marshaller.prepare(endpoint.getRequestBodyType(), endpoint.getResponseBodyType());
         Collection<ErrorHandlerFunction> errorHandlers = feature.findComponentByType(ErrorHandlerFunction.TYPE_NAME);
 
         ErrorHandlerRegistry errorHandlerRegistry = new ErrorHandlerRegistry();
         errorHandlerRegistry.addErrorHandlers(errorHandlers);
 
-        VertxRequestHandler handler = new VertxRequestHandler(endpoint,
+        return new VertxRequestHandler(endpoint,
                 marshaller, errorHandlerRegistry,
-                vertx.eventBus());
+                vertx.eventBus(), endpointMaxBodyBytes, Paths.get(bodySpoolDirectory), responseCompressor,
+                marshallingExecutor, endpointMetricsFactory);
+    }
+
+    /**
+     * Runs the filter chain and endpoint found by the finisher,
+     * or passes the request on to the remaining Vert.x routes
+     */
+    private static class EndpointDispatcher implements Handler<RoutingContext> {
+        @Override
+        @Suspendable
+        public void handle(RoutingContext routingContext) {
+            EndpointRoute route = routingContext.get(ENDPOINT_ROUTE);
+            if (route == null) {
+                routingContext.next();
+                return;
+            }
 
-        for (HttpMethod supportedMethod : endpoint.getHttpMethods()) {
-            router.route(toVertxHttpMethod(supportedMethod), endpoint.getPath())
-                    .handler(fiberHandler(handler));
+            // Current while the filters run, so a RequestContext created by a filter keeps the deadline
+            Deadline previousDeadline = Deadline.setCurrent(routingContext.get(VertxRequestHandler.DEADLINE));
+            try {
+                route.handler.handle(routingContext);
+            } finally {
+                Deadline.setCurrent(previousDeadline);
+            }
+        }
+    }
+
+    /**
+     * Endpoint found for a request, with its policy, precomputed filter chain and endpoint handler
+     */
+    private static class EndpointRoute {
+        private final EndpointPolicy policy;
+        private final Handler<RoutingContext> handler;
+        private final VertxRequestHandler endpointHandler;
+
+        EndpointRoute(EndpointPolicy policy, Handler<RoutingContext> handler, VertxRequestHandler endpointHandler) {
+            this.policy = policy;
+            this.handler = handler;
+            this.endpointHandler = endpointHandler;
+        }
+    }
+
+    /**
+     * How the body of a request is read, how large it may be,
+     * and how many requests the endpoint may handle at once
+     */
+    private static class EndpointPolicy {
+        private final boolean streaming;
+        private final long maxBodyBytes;
+        private final BodyHandler bodyHandler;
+        private final ConcurrencyLimiter concurrencyLimiter;
+        private final Endpoint endpoint;
+
+        EndpointPolicy(boolean streaming, long maxBodyBytes, Endpoint endpoint) {
+            this.streaming = streaming;
+            this.maxBodyBytes = maxBodyBytes;
+            this.bodyHandler = BodyHandler.create().setBodyLimit(maxBodyBytes);
+            this.concurrencyLimiter = endpoint == null ? null : endpoint.getConcurrencyLimiter();
+            this.endpoint = endpoint;
+        }
+
+        boolean isDeclaredTooLarge(HttpServerRequest request) {
+            String contentLength = request.getHeader("Content-Length");
+            if (maxBodyBytes < 0 || contentLength == null) {
+                return false;
+            }
+
+            try {
+                return Long.parseLong(contentLength.trim()) > maxBodyBytes;
+            } catch (NumberFormatException e) {
+                return false;
+            }
         }
     }
 
@@ -0,0 +1,324 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.restservice;
+
+import io.vertx.core.http.HttpMethod;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Path trie which finds the target registered for an HTTP method and request path.
+ * <p>
+ * Paths use the Vert.x Web route syntax, and match the same requests a Vert.x route would:
+ * literal segments, whole segment parameters such as <pre>/document/:documentId</pre>
+ * and a trailing <pre>*</pre> for prefix matches. A path the trie cannot represent, such as a
+ * parameter inside a segment, is matched with a regular expression like Vert.x does.
+ * <p>
+ * When more than one path matches a request, the one added first wins, as with Vert.x routes.
+ * The trie is built once and then only read, so lookups do not lock.
+ *
+ * @param <T> Type of target registered for each path
+ */
+class RouteTrie<T> {
+    private static final Pattern PARAM = Pattern.compile(":([A-Za-z][A-Za-z0-9_]*)");
+    private static final Pattern REGEX_CHARS = Pattern.compile("[.*+?^$|()\\[\\]{}\\\\]");
+    private static final String[] NO_PARAMS = new String[0];
+
+    private final Node<T> root = new Node<>();
+    private final List<PatternRoute<T>> patternRoutes = new ArrayList<>();
+    private int maxParams;
+    private int size;
+
+    /**
+     * Add a target for an HTTP method and path
+     *
+     * @param method HTTP method
+     * @param path Vert.x Web route path
+     * @param target Target returned when a request matches
+     */
+    void add(HttpMethod method, String path, T target) {
+        int order = size++;
+
+        if (path.indexOf(':') != -1) {
+            addParameterPath(method, path, target, order);
+        } else if (path.endsWith("*")) {
+            String prefix = path.substring(0, path.length() - 1);
+            if (prefix.endsWith("/")) {
+                nodeFor(segments(prefix), null).prefixRoutes.putIfAbsent(method, new Route<>(target, order, NO_PARAMS, false));
+            } else {
+                patternRoutes.add(new PatternRoute<>(method, Pattern.compile(Pattern.quote(prefix) + ".*"),
+                        new Route<>(target, order, NO_PARAMS, false)));
+            }
+        } else {
+            nodeFor(segments(path), null).exactRoutes.putIfAbsent(method, new Route<>(target, order, NO_PARAMS, false));
+        }
+    }
+
+    /**
+     * Find the target for a request
+     *
+     * @param method HTTP method of the request
+     * @param path Normalised request path
+     * @return The match, or null if no path matches the request
+     * @throws IllegalArgumentException if a path parameter is not correctly URL encoded
+     */
+    Match<T> find(HttpMethod method, String path) {
+        String[] segments = segments(path);
+        Search<T> search = new Search<>(method, segments, path.length() > 1 && path.endsWith("/"), maxParams);
+        search.visit(root, 0, 0);
+
+        for (PatternRoute<T> patternRoute : patternRoutes) {
+            if (search.best != null && search.best.order < patternRoute.route.order) {
+                break;
+            }
+            if (patternRoute.method == method) {
+                Matcher matcher = patternRoute.pattern.matcher(path);
+                if (matcher.matches()) {
+                    search.best = patternRoute.route;
+                    for (int i = 0; i < matcher.groupCount(); i++) {
+                        search.bestValues[i] = matcher.group(i + 1);
+                    }
+                }
+            }
+        }
+
+        return search.best == null ? null : new Match<>(search.best, search.bestValues);
+    }
+
+    /**
+     * @return Number of method and path combinations added
+     */
+    int size() {
+        return size;
+    }
+
+    private void addParameterPath(HttpMethod method, String path, T target, int order) {
+        String[] segments = segments(path);
+        List<String> paramNames = new ArrayList<>();
+        boolean wholeSegments = true;
+
+        for (String segment : segments) {
+            if (segment.startsWith(":") && PARAM.matcher(segment).matches()) {
+                paramNames.add(segment.substring(1));
+            } else if (segment.indexOf(':') != -1 || REGEX_CHARS.matcher(segment).find()) {
+                wholeSegments = false;
+            }
+        }
+
+        if (wholeSegments && !path.endsWith("/")) {
+            String[] names = paramNames.toArray(new String[paramNames.size()]);
+            maxParams = Math.max(maxParams, names.length);
+            nodeFor(segments, names).exactRoutes.putIfAbsent(method, new Route<>(target, order, names, true));
+            return;
+        }
+
+        // Same regular expression Vert.x builds for the path
+        Matcher matcher = PARAM.matcher(path);
+        StringBuffer regex = new StringBuffer();
+        paramNames.clear();
+        while (matcher.find()) {
+            matcher.appendReplacement(regex, "([^/]+)");
+            paramNames.add(matcher.group(1));
+        }
+        matcher.appendTail(regex);
+
+        String[] names = paramNames.toArray(new String[paramNames.size()]);
+        maxParams = Math.max(maxParams, names.length);
+        patternRoutes.add(new PatternRoute<>(method, Pattern.compile(regex.toString()), new Route<>(target, order, names, true)));
+    }
+
+    private Node<T> nodeFor(String[] segments, String[] paramNames) {
+        Node<T> node = root;
+        for (String segment : segments) {
+            if (paramNames != null && segment.startsWith(":") && PARAM.matcher(segment).matches()) {
+                if (node.paramChild == null) {
+                    node.paramChild = new Node<>();
+                }
+                node = node.paramChild;
+            } else {
+                node = node.children.computeIfAbsent(segment, s -> new Node<>());
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Split a path into segments, ignoring the leading slash and one trailing slash
+     */
+    private static String[] segments(String path) {
+        int start = path.startsWith("/") ? 1 : 0;
+        int end = path.length() > start && path.endsWith("/") ? path.length() - 1 : path.length();
+        if (start >= end) {
+            return NO_PARAMS;
+        }
+
+        int count = 1;
+        for (int i = start; i < end; i++) {
+            if (path.charAt(i) == '/') {
+                count++;
+            }
+        }
+
+        String[] segments = new String[count];
+        int segmentStart = start;
+        int segment = 0;
+        for (int i = start; i <= end; i++) {
+            if (i == end || path.charAt(i) == '/') {
+                segments[segment++] = path.substring(segmentStart, i);
+                segmentStart = i + 1;
+            }
+        }
+        return segments;
+    }
+
+    /**
+     * Target found for a request, with the values of its path parameters
+     *
+     * @param <T> Type of target
+     */
+    static final class Match<T> {
+        private final T target;
+        private final Map<String, String> params;
+
+        private Match(Route<T> route, String[] values) {
+            this.target = route.target;
+
+            if (route.paramNames.length == 0) {
+                this.params = Collections.emptyMap();
+            } else {
+                Map<String, String> decoded = new LinkedHashMap<>();
+                for (int i = 0; i < route.paramNames.length; i++) {
+                    decoded.put(route.paramNames[i], urlDecode(values[i]));
+                }
+                this.params = decoded;
+            }
+        }
+
+        /**
+         * @return The target registered for the matching path
+         */
+        T getTarget() {
+            return target;
+        }
+
+        /**
+         * @return Path parameter names and their URL decoded values
+         */
+        Map<String, String> getParams() {
+            return params;
+        }
+
+        private static String urlDecode(String value) {
+            try {
+                return URLDecoder.decode(value, "UTF-8");
+            } catch (UnsupportedEncodingException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private static final class Node<T> {
+        private final Map<String, Node<T>> children = new HashMap<>();
+        private final Map<HttpMethod, Route<T>> exactRoutes = new EnumMap<>(HttpMethod.class);
+        private final Map<HttpMethod, Route<T>> prefixRoutes = new EnumMap<>(HttpMethod.class);
+        private Node<T> paramChild;
+    }
+
+    private static final class Route<T> {
+        private final T target;
+        private final int order;
+        private final String[] paramNames;
+        private final boolean parameterPath;
+
+        Route(T target, int order, String[] paramNames, boolean parameterPath) {
+            this.target = target;
+            this.order = order;
+            this.paramNames = paramNames;
+            this.parameterPath = parameterPath;
+        }
+    }
+
+    private static final class PatternRoute<T> {
+        private final HttpMethod method;
+        private final Pattern pattern;
+        private final Route<T> route;
+
+        PatternRoute(HttpMethod method, Pattern pattern, Route<T> route) {
+            this.method = method;
+            this.pattern = pattern;
+            this.route = route;
+        }
+    }
+
+    /**
+     * Depth first search for the earliest added route matching a request
+     */
+    private static final class Search<T> {
+        private final HttpMethod method;
+        private final String[] segments;
+        private final boolean trailingSlash;
+        private final String[] values;
+        private final String[] bestValues;
+        private Route<T> best;
+
+        Search(HttpMethod method, String[] segments, boolean trailingSlash, int maxParams) {
+            this.method = method;
+            this.segments = segments;
+            this.trailingSlash = trailingSlash;
+            this.values = new String[maxParams];
+            this.bestValues = new String[maxParams];
+        }
+
+        void visit(Node<T> node, int depth, int paramCount) {
+            if (!node.prefixRoutes.isEmpty()) {
+                consider(node.prefixRoutes.get(method), paramCount);
+            }
+
+            if (depth == segments.length) {
+                Route<T> route = node.exactRoutes.get(method);
+                // Parameter paths are regular expressions in Vert.x, which do not ignore a trailing slash
+                if (route != null && !(trailingSlash && route.parameterPath)) {
+                    consider(route, paramCount);
+                }
+                return;
+            }
+
+            Node<T> child = node.children.get(segments[depth]);
+            if (child != null) {
+                visit(child, depth + 1, paramCount);
+            }
+
+            if (node.paramChild != null && !segments[depth].isEmpty()) {
+                values[paramCount] = segments[depth];
+                visit(node.paramChild, depth + 1, paramCount + 1);
+            }
+        }
+
+        private void consider(Route<T> route, int paramCount) {
+            if (route != null && (best == null || route.order < best.order)) {
+                best = route;
+                System.arraycopy(values, 0, bestValues, 0, paramCount);
+            }
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.restservice.controller;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Adaptive limit on the number of requests an endpoint handles at once
+ * <p>
+ * The limit follows the gradient between the lowest latency seen (the endpoint
+ * without queueing) and the latency of recent requests. While latency stays near
+ * its minimum the limit grows; when requests start queueing and latency rises,
+ * the limit shrinks in proportion. Requests which fail, time out or are abandoned
+ * by the client cut the limit multiplicatively, as in AIMD.
+ * <p>
+ * The no-load latency can drift, for example after a deploy, so every few hundred
+ * windows it is measured again. The limit is cut to a quarter for one window, so that
+ * requests queue less, and the lowest latency in that window becomes the new minimum.
+ * Taking the latency under full load instead would let the limit ratchet upwards.
+ * <p>
+ * Requests beyond the limit are rejected immediately, rather than queued,
+ * so that latency for the admitted requests stays bounded under overload.
+ */
+public class ConcurrencyLimiter {
+    private static final int SAMPLE_WINDOW = 50;
+    private static final int MIN_RTT_PROBE_WINDOWS = 200;
+    private static final double PROBE_LIMIT_FRACTION = 0.25;
+    private static final double TOLERANCE = 2.0;
+    private static final double SMOOTHING = 0.2;
+    private static final double DROP_BACKOFF = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong rejections = new AtomicLong();
+    private volatile int limit;
+
+    // Guarded by this
+    private double estimatedLimit;
+    private long minRttNanos = Long.MAX_VALUE;
+    private long windowRttNanos;
+    private int windowSamples;
+    private boolean windowDropped;
+    private int windowMaxInFlight;
+    private long windowMinRttNanos = Long.MAX_VALUE;
+    private int windowsSinceMinRttProbe;
+    private boolean probing;
+
+    /**
+     * Create a concurrency limiter
+     *
+     * @param initialLimit Limit before any latency has been measured
+     * @param minLimit Lowest the limit may fall to
+     * @param maxLimit Highest the limit may grow to
+     */
+    public ConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = initialLimit;
+        this.estimatedLimit = initialLimit;
+    }
+
+    /**
+     * Admit a request, if the endpoint is below its limit
+     *
+     * @return True if admitted, in which case {@link #release(long, boolean)} must be called once it completes
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                rejections.incrementAndGet();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Complete an admitted request, and feed its latency into the limit
+     *
+     * @param rttNanos Time from admission to completion
+     * @param dropped True if the request failed in a way that indicates overload, timed out, or the client gave up
+     */
+    public void release(long rttNanos, boolean dropped) {
+        int inFlightAtCompletion = inFlight.getAndDecrement();
+
+        synchronized (this) {
+            if (probing && inFlightAtCompletion > limit) {
+                // Admitted before the probe cut the limit, so its latency includes queueing
+                return;
+            }
+
+            windowRttNanos += rttNanos;
+            windowSamples++;
+            windowDropped |= dropped;
+            windowMaxInFlight = Math.max(windowMaxInFlight, inFlightAtCompletion);
+            windowMinRttNanos = Math.min(windowMinRttNanos, rttNanos);
+            if (!probing) {
+                minRttNanos = Math.min(minRttNanos, rttNanos);
+            }
+
+            if (windowSamples >= SAMPLE_WINDOW) {
+                updateLimit();
+            }
+        }
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * @return Number of requests rejected since the limiter was created
+     */
+    public long getRejections() {
+        return rejections.get();
+    }
+
+    private void updateLimit() {
+        long averageRttNanos = windowRttNanos / windowSamples;
+
+        if (probing) {
+            // Requests in the probe window queued little, so their lowest latency is close to the no-load latency
+            probing = false;
+            minRttNanos = windowMinRttNanos;
+            if (windowDropped) {
+                estimatedLimit = estimatedLimit * DROP_BACKOFF;
+            }
+        } else if (windowDropped) {
+            estimatedLimit = estimatedLimit * DROP_BACKOFF;
+        } else if (windowMaxInFlight >= limit / 2) {
+            // Only adjust when the endpoint is busy enough for latency to say something about the limit
+            double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * minRttNanos / averageRttNanos));
+            double queueAllowance = Math.sqrt(estimatedLimit);
+            double newLimit = estimatedLimit * gradient + queueAllowance;
+            estimatedLimit = estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+        }
+
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, estimatedLimit));
+
+        if (++windowsSinceMinRttProbe >= MIN_RTT_PROBE_WINDOWS) {
+            windowsSinceMinRttProbe = 0;
+            probing = true;
+        }
+        limit = probing ? Math.max(minLimit, (int) (estimatedLimit * PROBE_LIMIT_FRACTION)) : (int) estimatedLimit;
+
+        windowRttNanos = 0;
+        windowSamples = 0;
+        windowDropped = false;
+        windowMaxInFlight = 0;
+        windowMinRttNanos = Long.MAX_VALUE;
+    }
+}
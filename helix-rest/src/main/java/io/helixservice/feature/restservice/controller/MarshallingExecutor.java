@@ -0,0 +1,175 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.restservice.controller;
+
+import co.paralleluniverse.fibers.Fiber;
+import co.paralleluniverse.fibers.SuspendExecution;
+import co.paralleluniverse.fibers.Suspendable;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static io.helixservice.core.execution.Await.awaitEvent;
+
+/**
+ * Runs large marshalling and unmarshalling work on a bounded pool of threads,
+ * so that a large body does not stall every other connection on the event loop.
+ * <p>
+ * The calling fiber suspends until the work is done, and resumes on its own context.
+ * Work is only moved off event loop fibers; request threads of the ThreadExecutionEngine
+ * may already block, so work runs directly on them. When the pool's queue is full, work
+ * also runs directly on the calling thread rather than waiting for a free thread.
+ * <p>
+ * The pool is shut down on close, and started again by the next offloaded task,
+ * so the executor may be reused when its feature is restarted.
+ */
+public class MarshallingExecutor {
+    private static final String THREAD_NAME_PREFIX = "helix-marshalling-thread-";
+
+    private final long thresholdBytes;
+    private final int threads;
+    private final int queueSize;
+    private ThreadPoolExecutor executor;
+
+    /**
+     * Create a marshalling executor
+     *
+     * @param thresholdBytes Smallest body size moved off the event loop, or -1 to never move work
+     * @param threads Number of marshalling threads
+     * @param queueSize Maximum number of waiting tasks
+     */
+    public MarshallingExecutor(long thresholdBytes, int threads, int queueSize) {
+        this.thresholdBytes = thresholdBytes;
+        this.threads = threads;
+        this.queueSize = queueSize;
+    }
+
+    /**
+     * @return Smallest body size moved off the event loop, or -1 to never move work
+     */
+    public long getThresholdBytes() {
+        return thresholdBytes;
+    }
+
+    /**
+     * Check if work on a body should be moved off the event loop
+     *
+     * @param bodyBytes Body size in bytes, or an estimate of it
+     * @param endpointThresholdBytes The endpoint's own threshold, or -1 to use the server-wide threshold
+     * @return True if the body is at least the threshold and the current thread is an event loop thread
+     */
+    public boolean shouldOffload(long bodyBytes, long endpointThresholdBytes) {
+        long threshold = endpointThresholdBytes >= 0 ? endpointThresholdBytes : thresholdBytes;
+        return threshold >= 0 && bodyBytes >= threshold && Context.isOnEventLoopThread();
+    }
+
+    /**
+     * Run a task on a marshalling thread, suspending the calling fiber until it completes
+     *
+     * @param task Marshalling or unmarshalling work, which must not block
+     * @param <T> Type of result
+     * @return Result of the task
+     * @throws Exception If the task fails
+     * @throws SuspendExecution For Vert.x Sync
+     */
+    @Suspendable
+    public <T> T execute(Callable<T> task) throws Exception, SuspendExecution {
+        Context context = Vertx.currentContext();
+        if (context == null || !Context.isOnEventLoopThread() || Fiber.currentFiber() == null) {
+            return task.call();
+        }
+
+        AsyncResult<T> result = awaitEvent(new Consumer<Handler<AsyncResult<T>>>() {
+            @Override
+            @Suspendable
+            public void accept(Handler<AsyncResult<T>> handler) {
+                try {
+                    executor().execute(() -> {
+                        AsyncResult<T> taskResult;
+                        try {
+                            taskResult = Future.succeededFuture(task.call());
+                        } catch (Throwable t) {
+                            taskResult = Future.failedFuture(t);
+                        }
+
+                        AsyncResult<T> completed = taskResult;
+                        context.runOnContext(v -> handler.handle(completed));
+                    });
+                } catch (RejectedExecutionException e) {
+                    // Pool is saturated, so the caller does the work itself
+                    AsyncResult<T> taskResult;
+                    try {
+                        taskResult = Future.succeededFuture(task.call());
+                    } catch (Throwable t) {
+                        taskResult = Future.failedFuture(t);
+                    }
+                    handler.handle(taskResult);
+                }
+            }
+        });
+
+        if (result.failed()) {
+            Throwable cause = result.cause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw (Error) cause;
+        }
+        return result.result();
+    }
+
+    /**
+     * Stop the marshalling threads, once queued work is done
+     */
+    public synchronized void close() {
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "MarshallingExecutor thresholdBytes=" + thresholdBytes + " threads=" + threads;
+    }
+
+    private synchronized ThreadPoolExecutor executor() {
+        if (executor == null) {
+            executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueSize), new MarshallingThreadFactory());
+        }
+        return executor;
+    }
+
+    private static class MarshallingThreadFactory implements ThreadFactory {
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, THREAD_NAME_PREFIX + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
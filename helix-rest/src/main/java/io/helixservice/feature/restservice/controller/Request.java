@@ -13,21 +13,27 @@
 
 package io.helixservice.feature.restservice.controller;
 
-import com.google.common.collect.HashMultimap;
-import com.google.common.collect.ImmutableMultimap;
-import com.google.common.collect.Iterables;
 import com.google.common.collect.Multimap;
+import com.google.common.collect.Multimaps;
+import io.helixservice.core.util.VertxTypeConverter;
+import io.vertx.core.MultiMap;
 
 /**
  * REST Request information, sent to Controller Endpoints
+ * <p>
+ * Headers and query parameters are views over Vert.x MultiMaps, so creating a
+ * Request does not copy them. Header names are case-insensitive.
  *
  * @param <T> The type the request body should be marshaled to
  */
 public class Request<T> {
     private T body;
-    private Multimap<String,String> params;
-    private Multimap<String,String> headers;
-    private Multimap<String,String> headersUppercase;
+    private MultiMap params;
+    private MultiMap headers;
+    private boolean paramsCopied;
+    private boolean headersCopied;
+    private Multimap<String,String> paramsView;
+    private Multimap<String,String> headersView;
     private String method;
     private String requestURI;
     private String remoteAddr;
@@ -38,16 +44,28 @@ public class Request<T> {
      */
     public Request(String method, String requestURI, Multimap<String,String> params,
             Multimap<String,String> headers, T body, String remoteAddr, String httpVersion) {
+        this(method, requestURI, VertxTypeConverter.toVertxMultiMap(params),
+                VertxTypeConverter.toVertxMultiMap(headers), body, remoteAddr, httpVersion);
+
+        paramsCopied = true;
+        headersCopied = true;
+    }
+
+    /**
+     * Create Request backed by Vert.x params and headers, without copying them.
+     * <p>
+     * The Request never modifies the given MultiMaps, they are copied
+     * the first time a header or param is added.
+     */
+    public Request(String method, String requestURI, MultiMap params,
+            MultiMap headers, T body, String remoteAddr, String httpVersion) {
         this.method = method;
         this.requestURI = requestURI;
         this.body = body;
-        this.params = HashMultimap.create(params);
-        this.headers = HashMultimap.create(headers);
+        this.params = params;
+        this.headers = headers;
         this.remoteAddr = remoteAddr;
         this.httpVersion = httpVersion;
-
-        headersUppercase = HashMultimap.create();
-        headers.entries().forEach(e -> headersUppercase.put(e.getKey().toUpperCase(), e.getValue()));
     }
 
     /**
@@ -64,7 +82,10 @@ public class Request<T> {
      * @return Multimap of parameters to values
      */
     public Multimap<String,String> getParams() {
-        return ImmutableMultimap.copyOf(params);
+        if (paramsView == null) {
+            paramsView = Multimaps.unmodifiableMultimap(VertxTypeConverter.asGuavaMultimap(params));
+        }
+        return paramsView;
     }
 
     /**
@@ -73,10 +94,12 @@ public class Request<T> {
      * @return Multimap of Headers to values
      */
     public Multimap<String,String> getHeaders() {
-        return ImmutableMultimap.copyOf(headers);
+        if (headersView == null) {
+            headersView = Multimaps.unmodifiableMultimap(VertxTypeConverter.asGuavaMultimap(headers));
+        }
+        return headersView;
     }
 
-
     /**
      * Gets the first value found for the given header
      *
@@ -85,7 +108,8 @@ public class Request<T> {
      * @return The first header value found, or the default value
      */
     public String getHeader(String headerName, String defaultValue) {
-        return Iterables.getFirst(headersUppercase.get(headerName.toUpperCase()), defaultValue);
+        String value = headers.get(headerName);
+        return value == null ? defaultValue : value;
     }
 
     /**
@@ -96,7 +120,8 @@ public class Request<T> {
      * @return The first parameter value found, or the default value
      */
     public String getParam(String parameterName, String defaultValue) {
-        return Iterables.getFirst(params.get(parameterName), defaultValue);
+        String value = params.get(parameterName);
+        return value == null ? defaultValue : value;
     }
 
     /**
@@ -140,13 +165,26 @@ public class Request<T> {
     }
 
     Request<T> addHeader(String headerName, String value) {
-        headers.put(headerName, value);
-        headersUppercase.put(headerName.toUpperCase(), value);
+        if (!headersCopied) {
+            headers = copyOf(headers);
+            headersView = null;
+            headersCopied = true;
+        }
+        headers.add(headerName, value);
         return this;
     }
 
     Request<T> addParam(String paramName, String value) {
-        params.put(paramName, value);
+        if (!paramsCopied) {
+            params = copyOf(params);
+            paramsView = null;
+            paramsCopied = true;
+        }
+        params.add(paramName, value);
         return this;
     }
+
+    private static MultiMap copyOf(MultiMap multiMap) {
+        return MultiMap.caseInsensitiveMultiMap().addAll(multiMap);
+    }
 }
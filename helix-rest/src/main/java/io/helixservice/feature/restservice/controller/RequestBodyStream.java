@@ -0,0 +1,226 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.restservice.controller;
+
+import co.paralleluniverse.fibers.SuspendExecution;
+import co.paralleluniverse.fibers.Suspendable;
+import io.helixservice.core.execution.Await;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.file.AsyncFile;
+import io.vertx.core.file.OpenOptions;
+import io.vertx.core.http.HttpServerRequest;
+
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Request body which is read in chunks as it arrives, instead of being buffered in memory
+ * <p>
+ * Declare an endpoint's request body type as RequestBodyStream to receive it. Chunks are
+ * pulled with {@link #read()}, which waits using the execution engine when no data has arrived yet.
+ * At most a small number of bytes are queued. When the endpoint falls behind, reading
+ * from the connection is paused until it catches up.
+ */
+public class RequestBodyStream {
+    static final int HIGH_WATER_BYTES = 64 * 1024;
+
+    private final HttpServerRequest request;
+    private final long maxBodyBytes;
+    private final Deque<Buffer> chunks = new ArrayDeque<>();
+    private int queuedBytes;
+    private long receivedBytes;
+    private boolean paused = true;
+    private boolean ended;
+    private RuntimeException failure;
+    private Handler<Void> waiter;
+
+    /**
+     * Create a stream over a paused request
+     *
+     * @param request Request whose body is streamed, which must be paused
+     * @param maxBodyBytes Maximum body size allowed, or -1 for no limit
+     */
+    RequestBodyStream(HttpServerRequest request, long maxBodyBytes) {
+        this.request = request;
+        this.maxBodyBytes = maxBodyBytes;
+
+        request.handler(this::handleChunk);
+        request.endHandler(event -> handleEnd());
+        request.exceptionHandler(this::handleException);
+    }
+
+    /**
+     * Read the next chunk of the body
+     *
+     * @return The next chunk, or null once the whole body has been read
+     * @throws RequestBodyTooLargeException If the body exceeds the size limit of the endpoint
+     * @throws SuspendExecution For Vert.x Sync
+     */
+    @Suspendable
+    public Buffer read() throws SuspendExecution {
+        while (true) {
+            boolean resume = false;
+
+            synchronized (this) {
+                if (failure != null) {
+                    throw failure;
+                }
+
+                Buffer chunk = chunks.poll();
+                if (chunk != null) {
+                    queuedBytes -= chunk.length();
+                    return chunk;
+                }
+
+                if (ended) {
+                    return null;
+                }
+
+                if (paused) {
+                    paused = false;
+                    resume = true;
+                }
+            }
+
+            if (resume) {
+                request.resume();
+            }
+            Await.<Void>awaitEvent(this::awaitChunk);
+        }
+    }
+
+    /**
+     * Write the rest of the body to a file, without holding it in memory
+     *
+     * @param vertx Vert.x instance used for asynchronous file access
+     * @param path File to create, which is deleted again if the body cannot be read
+     * @return The body, as a spooled file
+     * @throws SuspendExecution For Vert.x Sync
+     */
+    @Suspendable
+    public SpooledRequestBody spoolTo(Vertx vertx, Path path) throws SuspendExecution {
+        OpenOptions openOptions = new OpenOptions().setCreateNew(true).setWrite(true);
+        AsyncFile file = result(Await.awaitEvent(h -> vertx.fileSystem().open(path.toString(), openOptions, h)));
+
+        long length = 0;
+        boolean spooled = false;
+        try {
+            Buffer chunk;
+            while ((chunk = read()) != null) {
+                length += chunk.length();
+                file.write(chunk);
+                if (file.writeQueueFull()) {
+                    Await.<Void>awaitEvent(file::drainHandler);
+                }
+            }
+            spooled = true;
+        } finally {
+            result(Await.<AsyncResult<Void>>awaitEvent(file::close));
+            if (!spooled) {
+                vertx.fileSystem().delete(path.toString(), result -> { });
+            }
+        }
+
+        return new SpooledRequestBody(path, length);
+    }
+
+    /**
+     * @return True once the whole body has been received
+     */
+    public synchronized boolean isEnded() {
+        return ended;
+    }
+
+    private void handleChunk(Buffer chunk) {
+        boolean pause = false;
+
+        synchronized (this) {
+            receivedBytes += chunk.length();
+            if (maxBodyBytes >= 0 && receivedBytes > maxBodyBytes) {
+                if (failure == null) {
+                    failure = new RequestBodyTooLargeException(maxBodyBytes);
+                }
+                chunks.clear();
+                queuedBytes = 0;
+            } else {
+                chunks.add(chunk);
+                queuedBytes += chunk.length();
+            }
+
+            if ((failure != null || queuedBytes >= HIGH_WATER_BYTES) && !paused) {
+                paused = true;
+                pause = true;
+            }
+        }
+
+        if (pause) {
+            request.pause();
+        }
+        wakeReader();
+    }
+
+    private void handleEnd() {
+        synchronized (this) {
+            ended = true;
+        }
+        wakeReader();
+    }
+
+    private void handleException(Throwable t) {
+        synchronized (this) {
+            if (failure == null) {
+                failure = new IllegalStateException("Unable to read request body", t);
+            }
+        }
+        wakeReader();
+    }
+
+    private void awaitChunk(Handler<Void> handler) {
+        boolean ready;
+
+        synchronized (this) {
+            ready = !chunks.isEmpty() || ended || failure != null;
+            if (!ready) {
+                waiter = handler;
+            }
+        }
+
+        if (ready) {
+            handler.handle(null);
+        }
+    }
+
+    private void wakeReader() {
+        Handler<Void> handler;
+
+        synchronized (this) {
+            handler = waiter;
+            waiter = null;
+        }
+
+        if (handler != null) {
+            handler.handle(null);
+        }
+    }
+
+    private static <T> T result(AsyncResult<T> asyncResult) {
+        if (asyncResult.failed()) {
+            throw new IllegalStateException("Unable to spool request body", asyncResult.cause());
+        }
+        return asyncResult.result();
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.restservice.controller;
+
+/**
+ * Thrown when a request body is larger than the limit allowed for its endpoint
+ */
+public class RequestBodyTooLargeException extends RuntimeException {
+    private final long maxBodyBytes;
+
+    /**
+     * Constructor
+     *
+     * @param maxBodyBytes The body size limit that was exceeded
+     */
+    public RequestBodyTooLargeException(long maxBodyBytes) {
+        super("Request body exceeds maxBodyBytes=" + maxBodyBytes);
+        this.maxBodyBytes = maxBodyBytes;
+    }
+
+    /**
+     * @return The body size limit that was exceeded
+     */
+    public long getMaxBodyBytes() {
+        return maxBodyBytes;
+    }
+}
@@ -13,26 +13,27 @@
 
 package io.helixservice.feature.restservice.controller;
 
-import com.google.common.collect.Iterables;
-import com.google.common.collect.LinkedHashMultimap;
 import com.google.common.collect.Multimap;
+import io.helixservice.core.util.VertxTypeConverter;
 import io.helixservice.feature.restservice.error.jsonapi.ErrorResponse;
+import io.vertx.core.MultiMap;
 
 /**
  * REST Response, created and returned by the REST controller
+ * <p>
+ * Headers are held in a case-insensitive Vert.x MultiMap, which is
+ * only allocated once a header is added.
  *
  * @param <T> The type the response body
  */
 public class Response<T> {
     private int httpStatusCode;
     private T responseBody;
-    private Multimap<String, String> headers;
+    private MultiMap headers;
 
     private Response(int httpStatusCode, T responseBody) {
         this.httpStatusCode = httpStatusCode;
         this.responseBody = responseBody;
-
-        headers = LinkedHashMultimap.create();
     }
 
     /**
@@ -121,6 +122,22 @@ public class Response<T> {
         return new Response<T>(httpStatusCode, null);
     }
 
+    /**
+     * Create Response whose headers are a live view of the given Vert.x headers
+     * <p>
+     * Headers added to or removed from this response are written directly to the MultiMap.
+     *
+     * @param httpStatusCode HTTP status code
+     * @param headers Vert.x headers to back this response
+     * @param <T> Type of Response body
+     * @return The new Response object
+     */
+    public static <T> Response<T> fromVertxHeaders(int httpStatusCode, MultiMap headers) {
+        Response<T> response = new Response<>(httpStatusCode, null);
+        response.headers = headers;
+        return response;
+    }
+
     /**
      * Create Response from a Json API error object, ensuring that the
      * HTTP status matches the status in errorResponse object.
@@ -171,7 +188,7 @@ public class Response<T> {
      * @return This response object
      */
     public Response<T> addHeader(String name, String value) {
-        headers.put(name, value);
+        headers().add(name, value);
         return this;
     }
 
@@ -182,17 +199,21 @@ public class Response<T> {
      * @return This response object
      */
     public Response<T> removeHeader(String name) {
-        headers.removeAll(name);
+        if (headers != null) {
+            headers.remove(name);
+        }
         return this;
     }
 
     /**
      * Get all values for a header
+     * <p>
+     * The returned Multimap is a live view, changes to it are applied to this response.
      *
      * @return Multimap of header names to values
      */
     public Multimap<String, String> getHeaders() {
-        return headers;
+        return VertxTypeConverter.asGuavaMultimap(headers());
     }
 
     /**
@@ -202,6 +223,24 @@ public class Response<T> {
      * @return
      */
     public String getHeader(String headerName) {
-        return Iterables.getFirst(headers.get(headerName), null);
+        return headers == null ? null : headers.get(headerName);
+    }
+
+    /**
+     * Copy this response's headers to a Vert.x MultiMap
+     *
+     * @param destination Vert.x headers to add to
+     */
+    void copyHeadersTo(MultiMap destination) {
+        if (headers != null && headers != destination) {
+            destination.addAll(headers);
+        }
+    }
+
+    private MultiMap headers() {
+        if (headers == null) {
+            headers = MultiMap.caseInsensitiveMultiMap();
+        }
+        return headers;
     }
 }
@@ -0,0 +1,314 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.restservice.controller;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import io.netty.buffer.Unpooled;
+import io.vertx.core.MultiMap;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServerRequest;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of marshalled responses for an endpoint
+ * <p>
+ * Entries are keyed by the request path, together with the request parameters and
+ * headers selected for the cache key. They expire a fixed time after being stored,
+ * and the least recently used entries are evicted once the entry or byte limit is reached.
+ * Bodies may be stored off-heap, in direct memory, to keep large caches out of the GC's way.
+ * <p>
+ * Each entry carries a strong ETag computed from its body.
+ */
+public class ResponseCache {
+    private static final List<String> UNCACHED_HEADERS = Arrays.asList(
+            "content-length", "content-encoding", "etag", "vary", "set-cookie");
+
+    private final long ttlMillis;
+    private final long maxEntries;
+    private final long maxBytes;
+    private final List<String> keyParams;
+    private final List<String> keyHeaders;
+    private final boolean offHeap;
+
+    private final Cache<String, Entry> cache;
+    private final AtomicLong evictions = new AtomicLong();
+
+    private ResponseCache(Builder builder) {
+        this.ttlMillis = builder.ttlMillis;
+        this.maxEntries = builder.maxEntries;
+        this.maxBytes = builder.maxBytes;
+        this.keyParams = builder.keyParams;
+        this.keyHeaders = builder.keyHeaders;
+        this.offHeap = builder.offHeap;
+
+        CacheBuilder<Object, Object> cacheBuilder = CacheBuilder.newBuilder()
+                .expireAfterWrite(ttlMillis, TimeUnit.MILLISECONDS)
+                .removalListener(notification -> {
+                    if (notification.wasEvicted()) {
+                        evictions.incrementAndGet();
+                    }
+                });
+
+        if (maxBytes >= 0) {
+            this.cache = cacheBuilder
+                    .maximumWeight(maxBytes)
+                    .weigher((String key, Entry entry) -> key.length() + entry.body.length())
+                    .build();
+        } else {
+            this.cache = cacheBuilder.maximumSize(maxEntries).build();
+        }
+    }
+
+    /**
+     * @return A builder for a new response cache
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Build the cache key for a request
+     *
+     * @param request Incoming request
+     * @return The cache key
+     */
+    public String keyFor(HttpServerRequest request) {
+        StringBuilder key = new StringBuilder(request.path());
+
+        MultiMap params = request.params();
+        for (String param : keyParams) {
+            key.append('\n').append(param).append('=').append(params.getAll(param));
+        }
+
+        MultiMap headers = request.headers();
+        for (String header : keyHeaders) {
+            key.append('\n').append(header).append(':').append(headers.getAll(header));
+        }
+
+        return key.toString();
+    }
+
+    /**
+     * @param key Cache key
+     * @return The cached entry, or null if there is none
+     */
+    public Entry get(String key) {
+        return cache.getIfPresent(key);
+    }
+
+    /**
+     * Store a response
+     *
+     * @param key Cache key
+     * @param statusCode HTTP status code
+     * @param headers Response headers, which are copied
+     * @param body Marshalled response body, which is copied
+     * @return The stored entry
+     */
+    public Entry put(String key, int statusCode, MultiMap headers, Buffer body) {
+        MultiMap cachedHeaders = MultiMap.caseInsensitiveMultiMap();
+        for (Map.Entry<String, String> header : headers) {
+            if (!UNCACHED_HEADERS.contains(header.getKey().toLowerCase())) {
+                cachedHeaders.add(header.getKey(), header.getValue());
+            }
+        }
+
+        byte[] bytes = body.getBytes();
+        String eTag = "\"" + Hashing.murmur3_128().hashBytes(bytes) + "\"";
+
+        Entry entry = new Entry(statusCode, cachedHeaders, offHeap ? directBuffer(bytes) : Buffer.buffer(bytes), eTag);
+        cache.put(key, entry);
+        return entry;
+    }
+
+    /**
+     * Remove all entries
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * @return Number of entries evicted since the last call
+     */
+    public long drainEvictionCount() {
+        return evictions.getAndSet(0);
+    }
+
+    public long getTtlMillis() {
+        return ttlMillis;
+    }
+
+    public long getMaxEntries() {
+        return maxEntries;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+
+    private static Buffer directBuffer(byte[] bytes) {
+        // Freed by the garbage collector once evicted, since responses in flight may still share it
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes).flip();
+        return Buffer.buffer(Unpooled.wrappedBuffer(direct));
+    }
+
+    /**
+     * Cached response
+     */
+    public static final class Entry {
+        private final int statusCode;
+        private final MultiMap headers;
+        private final Buffer body;
+        private final String eTag;
+
+        private Entry(int statusCode, MultiMap headers, Buffer body, String eTag) {
+            this.statusCode = statusCode;
+            this.headers = headers;
+            this.body = body;
+            this.eTag = eTag;
+        }
+
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        /**
+         * @return Response headers, which must not be modified
+         */
+        public MultiMap getHeaders() {
+            return headers;
+        }
+
+        /**
+         * @return Marshalled response body, which must not be modified
+         */
+        public Buffer getBody() {
+            return body;
+        }
+
+        public String getETag() {
+            return eTag;
+        }
+
+        /**
+         * Check an If-None-Match request header against this entry
+         *
+         * @param ifNoneMatch If-None-Match header value (may be null)
+         * @return True if the client already has this response
+         */
+        public boolean matches(String ifNoneMatch) {
+            if (ifNoneMatch == null) {
+                return false;
+            }
+
+            for (String tag : ifNoneMatch.split(",")) {
+                String trimmed = tag.trim();
+                if (trimmed.startsWith("W/")) {
+                    trimmed = trimmed.substring(2);
+                }
+                if (trimmed.equals("*") || trimmed.equals(eTag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Builder for a ResponseCache
+     */
+    public static final class Builder {
+        private long ttlMillis = TimeUnit.MINUTES.toMillis(1);
+        private long maxEntries = 1000;
+        private long maxBytes = -1;
+        private List<String> keyParams = Arrays.asList();
+        private List<String> keyHeaders = Arrays.asList();
+        private boolean offHeap;
+
+        private Builder() {
+        }
+
+        /**
+         * @param ttl Time an entry is kept after it is stored
+         * @param unit Unit of ttl
+         * @return This builder
+         */
+        public Builder ttl(long ttl, TimeUnit unit) {
+            this.ttlMillis = unit.toMillis(ttl);
+            return this;
+        }
+
+        /**
+         * @param maxEntries Maximum number of entries, used when no byte limit is set
+         * @return This builder
+         */
+        public Builder maxEntries(long maxEntries) {
+            this.maxEntries = maxEntries;
+            return this;
+        }
+
+        /**
+         * @param maxBytes Maximum total size of the cached bodies, or -1 to limit by entries instead
+         * @return This builder
+         */
+        public Builder maxBytes(long maxBytes) {
+            this.maxBytes = maxBytes;
+            return this;
+        }
+
+        /**
+         * @param keyParams Request parameters which select different responses
+         * @return This builder
+         */
+        public Builder keyParams(String... keyParams) {
+            this.keyParams = Arrays.asList(keyParams);
+            return this;
+        }
+
+        /**
+         * @param keyHeaders Request headers which select different responses
+         * @return This builder
+         */
+        public Builder keyHeaders(String... keyHeaders) {
+            this.keyHeaders = Arrays.asList(keyHeaders);
+            return this;
+        }
+
+        /**
+         * @param offHeap True to hold cached bodies in direct memory
+         * @return This builder
+         */
+        public Builder offHeap(boolean offHeap) {
+            this.offHeap = offHeap;
+            return this;
+        }
+
+        public ResponseCache build() {
+            return new ResponseCache(this);
+        }
+    }
+}
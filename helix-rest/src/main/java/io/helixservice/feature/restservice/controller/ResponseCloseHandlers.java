@@ -0,0 +1,91 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.restservice.controller;
+
+import io.vertx.core.Handler;
+import io.vertx.ext.web.RoutingContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs every handler added for a request when its connection closes.
+ * <p>
+ * An HttpServerResponse holds a single close handler, so code which needs to know
+ * about a closed connection adds its handler here rather than replacing another's.
+ * A handler added after the connection has closed runs at once.
+ */
+public final class ResponseCloseHandlers implements Handler<Void> {
+    private static final Logger LOG = LoggerFactory.getLogger(ResponseCloseHandlers.class);
+    private static final String CLOSE_HANDLERS = "ResponseCloseHandlers";
+
+    private final List<Handler<Void>> handlers = new ArrayList<>(2);
+    private boolean closed;
+
+    private ResponseCloseHandlers() {
+    }
+
+    /**
+     * Add a handler to run when the request's connection closes
+     *
+     * @param routingContext Routing context of the request
+     * @param handler Handler to run
+     */
+    public static void add(RoutingContext routingContext, Handler<Void> handler) {
+        ResponseCloseHandlers closeHandlers = routingContext.get(CLOSE_HANDLERS);
+        if (closeHandlers == null) {
+            closeHandlers = new ResponseCloseHandlers();
+            routingContext.put(CLOSE_HANDLERS, closeHandlers);
+            routingContext.response().closeHandler(closeHandlers);
+        }
+        closeHandlers.add(handler);
+    }
+
+    @Override
+    public void handle(Void event) {
+        List<Handler<Void>> toRun;
+        synchronized (this) {
+            closed = true;
+            toRun = new ArrayList<>(handlers);
+            handlers.clear();
+        }
+
+        for (Handler<Void> handler : toRun) {
+            runQuietly(handler);
+        }
+    }
+
+    private void add(Handler<Void> handler) {
+        boolean runNow;
+        synchronized (this) {
+            runNow = closed;
+            if (!runNow) {
+                handlers.add(handler);
+            }
+        }
+
+        if (runNow) {
+            runQuietly(handler);
+        }
+    }
+
+    private static void runQuietly(Handler<Void> handler) {
+        try {
+            handler.handle(null);
+        } catch (RuntimeException e) {
+            LOG.error("Close handler failed", e);
+        }
+    }
+}
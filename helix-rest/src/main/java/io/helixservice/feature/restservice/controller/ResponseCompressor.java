@@ -0,0 +1,245 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.restservice.controller;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.vertx.core.buffer.Buffer;
+
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses response bodies with gzip or deflate, as negotiated from the Accept-Encoding header
+ * <p>
+ * Bodies smaller than the minimum size are left alone, since compressing them saves
+ * little and costs CPU. Deflaters are reused per thread. Optionally, compressed bodies
+ * are cached by content, so that identical responses are only compressed once.
+ * <p>
+ * The cache is keyed by the body's length and CRC32, which is needed for gzip anyway.
+ * The whole body is only compared on a hit, where it saves compressing it again.
+ * Bodies too large to stay in the cache are not looked up.
+ */
+public class ResponseCompressor {
+    public static final String GZIP = "gzip";
+    public static final String DEFLATE = "deflate";
+
+    private static final int GZIP_MAGIC = 0x8b1f;
+    private static final int CHUNK_SIZE = 8 * 1024;
+    private static final int CACHE_SEGMENT_SHARE = 8;
+
+    private final int level;
+    private final int minSizeBytes;
+    private final Cache<Fingerprint, CachedBody> cache;
+    private final long maxCachedBodyBytes;
+
+    private final ThreadLocal<Deflater> gzipDeflaters;
+    private final ThreadLocal<Deflater> zlibDeflaters;
+    private final ThreadLocal<byte[]> chunks = ThreadLocal.withInitial(() -> new byte[CHUNK_SIZE]);
+
+    /**
+     * Create a response compressor
+     *
+     * @param level Compression level, from 1 (fastest) to 9 (smallest)
+     * @param minSizeBytes Smallest body which is compressed
+     * @param cacheMaxBytes Maximum size of the compressed body cache, or 0 to disable caching
+     */
+    public ResponseCompressor(int level, int minSizeBytes, long cacheMaxBytes) {
+        this.level = level;
+        this.minSizeBytes = minSizeBytes;
+        this.gzipDeflaters = ThreadLocal.withInitial(() -> new Deflater(level, true));
+        this.zlibDeflaters = ThreadLocal.withInitial(() -> new Deflater(level, false));
+
+        if (cacheMaxBytes > 0) {
+            this.cache = CacheBuilder.newBuilder()
+                    .maximumWeight(cacheMaxBytes)
+                    .weigher((Fingerprint key, CachedBody value) -> value.body.length + value.compressed.length())
+                    .build();
+            // The cache is split into segments, each evicting entries over its share of the weight
+            this.maxCachedBodyBytes = cacheMaxBytes / CACHE_SEGMENT_SHARE;
+        } else {
+            this.cache = null;
+            this.maxCachedBodyBytes = 0;
+        }
+    }
+
+    /**
+     * Choose the encoding for a response
+     *
+     * @param acceptEncoding Accept-Encoding request header (may be null)
+     * @param bodySize Uncompressed body size in bytes
+     * @return "gzip" or "deflate", or null if the body should not be compressed
+     */
+    public String negotiate(String acceptEncoding, int bodySize) {
+        if (acceptEncoding == null || bodySize < minSizeBytes) {
+            return null;
+        }
+
+        String encoding = null;
+        float encodingQuality = 0;
+
+        for (String element : acceptEncoding.split(",")) {
+            String[] parts = element.split(";");
+            String coding = parts[0].trim().toLowerCase();
+            float quality = quality(parts);
+
+            // gzip wins ties, since every client accepting deflate also accepts it
+            if ((GZIP.equals(coding) || "*".equals(coding)) && quality > 0 && quality >= encodingQuality) {
+                encoding = GZIP;
+                encodingQuality = quality;
+            } else if (DEFLATE.equals(coding) && quality > encodingQuality) {
+                encoding = DEFLATE;
+                encodingQuality = quality;
+            }
+        }
+
+        return encoding;
+    }
+
+    /**
+     * Compress a body, using the cache when enabled
+     *
+     * @param body Uncompressed body
+     * @param encoding Encoding returned by {@link #negotiate(String, int)}
+     * @return The compressed body
+     */
+    public Buffer compress(Buffer body, String encoding) {
+        byte[] bytes = body.getBytes();
+        boolean cacheable = cache != null && bytes.length <= maxCachedBodyBytes;
+        if (!cacheable) {
+            return doCompress(bytes, encoding, GZIP.equals(encoding) ? crc32(bytes) : 0);
+        }
+
+        int crc = crc32(bytes);
+        Fingerprint key = new Fingerprint(encoding, bytes.length, crc);
+        CachedBody cached = cache.getIfPresent(key);
+        if (cached != null && Arrays.equals(cached.body, bytes)) {
+            return cached.compressed;
+        }
+
+        Buffer compressed = doCompress(bytes, encoding, crc);
+        cache.put(key, new CachedBody(bytes, compressed));
+        return compressed;
+    }
+
+    /**
+     * @return Compression level, from 1 (fastest) to 9 (smallest)
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    private Buffer doCompress(byte[] body, String encoding, int crc) {
+        boolean gzip = GZIP.equals(encoding);
+        Deflater deflater = gzip ? gzipDeflaters.get() : zlibDeflaters.get();
+        byte[] chunk = chunks.get();
+
+        // Compressed JSON is usually several times smaller than the original
+        Buffer compressed = Buffer.buffer(Math.max(64, body.length / 4));
+        if (gzip) {
+            writeGzipHeader(compressed);
+        }
+
+        try {
+            deflater.setInput(body);
+            deflater.finish();
+            while (!deflater.finished()) {
+                int length = deflater.deflate(chunk);
+                compressed.appendBytes(chunk, 0, length);
+            }
+        } finally {
+            deflater.reset();
+        }
+
+        if (gzip) {
+            compressed.appendInt(Integer.reverseBytes(crc));
+            compressed.appendInt(Integer.reverseBytes(body.length));
+        }
+
+        return compressed;
+    }
+
+    private static void writeGzipHeader(Buffer buffer) {
+        // Magic, CM=deflate, no flags, no mtime, no extra flags, OS=unknown. Gzip is little-endian.
+        buffer.appendShort(Short.reverseBytes((short) GZIP_MAGIC))
+                .appendByte((byte) Deflater.DEFLATED)
+                .appendByte((byte) 0)
+                .appendInt(0)
+                .appendByte((byte) 0)
+                .appendByte((byte) 0xff);
+    }
+
+    private static int crc32(byte[] body) {
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        return (int) crc.getValue();
+    }
+
+    private static float quality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String parameter = parts[i].trim();
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Float.parseFloat(parameter.substring(2));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Cache key holding the encoding, and the length and CRC32 of the uncompressed body
+     */
+    private static final class Fingerprint {
+        private final String encoding;
+        private final int length;
+        private final int crc;
+
+        Fingerprint(String encoding, int length, int crc) {
+            this.encoding = encoding;
+            this.length = length;
+            this.crc = crc;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Fingerprint)) {
+                return false;
+            }
+
+            Fingerprint otherKey = (Fingerprint) other;
+            return crc == otherKey.crc && length == otherKey.length && encoding.equals(otherKey.encoding);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * encoding.hashCode() + length) + crc;
+        }
+    }
+
+    /**
+     * Uncompressed body, kept to tell apart bodies with the same fingerprint, and its compressed form
+     */
+    private static final class CachedBody {
+        private final byte[] body;
+        private final Buffer compressed;
+
+        CachedBody(byte[] body, Buffer compressed) {
+            this.body = body;
+            this.compressed = compressed;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.restservice.controller;
+
+import java.nio.file.Path;
+
+/**
+ * Request body which has been written to a temporary file, instead of being held in memory
+ * <p>
+ * Declare an endpoint's request body type as SpooledRequestBody to receive uploads this way.
+ * The file is deleted once the endpoint returns.
+ */
+public class SpooledRequestBody {
+    private final Path path;
+    private final long length;
+
+    /**
+     * Create spooled request body
+     *
+     * @param path Temporary file holding the body
+     * @param length Body length in bytes
+     */
+    public SpooledRequestBody(Path path, long length) {
+        this.path = path;
+        this.length = length;
+    }
+
+    /**
+     * @return Temporary file holding the body
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * @return Body length in bytes
+     */
+    public long getLength() {
+        return length;
+    }
+}
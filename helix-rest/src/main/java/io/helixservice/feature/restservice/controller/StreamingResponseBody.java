@@ -0,0 +1,139 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.restservice.controller;
+
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Response body which is written element by element, instead of being marshalled all at once
+ * <p>
+ * Return one in a Response, for example {@code Response.successResponse(StreamingResponseBody.jsonArray(rows))}.
+ * Each element is marshalled and written as it is taken from the iterator, so large
+ * result sets are sent in constant memory. Iteration stops early if the client disconnects.
+ *
+ * @param <T> Type of the elements
+ */
+public class StreamingResponseBody<T> implements AutoCloseable {
+    /**
+     * How the elements are framed in the response
+     */
+    public enum Format {
+        /** Elements are written as a single JSON array */
+        JSON_ARRAY("application/json", "[", ",", "]"),
+
+        /** Elements are written one per line, as newline-delimited JSON */
+        NDJSON("application/x-ndjson", "", "\n", "\n");
+
+        private final String contentType;
+        private final String prefix;
+        private final String separator;
+        private final String suffix;
+
+        Format(String contentType, String prefix, String separator, String suffix) {
+            this.contentType = contentType;
+            this.prefix = prefix;
+            this.separator = separator;
+            this.suffix = suffix;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        String getPrefix() {
+            return prefix;
+        }
+
+        String getSeparator() {
+            return separator;
+        }
+
+        String getSuffix() {
+            return suffix;
+        }
+    }
+
+    private final Iterator<? extends T> elements;
+    private final Format format;
+    private final AutoCloseable resource;
+
+    private StreamingResponseBody(Iterator<? extends T> elements, Format format, AutoCloseable resource) {
+        this.elements = elements;
+        this.format = format;
+        this.resource = resource;
+    }
+
+    /**
+     * Stream elements as a JSON array
+     *
+     * @param elements Elements to write
+     * @param <T> Type of the elements
+     * @return The streaming body
+     */
+    public static <T> StreamingResponseBody<T> jsonArray(Iterator<? extends T> elements) {
+        return new StreamingResponseBody<>(elements, Format.JSON_ARRAY, null);
+    }
+
+    /**
+     * Stream elements as a JSON array, closing the stream once written
+     *
+     * @param elements Elements to write
+     * @param <T> Type of the elements
+     * @return The streaming body
+     */
+    public static <T> StreamingResponseBody<T> jsonArray(Stream<? extends T> elements) {
+        return new StreamingResponseBody<>(elements.iterator(), Format.JSON_ARRAY, elements);
+    }
+
+    /**
+     * Stream elements as newline-delimited JSON
+     *
+     * @param elements Elements to write
+     * @param <T> Type of the elements
+     * @return The streaming body
+     */
+    public static <T> StreamingResponseBody<T> ndjson(Iterator<? extends T> elements) {
+        return new StreamingResponseBody<>(elements, Format.NDJSON, null);
+    }
+
+    /**
+     * Stream elements as newline-delimited JSON, closing the stream once written
+     *
+     * @param elements Elements to write
+     * @param <T> Type of the elements
+     * @return The streaming body
+     */
+    public static <T> StreamingResponseBody<T> ndjson(Stream<? extends T> elements) {
+        return new StreamingResponseBody<>(elements.iterator(), Format.NDJSON, elements);
+    }
+
+    public Iterator<? extends T> getElements() {
+        return elements;
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    /**
+     * Release the underlying stream, if any.
+     * Called once the body has been written, or the client has disconnected.
+     */
+    @Override
+    public void close() throws Exception {
+        if (resource != null) {
+            resource.close();
+        }
+    }
+}
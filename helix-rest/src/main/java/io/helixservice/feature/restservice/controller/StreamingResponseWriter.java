@@ -0,0 +1,173 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.restservice.controller;
+
+import co.paralleluniverse.fibers.SuspendExecution;
+import co.paralleluniverse.fibers.Suspendable;
+import io.helixservice.core.execution.Await;
+import io.helixservice.core.util.BufferOutputStream;
+import io.helixservice.feature.restservice.marshal.Marshaller;
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.ext.web.RoutingContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Iterator;
+
+/**
+ * Writes a StreamingResponseBody to a chunked HTTP response
+ * <p>
+ * Elements are marshalled into a small buffer, which is written whenever it fills.
+ * When the connection's write queue is full, writing waits for it to drain.
+ * If the client disconnects, iteration stops and the body is closed.
+ */
+class StreamingResponseWriter {
+    private static final Logger LOG = LoggerFactory.getLogger(StreamingResponseWriter.class);
+    static final int FLUSH_BYTES = 8 * 1024;
+
+    private final RoutingContext routingContext;
+    private final HttpServerResponse response;
+    private final Marshaller marshaller;
+    private boolean closed;
+    private Handler<Void> waiter;
+
+    /**
+     * @param routingContext Routing context of the request, whose response status and headers are already set
+     * @param marshaller Marshaller for each element
+     */
+    StreamingResponseWriter(RoutingContext routingContext, Marshaller marshaller) {
+        this.routingContext = routingContext;
+        this.response = routingContext.response();
+        this.marshaller = marshaller;
+    }
+
+    /**
+     * Write the body, then end the response
+     *
+     * @param body Body to write
+     * @return Number of body bytes written
+     * @throws SuspendExecution For Vert.x Sync
+     */
+    @Suspendable
+    long write(StreamingResponseBody<?> body) throws SuspendExecution {
+        StreamingResponseBody.Format format = body.getFormat();
+        ResponseCloseHandlers.add(routingContext, event -> handleClosed());
+        response.setChunked(true).putHeader(VertxRequestHandler.CONTENT_TYPE, format.getContentType());
+
+        long bytesWritten = 0;
+        boolean complete = false;
+        try {
+            Buffer buffer = Buffer.buffer(FLUSH_BYTES).appendString(format.getPrefix());
+            Iterator<?> elements = body.getElements();
+            boolean first = true;
+
+            while (elements.hasNext() && !isClosed()) {
+                if (!first) {
+                    buffer.appendString(format.getSeparator());
+                }
+                marshaller.marshal(elements.next(), new BufferOutputStream(buffer));
+                first = false;
+
+                if (buffer.length() >= FLUSH_BYTES) {
+                    bytesWritten += buffer.length();
+                    response.write(buffer);
+                    buffer = Buffer.buffer(FLUSH_BYTES);
+                    awaitDrain();
+                }
+            }
+
+            if (!isClosed()) {
+                buffer.appendString(format.getSuffix());
+                bytesWritten += buffer.length();
+                response.end(buffer);
+                complete = true;
+            }
+        } catch (Throwable t) {
+            // Headers are already sent, so all that can be done is to cut the response short
+            LOG.error("Unable to write streaming response", t);
+        } finally {
+            if (!complete) {
+                abort();
+            }
+            closeQuietly(body);
+        }
+
+        return bytesWritten;
+    }
+
+    @Suspendable
+    private void awaitDrain() throws SuspendExecution {
+        if (response.writeQueueFull()) {
+            Await.<Void>awaitEvent(handler -> {
+                boolean wake;
+                synchronized (this) {
+                    wake = closed;
+                    if (!wake) {
+                        waiter = handler;
+                    }
+                }
+
+                if (wake) {
+                    handler.handle(null);
+                } else {
+                    response.drainHandler(event -> wakeWriter());
+                }
+            });
+        }
+    }
+
+    private void abort() {
+        // Close without the final chunk, so the client sees a truncated response.
+        // Ending afterwards runs the body end handlers, which track in-flight requests.
+        routingContext.put(VertxRequestHandler.RESPONSE_ABORTED, true);
+        try {
+            response.close();
+            response.end();
+        } catch (IllegalStateException e) {
+            LOG.debug("Response already ended", e);
+        }
+    }
+
+    private synchronized boolean isClosed() {
+        return closed;
+    }
+
+    private void handleClosed() {
+        synchronized (this) {
+            closed = true;
+        }
+        wakeWriter();
+    }
+
+    private void wakeWriter() {
+        Handler<Void> handler;
+        synchronized (this) {
+            handler = waiter;
+            waiter = null;
+        }
+
+        if (handler != null) {
+            handler.handle(null);
+        }
+    }
+
+    private static void closeQuietly(StreamingResponseBody<?> body) {
+        try {
+            body.close();
+        } catch (Exception e) {
+            LOG.warn("Unable to close streaming response body", e);
+        }
+    }
+}
@@ -13,25 +13,39 @@
 
 package io.helixservice.feature.restservice.controller;
 
+import co.paralleluniverse.fibers.SuspendExecution;
 import co.paralleluniverse.fibers.Suspendable;
-import io.helixservice.core.util.VertxTypeConverter;
+import io.helixservice.core.execution.Deadline;
+import io.helixservice.core.execution.DeadlineExceededException;
+import io.helixservice.core.util.BufferOutputStream;
 import io.helixservice.feature.restservice.controller.component.Endpoint;
+import io.helixservice.feature.restservice.controller.metrics.EndpointMetrics;
+import io.helixservice.feature.restservice.controller.metrics.EndpointMetricsFactory;
+import io.helixservice.feature.restservice.controller.metrics.EventBusEndpointMetrics;
 import io.helixservice.feature.restservice.controller.metrics.RequestMetricsPublisher;
 import io.helixservice.feature.restservice.error.ErrorHandlerFunction;
 import io.helixservice.feature.restservice.error.ErrorHandlerRegistry;
+import io.helixservice.feature.restservice.filter.FilterContext;
+import io.helixservice.feature.restservice.filter.FilterHandler;
 import io.helixservice.feature.restservice.marshal.Marshaller;
-import io.helixservice.feature.restservice.marshal.Message;
+import io.netty.buffer.ByteBufInputStream;
+import io.vertx.core.Context;
 import io.vertx.core.Handler;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.eventbus.EventBus;
 import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
 import io.vertx.ext.web.RoutingContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
 /**
  * Accepts incoming HTTP requests from Vert.x and routes them
@@ -44,7 +58,26 @@ import java.util.List;
  */
 public class VertxRequestHandler implements Handler<RoutingContext> {
     public static final String CONTENT_TYPE = "content-type";
+
+    /**
+     * Routing context key of the request's Deadline, when it is worked out before the filter chain runs
+     */
+    public static final String DEADLINE = "VertxRequestHandler.deadline";
+
+    /**
+     * Routing context key set to true when a response was cut short after its headers were sent
+     */
+    public static final String RESPONSE_ABORTED = "VertxRequestHandler.responseAborted";
     private static final Logger LOG = LoggerFactory.getLogger(VertxRequestHandler.class);
+    private static final int MIN_RESPONSE_SIZE_HINT = 256;
+    private static final String SPOOL_FILE_PREFIX = "helix-body-";
+    private static final String ACCEPT_ENCODING = "accept-encoding";
+    private static final String ACCEPT = "accept";
+    private static final String VARY = "vary";
+    private static final String CONTENT_ENCODING = "content-encoding";
+    private static final String ETAG = "etag";
+    private static final String IF_NONE_MATCH = "if-none-match";
+    private static final int NOT_MODIFIED = 304;
     private Endpoint endpoint;
 
     private String path;
@@ -52,6 +85,16 @@ public class VertxRequestHandler implements Handler<RoutingContext> {
 
     private Marshaller marshaller;
     private ErrorHandlerRegistry errorHandlerRegistry;
+    private long maxBodyBytes;
+    private Path spoolDirectory;
+    private ResponseCompressor responseCompressor;
+    private MarshallingExecutor marshallingExecutor;
+    private EndpointMetricsFactory endpointMetricsFactory;
+    private final Map<io.vertx.core.http.HttpMethod, EndpointMetrics> endpointMetrics =
+            new EnumMap<>(io.vertx.core.http.HttpMethod.class);
+
+    // Initial response buffer size, from the last response this endpoint sent
+    private volatile int responseSizeHint = MIN_RESPONSE_SIZE_HINT;
 
     /**
      * Create an EndpointHandler
@@ -63,11 +106,44 @@ public class VertxRequestHandler implements Handler<RoutingContext> {
      */
     public VertxRequestHandler(Endpoint endpoint,
             Marshaller marshaller, ErrorHandlerRegistry errorHandlerRegistry, EventBus eventBus) {
+        this(endpoint, marshaller, errorHandlerRegistry, eventBus, -1, Paths.get(System.getProperty("java.io.tmpdir")),
+                null, null, null);
+    }
+
+    /**
+     * Create an EndpointHandler
+     *
+     * @param endpoint Endpoint definition
+     * @param marshaller Marshaller to be used for this endpoint handler
+     * @param errorHandlerRegistry Registry of error handlers
+     * @param eventBus Event bus for publishing controller metrics
+     * @param maxBodyBytes Maximum size of a streamed request body, or -1 for no limit
+     * @param spoolDirectory Directory where spooled request bodies are written
+     * @param responseCompressor Compressor for response bodies, or null to never compress
+     * @param marshallingExecutor Executor for marshalling large bodies, or null to always marshal on the calling thread
+     * @param endpointMetricsFactory Factory for the endpoint's metric handles, or null to publish metrics to the event bus
+     */
+    public VertxRequestHandler(Endpoint endpoint,
+            Marshaller marshaller, ErrorHandlerRegistry errorHandlerRegistry, EventBus eventBus,
+            long maxBodyBytes, Path spoolDirectory, ResponseCompressor responseCompressor,
+            MarshallingExecutor marshallingExecutor, EndpointMetricsFactory endpointMetricsFactory) {
         this.endpoint = endpoint;
         this.marshaller = marshaller;
         this.errorHandlerRegistry = errorHandlerRegistry;
         this.path = endpoint.getPath();
         this.eventBus = eventBus;
+        this.maxBodyBytes = maxBodyBytes;
+        this.spoolDirectory = spoolDirectory;
+        this.responseCompressor = endpoint.isCompressible() ? responseCompressor : null;
+        this.marshallingExecutor = marshallingExecutor;
+        this.endpointMetricsFactory = endpointMetricsFactory != null
+                ? endpointMetricsFactory : (httpMethod, metricPath) -> new EventBusEndpointMetrics(eventBus, httpMethod, metricPath);
+
+        // Resolved once here, so recording a request's metrics needs no name building or lookups
+        for (HttpMethod httpMethod : endpoint.getHttpMethods()) {
+            endpointMetrics.put(io.vertx.core.http.HttpMethod.valueOf(httpMethod.name()),
+                    this.endpointMetricsFactory.forEndpoint(httpMethod.name(), path));
+        }
     }
 
     /**
@@ -78,66 +154,241 @@ public class VertxRequestHandler implements Handler<RoutingContext> {
     @Suspendable
     public void handle(RoutingContext event) {
         Request<?> request = null;
+        Object requestBody = null;
+        Deadline previousDeadline = null;
+        boolean deadlineSet = false;
 
-        RequestMetricsPublisher requestMetricsPublisher = new RequestMetricsPublisher(eventBus, path);
+        RequestMetricsPublisher requestMetricsPublisher = new RequestMetricsPublisher(getEndpointMetrics(event.request().method()));
 
         try {
             HttpServerRequest vertxRequest = event.request();
             requestMetricsPublisher.setHttpMethod(event.request().method().name());
 
+            ConcurrencyLimiter concurrencyLimiter = endpoint.getConcurrencyLimiter();
+            if (concurrencyLimiter != null) {
+                requestMetricsPublisher.setConcurrency(concurrencyLimiter.getLimit(), concurrencyLimiter.getInFlight());
+            }
+
+            ResponseCache responseCache = vertxRequest.method() == io.vertx.core.http.HttpMethod.GET
+                    ? endpoint.getResponseCache() : null;
+            String cacheKey = null;
+            if (responseCache != null) {
+                cacheKey = responseCache.keyFor(vertxRequest);
+                if (marshaller.isNegotiating()) {
+                    // The content type of the cached body depends on the Accept header
+                    cacheKey += "\n" + ACCEPT + ':' + vertxRequest.headers().getAll(ACCEPT);
+                }
+                ResponseCache.Entry cached = responseCache.get(cacheKey);
+                requestMetricsPublisher.setCacheHit(cached != null);
+
+                if (cached != null) {
+                    // Served without calling the endpoint or marshalling
+                    event.response().headers().addAll(cached.getHeaders());
+                    endWithBody(event, cached.getStatusCode(), cached, cached.getBody(), requestMetricsPublisher);
+                    return;
+                }
+            }
+
+            Deadline deadline = event.data().containsKey(DEADLINE) ? event.get(DEADLINE) : deadlineFor(endpoint, vertxRequest);
+            if (deadline != null) {
+                previousDeadline = Deadline.setCurrent(deadline);
+                deadlineSet = true;
+                if (deadline.isExpired()) {
+                    requestMetricsPublisher.setDeadlineExceeded();
+                    throw new DeadlineExceededException("Deadline passed before calling endpoint " + path);
+                }
+            }
+
+            if (endpoint.isStreamingBody()) {
+                requestBody = new RequestBodyStream(vertxRequest, maxBodyBytes);
+                if (SpooledRequestBody.class.equals(endpoint.getRequestBodyType())) {
+                    Path spoolFile = spoolDirectory.resolve(SPOOL_FILE_PREFIX + UUID.randomUUID());
+                    requestBody = ((RequestBodyStream) requestBody).spoolTo(event.vertx(), spoolFile);
+                }
+            } else {
+                requestBody = unmarshalRequestBody(event, requestMetricsPublisher);
+            }
+
             request = new Request<>(
                     vertxRequest.method().name(), vertxRequest.uri(),
-                    VertxTypeConverter.toGuavaMultimap(vertxRequest.params()),
-                    VertxTypeConverter.toGuavaMultimap(vertxRequest.headers()),
-                    unmarshalRequestBody(event), vertxRequest.remoteAddress().host(),
+                    vertxRequest.params(), vertxRequest.headers(),
+                    requestBody, vertxRequest.remoteAddress().host(),
                     vertxRequest.version().name());
 
-            Response response;
-            Method method = endpoint.getEndpointMethod();
-            if (method != null) {
-                response = (Response) method.invoke(endpoint.getController(), request);
-            } else {
-                EndpointHandler endpointHandler = this.endpoint.getEndpointHandler();
-                response = endpointHandler.handle(request);
+            Response response = endpoint.getInvoker().handle(request);
+
+            response.copyHeadersTo(event.response().headers());
+
+            if (response.getResponseBody() instanceof StreamingResponseBody) {
+                event.response().setStatusCode(response.getHttpStatusCode());
+                long responseSize = new StreamingResponseWriter(event, marshaller)
+                        .write((StreamingResponseBody<?>) response.getResponseBody());
+
+                requestMetricsPublisher.setResponseSize(responseSize);
+                requestMetricsPublisher.setSuccess(response.getHttpStatusCode() >= 200 && response.getHttpStatusCode() <= 299);
+                return;
             }
 
-            //noinspection unchecked
-            event.response().headers().addAll(VertxTypeConverter.toVertxMultiMap(response.getHeaders()));
-            Message responseMessage = marshalResponseBody(response);
-
-            Buffer responseBuffer = Buffer.buffer(responseMessage.getBody());
-            event.response()
-                    .setChunked(true)
-                    .setStatusCode(response.getHttpStatusCode())
-                    .putHeader(CONTENT_TYPE, responseMessage.getContentTypes())
-                    .write(responseBuffer)
-                    .end();
-
-            requestMetricsPublisher.setResponseSize(responseBuffer.length());
-            requestMetricsPublisher.setSuccess(response.getHttpStatusCode() >= 200 && response.getHttpStatusCode() <= 299);
-        } catch (InvocationTargetException t) {
-            int responseSize = handleErrorResponse(event, request, t.getCause());
-            requestMetricsPublisher.setResponseSize(responseSize);
+            Buffer responseBuffer = Buffer.buffer(responseSizeHint);
+            List<String> contentTypes = marshalResponseBody(response.getResponseBody(), responseBuffer,
+                    vertxRequest.headers().getAll(ACCEPT), requestMetricsPublisher);
+            responseSizeHint = Math.max(MIN_RESPONSE_SIZE_HINT, responseBuffer.length());
+            if (!event.response().headers().contains(CONTENT_TYPE)) {
+                // Unless the endpoint set its own, such as for a text format the marshaller does not know
+                event.response().putHeader(CONTENT_TYPE, contentTypes);
+            }
+
+            ResponseCache.Entry stored = null;
+            if (responseCache != null && response.getHttpStatusCode() == 200) {
+                stored = responseCache.put(cacheKey, response.getHttpStatusCode(), event.response().headers(), responseBuffer);
+                requestMetricsPublisher.setCacheEvictions(responseCache.drainEvictionCount());
+            }
+
+            endWithBody(event, response.getHttpStatusCode(), stored, responseBuffer, requestMetricsPublisher);
         } catch (Throwable t) {
             int responseSize = handleErrorResponse(event, request, t);
             requestMetricsPublisher.setResponseSize(responseSize);
         } finally {
+            if (deadlineSet) {
+                Deadline.setCurrent(previousDeadline);
+            }
+            releaseRequestBody(event, requestBody);
+
+            // Includes the filters' after calls, which ran when the response headers were written
+            FilterContext filterContext = (FilterContext) event.data().get(FilterHandler.FILTER_CONTEXT);
+            if (filterContext != null) {
+                requestMetricsPublisher.setFilterNanos(filterContext.getFilterNanos());
+            }
+            requestMetricsPublisher.setStatusCode(event.response().getStatusCode());
             requestMetricsPublisher.publish();
         }
     }
 
-    private Object unmarshalRequestBody(RoutingContext event) throws java.io.IOException {
-        Object result;
+    /**
+     * @param method HTTP method of a request
+     * @return Metric handles for requests to this endpoint with the method
+     */
+    public EndpointMetrics getEndpointMetrics(io.vertx.core.http.HttpMethod method) {
+        EndpointMetrics metrics = endpointMetrics.get(method);
+        return metrics != null ? metrics : endpointMetricsFactory.forEndpoint(method.name(), path);
+    }
 
-        byte[] body = event.getBody().getBytes();
+    /**
+     * Work out the deadline of a request, from its X-Request-Timeout-Ms header and the endpoint's default
+     *
+     * @param endpoint Endpoint handling the request
+     * @param vertxRequest The request
+     * @return The deadline, or null if the request has none
+     */
+    public static Deadline deadlineFor(Endpoint endpoint, HttpServerRequest vertxRequest) {
+        Deadline deadline = Deadline.fromHeader(vertxRequest.getHeader(Deadline.TIMEOUT_HEADER));
+        if (endpoint.getDeadlineMillis() >= 0) {
+            deadline = Deadline.afterMillis(endpoint.getDeadlineMillis()).min(deadline);
+        }
+        return deadline;
+    }
+
+    private void releaseRequestBody(RoutingContext event, Object requestBody) {
+        if (requestBody instanceof SpooledRequestBody) {
+            String spoolFile = ((SpooledRequestBody) requestBody).getPath().toString();
+            event.vertx().fileSystem().delete(spoolFile, result -> {
+                if (result.failed()) {
+                    LOG.warn("Unable to delete spooled request body " + spoolFile, result.cause());
+                }
+            });
+        } else if (requestBody instanceof RequestBodyStream && !((RequestBodyStream) requestBody).isEnded()) {
+            // The rest of the body was never read, so the connection cannot be reused
+            event.response().close();
+        }
+    }
+
+    private void endWithBody(RoutingContext event, int statusCode, ResponseCache.Entry cached, Buffer responseBuffer,
+            RequestMetricsPublisher requestMetricsPublisher) {
+        HttpServerResponse vertxResponse = event.response();
+
+        if (marshaller.isNegotiating()) {
+            vertxResponse.headers().add(VARY, ACCEPT);
+        }
+
+        if (cached != null) {
+            vertxResponse.putHeader(ETAG, cached.getETag());
+            if (cached.matches(event.request().getHeader(IF_NONE_MATCH))) {
+                vertxResponse.setStatusCode(NOT_MODIFIED).end();
+                requestMetricsPublisher.setSuccess(true);
+                return;
+            }
+        }
+
+        responseBuffer = compressResponse(event, responseBuffer, requestMetricsPublisher);
+
+        // Not chunked, so Vert.x sends the buffer with a Content-Length header
+        vertxResponse.setStatusCode(statusCode).end(responseBuffer);
+
+        requestMetricsPublisher.setResponseSize(responseBuffer.length());
+        requestMetricsPublisher.setSuccess(statusCode >= 200 && statusCode <= 299);
+    }
+
+    private Buffer compressResponse(RoutingContext event, Buffer responseBuffer,
+            RequestMetricsPublisher requestMetricsPublisher) {
+        if (responseCompressor == null || event.response().headers().contains(CONTENT_ENCODING)) {
+            return responseBuffer;
+        }
+
+        String encoding = responseCompressor.negotiate(event.request().getHeader(ACCEPT_ENCODING), responseBuffer.length());
+        if (encoding == null) {
+            return responseBuffer;
+        }
+
+        long start = System.nanoTime();
+        Buffer compressed = responseCompressor.compress(responseBuffer, encoding);
+        requestMetricsPublisher.setCompression(responseBuffer.length() - compressed.length(), System.nanoTime() - start);
+
+        event.response().putHeader(CONTENT_ENCODING, encoding);
+        event.response().headers().add(VARY, ACCEPT_ENCODING);
+        return compressed;
+    }
+
+    @Suspendable
+    private Object unmarshalRequestBody(RoutingContext event, RequestMetricsPublisher requestMetricsPublisher)
+            throws Exception, SuspendExecution {
+        Buffer bodyBuffer = event.getBody();
+        InputStream body = new ByteBufInputStream(bodyBuffer.getByteBuf());
         List<String> contentTypeHeaders = event.request().headers().getAll(CONTENT_TYPE);
-        result = marshaller.unmarshal(endpoint.getRequestBodyType(), new Message(body, contentTypeHeaders));
 
-        return result;
+        if (shouldOffload(bodyBuffer.length())) {
+            requestMetricsPublisher.addMarshallingOffloaded();
+            return marshallingExecutor.execute(() -> marshaller.unmarshal(endpoint.getRequestBodyType(), body, contentTypeHeaders));
+        }
+
+        long start = System.nanoTime();
+        Object requestBody = marshaller.unmarshal(endpoint.getRequestBodyType(), body, contentTypeHeaders);
+        recordEventLoopMarshalling(start, requestMetricsPublisher);
+        return requestBody;
+    }
+
+    // The response size is not known until it is marshalled, so the size of the endpoint's last response is used
+    @Suspendable
+    private List<String> marshalResponseBody(Object responseBody, Buffer responseBuffer, List<String> acceptTypes,
+            RequestMetricsPublisher requestMetricsPublisher) throws Exception, SuspendExecution {
+        if (shouldOffload(responseSizeHint)) {
+            requestMetricsPublisher.addMarshallingOffloaded();
+            return marshallingExecutor.execute(() -> marshaller.marshal(responseBody, new BufferOutputStream(responseBuffer), acceptTypes));
+        }
+
+        long start = System.nanoTime();
+        List<String> contentTypes = marshaller.marshal(responseBody, new BufferOutputStream(responseBuffer), acceptTypes);
+        recordEventLoopMarshalling(start, requestMetricsPublisher);
+        return contentTypes;
     }
 
-    private Message marshalResponseBody(Response response) {
-        return marshaller.marshal(response.getResponseBody());
+    private boolean shouldOffload(long bodyBytes) {
+        return marshallingExecutor != null && marshallingExecutor.shouldOffload(bodyBytes, endpoint.getOffloadThresholdBytes());
+    }
+
+    private void recordEventLoopMarshalling(long start, RequestMetricsPublisher requestMetricsPublisher) {
+        if (Context.isOnEventLoopThread()) {
+            requestMetricsPublisher.addEventLoopMarshallingNanos(System.nanoTime() - start);
+        }
     }
 
     private int handleErrorResponse(RoutingContext event, Request request, Throwable t) {
@@ -146,23 +397,19 @@ public class VertxRequestHandler implements Handler<RoutingContext> {
         Response<?> errorResponse = errorHandler.mapToErrorResponse(request, t);
         Object responseBody = errorResponse.getResponseBody();
 
-        byte[] marshaledResponseBody;
+        Buffer buffer = Buffer.buffer();
         try {
-            marshaledResponseBody = marshaller.marshal(responseBody).getBody();
+            marshaller.marshal(responseBody, new BufferOutputStream(buffer));
         } catch (Throwable tMarshaller) {
             String marshallerErrorResponse = "Unable to marshal response object";
             LOG.error(marshallerErrorResponse, tMarshaller);
-            marshaledResponseBody = marshallerErrorResponse.getBytes();
+            buffer = Buffer.buffer(marshallerErrorResponse);
         }
 
-        Buffer buffer = Buffer.buffer(marshaledResponseBody);
-
-        event.response().headers().addAll(VertxTypeConverter.toVertxMultiMap(errorResponse.getHeaders()));
+        errorResponse.copyHeadersTo(event.response().headers());
         event.response()
                 .setStatusCode(errorResponse.getHttpStatusCode())
-                .setChunked(true)
-                .write(buffer)
-                .end();
+                .end(buffer);
 
         return buffer.length();
     }
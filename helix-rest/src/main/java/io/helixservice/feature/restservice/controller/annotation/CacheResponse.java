@@ -0,0 +1,55 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.restservice.controller.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation used with @Endpoint to cache the endpoint's GET responses
+ */
+@Target({ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface CacheResponse {
+    /**
+     * Seconds a response is cached after it is stored
+     */
+    long ttlSeconds();
+
+    /**
+     * Maximum number of cached responses, used when maxBytes is not set
+     */
+    long maxEntries() default 1000;
+
+    /**
+     * Maximum total size of the cached bodies in bytes, or -1 to limit by maxEntries instead
+     */
+    long maxBytes() default -1;
+
+    /**
+     * Request parameters which select different responses
+     */
+    String[] params() default {};
+
+    /**
+     * Request headers which select different responses
+     */
+    String[] headers() default {};
+
+    /**
+     * True to hold cached bodies in direct memory, outside the Java heap
+     */
+    boolean offHeap() default false;
+}
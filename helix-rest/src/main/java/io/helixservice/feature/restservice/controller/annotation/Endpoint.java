@@ -36,4 +36,26 @@ public @interface Endpoint {
      */
     HttpMethod[] methods();
 
+    /**
+     * Maximum request body size in bytes, or -1 to use the server-wide limit
+     */
+    long maxBodyBytes() default -1;
+
+    /**
+     * False to never compress responses, for example when they are already compressed
+     */
+    boolean compress() default true;
+
+    /**
+     * Time budget for each request in milliseconds, or -1 for none.
+     * A shorter budget sent by the caller takes precedence.
+     */
+    long deadlineMillis() default -1;
+
+    /**
+     * Smallest request or response body marshalled off the event loop,
+     * or -1 to use the server-wide threshold
+     */
+    long offloadThresholdBytes() default -1;
+
 }
@@ -14,10 +14,13 @@
 package io.helixservice.feature.restservice.controller.component;
 
 import io.helixservice.core.component.Component;
+import io.helixservice.feature.restservice.controller.ResponseCache;
+import io.helixservice.feature.restservice.controller.annotation.CacheResponse;
 
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * REST Controller Configuration Component
@@ -68,7 +71,12 @@ public class Controller implements Component {
                 io.helixservice.feature.restservice.controller.annotation.Endpoint
                         annotation = method.getAnnotation(io.helixservice.feature.restservice.controller.annotation.Endpoint.class);
                 if (annotation != null) {
-                    endpointList.add(Endpoint.forPath(annotation.value(), annotation.methods(), method, controller));
+                    endpointList.add(Endpoint.forPath(annotation.value(), annotation.methods(), method, controller)
+                            .setMaxBodyBytes(annotation.maxBodyBytes())
+                            .setCompressible(annotation.compress())
+                            .setDeadlineMillis(annotation.deadlineMillis())
+                            .setOffloadThresholdBytes(annotation.offloadThresholdBytes())
+                            .setResponseCache(responseCacheFor(method.getAnnotation(CacheResponse.class))));
                 }
             }
         } else {
@@ -78,6 +86,21 @@ public class Controller implements Component {
         return new Controller(controller, endpointList);
     }
 
+    private static ResponseCache responseCacheFor(CacheResponse annotation) {
+        if (annotation == null) {
+            return null;
+        }
+
+        return ResponseCache.builder()
+                .ttl(annotation.ttlSeconds(), TimeUnit.SECONDS)
+                .maxEntries(annotation.maxEntries())
+                .maxBytes(annotation.maxBytes())
+                .keyParams(annotation.params())
+                .keyHeaders(annotation.headers())
+                .offHeap(annotation.offHeap())
+                .build();
+    }
+
     public Object getController() {
         return controller;
     }
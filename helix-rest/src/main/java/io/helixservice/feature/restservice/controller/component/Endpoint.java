@@ -14,12 +14,24 @@
 package io.helixservice.feature.restservice.controller.component;
 
 import io.helixservice.core.component.Component;
+import io.helixservice.feature.restservice.controller.ConcurrencyLimiter;
 import io.helixservice.feature.restservice.controller.EndpointHandler;
 import io.helixservice.feature.restservice.controller.HttpMethod;
+import io.helixservice.feature.restservice.controller.Request;
+import io.helixservice.feature.restservice.controller.RequestBodyStream;
+import io.helixservice.feature.restservice.controller.Response;
+import io.helixservice.feature.restservice.controller.ResponseCache;
+import io.helixservice.feature.restservice.controller.SpooledRequestBody;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.lang.reflect.ParameterizedType;
 import java.util.Arrays;
 
@@ -33,6 +45,12 @@ import java.util.Arrays;
  * <p>
  * Each registered EndpointComponent is a Helix component. Using the ComponentRegistry
  * it is possible to enumerate all the endpoints.
+ * <p>
+ * Endpoint methods are bound once into an EndpointHandler invoker, so each request
+ * calls the controller method directly rather than through reflection.
+ * <p>
+ * Endpoints with a request body type of RequestBodyStream or SpooledRequestBody
+ * receive their body as it arrives, rather than after it has been buffered in memory.
  */
 
 public class Endpoint implements Component {
@@ -42,7 +60,15 @@ public class Endpoint implements Component {
     private HttpMethod[] httpMethods;
     private Method endpointMethod;
     private EndpointHandler endpointHandler;
+    private EndpointHandler invoker;
     private Class requestBodyType;
+    private Class responseBodyType;
+    private long maxBodyBytes = -1;
+    private boolean compressible = true;
+    private long deadlineMillis = -1;
+    private long offloadThresholdBytes = -1;
+    private ResponseCache responseCache;
+    private ConcurrencyLimiter concurrencyLimiter;
     private Object controller;
 
 
@@ -146,12 +172,15 @@ public class Endpoint implements Component {
         this.endpointMethod = endpointMethod;
         this.controller = controller;
         this.requestBodyType = getRequestBodyTypeForMethod(endpointMethod);
+        this.responseBodyType = getResponseBodyTypeForMethod(endpointMethod);
+        this.invoker = bindInvoker(endpointMethod, controller);
     }
 
     private Endpoint(String path, HttpMethod[] httpMethods, EndpointHandler endpointHandler) {
         this.path = path;
         this.httpMethods = httpMethods;
         this.endpointHandler = endpointHandler;
+        this.invoker = endpointHandler;
         this.requestBodyType = String.class;
     }
 
@@ -159,6 +188,7 @@ public class Endpoint implements Component {
         this.path = path;
         this.httpMethods = httpMethods;
         this.endpointHandler = endpointHandler;
+        this.invoker = endpointHandler;
         this.requestBodyType = requestBodyType;
     }
 
@@ -170,10 +200,150 @@ public class Endpoint implements Component {
         return endpointHandler;
     }
 
+    /**
+     * Get the handler that invokes this endpoint. For lambda-based endpoints this is
+     * the endpoint handler itself, and for controller methods it is a handler bound
+     * directly to the method on the controller object.
+     *
+     * @return The handler to invoke for each request
+     */
+    public EndpointHandler getInvoker() {
+        return invoker;
+    }
+
     public Class getRequestBodyType() {
         return requestBodyType;
     }
 
+    /**
+     * Type of the response body, when it is declared by the endpoint method
+     *
+     * @return The response body class, or null if not known until the response is created
+     */
+    public Class getResponseBodyType() {
+        return responseBodyType;
+    }
+
+    /**
+     * @return True if the request body is read as it arrives, rather than buffered before the endpoint is called
+     */
+    public boolean isStreamingBody() {
+        return RequestBodyStream.class.equals(requestBodyType) || SpooledRequestBody.class.equals(requestBodyType);
+    }
+
+    /**
+     * @return Maximum request body size for this endpoint, or -1 to use the server-wide limit
+     */
+    public long getMaxBodyBytes() {
+        return maxBodyBytes;
+    }
+
+    /**
+     * Set the maximum request body size for this endpoint.
+     * Larger requests are rejected with HTTP 413.
+     *
+     * @param maxBodyBytes Maximum body size, or -1 to use the server-wide limit
+     * @return This endpoint
+     */
+    public Endpoint setMaxBodyBytes(long maxBodyBytes) {
+        this.maxBodyBytes = maxBodyBytes;
+        return this;
+    }
+
+    /**
+     * @return True if responses from this endpoint may be compressed
+     */
+    public boolean isCompressible() {
+        return compressible;
+    }
+
+    /**
+     * Allow or prevent compression of responses from this endpoint
+     *
+     * @param compressible False to never compress responses, for example when they are already compressed
+     * @return This endpoint
+     */
+    public Endpoint setCompressible(boolean compressible) {
+        this.compressible = compressible;
+        return this;
+    }
+
+    /**
+     * @return Default time budget for requests to this endpoint in milliseconds, or -1 for none
+     */
+    public long getDeadlineMillis() {
+        return deadlineMillis;
+    }
+
+    /**
+     * Set the default time budget for requests to this endpoint.
+     * A shorter budget sent by the caller in the X-Request-Timeout-Ms header takes precedence.
+     *
+     * @param deadlineMillis Time budget in milliseconds, or -1 for none
+     * @return This endpoint
+     */
+    public Endpoint setDeadlineMillis(long deadlineMillis) {
+        this.deadlineMillis = deadlineMillis;
+        return this;
+    }
+
+    /**
+     * @return Smallest body marshalled off the event loop for this endpoint, or -1 to use the server-wide threshold
+     */
+    public long getOffloadThresholdBytes() {
+        return offloadThresholdBytes;
+    }
+
+    /**
+     * Set the smallest request or response body which is marshalled on a marshalling thread
+     * rather than the event loop, overriding <b>vertx.server.marshalling.offloadThresholdBytes</b>
+     *
+     * @param offloadThresholdBytes Threshold in bytes, or -1 to use the server-wide threshold
+     * @return This endpoint
+     */
+    public Endpoint setOffloadThresholdBytes(long offloadThresholdBytes) {
+        this.offloadThresholdBytes = offloadThresholdBytes;
+        return this;
+    }
+
+    /**
+     * @return Cache for GET responses from this endpoint, or null if responses are not cached
+     */
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    /**
+     * Cache GET responses from this endpoint.
+     * Cached responses are served without calling the endpoint.
+     *
+     * @param responseCache Response cache, or null to not cache responses
+     * @return This endpoint
+     */
+    public Endpoint setResponseCache(ResponseCache responseCache) {
+        this.responseCache = responseCache;
+        return this;
+    }
+
+    /**
+     * @return Limit on concurrent requests to this endpoint, or null if unlimited
+     */
+    public ConcurrencyLimiter getConcurrencyLimiter() {
+        return concurrencyLimiter;
+    }
+
+    /**
+     * Limit the number of requests this endpoint handles at once.
+     * Requests over the limit are rejected with HTTP 503.
+     *
+     * @param concurrencyLimiter Concurrency limiter, or null for no limit
+     * @return This endpoint
+     */
+    public Endpoint setConcurrencyLimiter(ConcurrencyLimiter concurrencyLimiter) {
+        this.concurrencyLimiter = concurrencyLimiter;
+        return this;
+    }
+
     public Method getEndpointMethod() {
         return endpointMethod;
     }
@@ -222,4 +392,54 @@ public class Endpoint implements Component {
 
         return type;
     }
+
+    private Class<?> getResponseBodyTypeForMethod(Method method) {
+        Class<?> type = null;
+
+        java.lang.reflect.Type returnType = method.getGenericReturnType();
+        if (returnType instanceof ParameterizedType) {
+            java.lang.reflect.Type typeArgument = ((ParameterizedType) returnType).getActualTypeArguments()[0];
+            if (typeArgument instanceof Class) {
+                type = (Class) typeArgument;
+            }
+        }
+
+        return type;
+    }
+
+    private static EndpointHandler bindInvoker(Method method, Object controller) {
+        try {
+            method.setAccessible(true);
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodHandle methodHandle = lookup.unreflect(method);
+
+            if (isLambdaBindable(method)) {
+                CallSite callSite = LambdaMetafactory.metafactory(lookup, "handle",
+                        MethodType.methodType(EndpointHandler.class, method.getDeclaringClass()),
+                        MethodType.methodType(Response.class, Request.class),
+                        methodHandle,
+                        MethodType.methodType(method.getReturnType(), method.getParameterTypes()[0]));
+
+                return (EndpointHandler) callSite.getTarget().invoke(controller);
+            }
+
+            // Non-public controllers can't be linked by a generated class, so use the bound method handle
+            MethodHandle boundHandle = Modifier.isStatic(method.getModifiers()) ? methodHandle : methodHandle.bindTo(controller);
+            MethodHandle invokerHandle = boundHandle.asType(MethodType.methodType(Response.class, Request.class));
+            return request -> (Response) invokerHandle.invokeExact(request);
+        } catch (Throwable t) {
+            throw new IllegalArgumentException("Unable to bind endpoint method=" + method, t);
+        }
+    }
+
+    private static boolean isLambdaBindable(Method method) {
+        Class<?> declaringClass = method.getDeclaringClass();
+
+        return Modifier.isPublic(declaringClass.getModifiers())
+                && (declaringClass.getEnclosingClass() == null || Modifier.isStatic(declaringClass.getModifiers()))
+                && !Modifier.isStatic(method.getModifiers())
+                && method.getParameterCount() == 1
+                && Request.class.isAssignableFrom(method.getParameterTypes()[0])
+                && Response.class.isAssignableFrom(method.getReturnType());
+    }
 }
@@ -16,6 +16,7 @@ package io.helixservice.feature.restservice.controller.component;
 import io.helixservice.core.component.Component;
 import io.helixservice.feature.restservice.controller.EndpointHandler;
 import io.helixservice.feature.restservice.controller.HttpMethod;
+import io.helixservice.feature.restservice.controller.ResponseCache;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -26,6 +27,11 @@ import java.util.List;
 public class EndpointComponentBuilder implements Component {
     private String path;
     private List<Endpoint> endpoints = new ArrayList<>();
+    private long maxBodyBytes = -1;
+    private boolean compress = true;
+    private long deadlineMillis = -1;
+    private long offloadThresholdBytes = -1;
+    private ResponseCache responseCache;
 
     private EndpointComponentBuilder(String path) {
         this.path = path;
@@ -41,6 +47,62 @@ public class EndpointComponentBuilder implements Component {
         return new EndpointComponentBuilder(path);
     }
 
+    /**
+     * Set the maximum request body size for endpoints built after this call
+     *
+     * @param maxBodyBytes Maximum body size in bytes, or -1 to use the server-wide limit
+     * @return The fluent builder
+     */
+    public EndpointComponentBuilder maxBodyBytes(long maxBodyBytes) {
+        this.maxBodyBytes = maxBodyBytes;
+        return this;
+    }
+
+    /**
+     * Allow or prevent response compression for endpoints built after this call
+     *
+     * @param compress False to never compress responses
+     * @return The fluent builder
+     */
+    public EndpointComponentBuilder compress(boolean compress) {
+        this.compress = compress;
+        return this;
+    }
+
+    /**
+     * Set the default time budget for requests to endpoints built after this call
+     *
+     * @param deadlineMillis Time budget in milliseconds, or -1 for none
+     * @return The fluent builder
+     */
+    public EndpointComponentBuilder deadlineMillis(long deadlineMillis) {
+        this.deadlineMillis = deadlineMillis;
+        return this;
+    }
+
+    /**
+     * Set the smallest body marshalled off the event loop, for endpoints built after this call
+     *
+     * @param offloadThresholdBytes Threshold in bytes, or -1 to use the server-wide threshold
+     * @return The fluent builder
+     */
+    public EndpointComponentBuilder offloadThresholdBytes(long offloadThresholdBytes) {
+        this.offloadThresholdBytes = offloadThresholdBytes;
+        return this;
+    }
+
+    /**
+     * Cache GET responses of endpoints built after this call.
+     * Entries are keyed by request path, so endpoints of this builder may share one cache.
+     *
+     * @param responseCache Response cache, or null to not cache responses
+     * @return The fluent builder
+     */
+    public EndpointComponentBuilder responseCache(ResponseCache responseCache) {
+        this.responseCache = responseCache;
+        return this;
+    }
+
     /**
      * Build an new EndpointComponent for a lambda-based endpoint,
      * with a request body type of String.
@@ -50,7 +112,12 @@ public class EndpointComponentBuilder implements Component {
      * @return The fluent builder
      */
     public EndpointComponentBuilder handle(HttpMethod httpMethod, EndpointHandler functionalEndpointHandler) {
-        endpoints.add(Endpoint.forPath(path, new HttpMethod[] {httpMethod}, functionalEndpointHandler));
+        endpoints.add(Endpoint.forPath(path, new HttpMethod[] {httpMethod}, functionalEndpointHandler)
+                .setMaxBodyBytes(maxBodyBytes)
+                .setCompressible(compress)
+                .setDeadlineMillis(deadlineMillis)
+                .setOffloadThresholdBytes(offloadThresholdBytes)
+                .setResponseCache(responseCache));
         return this;
     }
 
@@ -64,7 +131,12 @@ public class EndpointComponentBuilder implements Component {
      * @return The fluent builder
      */
     public EndpointComponentBuilder handle(HttpMethod httpMethod, EndpointHandler functionalEndpointHandler, Class requestBodyType) {
-        endpoints.add(Endpoint.forPath(path, new HttpMethod[] {httpMethod}, functionalEndpointHandler, requestBodyType));
+        endpoints.add(Endpoint.forPath(path, new HttpMethod[] {httpMethod}, functionalEndpointHandler, requestBodyType)
+                .setMaxBodyBytes(maxBodyBytes)
+                .setCompressible(compress)
+                .setDeadlineMillis(deadlineMillis)
+                .setOffloadThresholdBytes(offloadThresholdBytes)
+                .setResponseCache(responseCache));
         return this;
     }
 
@@ -0,0 +1,93 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.restservice.controller.metrics;
+
+/**
+ * Metric handles for one endpoint path and HTTP method
+ * <p>
+ * Handles are resolved once, when the endpoint is registered, so recording a request
+ * does not build metric names or look metrics up. Implementations must be thread-safe.
+ *
+ * @see EndpointMetricsFactory
+ */
+public interface EndpointMetrics {
+    /**
+     * Record a completed request
+     *
+     * @param durationNanos Time taken to handle the request, in nanoseconds
+     * @param success True if the response status was 2xx
+     * @param responseSize Response body size in bytes
+     */
+    void recordRequest(long durationNanos, boolean success, long responseSize);
+
+    /**
+     * Record the status code of a response, by its class
+     *
+     * @param statusCode HTTP status code sent
+     */
+    void recordStatus(int statusCode);
+
+    /**
+     * Record the time a request spent in the filters in front of the endpoint
+     *
+     * @param filterNanos Time spent in the filters' before and after calls, in nanoseconds
+     */
+    void recordFilters(long filterNanos);
+
+    /**
+     * Record the effect of compressing the response
+     *
+     * @param bytesSaved Uncompressed size less compressed size
+     * @param compressionNanos Time spent compressing, including the compressed body cache lookup
+     */
+    void recordCompression(long bytesSaved, long compressionNanos);
+
+    /**
+     * Record the endpoint's concurrency limit, as seen by a request
+     *
+     * @param limit Current concurrency limit
+     * @param inFlight Requests in flight, including this one
+     */
+    void recordConcurrency(int limit, int inFlight);
+
+    /**
+     * Record a request which was not handled because its deadline had already passed
+     */
+    void recordDeadlineExceeded();
+
+    /**
+     * Record a request rejected with HTTP 503 because the endpoint's concurrency limit was reached
+     */
+    void recordRejected();
+
+    /**
+     * Record a request rejected with HTTP 429 by the rate limit filter
+     */
+    void recordThrottled();
+
+    /**
+     * Record a response cache lookup
+     *
+     * @param hit True if the response was served from the cache
+     * @param evictions Number of entries evicted from the cache
+     */
+    void recordCache(boolean hit, long evictions);
+
+    /**
+     * Record where a request's bodies were marshalled
+     *
+     * @param eventLoopNanos Time spent marshalling on the event loop, or -1 if none was
+     * @param offloaded Number of bodies marshalled on a marshalling thread
+     */
+    void recordMarshalling(long eventLoopNanos, int offloaded);
+}
@@ -0,0 +1,43 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.restservice.controller.metrics;
+
+import io.helixservice.core.component.Component;
+
+/**
+ * Component which creates the metric handles for each endpoint
+ * <p>
+ * Register a factory with any feature, for example the MetricsFeature, to record request
+ * metrics directly. Without one, request metrics are published to the event bus.
+ */
+@FunctionalInterface
+public interface EndpointMetricsFactory extends Component {
+    String TYPE_NAME = "EndpointMetricsFactory";
+
+    /**
+     * Create the metric handles for an endpoint
+     *
+     * @param httpMethod HTTP method name, for example "GET"
+     * @param path Endpoint path
+     * @return Metric handles for requests to the endpoint with this method
+     */
+    EndpointMetrics forEndpoint(String httpMethod, String path);
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    default String getComponentType() {
+        return TYPE_NAME;
+    }
+}
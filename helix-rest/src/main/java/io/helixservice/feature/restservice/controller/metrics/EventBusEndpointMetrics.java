@@ -0,0 +1,152 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.restservice.controller.metrics;
+
+import io.vertx.core.eventbus.EventBus;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes request metrics to the event bus, as "metricKey=metricValue" strings
+ * on the metrics.timer, metrics.counter and metrics.histogram addresses.
+ * <p>
+ * Used when no EndpointMetricsFactory is registered, so that consumers of those
+ * addresses keep receiving request metrics. Metric names are built once.
+ */
+public class EventBusEndpointMetrics implements EndpointMetrics {
+    private static final String TIMER = "metrics.timer";
+    private static final String COUNTER = "metrics.counter";
+    private static final String HISTOGRAM = "metrics.histogram";
+
+    private final EventBus eventBus;
+    private final String duration;
+    private final String totalCount;
+    private final String successCount;
+    private final String failureCount;
+    private final String responseSize;
+    private final String filterNanos;
+    private final String[] statusCounts = new String[5];
+    private final String compressionBytesSaved;
+    private final String compressionNanos;
+    private final String concurrencyLimit;
+    private final String concurrencyInFlight;
+    private final String deadlineExceededCount;
+    private final String rejectedCount;
+    private final String throttledCount;
+    private final String cacheHitCount;
+    private final String cacheMissCount;
+    private final String cacheEvictionCount;
+    private final String marshallingEventLoopNanos;
+    private final String marshallingOffloadedCount;
+
+    /**
+     * Create the event bus metric handles for an endpoint
+     *
+     * @param eventBus Vert.x Event Bus
+     * @param httpMethod HTTP method name
+     * @param path Endpoint path
+     */
+    public EventBusEndpointMetrics(EventBus eventBus, String httpMethod, String path) {
+        String metricName = httpMethod + "." + path + "=";
+
+        this.eventBus = eventBus;
+        this.duration = "controller.endpoint.duration." + metricName;
+        this.totalCount = "controller.endpoint.total.count." + metricName;
+        this.successCount = "controller.endpoint.success.count." + metricName;
+        this.failureCount = "controller.endpoint.failure.count." + metricName;
+        this.responseSize = "controller.endpoint.response.size." + metricName;
+        this.filterNanos = "controller.endpoint.filter.nanos." + metricName;
+        for (int i = 0; i < statusCounts.length; i++) {
+            statusCounts[i] = "controller.endpoint.status." + (i + 1) + "xx.count." + metricName;
+        }
+        this.compressionBytesSaved = "controller.endpoint.compression.bytesSaved." + metricName;
+        this.compressionNanos = "controller.endpoint.compression.nanos." + metricName;
+        this.concurrencyLimit = "controller.endpoint.concurrency.limit." + metricName;
+        this.concurrencyInFlight = "controller.endpoint.concurrency.inflight." + metricName;
+        this.deadlineExceededCount = "controller.endpoint.deadline.exceeded.count." + metricName;
+        this.rejectedCount = "controller.endpoint.concurrency.rejected.count." + metricName;
+        this.throttledCount = "controller.endpoint.ratelimit.throttled.count." + metricName;
+        this.cacheHitCount = "controller.endpoint.cache.hit.count." + metricName;
+        this.cacheMissCount = "controller.endpoint.cache.miss.count." + metricName;
+        this.cacheEvictionCount = "controller.endpoint.cache.eviction.count." + metricName;
+        this.marshallingEventLoopNanos = "controller.endpoint.marshalling.eventloop.nanos." + metricName;
+        this.marshallingOffloadedCount = "controller.endpoint.marshalling.offloaded.count." + metricName;
+    }
+
+    @Override
+    public void recordRequest(long durationNanos, boolean success, long size) {
+        // The metrics.timer address takes milliseconds
+        eventBus.publish(TIMER, duration + TimeUnit.NANOSECONDS.toMillis(durationNanos));
+        eventBus.publish(COUNTER, totalCount + "1");
+        eventBus.publish(COUNTER, successCount + (success ? "1" : "0"));
+        eventBus.publish(COUNTER, failureCount + (success ? "0" : "1"));
+        eventBus.publish(HISTOGRAM, responseSize + size);
+    }
+
+    @Override
+    public void recordStatus(int statusCode) {
+        int statusClass = statusCode / 100;
+        if (statusClass >= 1 && statusClass <= statusCounts.length) {
+            eventBus.publish(COUNTER, statusCounts[statusClass - 1] + "1");
+        }
+    }
+
+    @Override
+    public void recordFilters(long nanos) {
+        eventBus.publish(HISTOGRAM, filterNanos + nanos);
+    }
+
+    @Override
+    public void recordCompression(long bytesSaved, long nanos) {
+        eventBus.publish(COUNTER, compressionBytesSaved + bytesSaved);
+        eventBus.publish(COUNTER, compressionNanos + nanos);
+    }
+
+    @Override
+    public void recordConcurrency(int limit, int inFlight) {
+        eventBus.publish(HISTOGRAM, concurrencyLimit + limit);
+        eventBus.publish(HISTOGRAM, concurrencyInFlight + inFlight);
+    }
+
+    @Override
+    public void recordDeadlineExceeded() {
+        eventBus.publish(COUNTER, deadlineExceededCount + "1");
+    }
+
+    @Override
+    public void recordRejected() {
+        eventBus.publish(COUNTER, rejectedCount + "1");
+    }
+
+    @Override
+    public void recordThrottled() {
+        eventBus.publish(COUNTER, throttledCount + "1");
+    }
+
+    @Override
+    public void recordCache(boolean hit, long evictions) {
+        eventBus.publish(COUNTER, cacheHitCount + (hit ? "1" : "0"));
+        eventBus.publish(COUNTER, cacheMissCount + (hit ? "0" : "1"));
+        eventBus.publish(COUNTER, cacheEvictionCount + evictions);
+    }
+
+    @Override
+    public void recordMarshalling(long eventLoopNanos, int offloaded) {
+        if (eventLoopNanos >= 0) {
+            eventBus.publish(HISTOGRAM, marshallingEventLoopNanos + eventLoopNanos);
+        }
+        if (offloaded > 0) {
+            eventBus.publish(COUNTER, marshallingOffloadedCount + offloaded);
+        }
+    }
+}
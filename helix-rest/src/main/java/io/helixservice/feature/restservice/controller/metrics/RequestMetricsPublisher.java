@@ -16,19 +16,32 @@ package io.helixservice.feature.restservice.controller.metrics;
 import io.vertx.core.eventbus.EventBus;
 
 /**
- * Publishes metrics for REST Request to the EventBus.
+ * Collects the metrics of one REST request, and records them when the request completes.
  * <p>
- * The response duration, response size, response code, and path are published.
- * Metrics published here are picked up by the MetricsFeature for aggregation and reporting.
+ * The response duration, response size, response code, and path are recorded through
+ * the endpoint's EndpointMetrics handles. Without handles, metrics are published to the
+ * EventBus, where they are picked up by the MetricsFeature for aggregation and reporting.
  */
 public class RequestMetricsPublisher {
     private EventBus eventBus;
     private String path;
+    private EndpointMetrics endpointMetrics;
 
-    private long start = System.currentTimeMillis();
+    private long start = System.nanoTime();
     private String httpMethod = "";
     private long responseSize = 0;
     private boolean success = false;
+    private long compressionBytesSaved = 0;
+    private long compressionNanos = 0;
+    private Boolean cacheHit = null;
+    private long cacheEvictions = 0;
+    private int concurrencyLimit = -1;
+    private int concurrencyInFlight = 0;
+    private boolean deadlineExceeded = false;
+    private long eventLoopMarshallingNanos = -1;
+    private int marshallingOffloaded = 0;
+    private long filterNanos = -1;
+    private int statusCode = -1;
 
     /**
      * Create REST Endpoint Metrics Publisher
@@ -41,6 +54,15 @@ public class RequestMetricsPublisher {
         this.path = path;
     }
 
+    /**
+     * Create REST Endpoint Metrics Publisher, which records to metric handles
+     *
+     * @param endpointMetrics Metric handles for the request's endpoint and HTTP method
+     */
+    public RequestMetricsPublisher(EndpointMetrics endpointMetrics) {
+        this.endpointMetrics = endpointMetrics;
+    }
+
     public void setHttpMethod(String httpMethod) {
         this.httpMethod = httpMethod;
     }
@@ -54,22 +76,125 @@ public class RequestMetricsPublisher {
     }
 
     /**
-     * Publish request data metrics to the event bus,
-     * this information should be picked up by MetricsFeature
+     * Record the effect of compressing the response
+     *
+     * @param bytesSaved Uncompressed size less compressed size
+     * @param compressionNanos Time spent compressing, including the compressed body cache lookup
+     */
+    public void setCompression(long bytesSaved, long compressionNanos) {
+        this.compressionBytesSaved = bytesSaved;
+        this.compressionNanos = compressionNanos;
+    }
+
+    /**
+     * @param cacheHit True if the response was served from the endpoint's response cache
+     */
+    public void setCacheHit(boolean cacheHit) {
+        this.cacheHit = cacheHit;
+    }
+
+    /**
+     * @param cacheEvictions Number of entries evicted from the endpoint's response cache
+     */
+    public void setCacheEvictions(long cacheEvictions) {
+        this.cacheEvictions = cacheEvictions;
+    }
+
+    /**
+     * Record the endpoint's concurrency limit, as seen by this request
+     *
+     * @param limit Current concurrency limit
+     * @param inFlight Requests in flight, including this one
+     */
+    public void setConcurrency(int limit, int inFlight) {
+        this.concurrencyLimit = limit;
+        this.concurrencyInFlight = inFlight;
+    }
+
+    /**
+     * Record that the request's deadline passed before the endpoint was called
+     */
+    public void setDeadlineExceeded() {
+        this.deadlineExceeded = true;
+    }
+
+    /**
+     * Record time spent marshalling or unmarshalling a body on an event loop thread
+     *
+     * @param nanos Time the event loop was stalled, in nanoseconds
+     */
+    public void addEventLoopMarshallingNanos(long nanos) {
+        this.eventLoopMarshallingNanos = Math.max(0, eventLoopMarshallingNanos) + nanos;
+    }
+
+    /**
+     * Record that a body was marshalled or unmarshalled on a marshalling thread
+     */
+    public void addMarshallingOffloaded() {
+        this.marshallingOffloaded++;
+    }
+
+    /**
+     * @param statusCode HTTP status code sent, which is recorded by its class, for example 2xx
+     */
+    public void setStatusCode(int statusCode) {
+        this.statusCode = statusCode;
+    }
+
+    /**
+     * Record the time the request spent in the filters in front of its endpoint
+     *
+     * @param filterNanos Time spent in the filters' before and after calls, in nanoseconds
+     */
+    public void setFilterNanos(long filterNanos) {
+        this.filterNanos = filterNanos;
+    }
+
+    /**
+     * Record the request's metrics, with the endpoint's metric handles
+     * or to the event bus, where they are picked up by MetricsFeature
      */
     public void publish() {
-        long duration = System.currentTimeMillis() - start;
-        String metricName = httpMethod + "." + path;
+        // Nanoseconds, since many endpoints respond in well under 1ms
+        long duration = System.nanoTime() - start;
+        EndpointMetrics metrics = endpointMetrics != null
+                ? endpointMetrics : new EventBusEndpointMetrics(eventBus, httpMethod, path);
+
+        metrics.recordRequest(duration, success, responseSize);
+
+        // Responses by status class, as 304 Not Modified counts as a success
+        if (statusCode >= 0) {
+            metrics.recordStatus(statusCode);
+        }
+
+        // Time spent in filters, for endpoints with filters in front of them
+        if (filterNanos >= 0) {
+            metrics.recordFilters(filterNanos);
+        }
+
+        // Compression savings, and time spent compressing (in nanoseconds, since most bodies take well under 1ms)
+        if (compressionBytesSaved != 0 || compressionNanos != 0) {
+            metrics.recordCompression(compressionBytesSaved, compressionNanos);
+        }
+
+        // Concurrency limit and in-flight requests, for endpoints with a concurrency limiter
+        if (concurrencyLimit >= 0) {
+            metrics.recordConcurrency(concurrencyLimit, concurrencyInFlight);
+        }
 
-        // Duration as histogram and timer
-        eventBus.publish("metrics.timer", "controller.endpoint.duration." + metricName + "=" + duration);
+        // Requests which were not handled because their deadline had already passed
+        if (deadlineExceeded) {
+            metrics.recordDeadlineExceeded();
+        }
 
-        // Counters for Total, Success, and Failued request
-        eventBus.publish("metrics.counter", "controller.endpoint.total.count." + metricName + "=1");
-        eventBus.publish("metrics.counter", "controller.endpoint.success.count." + metricName + "=" + (success ? "1" : "0"));
-        eventBus.publish("metrics.counter", "controller.endpoint.failure.count." + metricName + "=" + (success ? "0" : "1"));
+        // Event loop time spent (un)marshalling bodies, and bodies moved to marshalling threads instead
+        if (eventLoopMarshallingNanos >= 0 || marshallingOffloaded > 0) {
+            metrics.recordMarshalling(eventLoopMarshallingNanos, marshallingOffloaded);
+        }
 
-        // Histogram of response size
-        eventBus.publish("metrics.histogram", "controller.endpoint.response.size." + metricName + "=" + responseSize);
+        // Response cache hits, misses and evictions, for endpoints with a response cache
+        if (cacheHit != null) {
+            metrics.recordCache(cacheHit, cacheEvictions);
+        }
     }
 }
@@ -13,7 +13,9 @@
 
 package io.helixservice.feature.restservice.error;
 
+import io.helixservice.core.execution.DeadlineExceededException;
 import io.helixservice.feature.restservice.controller.Request;
+import io.helixservice.feature.restservice.controller.RequestBodyTooLargeException;
 import io.helixservice.feature.restservice.controller.Response;
 import io.helixservice.feature.restservice.error.jsonapi.ErrorData;
 import io.helixservice.feature.restservice.error.jsonapi.ErrorResponse;
@@ -27,7 +29,26 @@ import org.slf4j.LoggerFactory;
 public class DefaultErrorHandler {
     private static final Logger LOG = LoggerFactory.getLogger(DefaultErrorHandler.class);
 
+    private static final int REQUEST_TOO_LARGE = 413;
+    private static final int GATEWAY_TIMEOUT = 504;
+
     public static Response<ErrorResponse> defaultExceptionMapper(Request request, Throwable t) {
+        if (t instanceof RequestBodyTooLargeException) {
+            ErrorResponse errorResponse = new ErrorResponse(REQUEST_TOO_LARGE,
+                    new ErrorData(t.getClass().getSimpleName(), "Request Body Too Large", t.getMessage()));
+
+            LOG.warn(errorResponse.toString());
+            return Response.jsonAPIErrorResponse(errorResponse);
+        }
+
+        if (t instanceof DeadlineExceededException) {
+            ErrorResponse errorResponse = new ErrorResponse(GATEWAY_TIMEOUT,
+                    new ErrorData(t.getClass().getSimpleName(), "Request Deadline Exceeded", t.getMessage()));
+
+            LOG.warn(errorResponse.toString());
+            return Response.jsonAPIErrorResponse(errorResponse);
+        }
+
         ErrorResponse errorResponse = new ErrorResponse(500,
                 new ErrorData(t.getClass().getSimpleName(), "Request Failed", t.getMessage()));
 
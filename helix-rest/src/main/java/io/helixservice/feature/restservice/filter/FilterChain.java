@@ -0,0 +1,109 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.restservice.filter;
+
+import co.paralleluniverse.fibers.Suspendable;
+import io.helixservice.feature.restservice.filter.component.FilterComponent;
+import io.vertx.core.Handler;
+import io.vertx.ext.web.RoutingContext;
+import io.vertx.ext.web.impl.Utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Builds the ordered chain of filters which run before each endpoint.
+ * <p>
+ * Filters are added in the order they are registered. Which filters apply to an
+ * endpoint is decided once, when its chain is built, by matching each filter's
+ * path regex against the endpoint's path. Only a filter with a specific regex in front
+ * of an endpoint path with parameters or wildcards is matched again for each request.
+ */
+public class FilterChain {
+    private final List<FilterHandler> handlers = new ArrayList<>();
+    private final List<Pattern> pathPatterns = new ArrayList<>();
+
+    /**
+     * Add a filter after the filters already in the chain
+     *
+     * @param filterComponent Filter and the paths it applies to
+     * @return This filter chain
+     */
+    public FilterChain add(FilterComponent filterComponent) {
+        handlers.add(new FilterHandler(filterComponent.getFilter()));
+        pathPatterns.add(FilterComponent.ALL_PATHS.equals(filterComponent.getPathRegex())
+                ? null : Pattern.compile(filterComponent.getPathRegex()));
+        return this;
+    }
+
+    /**
+     * @return Number of filters added
+     */
+    public int size() {
+        return handlers.size();
+    }
+
+    /**
+     * Build the handler for an endpoint, which runs the filters added so far
+     * that apply to the endpoint's path, and then the endpoint itself.
+     *
+     * @param endpointPath Vert.x Web path of the endpoint
+     * @param endpointHandler Handler for the endpoint
+     * @return Handler running the filters and then the endpoint
+     */
+    public Handler<RoutingContext> forEndpoint(String endpointPath, Handler<RoutingContext> endpointHandler) {
+        boolean exactPath = endpointPath.indexOf(':') == -1 && !endpointPath.endsWith("*");
+
+        Handler<RoutingContext> next = endpointHandler;
+        for (int i = handlers.size() - 1; i >= 0; i--) {
+            Pattern pathPattern = pathPatterns.get(i);
+
+            if (pathPattern == null) {
+                next = new Link(handlers.get(i), null, next);
+            } else if (!exactPath) {
+                next = new Link(handlers.get(i), pathPattern, next);
+            } else if (pathPattern.matcher(endpointPath).matches()) {
+                next = new Link(handlers.get(i), null, next);
+            }
+        }
+
+        return next;
+    }
+
+    /**
+     * One filter in a chain, with the rest of the chain as its next handler
+     */
+    private static class Link implements Handler<RoutingContext> {
+        private final FilterHandler filterHandler;
+        private final Pattern pathPattern;
+        private final Handler<RoutingContext> next;
+
+        Link(FilterHandler filterHandler, Pattern pathPattern, Handler<RoutingContext> next) {
+            this.filterHandler = filterHandler;
+            this.pathPattern = pathPattern;
+            this.next = next;
+        }
+
+        @Override
+        @Suspendable
+        public void handle(RoutingContext routingContext) {
+            if (pathPattern == null
+                    || pathPattern.matcher(Utils.normalisePath(routingContext.request().path(), false)).matches()) {
+                filterHandler.handle(routingContext, next);
+            } else {
+                next.handle(routingContext);
+            }
+        }
+    }
+}
@@ -15,7 +15,9 @@ package io.helixservice.feature.restservice.filter;
 
 import io.helixservice.feature.restservice.controller.Request;
 import io.helixservice.feature.restservice.controller.Response;
+import io.helixservice.feature.restservice.controller.metrics.EndpointMetrics;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -28,13 +30,21 @@ import java.util.Map;
  * Used for keeping request-specific values between before/after calls
  * int the filter implementation.  These variables are request and filter
  * specific, and get garbage collected after the request completes.
- *
+ * <p>
+ * A single FilterContext is shared by every filter in the chain, for
+ * both the before and after calls of a request.
  */
 public class FilterContext {
+    /**
+     * Filter variable holding the metric handles of the endpoint the request is for
+     */
+    public static final String ENDPOINT_METRICS = "FilterContext.endpointMetrics";
+
     private Request<byte[]> request;
     private Response<byte[]> response;
-    private Map<String, Object> filterVariables = new HashMap<>();
+    private Map<String, Object> filterVariables;
     private boolean sendResponseFromFilter = false;
+    private long filterNanos = 0;
 
     /**
      * Create filter context
@@ -46,7 +56,17 @@ public class FilterContext {
     public FilterContext(Request<byte[]> request, Response<byte[]> response, Map<String, Object> filterVariables) {
         this.request = request;
         this.response = response;
-        this.filterVariables.putAll(filterVariables);
+        this.filterVariables = new HashMap<>(filterVariables);
+    }
+
+    /**
+     * Create filter context which reads and writes variables directly
+     * to the given map, instead of a copy
+     */
+    static FilterContext sharedWith(Request<byte[]> request, Response<byte[]> response, Map<String, Object> filterVariables) {
+        FilterContext filterContext = new FilterContext(request, response, Collections.emptyMap());
+        filterContext.filterVariables = filterVariables;
+        return filterContext;
     }
 
     /**
@@ -103,6 +123,13 @@ public class FilterContext {
         return this;
     }
 
+    /**
+     * @return Metric handles of the endpoint the request is for, or null if it matched no endpoint
+     */
+    public EndpointMetrics getEndpointMetrics() {
+        return getFilterVariable(ENDPOINT_METRICS);
+    }
+
     /**
      * End the request, without forwarding it to a Controller endpoint.
      *
@@ -120,4 +147,15 @@ public class FilterContext {
     boolean isSendResponseFromFilter() {
         return sendResponseFromFilter;
     }
+
+    void addFilterNanos(long nanos) {
+        filterNanos += nanos;
+    }
+
+    /**
+     * @return Time spent so far in the before and after calls of the request's filters, in nanoseconds
+     */
+    public long getFilterNanos() {
+        return filterNanos;
+    }
 }
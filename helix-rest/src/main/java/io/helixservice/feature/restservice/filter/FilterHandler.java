@@ -15,12 +15,9 @@ package io.helixservice.feature.restservice.filter;
 
 import co.paralleluniverse.fibers.SuspendExecution;
 import co.paralleluniverse.fibers.Suspendable;
-import com.google.common.collect.Multimap;
 import io.helixservice.feature.restservice.controller.Request;
 import io.helixservice.feature.restservice.controller.Response;
-import io.helixservice.core.util.VertxTypeConverter;
 import io.vertx.core.Handler;
-import io.vertx.core.MultiMap;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.http.HttpServerRequest;
 import io.vertx.core.http.HttpServerResponse;
@@ -38,6 +35,7 @@ import java.util.Map;
 public class FilterHandler implements Handler<RoutingContext> {
     private final static Logger LOG = LoggerFactory.getLogger(FilterHandler.class);
     public static final String FILTER_CHAIN = "FilterHandler.handleAfterChain";
+    public static final String FILTER_CONTEXT = "FilterHandler.filterContext";
     private Filter targetFilter;
 
     public FilterHandler(Filter targetFilter) {
@@ -47,42 +45,56 @@ public class FilterHandler implements Handler<RoutingContext> {
     @Override
     @Suspendable
     public void handle(RoutingContext routingContext) {
+        handle(routingContext, RoutingContext::next);
+    }
+
+    /**
+     * Run the filter, then hand the request to the next handler
+     * unless the filter sent its own response
+     *
+     * @param routingContext Vert.x Web request context
+     * @param next Handler to call after the filter, instead of routing to the next Vert.x route
+     */
+    @Suspendable
+    public void handle(RoutingContext routingContext, Handler<RoutingContext> next) {
         try {
-            FilterContext filterContext = buildFilterContext(routingContext);
+            long start = System.nanoTime();
+            FilterContext filterContext = filterContextFor(routingContext);
 
             targetFilter.beforeHandleEndpoint(filterContext);
-
-            routingContext.data().putAll(filterContext.getFilterVariables());
-            copyMultiMap(filterContext.getRequest().getHeaders(), routingContext.request().headers());
-            copyMultiMap(filterContext.getRequest().getParams(), routingContext.request().params());
-
-            // Ensure beforeSendHeaders and afterResponseSent are called
-            insertIntoFilterChain(routingContext);
-            routingContext.response().headersEndHandler(event -> dispatchToFilterChain(routingContext, Filter::afterHandleEndpoint));
-            routingContext.response().bodyEndHandler(event -> dispatchToFilterChain(routingContext, Filter::afterResponseSent));
+            filterContext.addFilterNanos(System.nanoTime() - start);
 
             if (filterContext.isSendResponseFromFilter()) {
                 // Filter decided to send its own response
                 endWithResponse(routingContext, filterContext);
-            } else {
-                routingContext.next();
+                return;
+            }
+
+            // Ensure afterHandleEndpoint and afterResponseSent are called, registering
+            // the handlers with the routing context so other end handlers are preserved
+            if (insertIntoFilterChain(routingContext)) {
+                routingContext.addHeadersEndHandler(event -> dispatchToFilterChain(routingContext, Filter::afterHandleEndpoint));
+                routingContext.addBodyEndHandler(event -> dispatchToFilterChain(routingContext, Filter::afterResponseSent));
             }
         } catch (Throwable t) {
             LOG.error("Error occurred in handleBefore() on filterClassName=" + targetFilter.getClass().getName(), t);
-            routingContext.next();
         }
+
+        next.handle(routingContext);
     }
 
-    private void insertIntoFilterChain(RoutingContext routingContext) {
+    private boolean insertIntoFilterChain(RoutingContext routingContext) {
         @SuppressWarnings("unchecked")
         List<FilterHandler> handleAfterChain = (List<FilterHandler>) routingContext.data().get(FILTER_CHAIN);
 
-        if (handleAfterChain == null) {
+        boolean newChain = handleAfterChain == null;
+        if (newChain) {
             handleAfterChain = new ArrayList<>();
             routingContext.data().put(FILTER_CHAIN, handleAfterChain);
         }
 
         handleAfterChain.add(0, this);
+        return newChain;
     }
 
     @FunctionalInterface
@@ -96,13 +108,14 @@ public class FilterHandler implements Handler<RoutingContext> {
             @SuppressWarnings("unchecked")
             List<FilterHandler> handleAfterChain = (List<FilterHandler>) routingContext.data().get(FILTER_CHAIN);
             if (handleAfterChain != null) {
-                FilterContext filterContext = buildFilterContext(routingContext);
+                long start = System.nanoTime();
+                FilterContext filterContext = filterContextFor(routingContext);
+                filterContext.getResponse().setHttpStatusCode(routingContext.response().getStatusCode());
 
                 for (FilterHandler filterHandler : handleAfterChain) {
                     filterMethod.dispatch(filterHandler.targetFilter, filterContext);
                 }
-
-                copyMultiMap(filterContext.getResponse().getHeaders(), routingContext.response().headers());
+                filterContext.addFilterNanos(System.nanoTime() - start);
             }
         } catch (Throwable t) {
             LOG.error("Error occurred in handleAfter() filterClassName=" + targetFilter.getClass().getName(), t);
@@ -111,32 +124,36 @@ public class FilterHandler implements Handler<RoutingContext> {
 
     private void endWithResponse(RoutingContext routingContext, FilterContext filterContext) {
         // Finish response, handler has made a decision
-        copyMultiMap(filterContext.getResponse().getHeaders(), routingContext.response().headers());
         routingContext.response()
-                .setChunked(true)
                 .setStatusCode(filterContext.getResponse().getHttpStatusCode())
-                .write(Buffer.buffer(filterContext.getResponse().getResponseBody()))
-                .end();
+                .end(Buffer.buffer(filterContext.getResponse().getResponseBody()));
     }
 
-    private void copyMultiMap(Multimap<String,String> source, MultiMap destination) {
-        destination.setAll(VertxTypeConverter.toVertxMultiMap(source));
-    }
+    /**
+     * Get the FilterContext shared by all filters handling this request,
+     * creating it on first use
+     */
+    private FilterContext filterContextFor(RoutingContext routingContext) {
+        Map<String, Object> data = routingContext.data();
+
+        FilterContext filterContext = (FilterContext) data.get(FILTER_CONTEXT);
+        if (filterContext == null) {
+            filterContext = FilterContext.sharedWith(buildRequest(routingContext), buildResponse(routingContext), data);
+            data.put(FILTER_CONTEXT, filterContext);
+        }
 
-    private FilterContext buildFilterContext(RoutingContext routingContext) {
-        return new FilterContext(buildRequest(routingContext),
-                buildResponse(routingContext), routingContext.data());
+        return filterContext;
     }
 
     private Response<byte[]> buildResponse(RoutingContext routingContext) {
         HttpServerResponse vertxResponse = routingContext.response();
+        return Response.fromVertxHeaders(vertxResponse.getStatusCode(), vertxResponse.headers());
+    }
 
-        Response<byte[]> response = Response.fromHttpStatusCode(vertxResponse.getStatusCode());
-        for (Map.Entry<String, String> header : vertxResponse.headers()) {
-            response.addHeader(header.getKey(), header.getValue());
-        }
-
-        return response;
+    private static byte[] bodyBytes(RoutingContext routingContext) {
+        // Streamed request bodies are read by the endpoint, so filters do not see them
+        Buffer body = routingContext.getBody();
+        return body != null ? body.getBytes() : new byte[0];
     }
 
     private Request<byte[]> buildRequest(RoutingContext routingContext) {
@@ -144,9 +161,8 @@ public class FilterHandler implements Handler<RoutingContext> {
 
         return new Request<>(
                 vertxRequest.method().name(), vertxRequest.uri(),
-                VertxTypeConverter.toGuavaMultimap(vertxRequest.params()),
-                VertxTypeConverter.toGuavaMultimap(vertxRequest.headers()),
-                routingContext.getBody().getBytes(),
+                vertxRequest.params(), vertxRequest.headers(),
+                bodyBytes(routingContext),
                 vertxRequest.remoteAddress().host(),
                 vertxRequest.version().name());
     }
@@ -13,13 +13,42 @@
 
 package io.helixservice.feature.restservice.marshal;
 
+import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.Module;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.google.common.io.ByteStreams;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+/**
+ * Marshaller for JSON, using a Jackson ObjectMapper
+ * <p>
+ * An ObjectReader is cached for each request body type, and an ObjectWriter
+ * for each response body class, so type resolution happens once per type rather
+ * than once per request. Endpoint body types are cached when endpoints are registered.
+ * <p>
+ * Setting the system property <b>helix.jackson.afterburner</b> to true registers
+ * the Jackson Afterburner module with the default ObjectMapper, if it is on the classpath.
+ * Afterburner replaces reflective property access with generated bytecode.
+ * <p>
+ * Jackson binary data formats such as Smile and CBOR are supported by creating the
+ * marshaller with the format's content type, see {@link #forDataFormat(String, String)}.
+ */
 public class JacksonMarshaller implements Marshaller {
+    private static final Logger LOG = LoggerFactory.getLogger(JacksonMarshaller.class);
+    private static final String AFTERBURNER_MODULE = "com.fasterxml.jackson.module.afterburner.AfterburnerModule";
+
     private static final List<String> JSON_CONTENT_TYPE = new ArrayList<>();
     private static final List<String> TEXT_PLAIN_CONTENT_TYPE = new ArrayList<>();
     private static final List<String> APPLICATION_OCTET_STREAM_TYPE = new ArrayList<>();
@@ -31,20 +60,105 @@ public class JacksonMarshaller implements Marshaller {
     }
 
     private ObjectMapper objectMapper;
+    private final List<String> contentType;
+    private final byte[] emptyObject;
+    private final ConcurrentMap<Class<?>, ObjectReader> readers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
 
     public JacksonMarshaller() {
         ObjectMapper objectMapper = new ObjectMapper();
         objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        if (Boolean.getBoolean("helix.jackson.afterburner")) {
+            registerAfterburner(objectMapper);
+        }
         this.objectMapper = objectMapper;
+        this.contentType = JSON_CONTENT_TYPE;
+        this.emptyObject = "{}".getBytes();
     }
 
     public JacksonMarshaller(ObjectMapper objectMapper) {
         this.objectMapper = objectMapper;
+        this.contentType = JSON_CONTENT_TYPE;
+        this.emptyObject = "{}".getBytes();
+    }
+
+    /**
+     * Create a marshaller for a Jackson data format
+     *
+     * @param objectMapper ObjectMapper created with the data format's JsonFactory
+     * @param contentType HTTP mime content type written by the data format
+     */
+    public JacksonMarshaller(ObjectMapper objectMapper, String contentType) {
+        this.objectMapper = objectMapper;
+        this.contentType = Collections.singletonList(contentType);
+        try {
+            this.emptyObject = objectMapper.writeValueAsBytes(objectMapper.createObjectNode());
+        } catch (Exception e) {
+            throw new MarshallerException("Unable to write an empty object as " + contentType, e);
+        }
+    }
+
+    /**
+     * Create a marshaller for a Jackson data format, if it is on the classpath
+     *
+     * @param factoryClassName Class name of the data format's JsonFactory,
+     *                         for example com.fasterxml.jackson.dataformat.smile.SmileFactory
+     * @param contentType HTTP mime content type written by the data format
+     * @return The marshaller, or null if the data format is not on the classpath
+     */
+    public static JacksonMarshaller forDataFormat(String factoryClassName, String contentType) {
+        try {
+            JsonFactory factory = (JsonFactory) Class.forName(factoryClassName).newInstance();
+            ObjectMapper objectMapper = new ObjectMapper(factory);
+            objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+            return new JacksonMarshaller(objectMapper, contentType);
+        } catch (ClassNotFoundException e) {
+            LOG.warn("Jackson data format " + factoryClassName + " is not on the classpath, " + contentType + " is not supported");
+        } catch (InstantiationException | IllegalAccessException | ClassCastException e) {
+            LOG.warn("Unable to create Jackson data format " + factoryClassName, e);
+        }
+        return null;
+    }
+
+    /**
+     * @return HTTP mime content type written by this marshaller
+     */
+    public String getContentType() {
+        return contentType.get(0);
+    }
+
+    /**
+     * Register the Jackson Afterburner module with an ObjectMapper, if it is on the classpath
+     *
+     * @param objectMapper ObjectMapper to register the module with
+     * @return True if the module was registered
+     */
+    public static boolean registerAfterburner(ObjectMapper objectMapper) {
+        try {
+            objectMapper.registerModule((Module) Class.forName(AFTERBURNER_MODULE).newInstance());
+            LOG.info("Registered Jackson Afterburner module");
+            return true;
+        } catch (ClassNotFoundException e) {
+            LOG.warn("Jackson Afterburner module is not on the classpath, using reflective (de)serializers");
+        } catch (InstantiationException | IllegalAccessException e) {
+            LOG.warn("Unable to register Jackson Afterburner module", e);
+        }
+        return false;
     }
 
     @Override
     public String getComponentDescription() {
-        return "Jackson JSON ObjectMapper";
+        return "Jackson ObjectMapper " + getContentType();
+    }
+
+    @Override
+    public void prepare(Class requestBodyType, Class responseBodyType) {
+        if (requestBodyType != null && !String.class.equals(requestBodyType)) {
+            readerFor(requestBodyType);
+        }
+        if (responseBodyType != null && !isRawType(responseBodyType)) {
+            writerFor(responseBodyType);
+        }
     }
 
     @Override
@@ -56,7 +170,7 @@ public class JacksonMarshaller implements Marshaller {
             if (String.class.equals(targetType)) {
                 result = message.getBody() == null ? "" : new String(message.getBody());
             } else {
-                result = objectMapper.readValue(message.getBody(), targetType);
+                result = readerFor(targetType).readValue(message.getBody());
             }
         } catch (Exception e) {
             throw new MarshallerException("Unable to unmarshal the request", e);
@@ -71,14 +185,13 @@ public class JacksonMarshaller implements Marshaller {
 
         try {
             if (object == null) {
-                message = new Message("{}".getBytes(), JSON_CONTENT_TYPE);
+                message = new Message(emptyObject, contentType);
             } else if (String.class.equals(object.getClass())) {
                 message = new Message(((String) object).getBytes(), TEXT_PLAIN_CONTENT_TYPE);
             } else if (byte[].class.equals(object.getClass())) {
                 message = new Message(((byte[]) object), APPLICATION_OCTET_STREAM_TYPE);
             } else {
-                String stringResponse = objectMapper.writeValueAsString(object);
-                message = new Message(stringResponse.getBytes(), JSON_CONTENT_TYPE);
+                message = new Message(writerFor(object.getClass()).writeValueAsBytes(object), contentType);
             }
         } catch (Exception e) {
             throw new MarshallerException("Unable to unmarshal the request", e);
@@ -86,4 +199,59 @@ public class JacksonMarshaller implements Marshaller {
 
         return message;
     }
+
+    @Override
+    public Object unmarshal(Class targetType, InputStream inputStream, List<String> contentTypes) {
+        Object result;
+
+        try {
+            if (String.class.equals(targetType)) {
+                result = new String(ByteStreams.toByteArray(inputStream));
+            } else {
+                result = readerFor(targetType).readValue(inputStream);
+            }
+        } catch (Exception e) {
+            throw new MarshallerException("Unable to unmarshal the request", e);
+        }
+
+        return result;
+    }
+
+    @Override
+    public List<String> marshal(Object object, OutputStream outputStream) {
+        List<String> contentTypes;
+
+        try {
+            if (object == null) {
+                outputStream.write(emptyObject);
+                contentTypes = contentType;
+            } else if (String.class.equals(object.getClass())) {
+                outputStream.write(((String) object).getBytes());
+                contentTypes = TEXT_PLAIN_CONTENT_TYPE;
+            } else if (byte[].class.equals(object.getClass())) {
+                outputStream.write((byte[]) object);
+                contentTypes = APPLICATION_OCTET_STREAM_TYPE;
+            } else {
+                writerFor(object.getClass()).writeValue(outputStream, object);
+                contentTypes = contentType;
+            }
+        } catch (Exception e) {
+            throw new MarshallerException("Unable to marshal the response", e);
+        }
+
+        return contentTypes;
+    }
+
+    private ObjectReader readerFor(Class<?> type) {
+        return readers.computeIfAbsent(type, objectMapper::reader);
+    }
+
+    // Keyed by the runtime class, so subclasses are never written with a supertype's serializer
+    private ObjectWriter writerFor(Class<?> type) {
+        return writers.computeIfAbsent(type, objectMapper::writerWithType);
+    }
+
+    private static boolean isRawType(Class<?> type) {
+        return String.class.equals(type) || byte[].class.equals(type);
+    }
 }
@@ -13,8 +13,14 @@
 
 package io.helixservice.feature.restservice.marshal;
 
+import com.google.common.io.ByteStreams;
 import io.helixservice.core.component.Component;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
 /**
  * Interface that all message marshallers must implement
  */
@@ -39,6 +45,109 @@ public interface Marshaller extends Component {
      */
     Message marshal(Object object);
 
+    /**
+     * Convert a stream to an Object
+     * <p>
+     * Marshallers should override this to read directly from the stream.
+     * The default implementation reads the whole stream into a Message.
+     *
+     * @param targetType Class type the message should be converted to, if possible
+     * @param inputStream Stream of the message body
+     * @param contentTypes List of HTTP mime content types the message body is encoded as
+     * @return The object, otherwise throw a MarshallerException if the unmarshalling fails
+     */
+    default Object unmarshal(Class targetType, InputStream inputStream, List<String> contentTypes) {
+        try {
+            return unmarshal(targetType, new Message(ByteStreams.toByteArray(inputStream), contentTypes));
+        } catch (IOException e) {
+            throw new MarshallerException("Unable to unmarshal the request", e);
+        }
+    }
+
+    /**
+     * Convert an Object, writing it directly to a stream
+     * <p>
+     * Marshallers should override this to write directly to the stream.
+     * The default implementation writes the body of the marshaled Message.
+     *
+     * @param object Object that should be converted
+     * @param outputStream Stream the converted object is written to
+     * @return List of HTTP mime content types the object was encoded as,
+     * otherwise throw a MarshallerException if the marshalling fails
+     */
+    default List<String> marshal(Object object, OutputStream outputStream) {
+        Message message = marshal(object);
+
+        try {
+            outputStream.write(message.getBody());
+        } catch (IOException e) {
+            throw new MarshallerException("Unable to marshal the response", e);
+        }
+
+        return message.getContentTypes();
+    }
+
+    /**
+     * Convert an Object, writing it directly to a stream in a content type the client accepts
+     * <p>
+     * Marshallers which can write more than one content type should override this,
+     * and return true from isNegotiating. The default implementation ignores the accepted types.
+     *
+     * @param object Object that should be converted
+     * @param outputStream Stream the converted object is written to
+     * @param acceptTypes Values of the HTTP Accept header, or an empty list if there are none
+     * @return List of HTTP mime content types the object was encoded as,
+     * otherwise throw a MarshallerException if the marshalling fails
+     */
+    default List<String> marshal(Object object, OutputStream outputStream, List<String> acceptTypes) {
+        return marshal(object, outputStream);
+    }
+
+    /**
+     * Convert an Object, writing it directly to a stream in a given content type
+     * <p>
+     * Marshallers which can write more than one content type should override this.
+     * The default implementation ignores the content type.
+     *
+     * @param object Object that should be converted
+     * @param outputStream Stream the converted object is written to
+     * @param contentType HTTP mime content type to write, or null for the marshaller's default
+     * @return List of HTTP mime content types the object was encoded as,
+     * otherwise throw a MarshallerException if the marshalling fails
+     */
+    default List<String> marshal(Object object, OutputStream outputStream, String contentType) {
+        return marshal(object, outputStream);
+    }
+
+    /**
+     * @return True if the content type written depends on the HTTP Accept header
+     */
+    default boolean isNegotiating() {
+        return false;
+    }
+
+    /**
+     * Check if objects of a type can be converted by this marshaller
+     *
+     * @param type Type of object
+     * @return True if the type is supported, the default implementation supports all types
+     */
+    default boolean canMarshal(Class type) {
+        return true;
+    }
+
+    /**
+     * Prepare for the body types of an endpoint, called when the endpoint is registered
+     * <p>
+     * Marshallers may use this to build and cache per-type state up front, rather
+     * than on the first request. The default implementation does nothing.
+     *
+     * @param requestBodyType Type request bodies are unmarshaled to
+     * @param responseBodyType Type of response bodies, or null if it is not known
+     */
+    default void prepare(Class requestBodyType, Class responseBodyType) {
+    }
+
     /**
      * {@inheritDoc}
      */
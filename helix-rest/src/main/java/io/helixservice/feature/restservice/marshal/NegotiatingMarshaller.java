@@ -0,0 +1,230 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+package io.helixservice.feature.restservice.marshal;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Marshaller which picks a codec for each message by content type
+ * <p>
+ * Request bodies are read with the codec registered for their Content-Type.
+ * Response bodies are written with the codec for the most preferred type in
+ * the Accept header that can write the body's class. The default marshaller
+ * is used for application/json, wildcards, missing headers and unknown types,
+ * so clients which do not ask for a binary format are unaffected.
+ * <p>
+ * To use binary formats for a feature's endpoints or RestClients, register it
+ * with the feature: <pre>feature.register(NegotiatingMarshaller.withAvailableCodecs());</pre>
+ * Peers then ask for a format with <pre>restClient.get(url).accept(NegotiatingMarshaller.SMILE)</pre>
+ */
+public class NegotiatingMarshaller implements Marshaller {
+    public static final String JSON = "application/json";
+    public static final String SMILE = "application/x-jackson-smile";
+    public static final String CBOR = "application/cbor";
+    public static final String MSGPACK = "application/x-msgpack";
+    public static final String PROTOBUF = ProtobufMarshaller.CONTENT_TYPE;
+
+    private static final String SMILE_FACTORY = "com.fasterxml.jackson.dataformat.smile.SmileFactory";
+    private static final String CBOR_FACTORY = "com.fasterxml.jackson.dataformat.cbor.CBORFactory";
+    private static final String MSGPACK_FACTORY = "org.msgpack.jackson.dataformat.MessagePackFactory";
+
+    private final Marshaller defaultMarshaller;
+    private final Map<String, Marshaller> codecs = new LinkedHashMap<>();
+
+    /**
+     * Create a negotiating marshaller with no codecs registered
+     *
+     * @param defaultMarshaller Marshaller used for JSON and when no codec matches
+     */
+    public NegotiatingMarshaller(Marshaller defaultMarshaller) {
+        this.defaultMarshaller = defaultMarshaller;
+    }
+
+    /**
+     * Create a negotiating marshaller with the Smile, CBOR, MessagePack
+     * and Protobuf codecs whose libraries are on the classpath
+     *
+     * @return The marshaller, with JacksonMarshaller as the default
+     */
+    public static NegotiatingMarshaller withAvailableCodecs() {
+        NegotiatingMarshaller marshaller = new NegotiatingMarshaller(Marshaller.DEFAULT);
+        marshaller.addCodec(SMILE, JacksonMarshaller.forDataFormat(SMILE_FACTORY, SMILE));
+        marshaller.addCodec(CBOR, JacksonMarshaller.forDataFormat(CBOR_FACTORY, CBOR));
+        marshaller.addCodec(MSGPACK, JacksonMarshaller.forDataFormat(MSGPACK_FACTORY, MSGPACK));
+        if (ProtobufMarshaller.isAvailable()) {
+            marshaller.addCodec(PROTOBUF, new ProtobufMarshaller());
+        }
+        return marshaller;
+    }
+
+    /**
+     * Register a codec for a content type, replacing any codec already registered for it
+     *
+     * @param contentType HTTP mime content type, without parameters
+     * @param codec Marshaller for the content type, or null to leave the type unsupported
+     * @return this
+     */
+    public NegotiatingMarshaller addCodec(String contentType, Marshaller codec) {
+        if (codec != null) {
+            codecs.put(contentType.toLowerCase(Locale.ROOT), codec);
+        }
+        return this;
+    }
+
+    /**
+     * @return Content types with a registered codec, in registration order
+     */
+    public List<String> getContentTypes() {
+        return new ArrayList<>(codecs.keySet());
+    }
+
+    @Override
+    public String getComponentDescription() {
+        return "Negotiating " + defaultMarshaller.getComponentDescription() + " " + codecs.keySet();
+    }
+
+    @Override
+    public boolean isNegotiating() {
+        return true;
+    }
+
+    @Override
+    public void prepare(Class requestBodyType, Class responseBodyType) {
+        defaultMarshaller.prepare(requestBodyType, responseBodyType);
+        for (Marshaller codec : codecs.values()) {
+            codec.prepare(requestBodyType, responseBodyType);
+        }
+    }
+
+    @Override
+    public Object unmarshal(Class targetType, Message message) {
+        return forContentTypes(message.getContentTypes()).unmarshal(targetType, message);
+    }
+
+    @Override
+    public Message marshal(Object object) {
+        return forAccept(object, Collections.emptyList()).marshal(object);
+    }
+
+    @Override
+    public Object unmarshal(Class targetType, InputStream inputStream, List<String> contentTypes) {
+        return forContentTypes(contentTypes).unmarshal(targetType, inputStream, contentTypes);
+    }
+
+    @Override
+    public List<String> marshal(Object object, OutputStream outputStream) {
+        return forAccept(object, Collections.emptyList()).marshal(object, outputStream);
+    }
+
+    @Override
+    public List<String> marshal(Object object, OutputStream outputStream, List<String> acceptTypes) {
+        return forAccept(object, acceptTypes).marshal(object, outputStream);
+    }
+
+    @Override
+    public List<String> marshal(Object object, OutputStream outputStream, String contentType) {
+        return forContentType(object, contentType).marshal(object, outputStream);
+    }
+
+    /**
+     * Find the codec for a message's Content-Type
+     *
+     * @param contentTypes Values of the Content-Type header
+     * @return The codec, or the default marshaller if none is registered for the type
+     */
+    Marshaller forContentTypes(List<String> contentTypes) {
+        if (contentTypes != null && !contentTypes.isEmpty()) {
+            Marshaller codec = codecs.get(mediaType(contentTypes.get(0)));
+            if (codec != null) {
+                return codec;
+            }
+        }
+        return defaultMarshaller;
+    }
+
+    /**
+     * Find the codec to write an object with, in a content type chosen by the caller
+     *
+     * @param object Object to be written
+     * @param contentType Content type to write, or null for the default
+     * @return The codec for the type, or the default marshaller if none is registered
+     * for it or it cannot write the object
+     */
+    Marshaller forContentType(Object object, String contentType) {
+        Marshaller codec = contentType == null ? null : codecs.get(mediaType(contentType));
+        if (codec == null || (object != null && !codec.canMarshal(object.getClass()))) {
+            return defaultMarshaller;
+        }
+        return codec;
+    }
+
+    /**
+     * Find the codec to write an object with, from the client's Accept header
+     *
+     * @param object Object to be written
+     * @param acceptTypes Values of the Accept header
+     * @return The codec for the most preferred acceptable type, or the default marshaller
+     */
+    Marshaller forAccept(Object object, List<String> acceptTypes) {
+        Class<?> type = object == null ? null : object.getClass();
+        String bestType = null;
+        float bestQuality = 0;
+
+        for (String header : acceptTypes) {
+            for (String range : header.split(",")) {
+                String mediaType = mediaType(range);
+                float quality = quality(range);
+                if (quality > bestQuality && isAcceptable(mediaType, type)) {
+                    bestType = mediaType;
+                    bestQuality = quality;
+                }
+            }
+        }
+
+        Marshaller codec = bestType == null ? null : codecs.get(bestType);
+        return codec == null ? defaultMarshaller : codec;
+    }
+
+    private boolean isAcceptable(String mediaType, Class<?> type) {
+        if (JSON.equals(mediaType) || mediaType.endsWith("/*")) {
+            return true;
+        }
+        Marshaller codec = codecs.get(mediaType);
+        return codec != null && (type == null || codec.canMarshal(type));
+    }
+
+    private static String mediaType(String value) {
+        int semicolon = value.indexOf(';');
+        return (semicolon < 0 ? value : value.substring(0, semicolon)).trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static float quality(String range) {
+        for (String parameter : range.split(";")) {
+            String trimmed = parameter.trim();
+            if (trimmed.startsWith("q=")) {
+                try {
+                    return Float.parseFloat(trimmed.substring(2));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+package io.helixservice.feature.restservice.marshal;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Marshaller for Protocol Buffers messages
+ * <p>
+ * Only classes generated by protoc are supported, for both request and response bodies.
+ * protobuf-java is not a dependency of Helix, it is used reflectively when the
+ * service has it on the classpath. The static parseFrom method is looked up
+ * once per message class.
+ */
+public class ProtobufMarshaller implements Marshaller {
+    public static final String CONTENT_TYPE = "application/x-protobuf";
+
+    private static final String MESSAGE_LITE = "com.google.protobuf.MessageLite";
+    private static final List<String> PROTOBUF_CONTENT_TYPE = Collections.singletonList(CONTENT_TYPE);
+
+    private final Class<?> messageType;
+    private final Method writeTo;
+    private final Method toByteArray;
+    private final ConcurrentMap<Class<?>, Method> parsers = new ConcurrentHashMap<>();
+
+    /**
+     * Create the Protocol Buffers marshaller
+     *
+     * @throws IllegalStateException If protobuf-java is not on the classpath
+     */
+    public ProtobufMarshaller() {
+        try {
+            messageType = Class.forName(MESSAGE_LITE);
+            writeTo = messageType.getMethod("writeTo", OutputStream.class);
+            toByteArray = messageType.getMethod("toByteArray");
+        } catch (ClassNotFoundException | NoSuchMethodException e) {
+            throw new IllegalStateException("protobuf-java is not on the classpath", e);
+        }
+    }
+
+    /**
+     * @return True if protobuf-java is on the classpath
+     */
+    public static boolean isAvailable() {
+        try {
+            Class.forName(MESSAGE_LITE);
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public String getComponentDescription() {
+        return "Protocol Buffers " + CONTENT_TYPE;
+    }
+
+    @Override
+    public boolean canMarshal(Class type) {
+        return type != null && messageType.isAssignableFrom(type);
+    }
+
+    @Override
+    public void prepare(Class requestBodyType, Class responseBodyType) {
+        if (canMarshal(requestBodyType)) {
+            parserFor(requestBodyType);
+        }
+    }
+
+    @Override
+    public Object unmarshal(Class targetType, Message message) {
+        byte[] body = message.getBody() == null ? new byte[0] : message.getBody();
+        return unmarshal(targetType, new ByteArrayInputStream(body), PROTOBUF_CONTENT_TYPE);
+    }
+
+    @Override
+    public Message marshal(Object object) {
+        checkMessage(object);
+        try {
+            return new Message((byte[]) toByteArray.invoke(object), PROTOBUF_CONTENT_TYPE);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new MarshallerException("Unable to marshal the response", e);
+        }
+    }
+
+    @Override
+    public Object unmarshal(Class targetType, InputStream inputStream, List<String> contentTypes) {
+        if (!canMarshal(targetType)) {
+            throw new MarshallerException("Unable to unmarshal the request, "
+                    + targetType.getName() + " is not a protobuf message", null);
+        }
+
+        try {
+            return parserFor(targetType).invoke(null, inputStream);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new MarshallerException("Unable to unmarshal the request", e);
+        }
+    }
+
+    @Override
+    public List<String> marshal(Object object, OutputStream outputStream) {
+        checkMessage(object);
+        try {
+            writeTo.invoke(object, outputStream);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new MarshallerException("Unable to marshal the response", e);
+        }
+        return PROTOBUF_CONTENT_TYPE;
+    }
+
+    private void checkMessage(Object object) {
+        if (object == null || !canMarshal(object.getClass())) {
+            throw new MarshallerException("Unable to marshal the response, "
+                    + (object == null ? "null" : object.getClass().getName()) + " is not a protobuf message", null);
+        }
+    }
+
+    private Method parserFor(Class<?> type) {
+        return parsers.computeIfAbsent(type, t -> {
+            try {
+                return t.getMethod("parseFrom", InputStream.class);
+            } catch (NoSuchMethodException e) {
+                throw new MarshallerException("Protobuf message " + t.getName() + " has no parseFrom method", e);
+            }
+        });
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.accesslog;
+
+import com.google.common.collect.ArrayListMultimap;
+import io.helixservice.feature.restservice.controller.Request;
+import io.helixservice.feature.restservice.controller.Response;
+import io.helixservice.feature.restservice.filter.FilterContext;
+import io.vertx.core.MultiMap;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.IntSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AsyncAccessLogSinkUnitTest {
+    FilterContext filterContext = context(200);
+    AccessLogFormatter accessLogFormatter = mock(AccessLogFormatter.class);
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void shouldWriteQueuedEntriesOnClose() throws Exception {
+        //GIVEN
+        Path file = temporaryFolder.getRoot().toPath().resolve("access.log");
+        when(accessLogFormatter.format(any(FilterContext.class), anyLong())).thenReturn("GET /hello 200");
+        AsyncAccessLogSink subject = new AsyncAccessLogSink(
+                new AccessLogFileWriter(file, 0, 5), accessLogFormatter, 16, AsyncAccessLogSink.OverflowPolicy.DROP);
+        subject.start();
+
+        //WHEN
+        for (int i = 0; i < 10; i++) {
+            subject.append(filterContext, 5);
+        }
+        subject.close();
+
+        //THEN
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertEquals(10, lines.size());
+        assertTrue(lines.get(0).endsWith(" GET /hello 200"));
+        assertEquals(10, subject.getWrittenCount());
+        assertEquals(0, subject.getDroppedCount());
+    }
+
+    @Test
+    public void shouldDropAndCountEntriesWhenQueueIsFull() throws Exception {
+        //GIVEN
+        Path file = temporaryFolder.getRoot().toPath().resolve("access.log");
+        when(accessLogFormatter.format(any(FilterContext.class), anyLong())).thenReturn("GET /hello 200");
+        AsyncAccessLogSink subject = new AsyncAccessLogSink(
+                new AccessLogFileWriter(file, 0, 5), accessLogFormatter, 4, AsyncAccessLogSink.OverflowPolicy.DROP);
+
+        //WHEN writer thread not started, so nothing is taken from the queue
+        for (int i = 0; i < 6; i++) {
+            subject.append(filterContext, 5);
+        }
+
+        //THEN
+        assertEquals(4, subject.getQueueDepth());
+        assertEquals(2, subject.getDroppedCount());
+
+        subject.close();
+        assertEquals(4, Files.readAllLines(file, StandardCharsets.UTF_8).size());
+    }
+
+    @Test
+    public void shouldRecordMetricsThroughHandles() throws Exception {
+        //GIVEN
+        Path file = temporaryFolder.getRoot().toPath().resolve("access.log");
+        when(accessLogFormatter.format(any(FilterContext.class), anyLong())).thenReturn("GET /hello 200");
+        AsyncAccessLogSink subject = new AsyncAccessLogSink(
+                new AccessLogFileWriter(file, 0, 5), accessLogFormatter, 4, AsyncAccessLogSink.OverflowPolicy.DROP);
+        AccessLogMetrics metrics = mock(AccessLogMetrics.class);
+        IntSupplier[] queueDepth = new IntSupplier[1];
+        subject.setMetricsFactory(supplier -> {
+            queueDepth[0] = supplier;
+            return metrics;
+        });
+
+        //WHEN writer thread not started, so the fifth entry is dropped
+        for (int i = 0; i < 5; i++) {
+            subject.append(filterContext, 5);
+        }
+
+        //THEN
+        assertEquals(4, queueDepth[0].getAsInt());
+        verify(metrics).recordDropped();
+
+        subject.close();
+        verify(metrics).recordWritten(4);
+        assertEquals(0, queueDepth[0].getAsInt());
+    }
+
+    @Test
+    public void shouldFormatCopyOfRequest() throws Exception {
+        //GIVEN
+        Path file = temporaryFolder.getRoot().toPath().resolve("access.log");
+        when(accessLogFormatter.format(any(FilterContext.class), anyLong())).thenAnswer(invocation -> {
+            FilterContext entry = (FilterContext) invocation.getArguments()[0];
+            return entry.getResponse().getHttpStatusCode() + " " + entry.getResponse().getHeader("X-Test")
+                    + " " + entry.getFilterVariable("startTimestamp") + " " + entry.getFilterVariable("live");
+        });
+        AsyncAccessLogSink subject = new AsyncAccessLogSink(
+                new AccessLogFileWriter(file, 0, 5), accessLogFormatter, 4, AsyncAccessLogSink.OverflowPolicy.DROP);
+        FilterContext live = context(200);
+        live.getResponse().addHeader("X-Test", "before");
+        live.setFilterVariable("startTimestamp", 1000L);
+        live.setFilterVariable("live", new Object());
+
+        //WHEN the request is changed after it is queued
+        subject.append(live, 5);
+        live.getResponse().setHttpStatusCode(500);
+        live.getResponse().removeHeader("X-Test");
+        subject.close();
+
+        //THEN
+        assertTrue(Files.readAllLines(file, StandardCharsets.UTF_8).get(0).endsWith(" 200 before 1000 null"));
+    }
+
+    @Test
+    public void shouldKeepAppendingWhenRotationFails() throws IOException {
+        //GIVEN a directory in the way of the rotated file
+        Path file = temporaryFolder.getRoot().toPath().resolve("access.log");
+        Files.createDirectories(rotated(file, 1));
+        Files.createFile(rotated(file, 1).resolve("blocker"));
+        AccessLogFileWriter subject = new AccessLogFileWriter(file, 10, 1);
+
+        //WHEN
+        for (int i = 0; i < 4; i++) {
+            subject.write("line-" + i + "-0123456789");
+        }
+        subject.close();
+
+        //THEN every line is appended to the file
+        assertEquals(4, Files.readAllLines(file, StandardCharsets.UTF_8).size());
+    }
+
+    @Test
+    public void shouldRotateFileBetweenLines() throws IOException {
+        //GIVEN
+        Path file = temporaryFolder.getRoot().toPath().resolve("access.log");
+        AccessLogFileWriter subject = new AccessLogFileWriter(file, 10, 2);
+
+        //WHEN
+        for (int i = 0; i < 4; i++) {
+            subject.write("line-" + i + "-0123456789");
+        }
+        subject.close();
+
+        //THEN each line goes over the limit, and only two rotated files are kept
+        assertEquals("line-3-0123456789", Files.readAllLines(file, StandardCharsets.UTF_8).get(0));
+        assertEquals("line-2-0123456789", Files.readAllLines(rotated(file, 1), StandardCharsets.UTF_8).get(0));
+        assertEquals("line-1-0123456789", Files.readAllLines(rotated(file, 2), StandardCharsets.UTF_8).get(0));
+        assertFalse(Files.exists(rotated(file, 3)));
+    }
+
+    @Test
+    public void shouldWriteLinesLargerThanBuffer() throws IOException {
+        //GIVEN
+        Path file = temporaryFolder.getRoot().toPath().resolve("access.log");
+        AccessLogFileWriter subject = new AccessLogFileWriter(file, 0, 0);
+        StringBuilder line = new StringBuilder();
+        while (line.length() < 100_000) {
+            line.append("\u00e9abc");
+        }
+
+        //WHEN
+        subject.write(line);
+        subject.close();
+
+        //THEN
+        assertEquals(line.toString(), Files.readAllLines(file, StandardCharsets.UTF_8).get(0));
+    }
+
+    private static FilterContext context(int statusCode) {
+        Request<byte[]> request = new Request<>("GET", "/hello", ArrayListMultimap.create(), ArrayListMultimap.create(),
+                new byte[0], "10.0.0.1", "HTTP_1_1");
+        Response<byte[]> response = Response.fromVertxHeaders(statusCode, MultiMap.caseInsensitiveMultiMap());
+        return new FilterContext(request, response, new HashMap<>());
+    }
+
+    private static Path rotated(Path file, int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.accesslog;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BoundedRingBufferUnitTest {
+
+    @Test
+    public void shouldRoundCapacityUpToPowerOfTwo() {
+        assertEquals(8, new BoundedRingBuffer<String>(5).capacity());
+        assertEquals(8, new BoundedRingBuffer<String>(8).capacity());
+    }
+
+    @Test
+    public void shouldRejectWhenFullAndAcceptAgainAfterPoll() {
+        //GIVEN
+        BoundedRingBuffer<Integer> subject = new BoundedRingBuffer<>(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(subject.offer(i));
+        }
+
+        //WHEN
+        boolean offeredWhenFull = subject.offer(4);
+        Integer first = subject.poll();
+        boolean offeredAfterPoll = subject.offer(4);
+
+        //THEN
+        assertFalse(offeredWhenFull);
+        assertEquals(Integer.valueOf(0), first);
+        assertTrue(offeredAfterPoll);
+        assertEquals(4, subject.size());
+    }
+
+    @Test
+    public void shouldPollInOfferOrderAcrossLaps() {
+        BoundedRingBuffer<Integer> subject = new BoundedRingBuffer<>(4);
+
+        for (int i = 0; i < 20; i++) {
+            assertTrue(subject.offer(i));
+            assertEquals(Integer.valueOf(i), subject.poll());
+        }
+        assertNull(subject.poll());
+        assertEquals(0, subject.size());
+    }
+
+    @Test
+    public void shouldDeliverEveryElementFromConcurrentProducers() throws InterruptedException {
+        //GIVEN
+        BoundedRingBuffer<Integer> subject = new BoundedRingBuffer<>(64);
+        int producers = 4;
+        int perProducer = 10_000;
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            int base = p * perProducer;
+            threads[p] = new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    while (!subject.offer(base + i)) {
+                        Thread.yield();
+                    }
+                }
+            });
+        }
+
+        //WHEN
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        Set<Integer> received = new HashSet<>();
+        while (received.size() < producers * perProducer) {
+            Integer element = subject.poll();
+            if (element != null) {
+                assertTrue(received.add(element));
+            }
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        //THEN
+        assertNull(subject.poll());
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.context;
+
+import io.helixservice.core.execution.Deadline;
+import io.helixservice.feature.restservice.controller.Request;
+import io.helixservice.feature.restservice.filter.FilterContext;
+import io.vertx.core.Handler;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RequestContextFilterUnitTest {
+    private RequestContextFilter subject = new RequestContextFilter(new RequestContextFeature());
+
+    @After
+    public void tearDown() {
+        RequestContext.clearContext();
+        Deadline.setCurrent(null);
+    }
+
+    @Test
+    public void testContextKeepsCurrentDeadline() throws Exception {
+        Deadline deadline = Deadline.afterMillis(1000);
+        Deadline.setCurrent(deadline);
+
+        subject.beforeHandleEndpoint(filterContext());
+
+        assertSame(deadline, RequestContext.getContext().getDeadline());
+    }
+
+    @Test
+    public void testPropagatedHandlerSeesDeadline() throws Exception {
+        Deadline deadline = Deadline.afterMillis(1000);
+        Deadline.setCurrent(deadline);
+        subject.beforeHandleEndpoint(filterContext());
+
+        Handler<String> propagated = new RequestContextAspect.ContextCopyingHandler(
+                (Handler<String>) event -> { }, RequestContext.getContext());
+        CompletableFuture<Deadline> seen = new CompletableFuture<>();
+        Handler<String> reader = new RequestContextAspect.ContextCopyingHandler(
+                (Handler<String>) event -> seen.complete(Deadline.current()), RequestContext.getContext());
+
+        // Another thread, with no deadline of its own
+        new Thread(() -> {
+            propagated.handle("event");
+            reader.handle("event");
+        }).start();
+
+        assertSame(deadline, seen.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testPropagatedHandlerRestoresPreviousDeadline() throws Exception {
+        Deadline.setCurrent(Deadline.afterMillis(1000));
+        subject.beforeHandleEndpoint(filterContext());
+        Handler<String> propagated = new RequestContextAspect.ContextCopyingHandler(
+                (Handler<String>) event -> { }, RequestContext.getContext());
+
+        CompletableFuture<Deadline> after = new CompletableFuture<>();
+        new Thread(() -> {
+            propagated.handle("event");
+            after.complete(Deadline.current());
+        }).start();
+
+        assertNull(after.get(5, TimeUnit.SECONDS));
+    }
+
+    private static FilterContext filterContext() {
+        FilterContext filterContext = mock(FilterContext.class);
+        when(filterContext.getRequest()).thenReturn(mock(Request.class));
+        return filterContext;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.ratelimit;
+
+import io.helixservice.feature.configuration.provider.ConfigProvider;
+import io.helixservice.feature.configuration.provider.ConfigProviderPropertiesChangedListener;
+import io.helixservice.feature.configuration.provider.Property;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RateLimitFeatureUnitTest {
+    private ConfigProvider configProvider = mock(ConfigProvider.class);
+    private Map<String, Property> properties = new HashMap<>();
+    private List<ConfigProviderPropertiesChangedListener> listeners = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        when(configProvider.propertyByName(anyString(), anyString())).thenAnswer(invocation -> {
+            String name = (String) invocation.getArguments()[0];
+            String defaultValue = (String) invocation.getArguments()[1];
+            return properties.computeIfAbsent(name, n -> new Property(n, defaultValue, defaultValue));
+        });
+        doAnswer(invocation -> listeners.add((ConfigProviderPropertiesChangedListener) invocation.getArguments()[0]))
+                .when(configProvider).addPropertiesChangedListener(any(ConfigProviderPropertiesChangedListener.class));
+    }
+
+    @Test
+    public void testInvalidLimitChangeKeepsPreviousLimits() throws Exception {
+        properties.put("rate-limit.permitsPerSecond", new Property("rate-limit.permitsPerSecond", "0.001", "0.001"));
+        properties.put("rate-limit.burst", new Property("rate-limit.burst", "1", "1"));
+        RateLimitFilter filter = new RateLimitFeature(configProvider).getRateLimitFilter();
+
+        change("rate-limit.burst", "0");
+        change("rate-limit.permitsPerSecond", "fast");
+
+        assertFalse(RateLimitFilterUnitTest.throttled(filter, RateLimitFilterUnitTest.context(null, "10.0.0.1")));
+        assertTrue(RateLimitFilterUnitTest.throttled(filter, RateLimitFilterUnitTest.context(null, "10.0.0.1")));
+    }
+
+    private void change(String name, String value) {
+        properties.get(name).setValue(value);
+        for (ConfigProviderPropertiesChangedListener listener : new ArrayList<>(listeners)) {
+            listener.configChanged(Collections.emptyList(), Collections.singletonList(name), Collections.emptyList());
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.ratelimit;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Multimap;
+import io.helixservice.feature.restservice.controller.Request;
+import io.helixservice.feature.restservice.controller.Response;
+import io.helixservice.feature.restservice.controller.metrics.EndpointMetrics;
+import io.helixservice.feature.restservice.filter.FilterContext;
+import io.vertx.core.MultiMap;
+import org.junit.Test;
+
+import java.util.HashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class RateLimitFilterUnitTest {
+
+    @Test
+    public void testThrottlesAfterBurst() throws Exception {
+        RateLimitFilter subject = new RateLimitFilter("remote", 0.001, 2);
+
+        assertFalse(throttled(subject, context(null, "10.0.0.1")));
+        assertFalse(throttled(subject, context(null, "10.0.0.1")));
+
+        FilterContext throttledContext = context(null, "10.0.0.1");
+        assertTrue(throttled(subject, throttledContext));
+        assertEquals(429, throttledContext.getResponse().getHttpStatusCode());
+        assertTrue(Long.parseLong(throttledContext.getResponse().getHeader("Retry-After")) >= 1);
+
+        assertFalse(throttled(subject, context(null, "10.0.0.2")));
+    }
+
+    @Test
+    public void testKeyedByHeaderWithRemoteAddressFallback() throws Exception {
+        RateLimitFilter subject = new RateLimitFilter("header:X-Api-Key", 0.001, 1);
+
+        assertFalse(throttled(subject, context("first", "10.0.0.1")));
+        assertTrue(throttled(subject, context("first", "10.0.0.2")));
+        assertFalse(throttled(subject, context("second", "10.0.0.1")));
+
+        assertFalse(throttled(subject, context(null, "10.0.0.1")));
+        assertTrue(throttled(subject, context(null, "10.0.0.1")));
+        assertEquals(3, subject.getBucketCount());
+    }
+
+    @Test
+    public void testHeaderValuesDoNotShareRemoteAddressBuckets() throws Exception {
+        RateLimitFilter subject = new RateLimitFilter("header:X-Api-Key", 0.001, 1);
+
+        assertFalse(throttled(subject, context(null, "10.0.0.1")));
+        assertFalse(throttled(subject, context("remote:10.0.0.1", "10.0.0.2")));
+        assertFalse(throttled(subject, context("r:10.0.0.1", "10.0.0.2")));
+        assertFalse(throttled(subject, context("10.0.0.1", "10.0.0.2")));
+        assertEquals(4, subject.getBucketCount());
+    }
+
+    @Test
+    public void testUnknownKeysFallBackToRemoteAddressWhenFull() throws Exception {
+        RateLimitFilter subject = new RateLimitFilter("header:X-Api-Key", 0.001, 1);
+        subject.setMaxBuckets(2);
+
+        assertFalse(throttled(subject, context("first", "10.0.0.1")));
+        assertFalse(throttled(subject, context("second", "10.0.0.1")));
+
+        assertFalse(throttled(subject, context("third", "10.0.0.1")));
+        assertTrue(throttled(subject, context("fourth", "10.0.0.1")));
+        assertTrue(throttled(subject, context("first", "10.0.0.2")));
+        assertEquals(3, subject.getBucketCount());
+    }
+
+    @Test
+    public void testThrottledRequestIsRecordedByItsEndpoint() throws Exception {
+        RateLimitFilter subject = new RateLimitFilter("remote", 0.001, 1);
+        EndpointMetrics endpointMetrics = mock(EndpointMetrics.class);
+
+        FilterContext admitted = context(null, "10.0.0.1");
+        admitted.setFilterVariable(FilterContext.ENDPOINT_METRICS, endpointMetrics);
+        FilterContext throttled = context(null, "10.0.0.1");
+        throttled.setFilterVariable(FilterContext.ENDPOINT_METRICS, endpointMetrics);
+
+        assertFalse(throttled(subject, admitted));
+        assertTrue(throttled(subject, throttled));
+        verify(endpointMetrics, times(1)).recordThrottled();
+    }
+
+    @Test
+    public void testLimitsCanBeChanged() throws Exception {
+        RateLimitFilter subject = new RateLimitFilter("remote", 0.001, 1);
+        assertFalse(throttled(subject, context(null, "10.0.0.1")));
+        assertTrue(throttled(subject, context(null, "10.0.0.1")));
+
+        subject.setLimits(0.001, 5);
+
+        assertFalse(throttled(subject, context(null, "10.0.0.1")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidLimits() {
+        new RateLimitFilter("remote", 1, 1).setLimits(1, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownKey() {
+        new RateLimitFilter("cookie:session", 1, 1);
+    }
+
+    static boolean throttled(RateLimitFilter subject, FilterContext filterContext) throws Exception {
+        subject.beforeHandleEndpoint(filterContext);
+        return filterContext.getResponse().getHttpStatusCode() == 429;
+    }
+
+    static FilterContext context(String apiKey, String remoteAddress) {
+        Multimap<String, String> headers = ArrayListMultimap.create();
+        if (apiKey != null) {
+            headers.put("X-Api-Key", apiKey);
+        }
+
+        Request<byte[]> request = new Request<>("GET", "/items", ArrayListMultimap.create(), headers,
+                new byte[0], remoteAddress, "HTTP_1_1");
+        Response<byte[]> response = Response.fromVertxHeaders(200, MultiMap.caseInsensitiveMultiMap());
+        return new FilterContext(request, response, new HashMap<>());
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.ratelimit;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TokenBucketUnitTest {
+    private static final long INTERVAL = 100;
+    private static final long BURST = 3 * INTERVAL;
+
+    @Test
+    public void testBurstThenRefill() {
+        TokenBucket subject = new TokenBucket(0);
+
+        assertTrue(subject.tryAcquire(0, INTERVAL, BURST));
+        assertTrue(subject.tryAcquire(0, INTERVAL, BURST));
+        assertTrue(subject.tryAcquire(0, INTERVAL, BURST));
+        assertFalse(subject.tryAcquire(0, INTERVAL, BURST));
+        assertEquals(INTERVAL, subject.nanosUntilAvailable(0, INTERVAL, BURST));
+
+        assertFalse(subject.tryAcquire(INTERVAL - 1, INTERVAL, BURST));
+        assertTrue(subject.tryAcquire(INTERVAL, INTERVAL, BURST));
+        assertFalse(subject.tryAcquire(INTERVAL, INTERVAL, BURST));
+    }
+
+    @Test
+    public void testIdleOnceRefilled() {
+        TokenBucket subject = new TokenBucket(0);
+        subject.tryAcquire(0, INTERVAL, BURST);
+        subject.tryAcquire(0, INTERVAL, BURST);
+
+        assertFalse(subject.isIdleSince(2 * INTERVAL - 1));
+        assertTrue(subject.isIdleSince(2 * INTERVAL));
+        assertEquals(0, subject.nanosUntilAvailable(2 * INTERVAL, INTERVAL, BURST));
+    }
+}
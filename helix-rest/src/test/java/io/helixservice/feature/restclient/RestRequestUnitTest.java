@@ -0,0 +1,56 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.restclient;
+
+import io.helixservice.core.container.InFlightRequests;
+import io.helixservice.core.execution.Deadline;
+import io.helixservice.core.execution.DeadlineExceededException;
+import io.helixservice.feature.restservice.marshal.Marshaller;
+import io.vertx.core.http.HttpClient;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+public class RestRequestUnitTest {
+    private final HttpClient httpClient = mock(HttpClient.class);
+    private final RestClientMetrics clientMetrics = mock(RestClientMetrics.class);
+    private final InFlightRequests inFlightRequests = new InFlightRequests();
+
+    @After
+    public void teardown() {
+        Deadline.setCurrent(null);
+    }
+
+    @Test
+    public void testExpiredDeadlineIsRecordedWithoutSending() throws Exception {
+        Deadline.setCurrent(Deadline.afterMillis(-1));
+        RestRequest subject = new RestRequest(() -> Marshaller.DEFAULT, () -> httpClient,
+                () -> inFlightRequests, () -> clientMetrics, HttpMethod.GET, "/orders", Optional.empty());
+
+        try {
+            subject.asString();
+            fail("Expected DeadlineExceededException");
+        } catch (DeadlineExceededException e) {
+            verify(clientMetrics).recordDeadlineExceeded();
+            verifyZeroInteractions(httpClient);
+            assertEquals(0L, inFlightRequests.get());
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.restservice;
+
+import io.vertx.core.http.HttpMethod;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RouteTrieUnitTest {
+
+    @Test
+    public void testExactPathIgnoresTrailingSlash() {
+        RouteTrie<String> subject = new RouteTrie<>();
+        subject.add(HttpMethod.GET, "/health", "health");
+        subject.add(HttpMethod.GET, "/", "root");
+
+        assertEquals("health", subject.find(HttpMethod.GET, "/health").getTarget());
+        assertEquals("health", subject.find(HttpMethod.GET, "/health/").getTarget());
+        assertEquals("root", subject.find(HttpMethod.GET, "/").getTarget());
+        assertTrue(subject.find(HttpMethod.GET, "/health").getParams().isEmpty());
+        assertNull(subject.find(HttpMethod.GET, "/healthy"));
+        assertNull(subject.find(HttpMethod.POST, "/health"));
+    }
+
+    @Test
+    public void testPathParameters() {
+        RouteTrie<String> subject = new RouteTrie<>();
+        subject.add(HttpMethod.GET, "/document/:documentId/page/:page", "page");
+
+        RouteTrie.Match<String> match = subject.find(HttpMethod.GET, "/document/a%20b/page/7");
+        assertEquals("page", match.getTarget());
+        assertEquals("a b", match.getParams().get("documentId"));
+        assertEquals("7", match.getParams().get("page"));
+
+        // Parameter paths are regular expressions in Vert.x, so a trailing slash does not match
+        assertNull(subject.find(HttpMethod.GET, "/document/a/page/7/"));
+        assertNull(subject.find(HttpMethod.GET, "/document//page/7"));
+    }
+
+    @Test
+    public void testFirstAddedPathWins() {
+        RouteTrie<String> subject = new RouteTrie<>();
+        subject.add(HttpMethod.GET, "/document/:documentId", "byId");
+        subject.add(HttpMethod.GET, "/document/latest", "latest");
+        subject.add(HttpMethod.GET, "/report/latest", "latestReport");
+        subject.add(HttpMethod.GET, "/report/:reportId", "reportById");
+
+        assertEquals("byId", subject.find(HttpMethod.GET, "/document/latest").getTarget());
+        assertEquals("latestReport", subject.find(HttpMethod.GET, "/report/latest").getTarget());
+        assertEquals("reportById", subject.find(HttpMethod.GET, "/report/42").getTarget());
+    }
+
+    @Test
+    public void testPrefixPaths() {
+        RouteTrie<String> subject = new RouteTrie<>();
+        subject.add(HttpMethod.GET, "/static/*", "static");
+        subject.add(HttpMethod.GET, "/api*", "api");
+
+        assertEquals("static", subject.find(HttpMethod.GET, "/static").getTarget());
+        assertEquals("static", subject.find(HttpMethod.GET, "/static/css/site.css").getTarget());
+        assertNull(subject.find(HttpMethod.GET, "/staticfiles"));
+        assertEquals("api", subject.find(HttpMethod.GET, "/apiary").getTarget());
+    }
+
+    @Test
+    public void testParameterInsideSegmentUsesRegex() {
+        RouteTrie<String> subject = new RouteTrie<>();
+        subject.add(HttpMethod.GET, "/document/:documentId.json", "json");
+
+        RouteTrie.Match<String> match = subject.find(HttpMethod.GET, "/document/42.json");
+        assertEquals("json", match.getTarget());
+        assertEquals("42", match.getParams().get("documentId"));
+        assertNull(subject.find(HttpMethod.GET, "/document/42/x.json"));
+        assertEquals(1, subject.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBadlyEncodedParameter() {
+        RouteTrie<String> subject = new RouteTrie<>();
+        subject.add(HttpMethod.GET, "/document/:documentId", "byId");
+
+        subject.find(HttpMethod.GET, "/document/%zz");
+    }
+}
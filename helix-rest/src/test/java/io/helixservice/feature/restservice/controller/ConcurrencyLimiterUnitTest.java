@@ -0,0 +1,103 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.restservice.controller;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ConcurrencyLimiterUnitTest {
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(20);
+
+    @Test
+    public void testRejectsOverLimit() {
+        ConcurrencyLimiter subject = new ConcurrencyLimiter(2, 1, 10);
+
+        assertTrue(subject.tryAcquire());
+        assertTrue(subject.tryAcquire());
+        assertFalse(subject.tryAcquire());
+        assertEquals(2, subject.getInFlight());
+        assertEquals(1, subject.getRejections());
+
+        subject.release(FAST, false);
+        assertEquals(1, subject.getInFlight());
+        assertTrue(subject.tryAcquire());
+    }
+
+    @Test
+    public void testLimitGrowsWhileLatencyIsLow() {
+        ConcurrencyLimiter subject = new ConcurrencyLimiter(10, 1, 100);
+
+        runAtLimit(subject, FAST, 500);
+
+        assertTrue(subject.getLimit() > 10);
+    }
+
+    @Test
+    public void testLimitShrinksWhenLatencyRises() {
+        ConcurrencyLimiter subject = new ConcurrencyLimiter(50, 1, 100);
+        runAtLimit(subject, FAST, 20);
+        int limitWhenFast = subject.getLimit();
+
+        runAtLimit(subject, SLOW, 20);
+
+        assertTrue(subject.getLimit() < limitWhenFast);
+    }
+
+    @Test
+    public void testDropsCutLimitDownToMinimum() {
+        ConcurrencyLimiter subject = new ConcurrencyLimiter(20, 5, 100);
+
+        for (int i = 0; i < 5000; i++) {
+            subject.tryAcquire();
+            subject.release(FAST, true);
+        }
+
+        assertEquals(5, subject.getLimit());
+    }
+
+    @Test
+    public void testLimitDoesNotRatchetUnderSustainedLoad() {
+        ConcurrencyLimiter subject = new ConcurrencyLimiter(20, 1, 1000);
+
+        // Latency grows with concurrency, so the endpoint is queueing at any limit much over 10
+        for (int i = 0; i < 20_000; i++) {
+            int admitted = 0;
+            while (subject.tryAcquire()) {
+                admitted++;
+            }
+            for (int j = 0; j < admitted; j++) {
+                subject.release(FAST * Math.max(1, admitted / 10), false);
+            }
+        }
+
+        assertTrue("limit=" + subject.getLimit(), subject.getLimit() < 100);
+    }
+
+    private static void runAtLimit(ConcurrencyLimiter subject, long rttNanos, int requests) {
+        for (int i = 0; i < requests; i++) {
+            int admitted = 0;
+            while (subject.tryAcquire()) {
+                admitted++;
+            }
+            for (int j = 0; j < admitted; j++) {
+                subject.release(rttNanos, false);
+            }
+        }
+    }
+}
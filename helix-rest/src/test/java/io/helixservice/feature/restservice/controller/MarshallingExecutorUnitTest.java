@@ -0,0 +1,113 @@
+
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.restservice.controller;
+
+import io.vertx.core.Vertx;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MarshallingExecutorUnitTest {
+
+    @Test
+    public void testNeverOffloadsOffEventLoop() {
+        MarshallingExecutor subject = new MarshallingExecutor(100, 1, 1);
+        try {
+            assertFalse(subject.shouldOffload(1000, -1));
+        } finally {
+            subject.close();
+        }
+    }
+
+    @Test
+    public void testThresholdOnEventLoop() throws Exception {
+        MarshallingExecutor subject = new MarshallingExecutor(100, 1, 1);
+        Vertx vertx = Vertx.vertx();
+        try {
+            CompletableFuture<boolean[]> result = new CompletableFuture<>();
+            vertx.runOnContext(v -> result.complete(new boolean[] {
+                    subject.shouldOffload(100, -1),
+                    subject.shouldOffload(99, -1),
+                    subject.shouldOffload(99, 50),
+                    subject.shouldOffload(1000, 5000)
+            }));
+
+            boolean[] offloaded = result.get(5, TimeUnit.SECONDS);
+            assertTrue(offloaded[0]);
+            assertFalse(offloaded[1]);
+            assertTrue(offloaded[2]);
+            assertFalse(offloaded[3]);
+        } finally {
+            vertx.close();
+            subject.close();
+        }
+    }
+
+    @Test
+    public void testNegativeThresholdDisablesOffload() throws Exception {
+        MarshallingExecutor subject = new MarshallingExecutor(-1, 1, 1);
+        Vertx vertx = Vertx.vertx();
+        try {
+            CompletableFuture<Boolean> result = new CompletableFuture<>();
+            vertx.runOnContext(v -> result.complete(subject.shouldOffload(Long.MAX_VALUE, -1)));
+
+            assertFalse(result.get(5, TimeUnit.SECONDS));
+        } finally {
+            vertx.close();
+            subject.close();
+        }
+    }
+
+    @Test
+    public void testExecuteRunsOnCallingThreadOutsideFiber() throws Throwable {
+        MarshallingExecutor subject = new MarshallingExecutor(0, 1, 1);
+        try {
+            String threadName = subject.execute(() -> Thread.currentThread().getName());
+
+            assertEquals(Thread.currentThread().getName(), threadName);
+        } finally {
+            subject.close();
+        }
+    }
+
+    @Test
+    public void testUsableAfterClose() throws Throwable {
+        MarshallingExecutor subject = new MarshallingExecutor(0, 1, 1);
+        subject.close();
+        subject.close();
+
+        try {
+            assertEquals("body", subject.execute(() -> "body"));
+        } finally {
+            subject.close();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testExecutePropagatesFailure() throws Throwable {
+        MarshallingExecutor subject = new MarshallingExecutor(0, 1, 1);
+        try {
+            subject.execute(() -> {
+                throw new IllegalArgumentException("bad body");
+            });
+        } finally {
+            subject.close();
+        }
+    }
+}
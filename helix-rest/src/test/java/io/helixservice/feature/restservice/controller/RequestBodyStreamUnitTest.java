@@ -0,0 +1,118 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.restservice.controller;
+
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServerRequest;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class RequestBodyStreamUnitTest {
+    private HttpServerRequest request;
+    private Handler<Buffer> chunkHandler;
+    private Handler<Void> endHandler;
+    private Handler<Throwable> exceptionHandler;
+
+    @Before
+    public void setup() {
+        request = mock(HttpServerRequest.class);
+    }
+
+    @Test
+    public void testReadsQueuedChunksThenEnd() throws Exception {
+        RequestBodyStream subject = createStream(-1);
+
+        chunkHandler.handle(Buffer.buffer("first"));
+        chunkHandler.handle(Buffer.buffer("second"));
+        endHandler.handle(null);
+
+        assertEquals("first", subject.read().toString());
+        assertEquals("second", subject.read().toString());
+        assertNull(subject.read());
+        assertTrue(subject.isEnded());
+        verify(request, never()).resume();
+    }
+
+    @Test
+    public void testResumesWhenEmptyAndPausesAtHighWater() throws Exception {
+        RequestBodyStream subject = createStream(-1);
+        Buffer largeChunk = Buffer.buffer(new byte[RequestBodyStream.HIGH_WATER_BYTES]);
+        doAnswer(invocation -> {
+            chunkHandler.handle(largeChunk);
+            return request;
+        }).when(request).resume();
+
+        assertEquals(RequestBodyStream.HIGH_WATER_BYTES, subject.read().length());
+        assertFalse(subject.isEnded());
+        verify(request, times(1)).resume();
+        verify(request, times(1)).pause();
+    }
+
+    @Test
+    public void testBodyLargerThanLimitFails() throws Exception {
+        RequestBodyStream subject = createStream(4);
+
+        chunkHandler.handle(Buffer.buffer("12345"));
+
+        try {
+            subject.read();
+            fail("Expected RequestBodyTooLargeException");
+        } catch (RequestBodyTooLargeException e) {
+            assertEquals(4, e.getMaxBodyBytes());
+        }
+    }
+
+    @Test
+    public void testConnectionFailureIsRethrown() throws Exception {
+        RequestBodyStream subject = createStream(-1);
+
+        exceptionHandler.handle(new RuntimeException("Connection reset"));
+
+        try {
+            subject.read();
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException e) {
+            assertEquals("Connection reset", e.getCause().getMessage());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private RequestBodyStream createStream(long maxBodyBytes) {
+        RequestBodyStream stream = new RequestBodyStream(request, maxBodyBytes);
+
+        ArgumentCaptor<Handler> chunkCaptor = ArgumentCaptor.forClass(Handler.class);
+        ArgumentCaptor<Handler> endCaptor = ArgumentCaptor.forClass(Handler.class);
+        ArgumentCaptor<Handler> exceptionCaptor = ArgumentCaptor.forClass(Handler.class);
+        verify(request).handler(chunkCaptor.capture());
+        verify(request).endHandler(endCaptor.capture());
+        verify(request).exceptionHandler(exceptionCaptor.capture());
+
+        chunkHandler = chunkCaptor.getValue();
+        endHandler = endCaptor.getValue();
+        exceptionHandler = exceptionCaptor.getValue();
+        return stream;
+    }
+}
@@ -15,9 +15,11 @@ package io.helixservice.feature.restservice.controller;
 
 import com.google.common.collect.LinkedListMultimap;
 import com.google.common.collect.Multimap;
+import io.vertx.core.MultiMap;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertSame;
 
 public class RequestUnitTest {
@@ -68,4 +70,33 @@ public class RequestUnitTest {
         assertSame(request.getHeaders().size(), 2);
     }
 
+    @Test
+    public void testHeadersAreCaseInsensitive() {
+        MultiMap headers = MultiMap.caseInsensitiveMultiMap().add("Content-Type", "text/plain");
+
+        Request<String> request = new Request<>("GET", "uri", MultiMap.caseInsensitiveMultiMap(), headers,
+                "body", "ipRemoteAddress", "http 1.0");
+
+        assertEquals("text/plain", request.getHeader("content-type", null));
+        assertEquals("text/plain", request.getHeaders().get("CONTENT-TYPE").iterator().next());
+    }
+
+    @Test
+    public void testAddHeaderCopiesOnWrite() {
+        MultiMap params = MultiMap.caseInsensitiveMultiMap().add("Foo", "Bar");
+        MultiMap headers = MultiMap.caseInsensitiveMultiMap().add("Head", "Out");
+
+        Request<String> request = new Request<>("GET", "uri", params, headers, "body", "ipRemoteAddress", "http 1.0");
+        Multimap<String, String> headersBeforeChange = request.getHeaders();
+
+        request.addHeader("header1", "hvalue");
+        request.addParam("param1", "pvalue");
+
+        assertEquals("hvalue", request.getHeader("header1", null));
+        assertEquals("pvalue", request.getParam("param1", null));
+        assertEquals(2, request.getHeaders().size());
+        assertFalse(headers.contains("header1"));
+        assertFalse(params.contains("param1"));
+        assertEquals(1, headersBeforeChange.size());
+    }
 }
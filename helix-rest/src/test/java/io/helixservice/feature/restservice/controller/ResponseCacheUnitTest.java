@@ -0,0 +1,118 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.restservice.controller;
+
+import io.vertx.core.MultiMap;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServerRequest;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ResponseCacheUnitTest {
+
+    @Test
+    public void testKeyUsesSelectedParamsAndHeaders() {
+        ResponseCache subject = ResponseCache.builder()
+                .keyParams("page")
+                .keyHeaders("Accept-Language")
+                .build();
+
+        String key = subject.keyFor(request("/items", "2", "en"));
+
+        assertEquals(key, subject.keyFor(request("/items", "2", "en")));
+        assertNotEquals(key, subject.keyFor(request("/items", "3", "en")));
+        assertNotEquals(key, subject.keyFor(request("/items", "2", "fr")));
+        assertNotEquals(key, subject.keyFor(request("/other", "2", "en")));
+        assertEquals(key, subject.keyFor(requestWithUnselectedParam()));
+    }
+
+    @Test
+    public void testPutAndGet() {
+        ResponseCache subject = ResponseCache.builder().ttl(1, TimeUnit.MINUTES).build();
+        MultiMap headers = MultiMap.caseInsensitiveMultiMap()
+                .add("Content-Type", "application/json")
+                .add("Content-Length", "2")
+                .add("Set-Cookie", "session=1");
+
+        ResponseCache.Entry stored = subject.put("key", 200, headers, Buffer.buffer("{}"));
+
+        assertSame(stored, subject.get("key"));
+        assertNull(subject.get("missing"));
+        assertEquals(200, stored.getStatusCode());
+        assertEquals("{}", stored.getBody().toString());
+        assertEquals("application/json", stored.getHeaders().get("content-type"));
+        assertFalse(stored.getHeaders().contains("content-length"));
+        assertFalse(stored.getHeaders().contains("set-cookie"));
+    }
+
+    @Test
+    public void testETagMatchesIfNoneMatch() {
+        ResponseCache subject = ResponseCache.builder().build();
+        ResponseCache.Entry entry = subject.put("key", 200, MultiMap.caseInsensitiveMultiMap(), Buffer.buffer("{}"));
+        ResponseCache.Entry other = subject.put("other", 200, MultiMap.caseInsensitiveMultiMap(), Buffer.buffer("[]"));
+
+        assertTrue(entry.getETag().startsWith("\"") && entry.getETag().endsWith("\""));
+        assertNotEquals(entry.getETag(), other.getETag());
+        assertTrue(entry.matches(entry.getETag()));
+        assertTrue(entry.matches("\"abc\", W/" + entry.getETag()));
+        assertTrue(entry.matches("*"));
+        assertFalse(entry.matches(other.getETag()));
+        assertFalse(entry.matches(null));
+    }
+
+    @Test
+    public void testEvictionsAreCounted() {
+        ResponseCache subject = ResponseCache.builder().maxEntries(1).build();
+
+        subject.put("first", 200, MultiMap.caseInsensitiveMultiMap(), Buffer.buffer("1"));
+        subject.put("second", 200, MultiMap.caseInsensitiveMultiMap(), Buffer.buffer("2"));
+
+        assertNull(subject.get("first"));
+        assertEquals(1, subject.drainEvictionCount());
+        assertEquals(0, subject.drainEvictionCount());
+    }
+
+    @Test
+    public void testOffHeapBody() {
+        ResponseCache subject = ResponseCache.builder().offHeap(true).maxBytes(1024).build();
+
+        ResponseCache.Entry entry = subject.put("key", 200, MultiMap.caseInsensitiveMultiMap(), Buffer.buffer("{\"a\":1}"));
+
+        assertTrue(entry.getBody().getByteBuf().isDirect());
+        assertEquals("{\"a\":1}", entry.getBody().toString());
+    }
+
+    private static HttpServerRequest request(String path, String page, String language) {
+        HttpServerRequest request = mock(HttpServerRequest.class);
+        when(request.path()).thenReturn(path);
+        when(request.params()).thenReturn(MultiMap.caseInsensitiveMultiMap().add("page", page));
+        when(request.headers()).thenReturn(MultiMap.caseInsensitiveMultiMap().add("accept-language", language));
+        return request;
+    }
+
+    private static HttpServerRequest requestWithUnselectedParam() {
+        HttpServerRequest request = request("/items", "2", "en");
+        request.params().add("ignored", "x");
+        return request;
+    }
+}
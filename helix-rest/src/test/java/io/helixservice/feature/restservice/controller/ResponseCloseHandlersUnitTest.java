@@ -0,0 +1,94 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.restservice.controller;
+
+import io.vertx.core.Handler;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.ext.web.RoutingContext;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ResponseCloseHandlersUnitTest {
+    private HttpServerResponse response = mock(HttpServerResponse.class);
+    private RoutingContext routingContext = mock(RoutingContext.class);
+    private List<String> ran = new ArrayList<>();
+
+    @Before
+    public void setup() {
+        Map<String, Object> data = new HashMap<>();
+        when(routingContext.response()).thenReturn(response);
+        when(routingContext.get(anyString())).then(invocation -> data.get(invocation.getArguments()[0]));
+        when(routingContext.put(anyString(), any())).then(invocation -> {
+            data.put((String) invocation.getArguments()[0], invocation.getArguments()[1]);
+            return routingContext;
+        });
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testRunsEveryHandlerOnClose() {
+        ResponseCloseHandlers.add(routingContext, event -> ran.add("first"));
+        ResponseCloseHandlers.add(routingContext, event -> ran.add("second"));
+
+        ArgumentCaptor<Handler> closeHandler = ArgumentCaptor.forClass(Handler.class);
+        verify(response, times(1)).closeHandler(closeHandler.capture());
+        closeHandler.getValue().handle(null);
+
+        assertEquals(2, ran.size());
+        assertEquals("first", ran.get(0));
+        assertEquals("second", ran.get(1));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testHandlerAddedAfterCloseRunsAtOnce() {
+        ResponseCloseHandlers.add(routingContext, event -> ran.add("first"));
+        ArgumentCaptor<Handler> closeHandler = ArgumentCaptor.forClass(Handler.class);
+        verify(response).closeHandler(closeHandler.capture());
+        closeHandler.getValue().handle(null);
+
+        ResponseCloseHandlers.add(routingContext, event -> ran.add("late"));
+
+        assertEquals(2, ran.size());
+        assertEquals("late", ran.get(1));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testFailingHandlerDoesNotStopOthers() {
+        ResponseCloseHandlers.add(routingContext, event -> {
+            throw new IllegalStateException("failed");
+        });
+        ResponseCloseHandlers.add(routingContext, event -> ran.add("second"));
+
+        ArgumentCaptor<Handler> closeHandler = ArgumentCaptor.forClass(Handler.class);
+        verify(response).closeHandler(closeHandler.capture());
+        closeHandler.getValue().handle(null);
+
+        assertEquals(1, ran.size());
+    }
+}
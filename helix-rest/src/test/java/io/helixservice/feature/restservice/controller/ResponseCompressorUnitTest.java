@@ -0,0 +1,113 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.restservice.controller;
+
+import com.google.common.io.ByteStreams;
+import io.vertx.core.buffer.Buffer;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ResponseCompressorUnitTest {
+    private static final String BODY = repeat("{\"name\":\"helix\",\"value\":12345}", 200);
+
+    @Test
+    public void testNegotiate() {
+        ResponseCompressor subject = new ResponseCompressor(6, 100, 0);
+
+        assertEquals("gzip", subject.negotiate("gzip, deflate", 1000));
+        assertEquals("gzip", subject.negotiate("deflate, gzip", 1000));
+        assertEquals("deflate", subject.negotiate("deflate", 1000));
+        assertEquals("deflate", subject.negotiate("gzip;q=0.5, deflate", 1000));
+        assertEquals("gzip", subject.negotiate("*", 1000));
+        assertNull(subject.negotiate("gzip;q=0", 1000));
+        assertNull(subject.negotiate("identity", 1000));
+        assertNull(subject.negotiate(null, 1000));
+        assertNull(subject.negotiate("gzip", 99));
+    }
+
+    @Test
+    public void testGzipRoundTrip() throws Exception {
+        ResponseCompressor subject = new ResponseCompressor(6, 0, 0);
+
+        Buffer compressed = subject.compress(Buffer.buffer(BODY), ResponseCompressor.GZIP);
+
+        assertTrue(compressed.length() < BODY.length() / 5);
+        assertEquals(BODY, read(new GZIPInputStream(new ByteArrayInputStream(compressed.getBytes()))));
+    }
+
+    @Test
+    public void testDeflateRoundTrip() throws Exception {
+        ResponseCompressor subject = new ResponseCompressor(1, 0, 0);
+
+        Buffer compressed = subject.compress(Buffer.buffer(BODY), ResponseCompressor.DEFLATE);
+
+        assertEquals(BODY, read(new InflaterInputStream(new ByteArrayInputStream(compressed.getBytes()))));
+        assertEquals(BODY, read(new InflaterInputStream(new ByteArrayInputStream(
+                subject.compress(Buffer.buffer(BODY), ResponseCompressor.DEFLATE).getBytes()))));
+    }
+
+    @Test
+    public void testCachesIdenticalBodies() {
+        ResponseCompressor cached = new ResponseCompressor(6, 0, 1024 * 1024);
+        ResponseCompressor uncached = new ResponseCompressor(6, 0, 0);
+
+        assertSame(cached.compress(Buffer.buffer(BODY), ResponseCompressor.GZIP),
+                cached.compress(Buffer.buffer(BODY), ResponseCompressor.GZIP));
+        assertNotSame(cached.compress(Buffer.buffer(BODY), ResponseCompressor.GZIP),
+                cached.compress(Buffer.buffer(BODY), ResponseCompressor.DEFLATE));
+        assertNotSame(uncached.compress(Buffer.buffer(BODY), ResponseCompressor.GZIP),
+                uncached.compress(Buffer.buffer(BODY), ResponseCompressor.GZIP));
+    }
+
+    @Test
+    public void testCachedBodiesAreNotConfused() throws Exception {
+        ResponseCompressor subject = new ResponseCompressor(6, 0, 1024 * 1024);
+        String other = BODY.replace("12345", "54321");
+
+        subject.compress(Buffer.buffer(BODY), ResponseCompressor.GZIP);
+        Buffer compressed = subject.compress(Buffer.buffer(other), ResponseCompressor.GZIP);
+
+        assertEquals(other, read(new GZIPInputStream(new ByteArrayInputStream(compressed.getBytes()))));
+    }
+
+    @Test
+    public void testBodiesTooLargeForCacheAreNotCached() {
+        // A body over an eighth of the cache would soon be evicted, so it is not cached
+        ResponseCompressor subject = new ResponseCompressor(6, 0, BODY.length() * 4);
+
+        assertNotSame(subject.compress(Buffer.buffer(BODY), ResponseCompressor.GZIP),
+                subject.compress(Buffer.buffer(BODY), ResponseCompressor.GZIP));
+    }
+
+    private static String read(InputStream inputStream) throws Exception {
+        return new String(ByteStreams.toByteArray(inputStream), "UTF-8");
+    }
+
+    private static String repeat(String value, int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            builder.append(value);
+        }
+        return builder.toString();
+    }
+}
@@ -13,8 +13,12 @@
 
 package io.helixservice.feature.restservice.controller;
 
+import io.vertx.core.MultiMap;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+
 import static org.junit.Assert.*;
 
 public class ResponseUnitTest {
@@ -101,4 +105,37 @@ public class ResponseUnitTest {
         assertEquals(1, response.getHeaders().size());
         assertEquals(null, response.getHeader("h2"));
     }
+
+    @Test
+    public void testFromVertxHeadersWritesThrough() throws Exception {
+        MultiMap vertxHeaders = MultiMap.caseInsensitiveMultiMap().add("Existing", "value");
+
+        Response<String> response = Response.fromVertxHeaders(201, vertxHeaders);
+        response.addHeader("h1", "v1");
+        response.removeHeader("existing");
+
+        assertEquals(201, response.getHttpStatusCode());
+        assertEquals("v1", vertxHeaders.get("H1"));
+        assertEquals("v1", response.getHeader("H1"));
+        assertNull(vertxHeaders.get("Existing"));
+    }
+
+    @Test
+    public void testMutateHeadersThroughViews() throws Exception {
+        Response<String> response = Response.successResponse("body");
+        response.addHeader("Accept", "a");
+        response.addHeader("h1", "v1");
+
+        response.getHeaders().get("accept").add("b");
+        response.getHeaders().get("X-New").add("new");
+        assertEquals(Arrays.asList("a", "b"), new ArrayList<>(response.getHeaders().get("Accept")));
+        assertEquals("new", response.getHeader("X-New"));
+
+        assertTrue(response.getHeaders().get("Accept").remove("a"));
+        assertEquals("b", response.getHeader("Accept"));
+
+        assertTrue(response.getHeaders().keySet().remove("h1"));
+        assertNull(response.getHeader("h1"));
+        assertEquals(2, response.getHeaders().size());
+    }
 }
@@ -0,0 +1,193 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.restservice.controller;
+
+import io.helixservice.feature.restservice.marshal.JacksonMarshaller;
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.ext.web.RoutingContext;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class StreamingResponseWriterUnitTest {
+    private HttpServerResponse response;
+    private RoutingContext routingContext;
+    private StreamingResponseWriter subject;
+    private Buffer written;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        response = mock(HttpServerResponse.class);
+        written = Buffer.buffer();
+
+        when(response.setChunked(true)).thenReturn(response);
+        when(response.putHeader(anyString(), anyString())).thenReturn(response);
+        when(response.closeHandler(any(Handler.class))).thenReturn(response);
+        when(response.write(any(Buffer.class))).then(invocation -> {
+            written.appendBuffer((Buffer) invocation.getArguments()[0]);
+            return response;
+        });
+        doAnswer(invocation -> {
+            written.appendBuffer((Buffer) invocation.getArguments()[0]);
+            return null;
+        }).when(response).end(any(Buffer.class));
+
+        Map<String, Object> data = new HashMap<>();
+        routingContext = mock(RoutingContext.class);
+        when(routingContext.response()).thenReturn(response);
+        when(routingContext.get(anyString())).then(invocation -> data.get(invocation.getArguments()[0]));
+        when(routingContext.put(anyString(), any())).then(invocation -> {
+            data.put((String) invocation.getArguments()[0], invocation.getArguments()[1]);
+            return routingContext;
+        });
+
+        subject = new StreamingResponseWriter(routingContext, new JacksonMarshaller());
+    }
+
+    @Test
+    public void testWritesJsonArray() throws Exception {
+        long size = subject.write(StreamingResponseBody.jsonArray(Arrays.asList(1, 2, 3).iterator()));
+
+        assertEquals("[1,2,3]", written.toString());
+        assertEquals(written.length(), size);
+        verify(response).setChunked(true);
+        verify(response).putHeader(VertxRequestHandler.CONTENT_TYPE, "application/json");
+    }
+
+    @Test
+    public void testWritesNdjsonAndClosesStream() throws Exception {
+        AtomicBoolean streamClosed = new AtomicBoolean();
+        Stream<Integer> elements = Stream.of(1, 2, 3).onClose(() -> streamClosed.set(true));
+
+        subject.write(StreamingResponseBody.ndjson(elements));
+
+        assertEquals("1\n2\n3\n", written.toString());
+        assertTrue(streamClosed.get());
+        verify(response).putHeader(VertxRequestHandler.CONTENT_TYPE, "application/x-ndjson");
+    }
+
+    @Test
+    public void testLargeBodyIsWrittenInChunks() throws Exception {
+        int count = StreamingResponseWriter.FLUSH_BYTES;
+        Iterator<Integer> elements = IntStream.range(0, count).iterator();
+
+        subject.write(StreamingResponseBody.jsonArray(elements));
+
+        StringBuilder expected = new StringBuilder("[");
+        for (int i = 0; i < count; i++) {
+            expected.append(i == 0 ? "" : ",").append(i);
+        }
+        expected.append("]");
+
+        assertEquals(expected.toString(), written.toString());
+        verify(response, atLeast(2)).write(any(Buffer.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testWaitsForDrainWhenWriteQueueIsFull() throws Exception {
+        when(response.writeQueueFull()).thenReturn(true);
+        doAnswer(invocation -> {
+            ((Handler<Void>) invocation.getArguments()[0]).handle(null);
+            return response;
+        }).when(response).drainHandler(any(Handler.class));
+
+        subject.write(StreamingResponseBody.jsonArray(IntStream.range(0, StreamingResponseWriter.FLUSH_BYTES).iterator()));
+
+        verify(response, atLeast(2)).drainHandler(any(Handler.class));
+        verify(response, never()).close();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testStopsWhenClientDisconnects() throws Exception {
+        ArgumentCaptor<Handler> closeHandler = ArgumentCaptor.forClass(Handler.class);
+        Iterator<Integer> elements = new Iterator<Integer>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public Integer next() {
+                if (next == 1) {
+                    verify(response).closeHandler(closeHandler.capture());
+                    closeHandler.getValue().handle(null);
+                }
+                return next++;
+            }
+        };
+
+        subject.write(StreamingResponseBody.jsonArray(elements));
+
+        verify(response).close();
+        verify(response).end();
+        verify(response, never()).end(any(Buffer.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testKeepsCloseHandlerAddedBeforeStreaming() throws Exception {
+        AtomicBoolean earlierHandlerRan = new AtomicBoolean();
+        ResponseCloseHandlers.add(routingContext, event -> earlierHandlerRan.set(true));
+
+        ArgumentCaptor<Handler> closeHandler = ArgumentCaptor.forClass(Handler.class);
+        Iterator<Integer> elements = new Iterator<Integer>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public Integer next() {
+                if (next == 1) {
+                    verify(response).closeHandler(closeHandler.capture());
+                    closeHandler.getValue().handle(null);
+                }
+                return next++;
+            }
+        };
+
+        subject.write(StreamingResponseBody.jsonArray(elements));
+
+        assertTrue(earlierHandlerRan.get());
+        verify(response).closeHandler(any(Handler.class));
+        verify(response).close();
+    }
+}
@@ -13,14 +13,85 @@
 
 package io.helixservice.feature.restservice.controller;
 
+import io.helixservice.feature.restservice.controller.component.Endpoint;
+import io.helixservice.feature.restservice.error.ErrorHandlerRegistry;
+import io.helixservice.feature.restservice.marshal.JacksonMarshaller;
+import io.vertx.core.MultiMap;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.http.HttpVersion;
+import io.vertx.core.net.impl.SocketAddressImpl;
+import io.vertx.ext.web.RoutingContext;
+import org.junit.Before;
 import org.junit.Test;
 
+import java.util.HashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
 public class VertxRequestHandlerUnitTest {
+    private RoutingContext routingContext;
+    private MultiMap responseHeaders;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        HttpServerRequest request = mock(HttpServerRequest.class);
+        when(request.method()).thenReturn(io.vertx.core.http.HttpMethod.GET);
+        when(request.uri()).thenReturn("/hello");
+        when(request.headers()).thenReturn(MultiMap.caseInsensitiveMultiMap());
+        when(request.params()).thenReturn(MultiMap.caseInsensitiveMultiMap());
+        when(request.remoteAddress()).thenReturn(new SocketAddressImpl(23123, "12.12.12.12"));
+        when(request.version()).thenReturn(HttpVersion.HTTP_1_1);
+
+        responseHeaders = MultiMap.caseInsensitiveMultiMap();
+        HttpServerResponse response = mock(HttpServerResponse.class);
+        when(response.headers()).thenReturn(responseHeaders);
+        when(response.setStatusCode(anyInt())).thenReturn(response);
+        when(response.putHeader(anyString(), (Iterable<String>) any(Iterable.class))).then(invocation -> {
+            responseHeaders.set((String) invocation.getArguments()[0], (Iterable<String>) invocation.getArguments()[1]);
+            return response;
+        });
+
+        routingContext = mock(RoutingContext.class);
+        when(routingContext.request()).thenReturn(request);
+        when(routingContext.response()).thenReturn(response);
+        when(routingContext.data()).thenReturn(new HashMap<>());
+        when(routingContext.getBody()).thenReturn(Buffer.buffer());
+    }
 
     @Test
     public void emptyTest() {
 
     }
+
+    @Test
+    public void testMarshallerContentTypeIsSent() {
+        handle(request -> Response.successResponse("hello"));
+
+        assertEquals("text/plain", responseHeaders.get(VertxRequestHandler.CONTENT_TYPE));
+    }
+
+    @Test
+    public void testEndpointContentTypeIsKept() {
+        handle(request -> Response.successResponse("# EOF\n").addHeader("Content-Type", "application/openmetrics-text"));
+
+        assertEquals(1, responseHeaders.getAll(VertxRequestHandler.CONTENT_TYPE).size());
+        assertEquals("application/openmetrics-text", responseHeaders.get(VertxRequestHandler.CONTENT_TYPE));
+    }
+
+    private void handle(EndpointHandler endpointHandler) {
+        Endpoint endpoint = Endpoint.forPath("/hello", HttpMethod.GET, endpointHandler);
+        new VertxRequestHandler(endpoint, new JacksonMarshaller(), new ErrorHandlerRegistry(), mock(EventBus.class))
+                .handle(routingContext);
+    }
 //
 //    private static boolean reachedHandle = false;
 //    private static Object requestBody = null;
@@ -0,0 +1,85 @@
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.restservice.controller.component;
+
+import com.google.common.collect.HashMultimap;
+import io.helixservice.feature.restservice.controller.EndpointHandler;
+import io.helixservice.feature.restservice.controller.HttpMethod;
+import io.helixservice.feature.restservice.controller.Request;
+import io.helixservice.feature.restservice.controller.Response;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class EndpointUnitTest {
+
+    @Test
+    public void testInvokerCallsControllerMethod() throws Throwable {
+        Method method = PublicController.class.getMethod("echo", Request.class);
+        Endpoint subject = Endpoint.forPath("/echo", HttpMethod.POST, method, new PublicController());
+
+        Response response = subject.getInvoker().handle(request("hello"));
+
+        assertEquals("hello", response.getResponseBody());
+        assertEquals(String.class, subject.getRequestBodyType());
+    }
+
+    @Test
+    public void testInvokerForNonPublicController() throws Throwable {
+        Method method = PackagePrivateController.class.getMethod("echo", Request.class);
+        Endpoint subject = Endpoint.forPath("/echo", HttpMethod.POST, method, new PackagePrivateController());
+
+        Response response = subject.getInvoker().handle(request("hello"));
+
+        assertEquals("private hello", response.getResponseBody());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testInvokerThrowsControllerExceptionUnwrapped() throws Throwable {
+        Method method = PublicController.class.getMethod("fail", Request.class);
+        Endpoint subject = Endpoint.forPath("/fail", HttpMethod.GET, method, new PublicController());
+
+        subject.getInvoker().handle(request(""));
+    }
+
+    @Test
+    public void testLambdaInvokerIsEndpointHandler() throws Throwable {
+        EndpointHandler endpointHandler = request -> Response.successResponse("lambda");
+        Endpoint subject = Endpoint.forPath("/lambda", HttpMethod.GET, endpointHandler);
+
+        assertSame(endpointHandler, subject.getInvoker());
+    }
+
+    private Request<String> request(String body) {
+        return new Request<>("POST", "/echo", HashMultimap.create(), HashMultimap.create(), body, "127.0.0.1", "HTTP_1_1");
+    }
+
+    public static class PublicController {
+        public Response<String> echo(Request<String> request) {
+            return Response.successResponse(request.getBody());
+        }
+
+        public Response<String> fail(Request<String> request) {
+            throw new IllegalStateException("Controller failure");
+        }
+    }
+
+    static class PackagePrivateController {
+        public Response<String> echo(Request<String> request) {
+            return Response.successResponse("private " + request.getBody());
+        }
+    }
+}
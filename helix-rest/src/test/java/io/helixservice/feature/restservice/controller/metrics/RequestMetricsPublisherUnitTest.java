@@ -0,0 +1,115 @@
+
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.restservice.controller.metrics;
+
+import io.vertx.core.eventbus.EventBus;
+import org.junit.Test;
+
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+public class RequestMetricsPublisherUnitTest {
+
+    @Test
+    public void testPublishRecordsRequestOnly() {
+        EndpointMetrics endpointMetrics = mock(EndpointMetrics.class);
+
+        RequestMetricsPublisher subject = new RequestMetricsPublisher(endpointMetrics);
+        subject.setResponseSize(512);
+        subject.setSuccess(true);
+        subject.publish();
+
+        verify(endpointMetrics).recordRequest(anyLong(), eq(true), eq(512L));
+        verifyNoMoreInteractions(endpointMetrics);
+    }
+
+    @Test
+    public void testPublishRecordsOptionalMetrics() {
+        EndpointMetrics endpointMetrics = mock(EndpointMetrics.class);
+
+        RequestMetricsPublisher subject = new RequestMetricsPublisher(endpointMetrics);
+        subject.setCompression(100, 2000);
+        subject.setConcurrency(20, 3);
+        subject.setDeadlineExceeded();
+        subject.setCacheHit(false);
+        subject.setCacheEvictions(2);
+        subject.addEventLoopMarshallingNanos(300);
+        subject.addEventLoopMarshallingNanos(200);
+        subject.addMarshallingOffloaded();
+        subject.setFilterNanos(4000);
+        subject.setStatusCode(503);
+        subject.publish();
+
+        verify(endpointMetrics).recordRequest(anyLong(), eq(false), eq(0L));
+        verify(endpointMetrics).recordCompression(100, 2000);
+        verify(endpointMetrics).recordConcurrency(20, 3);
+        verify(endpointMetrics).recordDeadlineExceeded();
+        verify(endpointMetrics).recordCache(false, 2);
+        verify(endpointMetrics).recordMarshalling(500, 1);
+        verify(endpointMetrics).recordFilters(4000);
+        verify(endpointMetrics).recordStatus(503);
+    }
+
+    @Test
+    public void testPublishWithoutHandlesUsesEventBus() {
+        EventBus eventBus = mock(EventBus.class);
+
+        RequestMetricsPublisher subject = new RequestMetricsPublisher(eventBus, "/orders");
+        subject.setHttpMethod("GET");
+        subject.setResponseSize(512);
+        subject.setSuccess(true);
+        subject.publish();
+
+        verify(eventBus).publish(eq("metrics.counter"), eq("controller.endpoint.total.count.GET./orders=1"));
+        verify(eventBus).publish(eq("metrics.counter"), eq("controller.endpoint.success.count.GET./orders=1"));
+        verify(eventBus).publish(eq("metrics.counter"), eq("controller.endpoint.failure.count.GET./orders=0"));
+        verify(eventBus).publish(eq("metrics.histogram"), eq("controller.endpoint.response.size.GET./orders=512"));
+    }
+
+    @Test
+    public void testEventBusTimerIsInMillis() {
+        EventBus eventBus = mock(EventBus.class);
+
+        new EventBusEndpointMetrics(eventBus, "GET", "/orders").recordRequest(3_500_000, true, 0);
+
+        verify(eventBus).publish(eq("metrics.timer"), eq("controller.endpoint.duration.GET./orders=3"));
+    }
+
+    @Test
+    public void testEventBusStatusIsCountedByClass() {
+        EventBus eventBus = mock(EventBus.class);
+
+        EventBusEndpointMetrics subject = new EventBusEndpointMetrics(eventBus, "GET", "/orders");
+        subject.recordStatus(304);
+        subject.recordStatus(0);
+
+        verify(eventBus).publish(eq("metrics.counter"), eq("controller.endpoint.status.3xx.count.GET./orders=1"));
+        verifyNoMoreInteractions(eventBus);
+    }
+
+    @Test
+    public void testEventBusMetricsSkipUnusedMarshallingMetrics() {
+        EventBus eventBus = mock(EventBus.class);
+
+        new EventBusEndpointMetrics(eventBus, "POST", "/orders").recordMarshalling(-1, 2);
+
+        verify(eventBus).publish(eq("metrics.counter"), eq("controller.endpoint.marshalling.offloaded.count.POST./orders=2"));
+        verify(eventBus, never()).publish(eq("metrics.histogram"), eq("controller.endpoint.marshalling.eventloop.nanos.POST./orders=-1"));
+        verifyNoMoreInteractions(eventBus);
+    }
+}
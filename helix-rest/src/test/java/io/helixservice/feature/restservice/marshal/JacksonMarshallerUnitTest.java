@@ -15,14 +15,23 @@ package io.helixservice.feature.restservice.marshal;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.helixservice.core.util.BufferOutputStream;
+import io.netty.buffer.ByteBufInputStream;
+import io.vertx.core.buffer.Buffer;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.any;
-import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class JacksonMarshallerUnitTest {
@@ -43,7 +52,9 @@ public class JacksonMarshallerUnitTest {
         Object marshaledObject = new Object();
 
         ObjectMapper objectMapper = mock(ObjectMapper.class);
-        when(objectMapper.writeValueAsString(marshaledObject)).thenReturn("{ json body }");
+        ObjectWriter objectWriter = mock(ObjectWriter.class);
+        when(objectMapper.writerWithType(Object.class)).thenReturn(objectWriter);
+        when(objectWriter.writeValueAsBytes(marshaledObject)).thenReturn("{ json body }".getBytes());
 
         JacksonMarshaller subject = new JacksonMarshaller(objectMapper);
         Message message = subject.marshal(marshaledObject);
@@ -57,7 +68,9 @@ public class JacksonMarshallerUnitTest {
         Object marshaledObject = new Object();
 
         ObjectMapper objectMapper = mock(ObjectMapper.class);
-        when(objectMapper.writeValueAsString(marshaledObject)).thenThrow(new NullPointerException("nope!"));
+        ObjectWriter objectWriter = mock(ObjectWriter.class);
+        when(objectMapper.writerWithType(Object.class)).thenReturn(objectWriter);
+        when(objectWriter.writeValueAsBytes(marshaledObject)).thenThrow(new NullPointerException("nope!"));
 
         JacksonMarshaller subject = new JacksonMarshaller(objectMapper);
         subject.marshal(marshaledObject);
@@ -66,7 +79,9 @@ public class JacksonMarshallerUnitTest {
     @Test(expected = MarshallerException.class)
     public void testUnmarshallException() throws IOException {
         ObjectMapper objectMapper = mock(ObjectMapper.class);
-        when(objectMapper.readValue(any(byte[].class), eq(Object.class))).thenThrow(new NullPointerException("nope!"));
+        ObjectReader objectReader = mock(ObjectReader.class);
+        when(objectMapper.reader(Object.class)).thenReturn(objectReader);
+        when(objectReader.readValue(any(byte[].class))).thenThrow(new NullPointerException("nope!"));
 
         JacksonMarshaller subject = new JacksonMarshaller(objectMapper);
         subject.unmarshal(Object.class, new Message("some data".getBytes(), "application/json"));
@@ -84,10 +99,94 @@ public class JacksonMarshallerUnitTest {
     @Test
     public void testUnmarshalObjectMapping() throws IOException {
         ObjectMapper objectMapper = mock(ObjectMapper.class);
-        when(objectMapper.readValue(any(byte[].class), eq(Object.class))).thenReturn("YES!");
+        ObjectReader objectReader = mock(ObjectReader.class);
+        when(objectMapper.reader(Object.class)).thenReturn(objectReader);
+        when(objectReader.readValue(any(byte[].class))).thenReturn("YES!");
 
         JacksonMarshaller subject = new JacksonMarshaller(objectMapper);
         Object string = subject.unmarshal(Object.class, new Message("some data".getBytes(), "application/json"));
         assertEquals(string, "YES!");
     }
+
+    @Test
+    public void testMarshalToStream() {
+        Buffer buffer = Buffer.buffer();
+
+        JacksonMarshaller subject = new JacksonMarshaller();
+        List<String> contentTypes = subject.marshal(Collections.singletonMap("key", "value"), new BufferOutputStream(buffer));
+
+        assertEquals("{\"key\":\"value\"}", buffer.toString());
+        assertEquals(Collections.singletonList("application/json"), contentTypes);
+    }
+
+    @Test
+    public void testMarshalStringAndNullToStream() {
+        JacksonMarshaller subject = new JacksonMarshaller();
+
+        Buffer stringBuffer = Buffer.buffer();
+        assertEquals("text/plain", subject.marshal("plain", new BufferOutputStream(stringBuffer)).get(0));
+        assertEquals("plain", stringBuffer.toString());
+
+        Buffer nullBuffer = Buffer.buffer();
+        assertEquals("application/json", subject.marshal(null, new BufferOutputStream(nullBuffer)).get(0));
+        assertEquals("{}", nullBuffer.toString());
+    }
+
+    @Test
+    public void testUnmarshalFromStream() {
+        Buffer buffer = Buffer.buffer("{\"key\":\"value\"}");
+
+        JacksonMarshaller subject = new JacksonMarshaller();
+        Map result = (Map) subject.unmarshal(Map.class, new ByteBufInputStream(buffer.getByteBuf()),
+                Collections.singletonList("application/json"));
+
+        assertEquals("value", result.get("key"));
+        assertEquals(buffer.length(), buffer.getBytes().length);
+    }
+
+    @Test(expected = MarshallerException.class)
+    public void testUnmarshalFromStreamException() {
+        JacksonMarshaller subject = new JacksonMarshaller();
+        subject.unmarshal(Map.class, new ByteBufInputStream(Buffer.buffer("not json").getByteBuf()),
+                Collections.singletonList("application/json"));
+    }
+
+    @Test
+    public void testReadersAndWritersAreCachedPerType() throws IOException {
+        ObjectMapper objectMapper = mock(ObjectMapper.class);
+        ObjectReader objectReader = mock(ObjectReader.class);
+        ObjectWriter objectWriter = mock(ObjectWriter.class);
+        when(objectMapper.reader(Map.class)).thenReturn(objectReader);
+        when(objectMapper.writerWithType(Integer.class)).thenReturn(objectWriter);
+        when(objectWriter.writeValueAsBytes(any())).thenReturn("1".getBytes());
+
+        JacksonMarshaller subject = new JacksonMarshaller(objectMapper);
+        subject.prepare(Map.class, Integer.class);
+        subject.unmarshal(Map.class, new Message("{}".getBytes(), "application/json"));
+        subject.unmarshal(Map.class, new Message("{}".getBytes(), "application/json"));
+        subject.marshal(1);
+        subject.marshal(2);
+
+        verify(objectMapper, times(1)).reader(Map.class);
+        verify(objectMapper, times(1)).writerWithType(Integer.class);
+    }
+
+    @Test
+    public void testSubclassIsWrittenWithItsOwnWriter() {
+        JacksonMarshaller subject = new JacksonMarshaller();
+        subject.prepare(String.class, Base.class);
+
+        Buffer buffer = Buffer.buffer();
+        subject.marshal(new Derived(), new BufferOutputStream(buffer));
+
+        assertEquals("{\"base\":\"b\",\"derived\":\"d\"}", buffer.toString());
+    }
+
+    public static class Base {
+        public String base = "b";
+    }
+
+    public static class Derived extends Base {
+        public String derived = "d";
+    }
 }
@@ -0,0 +1,220 @@
+
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.restservice.marshal;
+
+import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class NegotiatingMarshallerUnitTest {
+    private static final String SMILE = NegotiatingMarshaller.SMILE;
+    private static final String CBOR = NegotiatingMarshaller.CBOR;
+
+    private final Marshaller defaultMarshaller = mock(Marshaller.class);
+    private final Marshaller smile = mock(Marshaller.class);
+    private final Marshaller cbor = mock(Marshaller.class);
+
+    private NegotiatingMarshaller subject() {
+        when(defaultMarshaller.canMarshal(String.class)).thenReturn(true);
+        when(smile.canMarshal(String.class)).thenReturn(true);
+        when(cbor.canMarshal(String.class)).thenReturn(true);
+        return new NegotiatingMarshaller(defaultMarshaller).addCodec(SMILE, smile).addCodec(CBOR, cbor);
+    }
+
+    @Test
+    public void testNoAcceptHeaderUsesDefault() {
+        assertSame(defaultMarshaller, subject().forAccept("body", Collections.emptyList()));
+    }
+
+    @Test
+    public void testAcceptSelectsCodec() {
+        assertSame(cbor, subject().forAccept("body", Collections.singletonList("application/cbor")));
+    }
+
+    @Test
+    public void testAcceptUsesQualityThenOrder() {
+        NegotiatingMarshaller subject = subject();
+
+        assertSame(cbor, subject.forAccept("body", Collections.singletonList(SMILE + ";q=0.5, " + CBOR)));
+        assertSame(smile, subject.forAccept("body", Arrays.asList(SMILE, CBOR)));
+        assertSame(defaultMarshaller, subject.forAccept("body",
+                Collections.singletonList("application/json, " + SMILE + "; q=0.9")));
+    }
+
+    @Test
+    public void testWildcardAndUnknownTypesUseDefault() {
+        NegotiatingMarshaller subject = subject();
+
+        assertSame(defaultMarshaller, subject.forAccept("body", Collections.singletonList("*/*")));
+        assertSame(defaultMarshaller, subject.forAccept("body", Collections.singletonList("application/xml")));
+    }
+
+    @Test
+    public void testCodecWhichCannotMarshalTypeIsSkipped() {
+        NegotiatingMarshaller subject = subject();
+        when(smile.canMarshal(Integer.class)).thenReturn(false);
+        when(cbor.canMarshal(Integer.class)).thenReturn(true);
+
+        assertSame(cbor, subject.forAccept(1, Collections.singletonList(SMILE + ", " + CBOR + ";q=0.1")));
+    }
+
+    @Test
+    public void testProtobufMessageWhenAccepted() {
+        NegotiatingMarshaller subject = new NegotiatingMarshaller(Marshaller.DEFAULT)
+                .addCodec(NegotiatingMarshaller.PROTOBUF, new ProtobufMarshaller());
+        FileDescriptorProto message = FileDescriptorProto.newBuilder().setName("x.proto").build();
+
+        List<String> contentTypes = subject.marshal(message, new ByteArrayOutputStream(),
+                Collections.singletonList(NegotiatingMarshaller.PROTOBUF + ", application/json;q=0.5"));
+
+        assertEquals(Collections.singletonList(NegotiatingMarshaller.PROTOBUF), contentTypes);
+    }
+
+    @Test
+    public void testMarshalWritesWithNegotiatedCodec() {
+        NegotiatingMarshaller subject = subject();
+        OutputStream outputStream = new ByteArrayOutputStream();
+        when(smile.marshal("body", outputStream)).thenReturn(Collections.singletonList(SMILE));
+
+        List<String> contentTypes = subject.marshal("body", outputStream, Collections.singletonList(SMILE));
+
+        assertEquals(Collections.singletonList(SMILE), contentTypes);
+        verify(smile).marshal("body", outputStream);
+    }
+
+    @Test
+    public void testMarshalWritesInGivenContentType() {
+        NegotiatingMarshaller subject = subject();
+        OutputStream outputStream = new ByteArrayOutputStream();
+        when(cbor.marshal("body", outputStream)).thenReturn(Collections.singletonList(CBOR));
+
+        List<String> contentTypes = subject.marshal("body", outputStream, "Application/CBOR; charset=UTF-8");
+
+        assertEquals(Collections.singletonList(CBOR), contentTypes);
+        verify(cbor).marshal("body", outputStream);
+    }
+
+    @Test
+    public void testGivenContentTypeIsNotParsedAsAcceptHeader() {
+        NegotiatingMarshaller subject = subject();
+        when(smile.canMarshal(Integer.class)).thenReturn(false);
+
+        assertSame(defaultMarshaller, subject.forContentType("body", SMILE + ", " + CBOR));
+        assertSame(defaultMarshaller, subject.forContentType("body", null));
+        assertSame(defaultMarshaller, subject.forContentType(1, SMILE));
+        assertSame(smile, subject.forContentType("body", SMILE));
+    }
+
+    @Test
+    public void testUnmarshalUsesContentTypeCodec() {
+        NegotiatingMarshaller subject = subject();
+        InputStream inputStream = new ByteArrayInputStream(new byte[0]);
+        List<String> contentTypes = Collections.singletonList("Application/X-Jackson-Smile; charset=UTF-8");
+        when(smile.unmarshal(String.class, inputStream, contentTypes)).thenReturn("result");
+
+        assertEquals("result", subject.unmarshal(String.class, inputStream, contentTypes));
+    }
+
+    @Test
+    public void testUnmarshalUnknownContentTypeUsesDefault() {
+        NegotiatingMarshaller subject = subject();
+
+        assertSame(defaultMarshaller, subject.forContentTypes(Collections.singletonList("application/json")));
+        assertSame(defaultMarshaller, subject.forContentTypes(Collections.emptyList()));
+    }
+
+    @Test
+    public void testPrepareReachesAllCodecs() {
+        NegotiatingMarshaller subject = subject();
+
+        subject.prepare(String.class, Integer.class);
+
+        verify(defaultMarshaller).prepare(String.class, Integer.class);
+        verify(smile).prepare(String.class, Integer.class);
+        verify(cbor).prepare(String.class, Integer.class);
+    }
+
+    @Test
+    public void testWithAvailableCodecsSkipsMissingDataFormats() {
+        NegotiatingMarshaller subject = NegotiatingMarshaller.withAvailableCodecs();
+
+        assertTrue(subject.isNegotiating());
+        assertEquals(Arrays.asList(SMILE, CBOR, NegotiatingMarshaller.MSGPACK, NegotiatingMarshaller.PROTOBUF),
+                subject.getContentTypes());
+        assertNull(JacksonMarshaller.forDataFormat("com.example.MissingFactory", SMILE));
+    }
+
+    @Test
+    public void testSmileRoundTrip() {
+        assertRoundTrip(SMILE);
+    }
+
+    @Test
+    public void testCborRoundTrip() {
+        assertRoundTrip(CBOR);
+    }
+
+    @Test
+    public void testMessagePackRoundTrip() {
+        assertRoundTrip(NegotiatingMarshaller.MSGPACK);
+    }
+
+    private static void assertRoundTrip(String contentType) {
+        NegotiatingMarshaller subject = NegotiatingMarshaller.withAvailableCodecs();
+        Item item = new Item("widget \u00e9", 42, Arrays.asList("a", "b"));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        List<String> contentTypes = subject.marshal(item, outputStream,
+                Collections.singletonList(contentType + ", application/json;q=0.5"));
+        byte[] body = outputStream.toByteArray();
+        Item result = (Item) subject.unmarshal(Item.class, new ByteArrayInputStream(body), contentTypes);
+
+        assertEquals(Collections.singletonList(contentType), contentTypes);
+        assertNotEquals('{', body[0]);
+        assertEquals(item.name, result.name);
+        assertEquals(item.count, result.count);
+        assertEquals(item.tags, result.tags);
+    }
+
+    public static class Item {
+        public String name;
+        public int count;
+        public List<String> tags;
+
+        public Item() {
+        }
+
+        public Item(String name, int count, List<String> tags) {
+            this.name = name;
+            this.count = count;
+            this.tags = tags;
+        }
+    }
+}
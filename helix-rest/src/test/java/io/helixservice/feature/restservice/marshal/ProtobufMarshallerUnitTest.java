@@ -0,0 +1,75 @@
+
+/*
+ * @author Les Novell
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   and Apache License v2.0 which accompanies this distribution.
+ *
+ *      The Apache License v2.0 is available at
+ *      http://www.opensource.org/licenses/apache2.0.php
+ *
+ */
+
+package io.helixservice.feature.restservice.marshal;
+
+import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ProtobufMarshallerUnitTest {
+    private static final FileDescriptorProto MESSAGE = FileDescriptorProto.newBuilder()
+            .setName("greeting.proto")
+            .setPackage("io.helixservice.test")
+            .build();
+
+    @Test
+    public void testRoundTripThroughStreams() {
+        ProtobufMarshaller subject = new ProtobufMarshaller();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        List<String> contentTypes = subject.marshal(MESSAGE, outputStream);
+        Object result = subject.unmarshal(FileDescriptorProto.class,
+                new ByteArrayInputStream(outputStream.toByteArray()), contentTypes);
+
+        assertEquals(Collections.singletonList("application/x-protobuf"), contentTypes);
+        assertEquals(MESSAGE, result);
+    }
+
+    @Test
+    public void testRoundTripThroughMessage() {
+        ProtobufMarshaller subject = new ProtobufMarshaller();
+
+        Message message = subject.marshal(MESSAGE);
+
+        assertEquals("application/x-protobuf", message.getContentType());
+        assertEquals(MESSAGE, subject.unmarshal(FileDescriptorProto.class, message));
+    }
+
+    @Test
+    public void testCanMarshalOnlyProtobufMessages() {
+        ProtobufMarshaller subject = new ProtobufMarshaller();
+
+        assertTrue(ProtobufMarshaller.isAvailable());
+        assertTrue(subject.canMarshal(FileDescriptorProto.class));
+        assertFalse(subject.canMarshal(String.class));
+    }
+
+    @Test(expected = MarshallerException.class)
+    public void testMarshalNonProtobufObject() {
+        new ProtobufMarshaller().marshal("not a message", new ByteArrayOutputStream());
+    }
+
+    @Test(expected = MarshallerException.class)
+    public void testUnmarshalNonProtobufType() {
+        new ProtobufMarshaller().unmarshal(String.class, new Message(new byte[0], "application/x-protobuf"));
+    }
+}